@@ -1,13 +1,32 @@
 package hu.antalnagy.gcperf;
 
+import hu.antalnagy.gcperf.persistence.Digests;
+import hu.antalnagy.gcperf.persistence.LogArchive;
+import hu.antalnagy.gcperf.persistence.RunCache;
+import hu.antalnagy.gcperf.persistence.RunJournal;
+import hu.antalnagy.gcperf.probe.OperationProbe;
+import hu.antalnagy.gcperf.probe.OperationSampler;
+import hu.antalnagy.gcperf.statistics.Quantiles;
+
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.DecimalFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Future;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.ToDoubleFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -15,52 +34,87 @@ import java.util.regex.Pattern;
 
 public class Analysis {
     private static final Path LOC_PATH = Paths.get("").toAbsolutePath();
-    private static final Path LOC_OUT_PATH = Paths.get(LOC_PATH + "/res/out");
-    private static final Path LOC_OUT_ERR_PATH = Paths.get(LOC_PATH + "/res/outErr").toAbsolutePath();
+    private static final Path LOC_WORKSPACES_PATH = Paths.get(LOC_PATH + "/res/workspaces").toAbsolutePath();
     private static final Path LOC_OUT_BIN_PATH = Paths.get(LOC_PATH + "/bin").toAbsolutePath();
 
-    private static int OUT_FILE_NO = 0;
-
     private static final int MAX_INIT_HEAP_SIZE = 2048;
-    private static final int MAX_MAX_HEAP_SIZE = 8192;
+    private static final int DEFAULT_MAX_MAX_HEAP_SIZE = 8192;
 
     private static final Logger LOGGER = Logger.getLogger(Analysis.class.getSimpleName());
+    private static final int MAX_MAX_HEAP_SIZE = detectMaxMaxHeapSize();
     private static final int BUFFER_SIZE = 8 * 1024;
+    private static final int GRACEFUL_SHUTDOWN_TIMEOUT_SECONDS = 30;
+    private static final int EVENT_OFFER_TIMEOUT_SECONDS = 5;
+    private static final int MIN_LAUNCH_FEATURE_VERSION = 9;
 
     private static final Pattern osThreadPattern = Pattern.compile("\\[os,thread");
     private static final Pattern gcCpuPattern = Pattern.compile("\\[gc,cpu");
-    private static final Pattern gcStartPattern = Pattern.compile("\\[gc,start ");
+    private static final Pattern gcStartPattern = Pattern.compile("\\[gc,start *]");
     private static final Pattern gcPhasesPattern = Pattern.compile("\\[gc,phases");
     private static final Pattern gcStatsPattern = Pattern.compile("\\[gc,stats");
     private static final Pattern gcPausePattern = Pattern.compile("\\[gc *].*Pause");
     private static final Pattern gcConcurrentPattern = Pattern.compile("\\[gc *].*Concurrent Cycle \\d+");
-    private static final Pattern gcWhiteSpacePattern = Pattern.compile("gc\\s");
+    private static final Pattern gcConcurrentPhasePattern = Pattern.compile("\\[gc *].*Concurrent ");
+    private static final Pattern gcWhiteSpacePattern = Pattern.compile("\\[gc *]");
     private static final Pattern gcNumPattern = Pattern.compile("GC\\([0-9]+\\)");
     private static final Pattern gcNumAndPausePattern = Pattern.compile("GC\\([0-9]+\\)\sPause");
     private static final Pattern pausePattern = Pattern.compile("Pause");
     private static final Pattern pauseFullPattern = Pattern.compile("Pause Full");
+    private static final Pattern gcTagPattern = Pattern.compile("\\[gc *]");
+    private static final Pattern pauseDurationPattern = Pattern.compile("Pause.*\\s(\\d+[.,]\\d+)ms\\s*$");
+    private static final Pattern pauseCausePattern =
+            Pattern.compile("Pause (.+?)\\s+(?:\\d+[KMG](?:\\(\\d+%\\))?->|\\d+[.,]\\d+ms\\s*$)");
+    private static final Pattern heapTransitionPattern =
+            Pattern.compile("(\\d+)([KMG])(?:\\(\\d+%\\))?->(\\d+)([KMG])");
+    private static final Pattern gcUsingPattern = Pattern.compile("\\[gc(?:,init)? *].*\\bUsing ");
+    private static final Pattern gcEventPattern = Pattern.compile("\\[gc[\\w,]* *]\\s*GC\\(\\d+\\)");
 
-    private static final Object mainLock = new Object();
-    private static final Object watcherLock = new Object();
+    private final Object mainLock = new Object();
+    private final Object watcherLock = new Object();
 
     private final String mainClass;
+    private final JavaRuntime javaRuntime;
     private final List<GCType> gcTypes;
     private final Metrics[] metrics;
     private final Progress progress;
+    private ContainerProfile containerProfile;
+    private Workspace workspace;
+    private int maxMaxHeapSize = MAX_MAX_HEAP_SIZE;
+    private SteadyStateWindow steadyStateWindow;
+    private OperationProbe operationProbe;
+    private RunJournal runJournal;
+    private RunCache runCache;
+    private LogArchive logArchive;
+    private String targetDigest;
+    private boolean resume;
+    private RunOrder runOrder = RunOrder.SEQUENTIAL;
+    private Leaderboard.SignificanceTesting significanceTesting;
+    private Map<Metrics, Double> metricWeights = new EnumMap<>(Metrics.class);
+    private List<Double> mmuWindows = MutatorUtilization.DEFAULT_WINDOWS;
+    private double mmuRankingWindow = MutatorUtilization.DEFAULT_RANKING_WINDOW;
+    private long runOrderSeed;
 
     private final Map<GCType, Double> avgRuns = new HashMap<>();
     private final Map<GCType, Double> avgGCRuns = new HashMap<>();
     private final Map<GCType, List<Double>> gcRuntimes = new HashMap<>();
     private final Map<GCType, List<Double>> throughputsMap = new HashMap<>();
     private final Map<GCType, List<Integer>> pausesMap = new HashMap<>();
+    private final Map<GCType, List<Double>> appThroughputsMap = new HashMap<>();
+    private final Map<GCType, List<Double>> pauseP99sMap = new HashMap<>();
+    private final Map<GCType, List<Double>> maxPausesMap = new HashMap<>();
+    private final Map<GCType, List<Double>> footprintsMap = new HashMap<>();
+    private final Map<GCType, List<double[]>> mmuCurvesMap = new HashMap<>();
+    private final Map<GCType, List<List<GCPause>>> pauseTimelinesMap = new HashMap<>();
+    private final Map<GCType, List<Double>> mmusMap = new HashMap<>();
+    private final Map<GCType, List<RunResult>> runResultsMap = new HashMap<>();
 
     private final boolean isShenandoahOnly;
-    private final AtomicInteger prematureProcessInterrupts = new AtomicInteger(0);
-    private final AtomicInteger prematureRunIncrement = new AtomicInteger(0);
-    private final AtomicBoolean memoryAllocationFailureOnLastRun = new AtomicBoolean(false);
+    private final SubmissionPublisher<AnalysisEvent> events = new SubmissionPublisher<>();
+    private volatile Process currentProcess;
     private double lastSuccessfulShenandoahRunTime = 0.0;
 
-    private Leaderboard leaderboard;
+    private volatile IncrementalLeaderboard incrementalLeaderboard;
+    private volatile Leaderboard leaderboard;
 
     public enum Metrics {
         BestGCRuntime,
@@ -68,14 +122,66 @@ public class Analysis {
         Throughput,
         Latency,
         MinorPauses,
-        FullPauses
+        FullPauses,
+        AppThroughput,
+        Footprint,
+        MMU
+    }
+
+    /***
+     * Stop-the-world pause of a run
+     * @param uptime uptime of the child JVM at the end of the pause in seconds
+     * @param duration duration of the pause in ms
+     * @param cause kind and cause of the pause as logged, e.g. Young (Allocation Failure); null if unknown
+     */
+    public record GCPause(double uptime, double duration, String cause) {
+        public GCPause(double uptime, double duration) {
+            this(uptime, duration, null);
+        }
+    }
+
+    /***
+     * SEQUENTIAL - every run of a GC Type before the next GC Type, in list order
+     * RANDOMIZED_BLOCKS - blocks of one run per GC Type, shuffled within each block, so drift (thermal throttling,
+     * page cache warmup, background load) spreads evenly over the GC Types instead of favoring the first or last one
+     */
+    public enum RunOrder {
+        SEQUENTIAL,
+        RANDOMIZED_BLOCKS
+    }
+
+    /***
+     * Runs the application for warmup + measurement wall-clock time, then ends it gracefully (SIGTERM).
+     * Only the log lines of the measurement window are used for the metrics.
+     * @param warmup discarded warmup period
+     * @param measurement steady-state measurement period
+     */
+    public record SteadyStateWindow(Duration warmup, Duration measurement) {
+        public SteadyStateWindow {
+            if (warmup == null || warmup.isNegative()) {
+                throw new IllegalArgumentException("Warmup period must not be negative");
+            }
+            if (measurement == null || measurement.isNegative() || measurement.isZero()) {
+                throw new IllegalArgumentException("Measurement period must be positive");
+            }
+        }
+
+        public double getWarmupSeconds() {
+            return warmup.toMillis() / 1000.0;
+        }
+
+        public double getEndSeconds() {
+            return warmup.plus(measurement).toMillis() / 1000.0;
+        }
     }
 
     public static class Progress {
         private final LinkedHashMap<Integer, String> progressMap = new LinkedHashMap<>();
-        boolean failed = false;
-        boolean done = false;
-        int progressLevel = 1;
+        volatile boolean failed = false;
+        volatile boolean cancelled = false;
+        volatile boolean done = false;
+        volatile int progressLevel = 1;
+        volatile String progressMessage;
 
         private Progress(GCType... gcTypes) {
             int i = 1;
@@ -92,6 +198,9 @@ public class Analysis {
         }
 
         public String getProgressMessage() {
+            if (progressMessage != null && progressLevel < progressMap.size()) {
+                return progressMessage;
+            }
             return progressMap.get(progressLevel);
         }
 
@@ -99,6 +208,10 @@ public class Analysis {
             return failed;
         }
 
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
         public boolean isDone() {
             return done;
         }
@@ -109,17 +222,257 @@ public class Analysis {
     }
 
     public Analysis(String mainClass, List<GCType> gcTypes, Metrics[] metrics) {
+        this(mainClass, gcTypes, metrics, JavaRuntime.fromPath());
+    }
+
+    /***
+     * @param javaRuntime runtime the child JVMs are launched with; a runtime that can't start a child JVM with one of
+     *                    the GC Types is rejected, a recorded runtime (reanalysis, imported logs) is not checked
+     */
+    public Analysis(String mainClass, List<GCType> gcTypes, Metrics[] metrics, JavaRuntime javaRuntime) {
+        if (!javaRuntime.isRecorded()) {
+            checkLaunchable(gcTypes, javaRuntime);
+        }
         this.mainClass = mainClass;
+        this.javaRuntime = javaRuntime;
         this.gcTypes = new ArrayList<>(gcTypes);
         this.metrics = List.of(metrics).toArray(Metrics[]::new);
         progress = new Progress(gcTypes.toArray(GCType[]::new));
         isShenandoahOnly = gcTypes.contains(GCType.SHENANDOAH) && gcTypes.size() == 1;
     }
 
+    //the child JVMs log with -Xlog, which JDK 8 and older refuse; an unknown version is let through
+    private static void checkLaunchable(List<GCType> gcTypes, JavaRuntime javaRuntime) {
+        int featureVersion = javaRuntime.getFeatureVersion();
+        if (featureVersion == 0) {
+            return;
+        }
+        if (featureVersion < MIN_LAUNCH_FEATURE_VERSION) {
+            LOGGER.log(Level.SEVERE, "Child JVMs can't be launched on " + javaRuntime);
+            throw new IllegalArgumentException("Launching an analysis needs JDK " + MIN_LAUNCH_FEATURE_VERSION +
+                    " or newer, " + javaRuntime + " doesn't support -Xlog. Please import its GC logs instead");
+        }
+        List<GCType> unavailable = gcTypes.stream().filter(gcType -> !gcType.isAvailableOn(featureVersion)).toList();
+        if (!unavailable.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "GC Types " + unavailable + " not available on " + javaRuntime);
+            throw new IllegalArgumentException("GC Types " + unavailable + " can't be launched on " + javaRuntime +
+                    ". Please remove them or choose another JDK");
+        }
+    }
+
+    /***
+     * Runs every child JVM with the given container shape. The profile's MaxRAM also caps the maximum heap size.
+     * @param containerProfile container profile
+     * @return this
+     */
+    public Analysis withContainerProfile(ContainerProfile containerProfile) {
+        this.containerProfile = containerProfile;
+        this.maxMaxHeapSize = containerProfile == null ? MAX_MAX_HEAP_SIZE : containerProfile.limitMaxHeapSize(MAX_MAX_HEAP_SIZE);
+        return this;
+    }
+
+    /***
+     * Runs the child JVMs from the binaries directory of the workspace and writes their output into per-run
+     * directories of it. Without a workspace, a new one is created for every analysis using ./bin as binaries.
+     * @param workspace workspace, or null
+     * @return this
+     */
+    public Analysis withWorkspace(Workspace workspace) {
+        this.workspace = workspace;
+        return this;
+    }
+
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /***
+     * Switches from batch mode (the application terminates by itself) to fixed-duration steady-state mode.
+     * @param steadyStateWindow warmup and measurement periods, or null for batch mode
+     * @return this
+     */
+    public Analysis withSteadyStateWindow(SteadyStateWindow steadyStateWindow) {
+        this.steadyStateWindow = steadyStateWindow;
+        return this;
+    }
+
+    /***
+     * Measures application throughput (operations per second) of every run with the given probe.
+     * @param operationProbe operation counter probe, or null
+     * @return this
+     */
+    public Analysis withOperationProbe(OperationProbe operationProbe) {
+        this.operationProbe = operationProbe;
+        return this;
+    }
+
+    /***
+     * Appends every completed run to the journal. With resume enabled, runs already journaled for the same target and
+     * configuration are not run again.
+     * @param runJournal journal, or null
+     * @param targetDigest SHA-256 of the analyzed .class/.jar file
+     * @param resume skip journaled runs
+     * @return this
+     */
+    public Analysis withRunJournal(RunJournal runJournal, String targetDigest, boolean resume) {
+        this.runJournal = runJournal;
+        this.targetDigest = targetDigest;
+        this.resume = resume;
+        return this;
+    }
+
+    public RunJournal getRunJournal() {
+        return runJournal;
+    }
+
+    /***
+     * Reuses the results of runs already measured with the same target, JDK, command line and run index instead of
+     * launching the child JVM again.
+     * @param runCache run cache, or null
+     * @param targetDigest SHA-256 of the analyzed .class/.jar file
+     * @return this
+     */
+    public Analysis withRunCache(RunCache runCache, String targetDigest) {
+        this.runCache = runCache;
+        this.targetDigest = targetDigest;
+        return this;
+    }
+
+    public RunCache getRunCache() {
+        return runCache;
+    }
+
+    /***
+     * Archives the GC log of every measured run, so the pauses of reused runs can still be read after their workspace
+     * is pruned.
+     * @param logArchive log archive, or null
+     * @return this
+     */
+    public Analysis withLogArchive(LogArchive logArchive) {
+        this.logArchive = logArchive;
+        return this;
+    }
+
+    public LogArchive getLogArchive() {
+        return logArchive;
+    }
+
+    /***
+     * @param runOrder order of the runs across GC Types
+     * @param seed seed of the shuffle, the same seed reproduces the same order
+     * @return this
+     */
+    public Analysis withRunOrder(RunOrder runOrder, long seed) {
+        this.runOrder = runOrder;
+        this.runOrderSeed = seed;
+        return this;
+    }
+
+    public RunOrder getRunOrder() {
+        return runOrder;
+    }
+
+    /***
+     * Ranks the GC Types by their run distributions with bootstrap confidence intervals and pairwise significance
+     * tests instead of by their best run; GC Types without significant difference tie on a metric.
+     * @param significanceTesting test settings, or null
+     * @return this
+     */
+    public Analysis withSignificanceTesting(Leaderboard.SignificanceTesting significanceTesting) {
+        this.significanceTesting = significanceTesting;
+        return this;
+    }
+
+    public Leaderboard.SignificanceTesting getSignificanceTesting() {
+        return significanceTesting;
+    }
+
+    /***
+     * Weighs the rank points of each metric, e.g. 2.0 for a metric twice as important as the others.
+     * @param metricWeights non-negative weight per metric, metrics without a weight count with 1.0
+     * @return this
+     */
+    public Analysis withMetricWeights(Map<Metrics, Double> metricWeights) {
+        Leaderboard.validateWeights(metricWeights);
+        this.metricWeights = metricWeights == null || metricWeights.isEmpty() ? new EnumMap<>(Metrics.class) :
+                new EnumMap<>(metricWeights);
+        return this;
+    }
+
+    public Map<Metrics, Double> getMetricWeights() {
+        return new EnumMap<>(metricWeights);
+    }
+
+    /***
+     * @param windows window sizes (ms) of the MMU curves, between 1 ms and 10 s
+     * @param rankingWindow window size (ms) of the MMU metric, added to the curves if missing
+     * @return this
+     */
+    public Analysis withMMUWindows(List<Double> windows, double rankingWindow) {
+        MutatorUtilization.validateWindows(windows);
+        MutatorUtilization.validateWindows(List.of(rankingWindow));
+        this.mmuWindows = MutatorUtilization.withRankingWindow(windows, rankingWindow);
+        this.mmuRankingWindow = rankingWindow;
+        return this;
+    }
+
+    /***
+     * @return window sizes (ms) of the MMU curves, ascending
+     */
+    public List<Double> getMMUWindows() {
+        return mmuWindows;
+    }
+
+    public double getMMURankingWindow() {
+        return mmuRankingWindow;
+    }
+
+    public OperationProbe getOperationProbe() {
+        return operationProbe;
+    }
+
+    public SteadyStateWindow getSteadyStateWindow() {
+        return steadyStateWindow;
+    }
+
+    public ContainerProfile getContainerProfile() {
+        return containerProfile;
+    }
+
+    /***
+     * @return the maximum heap size ceiling (in MB) of this analysis
+     */
+    public int getMaxHeapSizeLimit() {
+        return maxMaxHeapSize;
+    }
+
+    /***
+     * @return the maximum heap size ceiling (in MB) of this machine: 3/4 of the physical memory
+     */
+    public static int getMaxMaxHeapSize() {
+        return MAX_MAX_HEAP_SIZE;
+    }
+
+    private static int detectMaxMaxHeapSize() {
+        OperatingSystemMXBean osBean = ManagementFactory.getOperatingSystemMXBean();
+        if (osBean instanceof com.sun.management.OperatingSystemMXBean sunOsBean) {
+            long totalMemoryMb = sunOsBean.getTotalMemorySize() / (1024 * 1024);
+            if (totalMemoryMb > 0) {
+                return (int) Long.max(16, Long.min(Integer.MAX_VALUE, totalMemoryMb * 3 / 4));
+            }
+        }
+        LOGGER.log(Level.WARNING, "Couldn't determine physical memory size, using default maximum heap size limit");
+        return DEFAULT_MAX_MAX_HEAP_SIZE;
+    }
+
     public String getMainClass() {
         return mainClass;
     }
 
+    public JavaRuntime getJavaRuntime() {
+        return javaRuntime;
+    }
+
     public List<GCType> getGcTypes() {
         return new ArrayList<>(gcTypes);
     }
@@ -152,94 +505,753 @@ public class Analysis {
         return new HashMap<>(pausesMap);
     }
 
+    /***
+     * @return application throughputs (ops/sec) per run, NaN where the probe delivered no value; empty without a probe
+     */
+    public Map<GCType, List<Double>> getAppThroughputsMap() {
+        return new HashMap<>(appThroughputsMap);
+    }
+
+    /***
+     * @return 99th percentile stop-the-world pause (ms) per run, 0 where the GC log held collections but no pause,
+     * NaN where it held no collection or was no longer available
+     */
+    public Map<GCType, List<Double>> getPauseP99sMap() {
+        return new HashMap<>(pauseP99sMap);
+    }
+
+    /***
+     * @return longest stop-the-world pause (ms) per run, 0 where the GC log held collections but no pause, NaN
+     * where it held no collection or was no longer available
+     */
+    public Map<GCType, List<Double>> getMaxPausesMap() {
+        return new HashMap<>(maxPausesMap);
+    }
+
+    /***
+     * @return MMU curve per run: the minimum mutator utilization (0..1) at each of {@link #getMMUWindows()}
+     */
+    public Map<GCType, List<double[]>> getMMUCurvesMap() {
+        Map<GCType, List<double[]>> copy = new HashMap<>();
+        mmuCurvesMap.forEach((gcType, curves) -> copy.put(gcType, curves.stream().map(double[]::clone).toList()));
+        return copy;
+    }
+
+    /***
+     * @return stop-the-world pauses per run in log order, empty where the GC log of a reused run is no longer available
+     */
+    public Map<GCType, List<List<GCPause>>> getPauseTimelinesMap() {
+        return new HashMap<>(pauseTimelinesMap);
+    }
+
+    /***
+     * @return MMU at the ranking window per run, NaN where the GC log of a reused run is no longer available
+     */
+    public Map<GCType, List<Double>> getMMUsMap() {
+        return new HashMap<>(mmusMap);
+    }
+
+    /***
+     * @return peak heap usage (MB) per run, NaN where the log held no heap transitions
+     */
+    public Map<GCType, List<Double>> getFootprintsMap() {
+        return new HashMap<>(footprintsMap);
+    }
+
+    /***
+     * @return results of the successful runs with their heap configuration and log file, per GC Type
+     */
+    public Map<GCType, List<RunResult>> getRunResults() {
+        return new HashMap<>(runResultsMap);
+    }
+
+    /***
+     * @return per GC Type, the GC time, throughput and p99 pause of its runs against their maximum heap size, with the
+     * knee of each curve; empty before the analysis finished
+     */
+    public Map<GCType, List<HeapResponse.Curve>> getHeapResponseCurves() {
+        return HeapResponse.curves(runResultsMap);
+    }
+
+    /***
+     * @return the final leaderboard once the analysis finished, the partial standings of the runs finished so far
+     * while it is running, and an empty list before the first run
+     */
     public List<GCType> getLeaderboard() {
-        return leaderboard.getLeaderboard();
+        Leaderboard finalLeaderboard = leaderboard;
+        if (finalLeaderboard != null) {
+            return finalLeaderboard.getLeaderboard();
+        }
+        IncrementalLeaderboard partialLeaderboard = incrementalLeaderboard;
+        return partialLeaderboard == null ? new LinkedList<>() : new LinkedList<>(partialLeaderboard.getLeaderboard());
+    }
+
+    /***
+     * @return standings of the GC Types by the runs finished so far, best first; available while the analysis runs
+     */
+    public List<IncrementalLeaderboard.Standing> getStandings() {
+        IncrementalLeaderboard partialLeaderboard = incrementalLeaderboard;
+        return partialLeaderboard == null ? List.of() : partialLeaderboard.getStandings();
+    }
+
+    /***
+     * @return confidence intervals, tiers and ties per metric; empty without significance testing or before the
+     * analysis finished
+     */
+    public Map<Metrics, Leaderboard.MetricRanking<GCType>> getMetricRankings() {
+        Leaderboard finalLeaderboard = leaderboard;
+        return finalLeaderboard == null ? new EnumMap<>(Metrics.class) : finalLeaderboard.getMetricRankings();
+    }
+
+    /***
+     * @return the GC Types no other GC Type beats on throughput, p99 pause and footprint at once; empty before the
+     * analysis finished
+     */
+    public List<Leaderboard.ParetoPoint<GCType>> getParetoFront() {
+        Leaderboard finalLeaderboard = leaderboard;
+        return finalLeaderboard == null ? List.of() : finalLeaderboard.getParetoFront();
+    }
+
+    /***
+     * Pareto front of the individual heap configurations instead of the GC Types: every (GC Type, Xms, Xmx) run
+     * configuration is a candidate, so a GC Type can be on the front with a small heap and with a big one.
+     * @return the non-dominated configurations
+     */
+    public List<Leaderboard.ParetoPoint<Leaderboard.HeapConfiguration>> getConfigurationParetoFront() {
+        Map<Leaderboard.HeapConfiguration, List<RunResult>> byConfiguration = new LinkedHashMap<>();
+        runResultsMap.values().forEach(runResults -> runResults.forEach(runResult -> byConfiguration.computeIfAbsent(
+                new Leaderboard.HeapConfiguration(runResult.gcType(), runResult.xms(), runResult.xmx()),
+                configuration -> new ArrayList<>()).add(runResult)));
+        List<Leaderboard.ParetoPoint<Leaderboard.HeapConfiguration>> points = new ArrayList<>();
+        byConfiguration.forEach((configuration, runResults) -> points.add(new Leaderboard.ParetoPoint<>(configuration,
+                mean(runResults, RunResult::throughput), mean(runResults, RunResult::pauseP99),
+                mean(runResults, RunResult::footprint))));
+        return Leaderboard.paretoFront(points);
+    }
+
+    private static double mean(List<RunResult> runResults, ToDoubleFunction<RunResult> metric) {
+        return runResults.stream().mapToDouble(metric).filter(d -> !Double.isNaN(d)).average().orElse(Double.NaN);
     }
 
     public static Logger getLOGGER() {
         return LOGGER;
     }
 
+    /***
+     * Run and analysis events, delivered asynchronously in order. Each subscriber has a bounded buffer: the analysis
+     * waits up to {@value #EVENT_OFFER_TIMEOUT_SECONDS} seconds between runs for a slow subscriber, then drops the
+     * event for it. The stream completes after {@link AnalysisEvent.AnalysisDone}.
+     * @return event publisher
+     */
+    public Flow.Publisher<AnalysisEvent> getEvents() {
+        return events;
+    }
+
+    /***
+     * Stops the analysis: the running child JVM is destroyed and no further runs are started.
+     * Can be called from any thread, e.g. by an event subscriber.
+     */
+    public void cancel() {
+        LOGGER.log(Level.WARNING, "Analysis cancelled");
+        progress.cancelled = true;
+        progress.failed = true;
+        Process process = currentProcess;
+        if (process != null) {
+            process.destroy();
+        }
+    }
+
+    private void publish(AnalysisEvent event) {
+        if (events.isClosed()) {
+            return;
+        }
+        events.offer(event, EVENT_OFFER_TIMEOUT_SECONDS, TimeUnit.SECONDS, (subscriber, dropped) -> {
+            LOGGER.log(Level.WARNING, "Slow event subscriber, dropping " + dropped.getClass().getSimpleName() + " event");
+            return false;
+        });
+    }
+
     public void performGCAnalysis(int runs, int initStartHeapSize, int initMaxHeapSize,
                                   int startHeapIncrementSize, int maxHeapIncrementSize) throws IOException {
         validateInputParameters(runs, initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize);
+        if (operationProbe == null && List.of(metrics).contains(Metrics.AppThroughput)) {
+            LOGGER.log(Level.WARNING, "AppThroughput metric selected without an operation probe, it will be ignored");
+        }
+        leaderboard = null;
+        incrementalLeaderboard = new IncrementalLeaderboard(gcTypes, metrics, metricWeights);
+        String configKey = buildConfigKey(initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize);
+        List<RunResult> journaledRuns = resume && runJournal != null ? runJournal.load(configKey) : List.of();
+        boolean ownWorkspace = workspace == null;
+        if (ownWorkspace) {
+            workspace = Workspace.create(LOC_WORKSPACES_PATH, LOC_OUT_BIN_PATH);
+        }
+        try {
+            if (runOrder == RunOrder.RANDOMIZED_BLOCKS) {
+                performInterleavedRuns(runs, initStartHeapSize, initMaxHeapSize, startHeapIncrementSize,
+                        maxHeapIncrementSize, configKey, journaledRuns);
+            } else {
+                performSequentialRuns(runs, initStartHeapSize, initMaxHeapSize, startHeapIncrementSize,
+                        maxHeapIncrementSize, configKey, journaledRuns);
+            }
+        } catch (IOException | RuntimeException ex) {
+            events.closeExceptionally(ex);
+            throw ex;
+        } finally {
+            if (ownWorkspace) {
+                workspace.close();
+            }
+        }
+        finishAnalysis();
+    }
+
+    private void finishAnalysis() {
+        if(!progress.failed) {
+            progress.progressLevel++;
+            Leaderboard finalLeaderboard = new Leaderboard(avgGCRuns, gcRuntimes, throughputsMap, pausesMap,
+                    appThroughputsMap, gcTypes).withPauseP99s(pauseP99sMap).withMaxPauses(maxPausesMap)
+                    .withFootprints(footprintsMap).withMMUs(mmusMap).withSignificanceTesting(significanceTesting).withWeights(metricWeights);
+            finalLeaderboard.setLeaderboard(metrics);
+            leaderboard = finalLeaderboard;
+        }
+        publish(new AnalysisEvent.AnalysisDone(progress.failed ? List.of() : leaderboard.getLeaderboard(),
+                progress.failed));
+        events.close();
+    }
+
+    private void performSequentialRuns(int runs, int initStartHeapSize, int initMaxHeapSize,
+                                       int startHeapIncrementSize, int maxHeapIncrementSize, String configKey,
+                                       List<RunResult> journaledRuns) throws IOException {
         for (GCType gcType : gcTypes) {
             if(progress.failed) {
                 LOGGER.log(Level.SEVERE, "Stopping analysis");
                 waitABit(); //for gui progress bar
                 break;
             }
-            List<Double> measuredRuntimes = new ArrayList<>();
-            List<Double> measuredGCTimes = new ArrayList<>();
-            List<Double> measuredSTWTimes = new ArrayList<>();
-            List<Double> throughputs = new ArrayList<>();
-            List<Integer> pauses = new ArrayList<>();
-            double totalGCTime = 0.0;
-            int noOfRuns = runs;
-            int lastRunWithNoMallocFailure = 0;
-            prematureProcessInterrupts.set(0);
-            prematureRunIncrement.set(0);
             progress.progressLevel++;
-            LOGGER.log(Level.INFO, "Initializing run with GC Type: " + gcType.name());
+            LOGGER.log(Level.INFO, "Initializing run with GC Type: " + gcType.name() + " on " + javaRuntime);
             LOGGER.log(Level.INFO, "Expected no. of runs: " + runs);
-            for (int i = 0; i < noOfRuns; i++) {
-                if(Math.abs(i - lastRunWithNoMallocFailure) == 20) {
-                    LOGGER.log(Level.SEVERE, "Analysis suspended for GC Type: " + gcType.name() +
-                            "\nReason: 20 consecutive failed runs\n" +
-                            "Possible problems include too small general heap size or too small heap size increments");
-                    progress.failed = true;
+            CollectorSweep sweep = new CollectorSweep(gcType, runs, initStartHeapSize, initMaxHeapSize,
+                    startHeapIncrementSize, maxHeapIncrementSize, configKey);
+            sweep.resumeFrom(journaledRuns);
+            while (!progress.failed && sweep.hasNextRun()) {
+                sweep.runNext();
+            }
+            sweep.publishResults();
+        }
+    }
+
+    private void performInterleavedRuns(int runs, int initStartHeapSize, int initMaxHeapSize,
+                                        int startHeapIncrementSize, int maxHeapIncrementSize, String configKey,
+                                        List<RunResult> journaledRuns) throws IOException {
+        LOGGER.log(Level.INFO, "Initializing interleaved runs with GC Types: " + gcTypes + " on " + javaRuntime +
+                "; seed: " + runOrderSeed);
+        LOGGER.log(Level.INFO, "Expected no. of runs per GC Type: " + runs);
+        Random random = new Random(runOrderSeed);
+        List<CollectorSweep> sweeps = new ArrayList<>();
+        for (GCType gcType : gcTypes) {
+            CollectorSweep sweep = new CollectorSweep(gcType, runs, initStartHeapSize, initMaxHeapSize,
+                    startHeapIncrementSize, maxHeapIncrementSize, configKey);
+            sweep.resumeFrom(journaledRuns);
+            sweeps.add(sweep);
+        }
+        int block = 0;
+        while (!progress.failed) {
+            //retried attempts move to the next block, a finished GC Type drops out
+            List<CollectorSweep> order = new ArrayList<>(sweeps.stream().filter(CollectorSweep::hasNextRun).toList());
+            if (order.isEmpty()) {
+                break;
+            }
+            Collections.shuffle(order, random);
+            block++;
+            progress.progressMessage = "Running interleaved block " + block + " ...";
+            LOGGER.log(Level.INFO, "Block " + block + " order: " + order.stream().map(sweep -> sweep.gcType.name())
+                    .toList());
+            for (CollectorSweep sweep : order) {
+                if (progress.failed) {
                     break;
                 }
-                int[] xm = calculateHeapSize(initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize,
-                        i, prematureProcessInterrupts.get());
-                int xms = xm[0];
-                int xmx = xm[1];
-                noOfRuns = checkLimits(noOfRuns, i, xms, xmx);
-                ProcessBuilder builder = new ProcessBuilder(buildExecutableCommandArray(buildCLI(gcType, xms, xmx)));
-                builder.directory(LOC_OUT_BIN_PATH.toFile());
-                File outFile = createOutFile(false);
-                File outErrFile = createOutFile(true);
-                builder.redirectOutput(outFile);
-                builder.redirectError(outErrFile);
-                final AtomicReference<Process> process = new AtomicReference<>();
-                final AtomicBoolean processSuspended = new AtomicBoolean();
-                createProcessThread(process, processSuspended, builder, gcType, avgRuns, outFile);
-                waitForMainLock();
-                final AtomicBoolean erroneousRun = new AtomicBoolean(false);
-                noOfRuns = getNumOfRunsAndHandleUnexpectedThreadEvents(noOfRuns, processSuspended, erroneousRun, process, outErrFile);
-                if (!memoryAllocationFailureOnLastRun.get()) {
-                    lastRunWithNoMallocFailure = i;
+                sweep.runNext();
+            }
+            int completedRuns = sweeps.stream().mapToInt(sweep -> sweep.runResults.size()).sum();
+            progress.progressLevel = 1 + Integer.min(gcTypes.size(), completedRuns / runs);
+        }
+        if (progress.failed) {
+            LOGGER.log(Level.SEVERE, "Stopping analysis");
+            waitABit(); //for gui progress bar
+        }
+        progress.progressLevel = 1 + gcTypes.size();
+        sweeps.forEach(CollectorSweep::publishResults);
+    }
+
+    /***
+     * Identifies the target and every setting that influences the measured values of a run, including the operation
+     * probe, except the GC Type, which is recorded per run.
+     */
+    private String buildConfigKey(int initStartHeapSize, int initMaxHeapSize, int startHeapIncrementSize,
+                                  int maxHeapIncrementSize) {
+        String config = String.join("|", targetDigest == null ? "" : targetDigest, mainClass,
+                javaRuntime.getVersion(), String.valueOf(containerProfile), String.valueOf(steadyStateWindow),
+                operationProbe == null ? "" : operationProbe.getIdentity(), String.valueOf(initStartHeapSize),
+                String.valueOf(initMaxHeapSize), String.valueOf(startHeapIncrementSize),
+                String.valueOf(maxHeapIncrementSize));
+        return Digests.sha256(config);
+    }
+
+    /***
+     * Runs (and retries) the child JVMs of one GC Type and collects their results.
+     */
+    private class CollectorSweep {
+        private final GCType gcType;
+        private final int runs;
+        private final int initStartHeapSize;
+        private final int initMaxHeapSize;
+        private final int startHeapIncrementSize;
+        private final int maxHeapIncrementSize;
+        private final String configKey;
+        private final List<RunResult> runResults = new ArrayList<>();
+        private final List<double[]> mmuCurves = new ArrayList<>();
+        private final List<List<GCPause>> pauseTimelines = new ArrayList<>();
+        private double totalGCTime = 0.0;
+        private int noOfRuns;
+        private int attempt = 0;
+        private int lastRunWithNoMallocFailure = 0;
+        private final AtomicInteger prematureProcessInterrupts = new AtomicInteger(0);
+        private final AtomicInteger prematureRunIncrement = new AtomicInteger(0);
+        private final AtomicBoolean memoryAllocationFailureOnLastRun = new AtomicBoolean(false);
+
+        private CollectorSweep(GCType gcType, int runs, int initStartHeapSize, int initMaxHeapSize,
+                               int startHeapIncrementSize, int maxHeapIncrementSize, String configKey) {
+            this.gcType = gcType;
+            this.runs = runs;
+            this.noOfRuns = runs;
+            this.initStartHeapSize = initStartHeapSize;
+            this.initMaxHeapSize = initMaxHeapSize;
+            this.startHeapIncrementSize = startHeapIncrementSize;
+            this.maxHeapIncrementSize = maxHeapIncrementSize;
+            this.configKey = configKey;
+        }
+
+        private void resumeFrom(List<RunResult> journaledRuns) {
+            for (RunResult runResult : journaledRuns) {
+                if (runResult.gcType() != gcType || runResult.runNo() != runResults.size() + 1 ||
+                        runResults.size() == runs) {
+                    continue;
                 }
-                if(!erroneousRun.get()) {
-                    List<String> parsedStrings = yieldOutputStringsFromFile(outFile);
-                    totalGCTime = yieldGCRuntimes(parsedStrings, gcType, measuredGCTimes, measuredSTWTimes, totalGCTime, i);
-                    double runtime = yieldLastThreadExitFromSource(parsedStrings);
-                    if (gcType == GCType.SHENANDOAH) {
-                        lastSuccessfulShenandoahRunTime = runtime;
-                    }
-                    double throughput = calculateThroughput(runtime, measuredSTWTimes.get(measuredSTWTimes.size()-1));
-                    int fullPauses = yieldNoOfPauses(parsedStrings, gcType)[0];
-                    int minorPauses = yieldNoOfPauses(parsedStrings, gcType)[1];
-                    measuredRuntimes.add(runtime);
-                    throughputs.add(throughput);
-                    pauses.add(fullPauses);
-                    pauses.add(minorPauses);
+                runResults.add(runResult);
+                List<GCPause> pauses = yieldPausesFromLog(runResult);
+                pauseTimelines.add(pauses == null ? List.of() : List.copyOf(pauses));
+                double[] mmuCurve = yieldMMUCurve(runResult, pauses);
+                mmuCurves.add(mmuCurve);
+                incrementalLeaderboard.add(runResult, null, mmuCurve[mmuWindows.indexOf(mmuRankingWindow)]);
+                totalGCTime += runResult.gcTime();
+                attempt = runResult.attempt() + 1;
+                lastRunWithNoMallocFailure = runResult.attempt();
+                prematureProcessInterrupts.set(runResult.prematureProcessInterrupts());
+                if (gcType == GCType.SHENANDOAH) {
+                    lastSuccessfulShenandoahRunTime = runResult.runtime();
                 }
-                else {
-                    LOGGER.log(Level.WARNING, "Run no.: " + (i + 1) + " failed");
+            }
+            if (!runResults.isEmpty()) {
+                noOfRuns = runs + (attempt - runResults.size());
+                LOGGER.log(Level.INFO, "Resuming GC Type: " + gcType.name() + " after " + runResults.size() +
+                        " journaled run(s)");
+            }
+        }
+
+        private boolean hasNextRun() {
+            return attempt < noOfRuns;
+        }
+
+        private void runNext() throws IOException {
+            int i = attempt++;
+            if(Math.abs(i - lastRunWithNoMallocFailure) == 20) {
+                LOGGER.log(Level.SEVERE, "Analysis suspended for GC Type: " + gcType.name() +
+                        "\nReason: 20 consecutive failed runs\n" +
+                        "Possible problems include too small general heap size or too small heap size increments");
+                progress.failed = true;
+                return;
+            }
+            int interruptsBeforeRun = prematureProcessInterrupts.get();
+            int[] xm = calculateHeapSize(initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize,
+                    i, interruptsBeforeRun, maxMaxHeapSize);
+            int xms = xm[0];
+            int xmx = xm[1];
+            noOfRuns = checkLimits(noOfRuns, i, xms, xmx);
+            publish(new AnalysisEvent.RunStarted(gcType, i + 1, xms, xmx));
+            String cacheKey = buildRunCacheKey(buildExecutableCommandArray(buildCLI(gcType, xms, xmx), null),
+                    runResults.size() + 1);
+            if (cacheKey != null) {
+                Optional<RunResult> cachedRun = runCache.lookup(cacheKey);
+                if (cachedRun.isPresent()) {
+                    reuseCachedRun(cachedRun.get(), i, interruptsBeforeRun);
+                    return;
                 }
             }
-            avgRuns.put(gcType, measuredRuntimes.stream().reduce(Double::sum).orElse(0.0) / measuredRuntimes.size());
+            Workspace.RunFiles runFiles = workspace.newRun(gcType);
+            Path cgroup = containerProfile == null ? null :
+                    containerProfile.createCgroup(workspace.getId() + "-" + runFiles.name());
+            ProcessBuilder builder = new ProcessBuilder(buildExecutableCommandArray(buildCLI(gcType, xms, xmx), cgroup));
+            builder.directory(workspace.getBinDirectory().toFile());
+            File outFile = runFiles.outFile();
+            File outErrFile = runFiles.outErrFile();
+            builder.redirectOutput(outFile);
+            builder.redirectError(outErrFile);
+            final AtomicReference<Process> process = new AtomicReference<>();
+            final AtomicBoolean processSuspended = new AtomicBoolean();
+            final AtomicBoolean endedByAnalyzer = new AtomicBoolean();
+            final AtomicReference<OperationSampler> sampler = new AtomicReference<>();
+            createProcessThread(process, processSuspended, endedByAnalyzer, sampler, builder, gcType, avgRuns, outFile,
+                    this);
+            waitForMainLock();
+            currentProcess = null;
+            if (sampler.get() != null) {
+                sampler.get().stop();
+            }
+            if (progress.cancelled) {
+                if (containerProfile != null) {
+                    containerProfile.removeCgroup(cgroup);
+                }
+                return;
+            }
+            final AtomicBoolean erroneousRun = new AtomicBoolean(false);
+            noOfRuns = getNumOfRunsAndHandleUnexpectedThreadEvents(noOfRuns, processSuspended, endedByAnalyzer,
+                    erroneousRun, process, outErrFile, this);
+            if (containerProfile != null) {
+                containerProfile.removeCgroup(cgroup);
+            }
+            if (!memoryAllocationFailureOnLastRun.get()) {
+                lastRunWithNoMallocFailure = i;
+            }
+            if(erroneousRun.get()) {
+                LOGGER.log(Level.WARNING, "Run no.: " + (i + 1) + " failed");
+                publish(new AnalysisEvent.RunRetried(gcType, i + 1, processSuspended.get() ?
+                        "Process suspended by the Shenandoah timeout watcher" : memoryAllocationFailureOnLastRun.get() ?
+                        "Heap size too small" : "Premature process interrupt"));
+                return;
+            }
+            ParsedLog parsedLog = parseLog(yieldOutputStringsFromFile(outFile), gcType, i);
+            totalGCTime += parsedLog.gcTime();
+            double runtime = parsedLog.runtime();
+            if (gcType == GCType.SHENANDOAH) {
+                lastSuccessfulShenandoahRunTime = runtime;
+            }
+            double opsPerSecond = Double.NaN;
+            if (sampler.get() != null) {
+                opsPerSecond = steadyStateWindow != null ?
+                        sampler.get().opsPerSecond(steadyStateWindow.getWarmupSeconds(), steadyStateWindow.getEndSeconds()) :
+                        sampler.get().opsPerSecond(0, runtime);
+                LOGGER.log(Level.INFO, "Run no.: " + (i + 1) + " : application throughput: " + opsPerSecond + " ops/s");
+            }
+            RunResult runResult = parsedLog.toRunResult(gcType, runResults.size() + 1, i, interruptsBeforeRun, xms, xmx,
+                    opsPerSecond, outFile.getAbsolutePath());
+            addRunResult(runResult, parsedLog.pauses(), false);
+            if (cacheKey != null) {
+                runCache.store(cacheKey, runResult);
+            }
+            if (logArchive != null) {
+                try {
+                    logArchive.archive(outFile.toPath());
+                } catch (IOException ex) {
+                    LOGGER.log(Level.WARNING, "Archiving the GC log of run no.: " + (i + 1) + " failed: " +
+                            ex.getMessage());
+                }
+            }
+        }
+
+        private void reuseCachedRun(RunResult cachedRun, int i, int interruptsBeforeRun) throws IOException {
+            LOGGER.log(Level.INFO, "Run no.: " + (i + 1) + " found in run cache, skipping launch");
+            lastRunWithNoMallocFailure = i;
+            totalGCTime += cachedRun.gcTime();
+            if (gcType == GCType.SHENANDOAH) {
+                lastSuccessfulShenandoahRunTime = cachedRun.runtime();
+            }
+            addRunResult(new RunResult(gcType, runResults.size() + 1, i, interruptsBeforeRun, cachedRun.xms(),
+                    cachedRun.xmx(), cachedRun.runtime(), cachedRun.gcTime(), cachedRun.stwTime(), cachedRun.throughput(),
+                    cachedRun.fullPauses(), cachedRun.minorPauses(), cachedRun.appThroughput(), cachedRun.pauseP99(),
+                    cachedRun.maxPause(), cachedRun.footprint(), cachedRun.logFile()),
+                    null, true);
+        }
+
+        private void addReanalyzedRun(RunResult runResult, List<GCPause> pauses) throws IOException {
+            attempt = Integer.max(attempt, runResult.attempt() + 1);
+            totalGCTime += runResult.gcTime();
+            addRunResult(runResult, pauses, true);
+        }
+
+        /***
+         * @param pauses pauses of the run, or null for a reused run: its pauses are read from its GC log if it still
+         *               exists
+         */
+        private void addRunResult(RunResult runResult, List<GCPause> pauses, boolean cached) throws IOException {
+            runResults.add(runResult);
+            List<GCPause> timeline = pauses != null ? pauses : yieldPausesFromLog(runResult);
+            pauseTimelines.add(timeline == null ? List.of() : List.copyOf(timeline));
+            double[] mmuCurve = yieldMMUCurve(runResult, timeline);
+            mmuCurves.add(mmuCurve);
+            incrementalLeaderboard.add(runResult, pauses == null ? null :
+                    pauses.stream().mapToDouble(GCPause::duration).toArray(),
+                    mmuCurve[mmuWindows.indexOf(mmuRankingWindow)]);
+            //running average, the Shenandoah timeout watcher of interleaved runs relies on it
+            avgRuns.put(gcType, runResults.stream().mapToDouble(RunResult::runtime).average().orElse(0.0));
+            if (runJournal != null) {
+                runJournal.append(configKey, runResult);
+            }
+            publish(new AnalysisEvent.RunFinished(runResult, cached));
+        }
+
+        /***
+         * @return cache key of the run, or null if runs are not cached. The command line covers the JVM executable,
+         * heap sizes, every applied GC, logging, container and probe flag and the main class; the operation probe is
+         * keyed by its identity, as most probes add no flag to the command line.
+         */
+        private String buildRunCacheKey(String[] command, int runNo) {
+            if (runCache == null || targetDigest == null) {
+                return null;
+            }
+            String key = String.join("|", targetDigest, javaRuntime.getVersion(), String.join(" ", command),
+                    String.valueOf(containerProfile), String.valueOf(steadyStateWindow),
+                    operationProbe == null ? "" : operationProbe.getIdentity(), gcType.name(), String.valueOf(runNo));
+            return Digests.sha256(key);
+        }
+
+        private void publishResults() {
+            List<Double> measuredGCTimes = new ArrayList<>();
+            List<Double> throughputs = new ArrayList<>();
+            List<Integer> pauses = new ArrayList<>();
+            List<Double> appThroughputs = new ArrayList<>();
+            List<Double> pauseP99s = new ArrayList<>();
+            List<Double> maxPauses = new ArrayList<>();
+            List<Double> footprints = new ArrayList<>();
+            for (RunResult runResult : runResults) {
+                measuredGCTimes.add(runResult.gcTime());
+                throughputs.add(runResult.throughput());
+                pauses.add(runResult.fullPauses());
+                pauses.add(runResult.minorPauses());
+                appThroughputs.add(runResult.appThroughput());
+                pauseP99s.add(runResult.pauseP99());
+                maxPauses.add(runResult.maxPause());
+                footprints.add(runResult.footprint());
+            }
+            avgRuns.put(gcType, runResults.stream().map(RunResult::runtime).reduce(Double::sum).orElse(0.0) /
+                    runResults.size());
             avgGCRuns.put(gcType, totalGCTime / runs);
             gcRuntimes.put(gcType, measuredGCTimes);
             throughputsMap.put(gcType, throughputs);
             pausesMap.put(gcType, pauses);
+            pauseP99sMap.put(gcType, pauseP99s);
+            maxPausesMap.put(gcType, maxPauses);
+            footprintsMap.put(gcType, footprints);
+            if (operationProbe != null || appThroughputs.stream().anyMatch(value -> !Double.isNaN(value))) {
+                appThroughputsMap.put(gcType, appThroughputs);
+            }
+            runResultsMap.put(gcType, new ArrayList<>(runResults));
+            mmuCurvesMap.put(gcType, new ArrayList<>(mmuCurves));
+            pauseTimelinesMap.put(gcType, new ArrayList<>(pauseTimelines));
+            int rankingWindowIndex = mmuWindows.indexOf(mmuRankingWindow);
+            mmusMap.put(gcType, mmuCurves.stream().map(curve -> curve[rankingWindowIndex]).toList());
+            publish(new AnalysisEvent.CollectorFinished(gcType, runResults));
         }
-        if(!progress.failed) {
-            progress.progressLevel++;
-            leaderboard = new Leaderboard(avgGCRuns, gcRuntimes, throughputsMap, pausesMap, gcTypes);
-            leaderboard.setLeaderboard(metrics);
+    }
+
+    /***
+     * Values of a run parsed from its GC log
+     */
+    private record ParsedLog(double runtime, double gcTime, double stwTime, double throughput, int fullPauses,
+                             int minorPauses, List<GCPause> pauses, double pauseP99, double maxPause,
+                             double footprint) {
+
+        private RunResult toRunResult(GCType gcType, int runNo, int attempt, int prematureProcessInterrupts, int xms,
+                                      int xmx, double appThroughput, String logFile) {
+            return new RunResult(gcType, runNo, attempt, prematureProcessInterrupts, xms, xmx, runtime, gcTime,
+                    stwTime, throughput, fullPauses, minorPauses, appThroughput, pauseP99, maxPause, footprint,
+                    logFile);
+        }
+    }
+
+    /***
+     * @param parsedStrings every line of the GC log, cut to the steady-state window here if one is set
+     * @param i index of the run attempt, for logging
+     */
+    private ParsedLog parseLog(List<String> parsedStrings, GCType gcType, int i) {
+        boolean gcLog = isGCLog(parsedStrings);
+        double steadyStateRuntime = 0.0;
+        if (steadyStateWindow != null) {
+            steadyStateRuntime = yieldSteadyStateRuntime(parsedStrings, steadyStateWindow);
+            parsedStrings = filterSteadyStateWindow(parsedStrings, steadyStateWindow);
+        }
+        List<Double> measuredGCTimes = new ArrayList<>();
+        List<Double> measuredSTWTimes = new ArrayList<>();
+        yieldGCRuntimes(parsedStrings, gcType, measuredGCTimes, measuredSTWTimes, 0.0, i);
+        List<GCPause> pauses = yieldPausesFromSource(parsedStrings, gcType);
+        double pauseP99 = yieldPauseQuantile(pauses, gcLog, 0.99);
+        double maxPause = yieldPauseQuantile(pauses, gcLog, 1.0);
+        double footprint = yieldPeakHeapUsage(parsedStrings);
+        LOGGER.log(Level.INFO, "Run no.: " + (i + 1) + " : p99 pause: " + pauseP99 + " ms; max pause: " +
+                maxPause + " ms; footprint: " + footprint + " MB");
+        double runtime = steadyStateWindow != null ? steadyStateRuntime : yieldLastThreadExitFromSource(parsedStrings);
+        double throughput = calculateThroughput(runtime, measuredSTWTimes.get(0));
+        int[] noOfPauses = yieldNoOfPauses(parsedStrings, gcType);
+        return new ParsedLog(runtime, measuredGCTimes.get(0), measuredSTWTimes.get(0), throughput, noOfPauses[0],
+                noOfPauses[1], pauses, pauseP99, maxPause, footprint);
+    }
+
+    /***
+     * Rebuilds every result from the GC logs of stored runs with the current parsers, steady-state window, metrics
+     * and weights, without launching a child JVM. The logs are parsed in parallel. The heap configuration, attempt,
+     * interrupts and application throughput of a run are kept as recorded; a run whose log no longer exists (neither
+     * in its workspace nor in the log archive) keeps all its recorded values. Runs of GC Types not analysed here are
+     * ignored.
+     * @param storedRuns runs of one target on this JDK, e.g. from {@link hu.antalnagy.gcperf.persistence.ResultStore}
+     */
+    public void reanalyze(List<RunResult> storedRuns) throws IOException {
+        Map<GCType, List<RunResult>> runsByGCType = new EnumMap<>(GCType.class);
+        storedRuns.stream().filter(runResult -> gcTypes.contains(runResult.gcType())).forEach(runResult ->
+                runsByGCType.computeIfAbsent(runResult.gcType(), gcType -> new ArrayList<>()).add(runResult));
+        checkRunsOfEveryGCType(runsByGCType.keySet());
+        List<ParsedRun> parsedRuns = new ArrayList<>();
+        reparseRuns(runsByGCType).values().forEach(parsedRuns::addAll);
+        replay(parsedRuns);
+    }
+
+    /***
+     * A run with the pauses parsed from its GC log
+     * @param pauses pauses of the run, null if unknown
+     */
+    public record ParsedRun(RunResult runResult, List<GCPause> pauses) {}
+
+    /***
+     * Ranks runs parsed outside of this analysis, e.g. from production GC logs, like runs of its own. The runs are
+     * taken as they are, in their order per GC Type; runs of GC Types not analysed here are ignored.
+     */
+    public void replay(List<ParsedRun> parsedRuns) throws IOException {
+        Map<GCType, List<ParsedRun>> runsByGCType = new EnumMap<>(GCType.class);
+        parsedRuns.stream().filter(parsedRun -> gcTypes.contains(parsedRun.runResult().gcType()))
+                .forEach(parsedRun -> runsByGCType.computeIfAbsent(parsedRun.runResult().gcType(),
+                        gcType -> new ArrayList<>()).add(parsedRun));
+        checkRunsOfEveryGCType(runsByGCType.keySet());
+        leaderboard = null;
+        incrementalLeaderboard = new IncrementalLeaderboard(gcTypes, metrics, metricWeights);
+        try {
+            for (GCType gcType : gcTypes) {
+                progress.progressLevel++;
+                List<ParsedRun> runs = runsByGCType.get(gcType);
+                LOGGER.log(Level.INFO, "Replaying " + runs.size() + " parsed run(s) of GC Type: " + gcType.name() +
+                        " on " + javaRuntime);
+                CollectorSweep sweep = new CollectorSweep(gcType, runs.size(), 0, 0, 0, 0, null);
+                for (ParsedRun parsedRun : runs) {
+                    sweep.addReanalyzedRun(parsedRun.runResult(), parsedRun.pauses());
+                }
+                sweep.publishResults();
+            }
+        } catch (IOException | RuntimeException ex) {
+            events.closeExceptionally(ex);
+            throw ex;
+        }
+        finishAnalysis();
+    }
+
+    private void checkRunsOfEveryGCType(Set<GCType> gcTypesWithRuns) {
+        List<GCType> missingGCTypes = gcTypes.stream().filter(gcType -> !gcTypesWithRuns.contains(gcType)).toList();
+        if (!missingGCTypes.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "No runs of " + missingGCTypes + " to analyse");
+            progress.failed = true;
+            throw new IllegalArgumentException("No stored runs found for GC Type(s) " + missingGCTypes +
+                    ". Please select GC Types analysed before");
+        }
+    }
+
+    //parses the logs on every core, the runs of a GC Type are renumbered in their stored order
+    private Map<GCType, List<ParsedRun>> reparseRuns(Map<GCType, List<RunResult>> runsByGCType) throws IOException {
+        int noOfRuns = runsByGCType.values().stream().mapToInt(List::size).sum();
+        ExecutorService executor = Executors.newFixedThreadPool(Integer.max(1,
+                Integer.min(noOfRuns, Runtime.getRuntime().availableProcessors())), runnable -> {
+            Thread thread = new Thread(runnable, "gcperf-reanalysis");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<GCType, List<Future<ParsedRun>>> futures = new EnumMap<>(GCType.class);
+            runsByGCType.forEach((gcType, runs) -> {
+                List<Future<ParsedRun>> gcTypeFutures = new ArrayList<>();
+                for (int i = 0; i < runs.size(); i++) {
+                    RunResult storedRun = runs.get(i);
+                    int runNo = i + 1;
+                    gcTypeFutures.add(executor.submit(() -> reparseRun(storedRun, runNo)));
+                }
+                futures.put(gcType, gcTypeFutures);
+            });
+            Map<GCType, List<ParsedRun>> parsedRuns = new EnumMap<>(GCType.class);
+            int missingLogs = 0;
+            for (var entry : futures.entrySet()) {
+                List<ParsedRun> runs = new ArrayList<>();
+                for (Future<ParsedRun> future : entry.getValue()) {
+                    ParsedRun parsedRun = future.get();
+                    if (parsedRun.pauses() == null) {
+                        missingLogs++;
+                    }
+                    runs.add(parsedRun);
+                }
+                parsedRuns.put(entry.getKey(), runs);
+            }
+            if (missingLogs > 0) {
+                LOGGER.log(Level.WARNING, missingLogs + " of " + noOfRuns + " stored run(s) have no GC log left, " +
+                        "their recorded results are kept");
+            }
+            return parsedRuns;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Reanalysis interrupted", ex);
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.SEVERE, "Parsing a stored GC log failed: " + ex.getCause());
+            throw new IOException("Parsing a stored GC log failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ParsedRun reparseRun(RunResult storedRun, int runNo) {
+        List<String> parsedStrings = yieldOutputStringsFromLog(storedRun);
+        if (parsedStrings == null) {
+            return new ParsedRun(new RunResult(storedRun.gcType(), runNo, storedRun.attempt(),
+                    storedRun.prematureProcessInterrupts(), storedRun.xms(), storedRun.xmx(), storedRun.runtime(),
+                    storedRun.gcTime(), storedRun.stwTime(), storedRun.throughput(), storedRun.fullPauses(),
+                    storedRun.minorPauses(), storedRun.appThroughput(), storedRun.pauseP99(), storedRun.maxPause(),
+                    storedRun.footprint(), storedRun.logFile()), null);
+        }
+        ParsedLog parsedLog = parseLog(parsedStrings, storedRun.gcType(), storedRun.attempt());
+        return new ParsedRun(parsedLog.toRunResult(storedRun.gcType(), runNo, storedRun.attempt(),
+                storedRun.prematureProcessInterrupts(), storedRun.xms(), storedRun.xmx(), storedRun.appThroughput(),
+                storedRun.logFile()), parsedLog.pauses());
+    }
+
+    /***
+     * @return pauses of a reused (journaled or cached) run read from its GC log, or from the log archive if the
+     * workspace was pruned; null if the log no longer exists
+     */
+    private List<GCPause> yieldPausesFromLog(RunResult runResult) {
+        List<String> parsedStrings = yieldOutputStringsFromLog(runResult);
+        if (parsedStrings == null) {
+            return null;
+        }
+        if (steadyStateWindow != null) {
+            parsedStrings = filterSteadyStateWindow(parsedStrings, steadyStateWindow);
         }
+        return yieldPausesFromSource(parsedStrings, runResult.gcType());
+    }
+
+    /***
+     * MMU curve of a run over the measured part of its timeline: from the start of the JVM (batch mode) or of the
+     * measurement period (steady-state mode) for the length of the runtime.
+     * @param pauses pauses of the run, null if unknown
+     */
+    private double[] yieldMMUCurve(RunResult runResult, List<GCPause> pauses) {
+        if (pauses == null) {
+            double[] unknown = new double[mmuWindows.size()];
+            Arrays.fill(unknown, Double.NaN);
+            return unknown;
+        }
+        double from = steadyStateWindow != null ? steadyStateWindow.getWarmupSeconds() : 0.0;
+        return MutatorUtilization.curve(pauses, from, from + runResult.runtime(), mmuWindows);
     }
 
     private void validateInputParameters(int runs, int initStartHeapSize, int initMaxHeapSize,
@@ -254,10 +1266,10 @@ public class Analysis {
             progress.failed = true;
             throw new IllegalArgumentException("Please provide an initial heap size between 1MB and 2048MB!");
         }
-        if (initMaxHeapSize < 16 || initMaxHeapSize > 8192) {
+        if (initMaxHeapSize < 16 || initMaxHeapSize > maxMaxHeapSize) {
             LOGGER.log(Level.SEVERE, "Invalid argument for maximum heap size");
             progress.failed = true;
-            throw new IllegalArgumentException("Please provide a maximum heap size between 1MB and 8192MB!");
+            throw new IllegalArgumentException("Please provide a maximum heap size between 16MB and " + maxMaxHeapSize + "MB!");
         }
         if (startHeapIncrementSize < 1 || startHeapIncrementSize > 1024) {
             LOGGER.log(Level.SEVERE, "Invalid argument for initial heap increment size");
@@ -279,15 +1291,16 @@ public class Analysis {
 
     private int checkLimits(int noOfRuns, int i, int xms, int xmx) {
         LOGGER.log(Level.INFO, "Initializing run no.: " + (i+1) + "; xms: " + xms + "(M); xmx: " + xmx + "(M)");
-        if (xms == 2048 && xmx == 8192) {
+        int maxInitHeapSize = Integer.min(MAX_INIT_HEAP_SIZE, maxMaxHeapSize);
+        if (xms == maxInitHeapSize && xmx == maxMaxHeapSize) {
             noOfRuns = i + 1;
             LOGGER.log(Level.WARNING, "Maximum initial heap size (Xms) and maximum heap size (Xmx) reached\n" +
                     "Initializing last run");
         }
-        if (xms == 2048) {
+        if (xms == maxInitHeapSize) {
             LOGGER.log(Level.INFO, "Maximum initial heap size (Xms) reached");
         }
-        if (xmx == 8192) {
+        if (xmx == maxMaxHeapSize) {
             LOGGER.log(Level.INFO, "Maximum heap size (Xmx) reached");
         }
         return noOfRuns;
@@ -300,17 +1313,30 @@ public class Analysis {
 
     public static int[] calculateHeapSize(int initStartHeapSize, int initMaxHeapSize, int startHeapIncrementSize, int maxHeapIncrementSize,
                                            int i, int prematureProcessInterrupts) {
+        return calculateHeapSize(initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize, i,
+                prematureProcessInterrupts, MAX_MAX_HEAP_SIZE);
+    }
+
+    public static int[] calculateHeapSize(int initStartHeapSize, int initMaxHeapSize, int startHeapIncrementSize, int maxHeapIncrementSize,
+                                          int i, int prematureProcessInterrupts, int maxMaxHeapSize) {
         int[] xm = new int[2];
-        xm[0] = Integer.min(initStartHeapSize + ((i - prematureProcessInterrupts) * startHeapIncrementSize), MAX_INIT_HEAP_SIZE);
-        xm[1] = Integer.min(initMaxHeapSize + ((i - prematureProcessInterrupts) * maxHeapIncrementSize), MAX_MAX_HEAP_SIZE);
+        xm[0] = Integer.min(initStartHeapSize + ((i - prematureProcessInterrupts) * startHeapIncrementSize),
+                Integer.min(MAX_INIT_HEAP_SIZE, maxMaxHeapSize));
+        xm[1] = Integer.min(initMaxHeapSize + ((i - prematureProcessInterrupts) * maxHeapIncrementSize), maxMaxHeapSize);
         return xm;
     }
 
-    private String[] buildExecutableCommandArray(CLI cli) {
+    private String[] buildExecutableCommandArray(CLI cli, Path cgroup) {
         List<String> stringList = new ArrayList<>();
-        stringList.add("java");
+        stringList.add(javaRuntime.getJavaExecutable());
         for (CLI.VMOptions vmOption : cli.getVmOptions()) {
-            stringList.add(vmOption.stringifyHeapSizeOption());
+            stringList.add(cli.stringifyHeapSizeOption(vmOption));
+        }
+        if (cli.getContainerProfile() != null) {
+            stringList.addAll(cli.getContainerProfile().getVMOptions());
+        }
+        if (operationProbe != null) {
+            stringList.addAll(operationProbe.getVMOptions());
         }
         for (CLI.VMOptions.XlogOptions logOption : cli.getXlogOptions()) {
             stringList.add(logOption.getOptionString());
@@ -320,6 +1346,9 @@ public class Analysis {
         }
         stringList.add(cli.getGcType().getCliOption());
         stringList.add(mainClass);
+        if (cli.getContainerProfile() != null) {
+            stringList = cli.getContainerProfile().wrapCommand(stringList, cgroup);
+        }
         String[] resultArray = new String[stringList.size()];
         AtomicInteger ai = new AtomicInteger(-1);
         stringList.forEach(string -> resultArray[ai.incrementAndGet()] = string);
@@ -338,16 +1367,14 @@ public class Analysis {
             progress.failed = true;
             throw new IllegalArgumentException("Please provide an initial heap size between 1MB and 2048MB!");
         }
-        if (maxHeapSize < 16 || maxHeapSize > 8192) {
+        if (maxHeapSize < 16 || maxHeapSize > maxMaxHeapSize) {
             LOGGER.log(Level.SEVERE, "Invalid argument for maximum heap size");
             progress.failed = true;
-            throw new IllegalArgumentException("Please provide a maximum heap size between 1MB and 8192MB!");
+            throw new IllegalArgumentException("Please provide a maximum heap size between 16MB and " + maxMaxHeapSize + "MB!");
         }
-        CLI.VMOptions.Xms.setSize(startHeapSize);
-        CLI.VMOptions.Xmx.setSize(maxHeapSize);
-        CLI cli = new CLI(gcType);
+        CLI cli = new CLI(gcType).withHeapSizes(startHeapSize, maxHeapSize).withContainerProfile(containerProfile);
         switch (gcType) {
-            case SERIAL, PARALLEL -> cli.withVMOptions(CLI.VMOptions.Xms, CLI.VMOptions.Xmx)
+            case SERIAL, PARALLEL, CMS -> cli.withVMOptions(CLI.VMOptions.Xms, CLI.VMOptions.Xmx)
                     .withGCOptions(CLI.VMOptions.GCOptions.VerboseGC)
                     .withXlogOptions(CLI.VMOptions.XlogOptions.GCStart, CLI.VMOptions.XlogOptions.GCHeap,
                             CLI.VMOptions.XlogOptions.GCMetaspace, CLI.VMOptions.XlogOptions.GCCpu,
@@ -379,26 +1406,26 @@ public class Analysis {
         return cli;
     }
 
-    private File createOutFile(boolean isErrFile) {
-        File outFile;
-        if (!isErrFile) {
-            outFile = new File(LOC_OUT_PATH + "/out" + ++OUT_FILE_NO + ".txt");
-        } else {
-            outFile = new File(LOC_OUT_ERR_PATH + "/outErr" + OUT_FILE_NO + ".txt");
-        }
-        return outFile;
-    }
-
     private void createProcessThread(final AtomicReference<Process> process, final AtomicBoolean processSuspended,
-                                            ProcessBuilder builder, GCType gcType, Map<GCType, Double> avgRuns, File outFile) {
+                                     final AtomicBoolean endedByAnalyzer, final AtomicReference<OperationSampler> sampler,
+                                     ProcessBuilder builder, GCType gcType, Map<GCType, Double> avgRuns, File outFile,
+                                     CollectorSweep sweep) {
         Thread processThread = new Thread(() -> {
             try {
                 process.set(builder.start());
+                currentProcess = process.get();
+                if (operationProbe != null) {
+                    sampler.set(OperationSampler.start(operationProbe, process.get(), outFile));
+                }
                 synchronized (watcherLock) {
                     watcherLock.notify();
                 }
-                process.get().waitFor();
-                if (gcType != GCType.SHENANDOAH) {
+                if (steadyStateWindow != null) {
+                    endAfterSteadyStateWindow(process.get(), endedByAnalyzer);
+                } else {
+                    process.get().waitFor();
+                }
+                if (gcType != GCType.SHENANDOAH || steadyStateWindow != null) {
                     synchronized (mainLock) {
                         mainLock.notify();
                     }
@@ -412,13 +1439,31 @@ public class Analysis {
             }
         });
         processThread.start();
-        if (gcType == GCType.SHENANDOAH) {
-            startWatcherThread(process, processSuspended, avgRuns, processThread, outFile);
+        if (gcType == GCType.SHENANDOAH && steadyStateWindow == null) {
+            startWatcherThread(process, processSuspended, avgRuns, processThread, outFile, sweep);
+        }
+    }
+
+    private void endAfterSteadyStateWindow(Process runningProcess, final AtomicBoolean endedByAnalyzer)
+            throws InterruptedException {
+        if (runningProcess.waitFor(steadyStateWindow.warmup().plus(steadyStateWindow.measurement()).toMillis(),
+                TimeUnit.MILLISECONDS)) {
+            LOGGER.log(Level.WARNING, "Java runtime process " + runningProcess.pid() + " exited before the end of the " +
+                    "steady-state window");
+            return;
+        }
+        endedByAnalyzer.set(true);
+        LOGGER.log(Level.INFO, "Steady-state window elapsed, ending java runtime process " + runningProcess.pid());
+        runningProcess.destroy();
+        if (!runningProcess.waitFor(GRACEFUL_SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            LOGGER.log(Level.WARNING, "Java runtime process " + runningProcess.pid() + " didn't end gracefully, killing it");
+            runningProcess.destroyForcibly().waitFor();
         }
     }
 
     private void startWatcherThread(final AtomicReference<Process> process, final AtomicBoolean processSuspended,
-                                           Map<GCType, Double> avgRunsMap, Thread processThread, File outFile) {
+                                           Map<GCType, Double> avgRunsMap, Thread processThread, File outFile,
+                                           CollectorSweep sweep) {
         LOGGER.log(Level.INFO, "Detected Shenandoah GC Type, initializing timeout watcher thread");
         Thread watcherThread = new Thread(() -> {
             try {
@@ -426,22 +1471,22 @@ public class Analysis {
                     watcherLock.wait();
                 }
                 Process processOnStart = process.get();
-                if (memoryAllocationFailureOnLastRun.get()) {
+                if (sweep.memoryAllocationFailureOnLastRun.get()) {
                     induceThreadSleep(avgRunsMap, 0);
                 } else { //premature interrupt in last run or successful run
-                    induceThreadSleep(avgRunsMap, prematureRunIncrement.get());
+                    induceThreadSleep(avgRunsMap, sweep.prematureRunIncrement.get());
                 }
                 if (process.get().pid() == processOnStart.pid() && processThread.isAlive()) {
                     processOnStart.destroy();
                     int continuousHandleAllocationCount = countContinuousHandleAllocations(outFile);
                     if (continuousHandleAllocationCount >= 3) { //pretty sure small heap size would cause this
                         LOGGER.log(Level.WARNING, "Possibly selected heap size was too small, rerunning with bigger heap");
-                        memoryAllocationFailureOnLastRun.set(true);
+                        sweep.memoryAllocationFailureOnLastRun.set(true);
                     } else {
                         LOGGER.log(Level.WARNING, "Potential premature process interrupt");
-                        memoryAllocationFailureOnLastRun.set(false);
-                        prematureProcessInterrupts.incrementAndGet();
-                        prematureRunIncrement.incrementAndGet();
+                        sweep.memoryAllocationFailureOnLastRun.set(false);
+                        sweep.prematureProcessInterrupts.incrementAndGet();
+                        sweep.prematureRunIncrement.incrementAndGet();
                     }
                     processThread.interrupt();
                     synchronized (mainLock) {
@@ -450,8 +1495,8 @@ public class Analysis {
                         mainLock.notify();
                     }
                 } else {
-                    memoryAllocationFailureOnLastRun.set(false);
-                    prematureRunIncrement.set(1); //to not wait the before compounded amount of time after a successful run
+                    sweep.memoryAllocationFailureOnLastRun.set(false);
+                    sweep.prematureRunIncrement.set(1); //to not wait the before compounded amount of time after a successful run
                     synchronized (mainLock) {
                         mainLock.notify();
                     }
@@ -511,11 +1556,12 @@ public class Analysis {
             Thread.sleep((long) (lastSuccessfulShenandoahRunTime * 1000L * (magnifier + 1)));
         }
         else {
-            if (!isShenandoahOnly) {
+            //no other GC Type measured yet (e.g. Shenandoah first in an interleaved block): wait like Shenandoah-only
+            if (!isShenandoahOnly && avgRunsMap.keySet().stream().anyMatch(gcType -> gcType != GCType.SHENANDOAH)) {
                 double totalRuns = 0.0;
                 for (GCType gcType : gcTypes) {
                     if (gcType != GCType.SHENANDOAH) {
-                        totalRuns += avgRunsMap.get(gcType);
+                        totalRuns += avgRunsMap.getOrDefault(gcType, 0.0);
                     }
                 }
                 double avgRuns = totalRuns / gcTypes.size();
@@ -530,11 +1576,15 @@ public class Analysis {
     }
 
     private int getNumOfRunsAndHandleUnexpectedThreadEvents(int noOfRuns, final AtomicBoolean processSuspended,
-                                                                   final AtomicBoolean erroneousRun, final AtomicReference<Process> process,
-                                                                   File outErrFile) throws FileNotFoundException {
+                                                            final AtomicBoolean endedByAnalyzer,
+                                                            final AtomicBoolean erroneousRun, final AtomicReference<Process> process,
+                                                            File outErrFile, CollectorSweep sweep)
+            throws FileNotFoundException {
         if (processSuspended.get()) {
             erroneousRun.set(true);
             noOfRuns++;
+        } else if (endedByAnalyzer.get()) {
+            sweep.memoryAllocationFailureOnLastRun.set(false);
         } else if (process.get().exitValue() != 0) {
             boolean outOfMemoryError = false;
             erroneousRun.set(true);
@@ -544,7 +1594,7 @@ public class Analysis {
                     String line = scanner.nextLine();
                     if (line.contains("OutOfMemoryError")) {
                         outOfMemoryError = true;
-                        memoryAllocationFailureOnLastRun.set(true);
+                        sweep.memoryAllocationFailureOnLastRun.set(true);
                     }
                 }
             }
@@ -558,7 +1608,7 @@ public class Analysis {
             noOfRuns++;
         }
         else {
-            memoryAllocationFailureOnLastRun.set(false);
+            sweep.memoryAllocationFailureOnLastRun.set(false);
         }
         return noOfRuns;
     }
@@ -582,7 +1632,8 @@ public class Analysis {
     public static Double yieldSTWTimeFromSource(List<String> parsedStrings, GCType gcType) {
         double totalTimeRounded = 0.0;
         switch (gcType) {
-            case G1 -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcPausePattern, null, "ms", true);
+            case G1, CMS -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcPausePattern, null, "ms",
+                    true);
             case ZGC -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcPhasesPattern,
                     pausePattern, "ms", true);
             case SHENANDOAH -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcWhiteSpacePattern,
@@ -598,6 +1649,8 @@ public class Analysis {
                     null, "Real=", false);
             case G1 -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcPausePattern, null, "ms", true)
                     + calculateTotalTimeRounded(parsedStrings, gcConcurrentPattern, null, "ms", true);
+            case CMS -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcPausePattern, null, "ms", true)
+                    + calculateTotalTimeRounded(parsedStrings, gcConcurrentPhasePattern, null, "ms", true);
             case ZGC -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcPhasesPattern,
                     null, "ms", true);
             case SHENANDOAH -> totalTimeRounded = calculateTotalTimeRounded(parsedStrings, gcWhiteSpacePattern,
@@ -611,7 +1664,8 @@ public class Analysis {
         int fullPauses = gcType == GCType.SHENANDOAH ? yieldNoOfFullPausesShenandoah(parsedStrings) :
                 yieldNoOfPausesHelper(parsedStrings, false, pauseFullPattern, null) / 2;
         int totalPauses = (gcType == GCType.SERIAL || gcType == GCType.PARALLEL) ? yieldNoOfPausesHelper(parsedStrings, false, pausePattern, null) / 2 :
-                (gcType == GCType.G1 ? yieldNoOfPausesHelper(parsedStrings, false, gcPausePattern, null) :
+                (gcType == GCType.G1 || gcType == GCType.CMS ?
+                        yieldNoOfPausesHelper(parsedStrings, false, gcPausePattern, null) :
                         (gcType == GCType.ZGC ? yieldNoOfPausesHelper(parsedStrings, false, gcStartPattern, null) :
                                 yieldNoOfPausesHelper(parsedStrings, true, pausePattern, gcStatsPattern)));
         pauses[0] = fullPauses;
@@ -667,17 +1721,191 @@ public class Analysis {
         return fullPauses;
     }
 
+    /***
+     * @return the stop-the-world pauses with a logged duration, in log order. ZGC logs its pauses as phases, every
+     * other GC Type on the gc tag; the duration-less gc,start lines are skipped.
+     */
+    public static List<GCPause> yieldPausesFromSource(List<String> parsedStrings, GCType gcType) {
+        Pattern tagPattern = gcType == GCType.ZGC ? gcPhasesPattern : gcTagPattern;
+        List<GCPause> pauses = new ArrayList<>();
+        for (String line : parsedStrings) {
+            if (!tagPattern.matcher(line).find()) {
+                continue;
+            }
+            Matcher matcher = pauseDurationPattern.matcher(line);
+            if (matcher.find()) {
+                Matcher causeMatcher = pauseCausePattern.matcher(line);
+                try {
+                    pauses.add(new GCPause(yieldUptimeFromLine(line),
+                            Double.parseDouble(matcher.group(1).replace(',', '.')),
+                            causeMatcher.find() ? causeMatcher.group(1) : null));
+                } catch (NumberFormatException ex) {
+                    LOGGER.log(Level.SEVERE, "Couldn't parse pause duration: " + ex.getMessage());
+                }
+            }
+        }
+        return pauses;
+    }
+
+    /***
+     * @param pauses pauses of a parsed GC log, see {@link #yieldPausesFromSource(List, GCType)}
+     * @param gcLog whether the pauses come from a log with collections, see {@link #isGCLog(List)}
+     * @param p quantile between 0 and 1, 1 for the longest pause
+     * @return the p quantile of the pause durations in ms. Without any pause it is 0 for a log with collections: a
+     * run without stop-the-world pauses has the best latency there is, not an unknown one. It is NaN otherwise, as
+     * a log without collections (empty, truncated or not written by -Xlog:gc) says nothing about pauses.
+     */
+    public static double yieldPauseQuantile(List<GCPause> pauses, boolean gcLog, double p) {
+        double[] pauseDurations = pauses.stream().mapToDouble(GCPause::duration).toArray();
+        if (pauseDurations.length == 0) {
+            return gcLog ? 0.0 : Double.NaN;
+        }
+        return Quantiles.quantile(pauseDurations, p);
+    }
+
+    /***
+     * @return whether the lines name their collector in a "Using ..." line and log at least one GC(n) event
+     */
+    public static boolean isGCLog(List<String> parsedStrings) {
+        return parsedStrings.stream().anyMatch(line -> gcUsingPattern.matcher(line).find()) &&
+                hasGCEvents(parsedStrings);
+    }
+
+    /***
+     * @return whether the lines log at least one GC(n) event on a gc tag
+     */
+    public static boolean hasGCEvents(List<String> parsedStrings) {
+        return parsedStrings.stream().anyMatch(line -> gcEventPattern.matcher(line).find());
+    }
+
+    /***
+     * @return the highest heap usage before or after any collection in MB, NaN if no heap transition was logged
+     */
+    public static double yieldPeakHeapUsage(List<String> parsedStrings) {
+        double peak = Double.NaN;
+        for (String line : parsedStrings) {
+            if (!gcTagPattern.matcher(line).find()) {
+                continue;
+            }
+            Matcher matcher = heapTransitionPattern.matcher(line);
+            while (matcher.find()) {
+                double before = toMegabytes(matcher.group(1), matcher.group(2));
+                double after = toMegabytes(matcher.group(3), matcher.group(4));
+                peak = Double.isNaN(peak) ? Double.max(before, after) : Double.max(peak, Double.max(before, after));
+            }
+        }
+        return peak;
+    }
+
+    /***
+     * Allocation rate between the first and the last heap transition of the log: the heap grows by the allocations
+     * between two collections, so the allocated amount is the sum of the growths since the previous collection.
+     * @return allocation rate in MB/s, NaN if the log has less than two heap transitions
+     */
+    public static double yieldAllocationRate(List<String> parsedStrings) {
+        double allocated = 0.0;
+        double lastAfter = Double.NaN;
+        double firstUptime = Double.NaN;
+        double lastUptime = Double.NaN;
+        for (String line : parsedStrings) {
+            if (!gcTagPattern.matcher(line).find()) {
+                continue;
+            }
+            Matcher matcher = heapTransitionPattern.matcher(line);
+            if (!matcher.find()) {
+                continue;
+            }
+            double uptime = yieldUptimeFromLine(line);
+            if (Double.isNaN(uptime)) {
+                continue;
+            }
+            double before = toMegabytes(matcher.group(1), matcher.group(2));
+            if (Double.isNaN(lastAfter)) {
+                firstUptime = uptime;
+            } else {
+                allocated += Double.max(0.0, before - lastAfter);
+            }
+            lastAfter = toMegabytes(matcher.group(3), matcher.group(4));
+            lastUptime = uptime;
+        }
+        return lastUptime > firstUptime ? allocated / (lastUptime - firstUptime) : Double.NaN;
+    }
+
+    private static double toMegabytes(String value, String unit) {
+        double size = Double.parseDouble(value);
+        return switch (unit) {
+            case "K" -> size / 1024;
+            case "G" -> size * 1024;
+            default -> size;
+        };
+    }
+
+    /***
+     * @param line unified logging line, e.g. [0.173s][info][gc] or [2024-01-15T10:00:00.123+0000][173ms][info][gc]
+     * @return uptime in seconds from any of its uptime decorators, or NaN if it has none
+     */
+    public static double yieldUptimeFromLine(String line) {
+        return LogDecorators.uptime(line);
+    }
+
+    /***
+     * @return the lines of a GC log in the layout the parsers expect: logs of JDK 8 and older runtimes translated by
+     * {@link LegacyGCLog}, unified logging lines with their decorators normalized by {@link LogDecorators}
+     */
+    public static List<String> normalizeLog(List<String> parsedStrings) {
+        return LegacyGCLog.isLegacy(parsedStrings) ? LegacyGCLog.translate(parsedStrings) :
+                LogDecorators.normalize(parsedStrings);
+    }
+
+    /***
+     * Drops every line logged during warmup or after the end of the steady-state window. Lines without an uptime
+     * decorator are kept.
+     */
+    public static List<String> filterSteadyStateWindow(List<String> parsedStrings, SteadyStateWindow window) {
+        double from = window.getWarmupSeconds();
+        double to = window.getEndSeconds();
+        List<String> filtered = new ArrayList<>();
+        for (String line : parsedStrings) {
+            double uptime = yieldUptimeFromLine(line);
+            if (Double.isNaN(uptime) || (uptime >= from && uptime <= to)) {
+                filtered.add(line);
+            }
+        }
+        return filtered;
+    }
+
+    /***
+     * @return length of the measured steady-state window in seconds; shorter than the configured window if the
+     * application exited by itself before its end
+     */
+    public static double yieldSteadyStateRuntime(List<String> parsedStrings, SteadyStateWindow window) {
+        double lastUptime = 0.0;
+        for (String line : parsedStrings) {
+            double uptime = yieldUptimeFromLine(line);
+            if (!Double.isNaN(uptime) && uptime > lastUptime) {
+                lastUptime = uptime;
+            }
+        }
+        double runtime = Double.min(lastUptime, window.getEndSeconds()) - window.getWarmupSeconds();
+        if (runtime <= 0) {
+            LOGGER.log(Level.SEVERE, "Application exited during the warmup period");
+            throw new IllegalArgumentException("The application exited during the warmup period. Please provide a " +
+                    "shorter warmup period or use batch mode");
+        }
+        return runtime;
+    }
+
     private static double yieldLastThreadExitFromSource(List<String> parsedStrings) {
         Collections.reverse(parsedStrings);
         double timeStamp = 0.0;
         for(String line : parsedStrings) {
             Matcher matcher = osThreadPattern.matcher(line);
             if(matcher.find()) {
-                String[] split = line.split("s]");
-                try {
-                    timeStamp = Double.parseDouble(split[0].substring(1));
-                } catch (NumberFormatException ex) {
-                    LOGGER.log(Level.SEVERE, "Couldn't parse timestamp: " + ex.getMessage());
+                double uptime = yieldUptimeFromLine(line);
+                if (Double.isNaN(uptime)) {
+                    LOGGER.log(Level.SEVERE, "Couldn't parse timestamp of line: " + line);
+                } else {
+                    timeStamp = uptime;
                 }
                 break;
             }
@@ -731,6 +1959,36 @@ public class Analysis {
         return totalTimeRoundedInMs / 1000;
     }
 
+    /***
+     * @return every line of the GC log of the run, from its workspace or the log archive; null if it no longer exists
+     */
+    private List<String> yieldOutputStringsFromLog(RunResult runResult) {
+        if (runResult.logFile() == null) {
+            return null;
+        }
+        File logFile = new File(runResult.logFile());
+        return logFile.isFile() ? yieldOutputStringsFromFile(logFile) : yieldOutputStringsFromArchive(logFile);
+    }
+
+    private List<String> yieldOutputStringsFromArchive(File logFile) {
+        if (logArchive == null) {
+            return null;
+        }
+        try {
+            Optional<LogArchive.Reader> archived = logArchive.open(logFile.toPath());
+            if (archived.isEmpty()) {
+                return null;
+            }
+            try (LogArchive.Reader reader = archived.get()) {
+                return normalizeLog(reader.readAll());
+            }
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.WARNING, "Reading the archived GC log of " + logFile.getName() + " failed: " +
+                    ex.getMessage());
+            return null;
+        }
+    }
+
     private static List<String> yieldOutputStringsFromFile(File file) {
         List<String> outputStrings = new ArrayList<>();
         try (BufferedReader bufferedReader = new BufferedReader(new FileReader(file), BUFFER_SIZE)) {
@@ -742,6 +2000,6 @@ public class Analysis {
             LOGGER.log(Level.SEVERE, "IO exception occurred with file " + file.getName());
             ex.printStackTrace();
         }
-        return outputStrings;
+        return normalizeLog(outputStrings);
     }
 }
@@ -0,0 +1,55 @@
+package hu.antalnagy.gcperf;
+
+import java.util.List;
+
+/***
+ * Events published by {@link Analysis#getEvents()} while an analysis is running.
+ */
+public sealed interface AnalysisEvent {
+
+    /***
+     * A child JVM run (or its cached result) is about to start
+     * @param gcType GC Type of the run
+     * @param attempt number of the attempt of this GC Type, starting from 1
+     * @param xms start heap size in MB
+     * @param xmx maximum heap size in MB
+     */
+    record RunStarted(GCType gcType, int attempt, int xms, int xmx) implements AnalysisEvent {}
+
+    /***
+     * A run finished successfully
+     * @param runResult metrics of the run
+     * @param cached true if the result was taken from the run cache instead of launching the child JVM
+     */
+    record RunFinished(RunResult runResult, boolean cached) implements AnalysisEvent {}
+
+    /***
+     * A run failed and will be retried
+     * @param gcType GC Type of the run
+     * @param attempt number of the failed attempt, starting from 1
+     * @param reason cause of the failure
+     */
+    record RunRetried(GCType gcType, int attempt, String reason) implements AnalysisEvent {}
+
+    /***
+     * Every run of a GC Type finished
+     * @param gcType GC Type
+     * @param runResults successful runs of the GC Type
+     */
+    record CollectorFinished(GCType gcType, List<RunResult> runResults) implements AnalysisEvent {
+        public CollectorFinished {
+            runResults = List.copyOf(runResults);
+        }
+    }
+
+    /***
+     * The analysis ended, this is the last event
+     * @param leaderboard final leaderboard, empty if the analysis failed or was cancelled
+     * @param failed true if the analysis failed or was cancelled
+     */
+    record AnalysisDone(List<GCType> leaderboard, boolean failed) implements AnalysisEvent {
+        public AnalysisDone {
+            leaderboard = List.copyOf(leaderboard);
+        }
+    }
+}
@@ -8,6 +8,9 @@ public class CLI {
     private VMOptions[] vmOptions;
     private VMOptions.GCOptions[] gcOptions;
     private VMOptions.XlogOptions[] xlogOptions;
+    private ContainerProfile containerProfile;
+    private int startHeapSize = VMOptions.Xms.getSize();
+    private int maxHeapSize = VMOptions.Xmx.getSize();
 
     public CLI(GCType gcType) {
         this.gcType = gcType;
@@ -28,6 +31,21 @@ public class CLI {
         return this;
     }
 
+    /***
+     * @param startHeapSize Xms in MB
+     * @param maxHeapSize Xmx in MB
+     */
+    public CLI withHeapSizes(int startHeapSize, int maxHeapSize) {
+        this.startHeapSize = startHeapSize;
+        this.maxHeapSize = maxHeapSize;
+        return this;
+    }
+
+    public CLI withContainerProfile(ContainerProfile containerProfile) {
+        this.containerProfile = containerProfile;
+        return this;
+    }
+
     public GCType getGcType() {
         return gcType;
     }
@@ -44,12 +62,34 @@ public class CLI {
         return xlogOptions;
     }
 
+    public ContainerProfile getContainerProfile() {
+        return containerProfile;
+    }
+
+    public int getStartHeapSize() {
+        return startHeapSize;
+    }
+
+    public int getMaxHeapSize() {
+        return maxHeapSize;
+    }
+
+    /***
+     * @return the heap size option with the size of this CLI (not the shared default of the enum constant)
+     */
+    public String stringifyHeapSizeOption(VMOptions vmOption) {
+        return "-" + vmOption.name() + (vmOption == VMOptions.Xms ? startHeapSize : maxHeapSize) + "m";
+    }
+
     @Override
     public String toString() {
         return "CLI{" +
                 "vmOptions=" + Arrays.toString(vmOptions) +
+                ", startHeapSize=" + startHeapSize +
+                ", maxHeapSize=" + maxHeapSize +
                 ", gcOptions=" + Arrays.toString(gcOptions) +
                 ", xlogOptions=" + Arrays.toString(xlogOptions) +
+                ", containerProfile=" + containerProfile +
                 '}';
     }
 
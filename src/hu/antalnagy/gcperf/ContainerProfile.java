@@ -0,0 +1,251 @@
+package hu.antalnagy.gcperf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/***
+ * Emulates a production container shape for the analyzed application: JVM ergonomics flags
+ * (ActiveProcessorCount, MaxRAM, MaxRAMPercentage), CPU affinity through taskset and, when a writable cgroup v2
+ * hierarchy is available locally, hard cpu.max/memory.max limits.
+ */
+public class ContainerProfile {
+
+    private static final Path CGROUP_ROOT = Paths.get("/sys/fs/cgroup");
+    private static final Path DEFAULT_CGROUP_PARENT = CGROUP_ROOT.resolve("gcperf");
+    private static final Pattern cpuListPattern = Pattern.compile("\\d+(-\\d+)?(,\\d+(-\\d+)?)*");
+    private static final int CPU_PERIOD_US = 100000;
+    private static final Logger LOGGER = Logger.getLogger(ContainerProfile.class.getSimpleName());
+
+    private final String name;
+    private int activeProcessorCount;
+    private int maxRamMb;
+    private double maxRamPercentage;
+    private String cpuAffinity;
+    private boolean cgroupLimits;
+    private Path cgroupParent = DEFAULT_CGROUP_PARENT;
+
+    public ContainerProfile(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Please provide a name for the container profile");
+        }
+        this.name = name;
+    }
+
+    public ContainerProfile withActiveProcessorCount(int activeProcessorCount) {
+        if (activeProcessorCount < 1) {
+            LOGGER.log(Level.SEVERE, "Invalid argument for active processor count");
+            throw new IllegalArgumentException("Active processor count must be at least 1");
+        }
+        this.activeProcessorCount = activeProcessorCount;
+        return this;
+    }
+
+    /***
+     * @param maxRamMb memory available to the container in MB
+     */
+    public ContainerProfile withMaxRam(int maxRamMb) {
+        if (maxRamMb < 16) {
+            LOGGER.log(Level.SEVERE, "Invalid argument for MaxRAM");
+            throw new IllegalArgumentException("MaxRAM must be at least 16MB");
+        }
+        this.maxRamMb = maxRamMb;
+        return this;
+    }
+
+    public ContainerProfile withMaxRamPercentage(double maxRamPercentage) {
+        if (maxRamPercentage <= 0 || maxRamPercentage > 100) {
+            LOGGER.log(Level.SEVERE, "Invalid argument for MaxRAMPercentage");
+            throw new IllegalArgumentException("MaxRAMPercentage must be greater than 0 and at most 100");
+        }
+        this.maxRamPercentage = maxRamPercentage;
+        return this;
+    }
+
+    /***
+     * @param cpuAffinity cpu list in taskset format, e.g. "0-1" or "0,2"
+     */
+    public ContainerProfile withCpuAffinity(String cpuAffinity) {
+        if (cpuAffinity == null || !cpuListPattern.matcher(cpuAffinity).matches()) {
+            LOGGER.log(Level.SEVERE, "Invalid argument for CPU affinity");
+            throw new IllegalArgumentException("CPU affinity must be a cpu list like 0-1 or 0,2");
+        }
+        this.cpuAffinity = cpuAffinity;
+        return this;
+    }
+
+    /***
+     * Enables cpu.max (from the active processor count) and memory.max (from MaxRAM) limits through cgroup v2.
+     * Ignored with a warning if no writable cgroup v2 hierarchy is available.
+     */
+    public ContainerProfile withCgroupLimits(boolean cgroupLimits) {
+        this.cgroupLimits = cgroupLimits;
+        return this;
+    }
+
+    public ContainerProfile withCgroupParent(Path cgroupParent) {
+        this.cgroupParent = cgroupParent;
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getActiveProcessorCount() {
+        return activeProcessorCount;
+    }
+
+    public int getMaxRamMb() {
+        return maxRamMb;
+    }
+
+    public double getMaxRamPercentage() {
+        return maxRamPercentage;
+    }
+
+    public String getCpuAffinity() {
+        return cpuAffinity;
+    }
+
+    public boolean hasCgroupLimits() {
+        return cgroupLimits;
+    }
+
+    /***
+     * @param machineMaxHeapSize heap size ceiling of the analysis machine in MB
+     * @return the largest maximum heap size (in MB) a run with this profile may use
+     */
+    public int limitMaxHeapSize(int machineMaxHeapSize) {
+        int limit = machineMaxHeapSize;
+        if (maxRamMb > 0) {
+            limit = Integer.min(limit, maxRamMb);
+        }
+        return limit;
+    }
+
+    public List<String> getVMOptions() {
+        List<String> options = new ArrayList<>();
+        if (activeProcessorCount > 0) {
+            options.add("-XX:ActiveProcessorCount=" + activeProcessorCount);
+        }
+        if (maxRamMb > 0) {
+            options.add("-XX:MaxRAM=" + maxRamMb + "m");
+        }
+        if (maxRamPercentage > 0) {
+            options.add(String.format(Locale.ROOT, "-XX:MaxRAMPercentage=%.1f", maxRamPercentage));
+        }
+        return options;
+    }
+
+    /***
+     * Prefixes the command with the taskset and cgroup launchers of the profile. The launchers exec the java process,
+     * so the process handle still refers to the JVM.
+     * @param command java command line
+     * @param cgroup cgroup created by {@link #createCgroup(String)}, or null
+     * @return wrapped command line
+     */
+    public List<String> wrapCommand(List<String> command, Path cgroup) {
+        List<String> wrapped = new ArrayList<>();
+        if (cgroup != null) {
+            wrapped.add("sh");
+            wrapped.add("-c");
+            wrapped.add("echo $$ > \"$0\" && exec \"$@\"");
+            wrapped.add(cgroup.resolve("cgroup.procs").toString());
+        }
+        if (cpuAffinity != null) {
+            if (isTasksetAvailable()) {
+                wrapped.add("taskset");
+                wrapped.add("-c");
+                wrapped.add(cpuAffinity);
+            } else {
+                LOGGER.log(Level.WARNING, "taskset not available, CPU affinity of profile " + name + " ignored");
+            }
+        }
+        wrapped.addAll(command);
+        return wrapped;
+    }
+
+    /***
+     * @param runName unique name of the run
+     * @return the created cgroup directory, or null if cgroup limits are disabled or unavailable
+     */
+    public Path createCgroup(String runName) {
+        if (!cgroupLimits) {
+            return null;
+        }
+        if (!Files.exists(CGROUP_ROOT.resolve("cgroup.controllers"))) {
+            LOGGER.log(Level.WARNING, "cgroup v2 not available, cgroup limits of profile " + name + " ignored");
+            return null;
+        }
+        try {
+            if (!Files.exists(cgroupParent)) {
+                Files.createDirectory(cgroupParent);
+            }
+            writeCgroupFile(cgroupParent.resolve("cgroup.subtree_control"), "+cpu +memory");
+            Path cgroup = cgroupParent.resolve(name.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + runName);
+            if (!Files.exists(cgroup)) {
+                Files.createDirectory(cgroup);
+            }
+            if (activeProcessorCount > 0) {
+                writeCgroupFile(cgroup.resolve("cpu.max"), (activeProcessorCount * CPU_PERIOD_US) + " " + CPU_PERIOD_US);
+            }
+            if (maxRamMb > 0) {
+                writeCgroupFile(cgroup.resolve("memory.max"), String.valueOf(maxRamMb * 1024L * 1024L));
+            }
+            return cgroup;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't set up cgroup under " + cgroupParent + ", cgroup limits of profile " +
+                    name + " ignored: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    public void removeCgroup(Path cgroup) {
+        if (cgroup == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(cgroup);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't remove cgroup " + cgroup + ": " + ex.getMessage());
+        }
+    }
+
+    private static void writeCgroupFile(Path file, String value) throws IOException {
+        Files.writeString(file, value);
+    }
+
+    private static boolean isTasksetAvailable() {
+        String path = System.getenv("PATH");
+        if (path == null) {
+            return false;
+        }
+        for (String dir : path.split(File.pathSeparator)) {
+            if (new File(dir, "taskset").canExecute()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public String toString() {
+        return "ContainerProfile{" +
+                "name='" + name + '\'' +
+                ", activeProcessorCount=" + activeProcessorCount +
+                ", maxRamMb=" + maxRamMb +
+                ", maxRamPercentage=" + maxRamPercentage +
+                ", cpuAffinity='" + cpuAffinity + '\'' +
+                ", cgroupLimits=" + cgroupLimits +
+                '}';
+    }
+}
@@ -4,16 +4,35 @@ public enum GCType {
     SERIAL("-XX:+UseSerialGC"),
     PARALLEL("-XX:+UseParallelGC"),
     G1("-XX:+UseG1GC"),
-    ZGC("-XX:+UseZGC"),
-    SHENANDOAH("-XX:+UseShenandoahGC");
+    ZGC("-XX:+UseZGC", 11, Integer.MAX_VALUE),
+    //upstream from JDK 12, backported into some JDK 11 builds
+    SHENANDOAH("-XX:+UseShenandoahGC", 11, Integer.MAX_VALUE),
+    //removed in JDK 14, analysed from the logs of older runtimes
+    CMS("-XX:+UseConcMarkSweepGC", 1, 13);
 
     private final String cliOption;
+    private final int firstFeatureVersion;
+    private final int lastFeatureVersion;
 
     GCType(String cliOption) {
+        this(cliOption, 1, Integer.MAX_VALUE);
+    }
+
+    GCType(String cliOption, int firstFeatureVersion, int lastFeatureVersion) {
         this.cliOption = cliOption;
+        this.firstFeatureVersion = firstFeatureVersion;
+        this.lastFeatureVersion = lastFeatureVersion;
     }
 
     public String getCliOption() {
         return cliOption;
     }
+
+    /***
+     * @param featureVersion feature version of a JDK, e.g. 17
+     * @return whether a JVM of that JDK starts with {@link #getCliOption()}
+     */
+    public boolean isAvailableOn(int featureVersion) {
+        return featureVersion >= firstFeatureVersion && featureVersion <= lastFeatureVersion;
+    }
 }
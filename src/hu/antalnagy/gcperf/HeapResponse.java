@@ -0,0 +1,126 @@
+package hu.antalnagy.gcperf;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/***
+ * Response of a collector to the heap size: a metric of its runs against the maximum heap size (Xmx) of each run,
+ * with the knee of the curve, i.e. the smallest heap beyond which more memory hardly improves the metric. The knee is
+ * found with the Kneedle method (Satopaa et al., 2011): both axes are normalized to 0..1, the metric is turned into a
+ * cumulative gain (best improvement so far, so noise can't create a false knee), and the knee is the heap size where
+ * the gain exceeds the diagonal the most.
+ */
+public final class HeapResponse {
+
+    private static final int MIN_POINTS_FOR_KNEE = 3;
+
+    private HeapResponse() {}
+
+    public enum Response {
+        GCTime(RunResult::gcTime, false),
+        Throughput(RunResult::throughput, true),
+        PauseP99(RunResult::pauseP99, false);
+
+        private final ToDoubleFunction<RunResult> value;
+        private final boolean higherIsBetter;
+
+        Response(ToDoubleFunction<RunResult> value, boolean higherIsBetter) {
+            this.value = value;
+            this.higherIsBetter = higherIsBetter;
+        }
+
+        public boolean isHigherBetter() {
+            return higherIsBetter;
+        }
+    }
+
+    /***
+     * @param xms start heap size in MB
+     * @param xmx maximum heap size in MB
+     * @param value mean of the metric over the runs with this heap size
+     * @param runs number of runs with this heap size
+     */
+    public record Point(int xms, int xmx, double value, int runs) {}
+
+    /***
+     * @param gcType GC Type
+     * @param response metric
+     * @param points one point per maximum heap size, ascending
+     * @param knee the point where the gains flatten, empty if the curve has fewer than 3 points or no knee
+     */
+    public record Curve(GCType gcType, Response response, List<Point> points, Optional<Point> knee) {
+        public Curve {
+            points = List.copyOf(points);
+        }
+
+        @Override
+        public String toString() {
+            return gcType.name() + " " + response + ": " + points.size() + " heap size(s), knee: " +
+                    knee.map(point -> "-Xmx" + point.xmx() + "m").orElse("none");
+        }
+    }
+
+    /***
+     * @param gcType GC Type of the runs
+     * @param runResults successful runs of the GC Type
+     * @param response metric of the curve
+     * @return the curve of the runs whose metric was measured
+     */
+    public static Curve curve(GCType gcType, List<RunResult> runResults, Response response) {
+        SortedMap<Integer, List<RunResult>> byXmx = new TreeMap<>();
+        for (RunResult runResult : runResults) {
+            if (!Double.isNaN(response.value.applyAsDouble(runResult))) {
+                byXmx.computeIfAbsent(runResult.xmx(), xmx -> new ArrayList<>()).add(runResult);
+            }
+        }
+        List<Point> points = new ArrayList<>();
+        byXmx.forEach((xmx, runs) -> points.add(new Point(runs.get(0).xms(), xmx,
+                runs.stream().mapToDouble(response.value).average().orElse(Double.NaN), runs.size())));
+        return new Curve(gcType, response, points, findKnee(points, response.higherIsBetter));
+    }
+
+    /***
+     * @return a curve per metric of every GC Type
+     */
+    public static Map<GCType, List<Curve>> curves(Map<GCType, List<RunResult>> runResultsMap) {
+        Map<GCType, List<Curve>> curves = new EnumMap<>(GCType.class);
+        runResultsMap.forEach((gcType, runResults) -> curves.put(gcType, Arrays.stream(Response.values())
+                .map(response -> curve(gcType, runResults, response)).toList()));
+        return curves;
+    }
+
+    /***
+     * @param points points by ascending heap size
+     * @param higherIsBetter direction of the metric
+     * @return the knee, empty if there are fewer than 3 points or the metric didn't improve with the heap size
+     */
+    public static Optional<Point> findKnee(List<Point> points, boolean higherIsBetter) {
+        int n = points.size();
+        if (n < MIN_POINTS_FOR_KNEE) {
+            return Optional.empty();
+        }
+        double firstXmx = points.get(0).xmx();
+        double xmxRange = points.get(n - 1).xmx() - firstXmx;
+        double[] gains = new double[n];
+        double bestGain = 0.0;
+        for (int i = 0; i < n; i++) {
+            double improvement = higherIsBetter ? points.get(i).value() - points.get(0).value() :
+                    points.get(0).value() - points.get(i).value();
+            bestGain = Double.max(bestGain, improvement);
+            gains[i] = bestGain;
+        }
+        if (xmxRange <= 0 || bestGain <= 0) {
+            return Optional.empty();
+        }
+        int knee = -1;
+        double largestDifference = 0.0;
+        for (int i = 0; i < n; i++) {
+            double difference = gains[i] / bestGain - (points.get(i).xmx() - firstXmx) / xmxRange;
+            if (difference > largestDifference) {
+                largestDifference = difference;
+                knee = i;
+            }
+        }
+        return knee < 0 ? Optional.empty() : Optional.of(points.get(knee));
+    }
+}
@@ -0,0 +1,166 @@
+package hu.antalnagy.gcperf;
+
+import hu.antalnagy.gcperf.statistics.P2Quantile;
+
+import java.util.*;
+import java.util.function.ToDoubleFunction;
+
+/***
+ * Leaderboard of an analysis in progress. Every finished run updates the running aggregates of its GC Type (run count,
+ * sums, best and worst values, a streaming p99 sketch of the pauses) in O(1), independent of the number of runs
+ * seen, and the standings are ranked from the aggregates on request. Ranks by the best run like {@link Leaderboard}
+ * without significance testing; the final leaderboard of the analysis replaces it once every GC Type finished.
+ */
+public class IncrementalLeaderboard {
+
+    private final List<GCType> gcTypes;
+    private final List<Analysis.Metrics> metrics;
+    private final Map<Analysis.Metrics, Double> weights;
+    private final Map<GCType, Aggregate> aggregates = new EnumMap<>(GCType.class);
+
+    /***
+     * Standing of a GC Type
+     * @param gcType GC Type
+     * @param runs number of finished runs
+     * @param score weighted rank points
+     * @param avgGCTime mean GC time in seconds
+     * @param bestThroughput best throughput in percentage
+     * @param pauseP99 estimated 99th percentile of every pause of the runs with pause durations in ms, NaN without
+     *                 such runs
+     * @param worstPause longest pause of every run in ms, NaN without pause data
+     */
+    public record Standing(GCType gcType, int runs, double score, double avgGCTime, double bestThroughput,
+                           double pauseP99, double worstPause) {}
+
+    private static class Aggregate {
+        private int runs;
+        private double gcTimeSum;
+        private double bestGCTime = Double.NaN;
+        private double bestThroughput = Double.NaN;
+        private double fewestFullPauses = Double.NaN;
+        private double fewestMinorPauses = Double.NaN;
+        private double bestAppThroughput = Double.NaN;
+        private double worstPause = Double.NaN;
+        private double smallestFootprint = Double.NaN;
+        private double bestMMU = Double.NaN;
+        private final P2Quantile pauseP99 = new P2Quantile(0.99);
+
+        private void add(RunResult runResult, double[] pauseDurations, double mmu) {
+            runs++;
+            gcTimeSum += runResult.gcTime();
+            bestGCTime = min(bestGCTime, runResult.gcTime());
+            bestThroughput = max(bestThroughput, runResult.throughput());
+            fewestFullPauses = min(fewestFullPauses, runResult.fullPauses());
+            fewestMinorPauses = min(fewestMinorPauses, runResult.minorPauses());
+            bestAppThroughput = max(bestAppThroughput, runResult.appThroughput());
+            worstPause = max(worstPause, runResult.maxPause());
+            smallestFootprint = min(smallestFootprint, runResult.footprint());
+            bestMMU = max(bestMMU, mmu);
+            //journaled or cached runs only know their own p99, which is no pause to sketch
+            if (pauseDurations != null) {
+                for (double pauseDuration : pauseDurations) {
+                    pauseP99.add(pauseDuration);
+                }
+            }
+        }
+
+        private double avgGCTime() {
+            return gcTimeSum / runs;
+        }
+
+        //NaN-ignoring min and max, NaN only until the first measured value
+        private static double min(double current, double value) {
+            return Double.isNaN(value) ? current : Double.isNaN(current) ? value : Double.min(current, value);
+        }
+
+        private static double max(double current, double value) {
+            return Double.isNaN(value) ? current : Double.isNaN(current) ? value : Double.max(current, value);
+        }
+    }
+
+    /***
+     * @param gcTypes GC Types of the analysis
+     * @param metrics selected metrics
+     * @param weights weight per metric, metrics without a weight count with 1.0
+     */
+    public IncrementalLeaderboard(List<GCType> gcTypes, Analysis.Metrics[] metrics, Map<Analysis.Metrics, Double> weights) {
+        Leaderboard.validateWeights(weights);
+        this.gcTypes = List.copyOf(gcTypes);
+        this.metrics = List.of(metrics);
+        this.weights = weights == null || weights.isEmpty() ? new EnumMap<>(Analysis.Metrics.class) :
+                new EnumMap<>(weights);
+    }
+
+    /***
+     * @param runResult finished run
+     * @param pauseDurations every pause of the run in ms, or null if only the run result is known
+     */
+    public void add(RunResult runResult, double[] pauseDurations) {
+        add(runResult, pauseDurations, Double.NaN);
+    }
+
+    /***
+     * @param mmu minimum mutator utilization of the run at the ranking window, NaN if unknown
+     */
+    public synchronized void add(RunResult runResult, double[] pauseDurations, double mmu) {
+        aggregates.computeIfAbsent(runResult.gcType(), gcType -> new Aggregate()).add(runResult, pauseDurations, mmu);
+    }
+
+    public synchronized int getRuns(GCType gcType) {
+        Aggregate aggregate = aggregates.get(gcType);
+        return aggregate == null ? 0 : aggregate.runs;
+    }
+
+    /***
+     * @return GC Types with at least one finished run, best first
+     */
+    public List<GCType> getLeaderboard() {
+        return getStandings().stream().map(Standing::gcType).toList();
+    }
+
+    /***
+     * @return standings of the GC Types with at least one finished run, best first
+     */
+    public synchronized List<Standing> getStandings() {
+        Map<GCType, Double> scores = new EnumMap<>(GCType.class);
+        aggregates.keySet().forEach(gcType -> scores.put(gcType, 0.0));
+        for (Analysis.Metrics metric : metrics) {
+            Map<GCType, Integer> points = new EnumMap<>(GCType.class);
+            switch (metric) {
+                case BestGCRuntime -> rank(points, aggregate -> aggregate.bestGCTime, false);
+                case AvgGCRuntime -> rank(points, Aggregate::avgGCTime, false);
+                case Throughput -> rank(points, aggregate -> aggregate.bestThroughput, true);
+                case Latency -> rank(points, aggregate -> aggregate.worstPause, false);
+                case MinorPauses -> rank(points, aggregate -> aggregate.fewestMinorPauses, false);
+                case FullPauses -> rank(points, aggregate -> aggregate.fewestFullPauses, false);
+                case AppThroughput -> rank(points, aggregate -> aggregate.bestAppThroughput, true);
+                case Footprint -> rank(points, aggregate -> aggregate.smallestFootprint, false);
+                case MMU -> rank(points, aggregate -> aggregate.bestMMU, true);
+            }
+            double weight = weights.getOrDefault(metric, 1.0);
+            points.forEach((gcType, value) -> scores.merge(gcType, weight * value, Double::sum));
+        }
+        List<Standing> standings = new ArrayList<>();
+        //ties keep the order of the GC Types of the analysis
+        for (GCType gcType : gcTypes) {
+            Aggregate aggregate = aggregates.get(gcType);
+            if (aggregate != null) {
+                standings.add(new Standing(gcType, aggregate.runs, scores.get(gcType), aggregate.avgGCTime(),
+                        aggregate.bestThroughput, aggregate.pauseP99.getQuantile(), aggregate.worstPause));
+            }
+        }
+        standings.sort(Comparator.comparingDouble(Standing::score).reversed());
+        return standings;
+    }
+
+    //GC Types without a measured value get no points, like in the final leaderboard
+    private void rank(Map<GCType, Integer> points, ToDoubleFunction<Aggregate> value, boolean higherIsBetter) {
+        List<Map.Entry<GCType, Aggregate>> measured = aggregates.entrySet().stream()
+                .filter(entry -> !Double.isNaN(value.applyAsDouble(entry.getValue())))
+                .sorted(Comparator.comparingDouble(entry -> value.applyAsDouble(entry.getValue())))
+                .toList();
+        for (int i = 0; i < measured.size(); i++) {
+            points.put(measured.get(i).getKey(), higherIsBetter ? i + 1 : measured.size() - i);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package hu.antalnagy.gcperf;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * A local Java installation used to launch the analyzed application. The default runtime is the "java" executable
+ * found on the PATH, other runtimes are registered by their JDK home directory.
+ */
+public final class JavaRuntime {
+
+    private static final String UNKNOWN_VERSION = "unknown";
+    private static final Logger LOGGER = Logger.getLogger(JavaRuntime.class.getSimpleName());
+    //version of the "java" executable on the PATH, read once per JVM: every Analysis created with the default
+    //runtime checks it, and reading it launches a JVM
+    private static String pathVersion;
+
+    private final Path home;
+    private final boolean recorded;
+    private String version;
+
+    private JavaRuntime(Path home, String version, boolean recorded) {
+        this.home = home;
+        this.version = version;
+        this.recorded = recorded;
+    }
+
+    public static JavaRuntime fromPath() {
+        return new JavaRuntime(null, null, false);
+    }
+
+    /***
+     * JDK known only by the version recorded with stored results, it can't launch a JVM
+     * @param version recorded JDK version
+     * @return JavaRuntime
+     */
+    public static JavaRuntime recorded(String version) {
+        return new JavaRuntime(null, version == null ? UNKNOWN_VERSION : version, true);
+    }
+
+    public boolean isRecorded() {
+        return recorded;
+    }
+
+    /***
+     * @param home JDK home directory (the directory containing bin/java)
+     * @return JavaRuntime
+     */
+    public static JavaRuntime fromHome(Path home) {
+        Path absoluteHome = home.toAbsolutePath().normalize();
+        if (!Files.isDirectory(absoluteHome)) {
+            LOGGER.log(Level.SEVERE, "JDK home directory not found: " + absoluteHome);
+            throw new IllegalArgumentException("JDK home directory " + absoluteHome + " doesn't exist");
+        }
+        JavaRuntime javaRuntime = new JavaRuntime(absoluteHome, readVersionFromReleaseFile(absoluteHome), false);
+        if (!new File(javaRuntime.getJavaExecutable()).canExecute()) {
+            LOGGER.log(Level.SEVERE, "No java executable in JDK home: " + absoluteHome);
+            throw new IllegalArgumentException("No java executable found in " + absoluteHome + "/bin. " +
+                    "Please provide a valid JDK home directory");
+        }
+        return javaRuntime;
+    }
+
+    public Path getHome() {
+        return home;
+    }
+
+    public String getJavaExecutable() {
+        if (home == null) {
+            return "java";
+        }
+        Path bin = home.resolve("bin");
+        Path windowsExecutable = bin.resolve("java.exe");
+        return Files.exists(windowsExecutable) ? windowsExecutable.toString() : bin.resolve("java").toString();
+    }
+
+    public synchronized String getVersion() {
+        if (version == null) {
+            version = home == null ? readPathVersion() : readVersionFromExecutable(getJavaExecutable());
+        }
+        return version;
+    }
+
+    private static synchronized String readPathVersion() {
+        if (pathVersion == null) {
+            String read = readVersionFromExecutable("java");
+            if (UNKNOWN_VERSION.equals(read)) { //interrupted or no java on the PATH yet, not worth keeping
+                return read;
+            }
+            pathVersion = read;
+        }
+        return pathVersion;
+    }
+
+    public int getFeatureVersion() {
+        String[] split = getVersion().split("[.+_-]");
+        try {
+            int first = Integer.parseInt(split[0]);
+            return first == 1 && split.length > 1 ? Integer.parseInt(split[1]) : first;
+        } catch (NumberFormatException ex) {
+            return 0;
+        }
+    }
+
+    private static String readVersionFromReleaseFile(Path home) {
+        Path releaseFile = home.resolve("release");
+        if (!Files.exists(releaseFile)) {
+            return null;
+        }
+        try {
+            List<String> lines = Files.readAllLines(releaseFile);
+            for (String line : lines) {
+                if (line.startsWith("JAVA_VERSION=")) {
+                    return line.substring("JAVA_VERSION=".length()).replace("\"", "").trim();
+                }
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read release file of " + home + ": " + ex.getMessage());
+        }
+        return null;
+    }
+
+    private static String readVersionFromExecutable(String javaExecutable) {
+        ProcessBuilder processBuilder = new ProcessBuilder(javaExecutable, "-version");
+        processBuilder.redirectErrorStream(true);
+        try {
+            Process process = processBuilder.start();
+            String versionString = UNKNOWN_VERSION;
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    int start = line.indexOf('"');
+                    int end = line.lastIndexOf('"');
+                    if (line.contains(" version ") && start >= 0 && end > start) {
+                        versionString = line.substring(start + 1, end);
+                        break;
+                    }
+                }
+            }
+            process.waitFor();
+            return versionString;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't determine version of " + javaExecutable + ": " + ex.getMessage());
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.WARNING, "Version query of " + javaExecutable + " interrupted");
+            Thread.currentThread().interrupt();
+        }
+        return UNKNOWN_VERSION;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        JavaRuntime javaRuntime = (JavaRuntime) o;
+        return recorded == javaRuntime.recorded && Objects.equals(home, javaRuntime.home) &&
+                (!recorded || version.equals(javaRuntime.version));
+    }
+
+    @Override
+    public int hashCode() {
+        return recorded ? Objects.hash(version) : Objects.hashCode(home);
+    }
+
+    @Override
+    public String toString() {
+        return "JDK " + getVersion() + (recorded ? " (recorded)" : home == null ? " (PATH)" : " (" + home + ")");
+    }
+}
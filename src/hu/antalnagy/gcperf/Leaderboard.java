@@ -1,5 +1,9 @@
 package hu.antalnagy.gcperf;
 
+import hu.antalnagy.gcperf.statistics.Bootstrap;
+import hu.antalnagy.gcperf.statistics.ConfidenceInterval;
+import hu.antalnagy.gcperf.statistics.MannWhitneyU;
+
 import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,20 +17,117 @@ public class Leaderboard {
     private final Map<GCType, List<Double>> gcRuntimesMap;
     private final Map<GCType, List<Double>> throughputsMap;
     private final Map<GCType, List<Integer>> pausesMap;
+    private final Map<GCType, List<Double>> appThroughputsMap;
     private final List<GCType> gcTypes;
+    private Map<GCType, List<Double>> pauseP99sMap = new HashMap<>();
+    private Map<GCType, List<Double>> maxPausesMap = new HashMap<>();
+    private Map<GCType, List<Double>> footprintsMap = new HashMap<>();
+    private Map<GCType, List<Double>> mmusMap = new HashMap<>();
+    private SignificanceTesting significanceTesting;
+    private Map<Analysis.Metrics, Double> weights = new EnumMap<>(Analysis.Metrics.class);
+    private final Map<Analysis.Metrics, MetricRanking<GCType>> metricRankings = new EnumMap<>(Analysis.Metrics.class);
     
     private static final Logger LOGGER = Logger.getLogger(Leaderboard.class.getSimpleName());
 
     public Leaderboard(Map<GCType, Double> avgGCRuns, Map<GCType, List<Double>> gcRuntimesMap, Map<GCType, 
             List<Double>> throughputsMap, Map<GCType, List<Integer>> pausesMap, List<GCType> gcTypes) {
+        this(avgGCRuns, gcRuntimesMap, throughputsMap, pausesMap, new HashMap<>(), gcTypes);
+    }
+
+    public Leaderboard(Map<GCType, Double> avgGCRuns, Map<GCType, List<Double>> gcRuntimesMap, Map<GCType,
+            List<Double>> throughputsMap, Map<GCType, List<Integer>> pausesMap, Map<GCType, List<Double>> appThroughputsMap,
+                       List<GCType> gcTypes) {
         this.leaderboard = new LinkedList<>();
         this.avgGCRuns = avgGCRuns;
         this.gcRuntimesMap = gcRuntimesMap;
         this.throughputsMap = throughputsMap;
         this.pausesMap = pausesMap;
+        this.appThroughputsMap = appThroughputsMap;
         this.gcTypes = gcTypes;
     }
 
+    /***
+     * Switches from ranking by the best run to ranking by the run distributions: collectors are only ranked apart
+     * on a metric if a Mann-Whitney U test finds the difference significant, otherwise they tie.
+     * @param significanceTesting test settings, or null for ranking by the best run
+     * @return this
+     */
+    public Leaderboard withSignificanceTesting(SignificanceTesting significanceTesting) {
+        this.significanceTesting = significanceTesting;
+        return this;
+    }
+
+    /***
+     * @param pauseP99sMap 99th percentile pause (ms) per run, used by the Pareto front
+     * @return this
+     */
+    public Leaderboard withPauseP99s(Map<GCType, List<Double>> pauseP99sMap) {
+        this.pauseP99sMap = pauseP99sMap;
+        return this;
+    }
+
+    /***
+     * @param maxPausesMap longest pause (ms) per run, used by the Latency metric
+     * @return this
+     */
+    public Leaderboard withMaxPauses(Map<GCType, List<Double>> maxPausesMap) {
+        this.maxPausesMap = maxPausesMap;
+        return this;
+    }
+
+    /***
+     * @param footprintsMap peak heap usage (MB) per run, used by the Footprint metric and the Pareto front
+     * @return this
+     */
+    public Leaderboard withFootprints(Map<GCType, List<Double>> footprintsMap) {
+        this.footprintsMap = footprintsMap;
+        return this;
+    }
+
+    /***
+     * @param mmusMap minimum mutator utilization (0..1) at the ranking window per run, used by the MMU metric
+     * @return this
+     */
+    public Leaderboard withMMUs(Map<GCType, List<Double>> mmusMap) {
+        this.mmusMap = mmusMap;
+        return this;
+    }
+
+    /***
+     * Multiplies the rank points of each metric by its weight before summing them up.
+     * @param weights non-negative weight per metric, metrics without a weight count with 1.0
+     * @return this
+     */
+    public Leaderboard withWeights(Map<Analysis.Metrics, Double> weights) {
+        validateWeights(weights);
+        this.weights = weights == null || weights.isEmpty() ? new EnumMap<>(Analysis.Metrics.class) :
+                new EnumMap<>(weights);
+        return this;
+    }
+
+    public static void validateWeights(Map<Analysis.Metrics, Double> weights) {
+        if (weights == null) {
+            return;
+        }
+        weights.forEach((metric, weight) -> {
+            if (weight == null || weight.isNaN() || weight.isInfinite() || weight < 0) {
+                LOGGER.log(Level.SEVERE, "Invalid weight for metric " + metric + ": " + weight);
+                throw new IllegalArgumentException("Please provide a non-negative weight for metric " + metric);
+            }
+        });
+    }
+
+    public Map<Analysis.Metrics, Double> getWeights() {
+        return new EnumMap<>(weights);
+    }
+
+    /***
+     * @return confidence intervals, tiers and pairwise tests of the metrics ranked with significance testing
+     */
+    public Map<Analysis.Metrics, MetricRanking<GCType>> getMetricRankings() {
+        return new EnumMap<>(metricRankings);
+    }
+
     public List<GCType> getLeaderboard() {
         return new LinkedList<>(leaderboard);
     }
@@ -47,6 +148,26 @@ public class Leaderboard {
         return pausesMap;
     }
 
+    public Map<GCType, List<Double>> getAppThroughputsMap() {
+        return appThroughputsMap;
+    }
+
+    public Map<GCType, List<Double>> getPauseP99sMap() {
+        return pauseP99sMap;
+    }
+
+    public Map<GCType, List<Double>> getMaxPausesMap() {
+        return maxPausesMap;
+    }
+
+    public Map<GCType, List<Double>> getFootprintsMap() {
+        return footprintsMap;
+    }
+
+    public Map<GCType, List<Double>> getMMUsMap() {
+        return mmusMap;
+    }
+
     public List<GCType> getGcTypes() {
         return gcTypes;
     }
@@ -56,66 +177,268 @@ public class Leaderboard {
     }
     
     public void setLeaderboard(Analysis.Metrics... metrics) {
-        List<Analysis.Metrics> metricsList = List.of(metrics);
-        Map<GCType, Integer> leaderboardMap = new HashMap<>();
         leaderboard.clear();
+        metricRankings.clear();
+        Map<GCType, Double> leaderboardMap = score(List.of(metrics), avgGCRuns, gcRuntimesMap, throughputsMap,
+                pausesMap, appThroughputsMap, maxPausesMap, footprintsMap, mmusMap, significanceTesting, weights,
+                metricRankings);
+        leaderboardMap.entrySet().stream().sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
+                .forEach(e -> leaderboard.add(e.getKey()));
+    }
 
-        if(metricsList.contains(Analysis.Metrics.BestGCRuntime)) {
-            throughputRuntimeHelper(leaderboardMap, gcRuntimesMap, false);
-            LOGGER.log(Level.INFO, "Results after weighing in BestGCRuntime metric:");
-            leaderboardMap.forEach((gcType, i) -> LOGGER.log(Level.INFO,gcType + " score: " + i));
+    /***
+     * Unlike the leaderboard, the Pareto front doesn't trade the objectives against each other: it holds every GC Type
+     * that no other GC Type beats on mean throughput, mean p99 pause and mean footprint at once. GC Types without
+     * pause or heap data in their logs are left out.
+     * @return the non-dominated GC Types, by descending throughput
+     */
+    public List<ParetoPoint<GCType>> getParetoFront() {
+        List<ParetoPoint<GCType>> points = new ArrayList<>();
+        for (GCType gcType : gcTypes) {
+            points.add(new ParetoPoint<>(gcType, mean(throughputsMap.get(gcType)), mean(pauseP99sMap.get(gcType)),
+                    mean(footprintsMap.get(gcType))));
         }
-        if(metricsList.contains(Analysis.Metrics.AvgGCRuntime)) {
-            avgRuntimeHelper(leaderboardMap, avgGCRuns);
-            LOGGER.log(Level.INFO, "Results after weighing in AvgGCRuntime metric:");
-            leaderboardMap.forEach((gcType, i) -> LOGGER.log(Level.INFO,gcType + " score: " + i));
-        }
-        if(metricsList.contains(Analysis.Metrics.Throughput)) {
-            throughputRuntimeHelper(leaderboardMap, throughputsMap, true);
-            LOGGER.log(Level.INFO, "Results after weighing in Throughput metric:");
-            leaderboardMap.forEach((gcType, i) -> LOGGER.log(Level.INFO,gcType + " score: " + i));
+        return paretoFront(points);
+    }
+
+    /***
+     * @param points candidates, e.g. GC Types or heap configurations
+     * @return the candidates not dominated by any other, by descending throughput. A candidate with an unknown (NaN)
+     * objective can't be compared and is left out.
+     */
+    public static <K> List<ParetoPoint<K>> paretoFront(List<ParetoPoint<K>> points) {
+        List<ParetoPoint<K>> comparable = new ArrayList<>();
+        for (ParetoPoint<K> point : points) {
+            if (Double.isNaN(point.throughput()) || Double.isNaN(point.pauseP99()) || Double.isNaN(point.footprint())) {
+                LOGGER.log(Level.WARNING, "Incomplete metrics, leaving " + point.key() + " out of the Pareto front");
+            } else {
+                comparable.add(point);
+            }
         }
-        if(metricsList.contains(Analysis.Metrics.Latency)) {
-            latencyHelper(leaderboardMap, gcTypes);
-            LOGGER.log(Level.INFO, "Results after weighing in Latency metric:");
-            leaderboardMap.forEach((gcType, i) -> LOGGER.log(Level.INFO,gcType + " score: " + i));
+        List<ParetoPoint<K>> front = comparable.stream()
+                .filter(point -> comparable.stream().noneMatch(other -> other.dominates(point)))
+                .sorted(Comparator.comparingDouble(ParetoPoint<K>::throughput).reversed())
+                .collect(Collectors.toList());
+        LOGGER.log(Level.INFO, "Pareto front: " + front);
+        return front;
+    }
+
+    private static double mean(List<Double> values) {
+        if (values == null) {
+            return Double.NaN;
         }
-        if(metricsList.contains(Analysis.Metrics.MinorPauses)) {
-            pausesHelper(leaderboardMap, pausesMap, false);
-            LOGGER.log(Level.INFO, "Results after weighing in MinorPauses metric:");
-            leaderboardMap.forEach((gcType, i) -> LOGGER.log(Level.INFO,gcType + " score: " + i));
+        return values.stream().filter(d -> d != null && !d.isNaN()).mapToDouble(Double::doubleValue).average()
+                .orElse(Double.NaN);
+    }
+
+    /***
+     * Ranks every (JDK version, GC Type) pair of the given analyses against each other using the same metrics
+     * as the per-JDK leaderboards.
+     * @param analysesByJdkVersion finished analyses keyed by the version of the JDK they were run on
+     * @param metrics selected metrics
+     * @return (JDK version, GC Type) pairs, best first
+     */
+    public static List<MatrixEntry> rankAcrossJavaRuntimes(Map<String, Analysis> analysesByJdkVersion,
+                                                           Analysis.Metrics... metrics) {
+        return rankAcrossJavaRuntimes(analysesByJdkVersion, null, metrics);
+    }
+
+    /***
+     * @param significanceTesting significance test settings, or null for ranking by the best run
+     */
+    public static List<MatrixEntry> rankAcrossJavaRuntimes(Map<String, Analysis> analysesByJdkVersion,
+                                                           SignificanceTesting significanceTesting,
+                                                           Analysis.Metrics... metrics) {
+        return rankAcrossJavaRuntimes(analysesByJdkVersion, significanceTesting, Map.of(), metrics);
+    }
+
+    /***
+     * @param weights weight per metric, metrics without a weight count with 1.0
+     */
+    public static List<MatrixEntry> rankAcrossJavaRuntimes(Map<String, Analysis> analysesByJdkVersion,
+                                                           SignificanceTesting significanceTesting,
+                                                           Map<Analysis.Metrics, Double> weights,
+                                                           Analysis.Metrics... metrics) {
+        validateWeights(weights);
+        Map<MatrixEntry, Double> avgGCRuns = new HashMap<>();
+        Map<MatrixEntry, List<Double>> gcRuntimesMap = new HashMap<>();
+        Map<MatrixEntry, List<Double>> throughputsMap = new HashMap<>();
+        Map<MatrixEntry, List<Integer>> pausesMap = new HashMap<>();
+        Map<MatrixEntry, List<Double>> appThroughputsMap = new HashMap<>();
+        Map<MatrixEntry, List<Double>> maxPausesMap = new HashMap<>();
+        Map<MatrixEntry, List<Double>> footprintsMap = new HashMap<>();
+        Map<MatrixEntry, List<Double>> mmusMap = new HashMap<>();
+        analysesByJdkVersion.forEach((jdkVersion, analysis) -> {
+            for (GCType gcType : analysis.getGcTypes()) {
+                MatrixEntry entry = new MatrixEntry(jdkVersion, gcType);
+                putIfPresent(avgGCRuns, entry, analysis.getAvgGCRuns().get(gcType));
+                putIfPresent(gcRuntimesMap, entry, analysis.getGcRuntimes().get(gcType));
+                putIfPresent(throughputsMap, entry, analysis.getThroughputsMap().get(gcType));
+                putIfPresent(pausesMap, entry, analysis.getPausesMap().get(gcType));
+                putIfPresent(appThroughputsMap, entry, analysis.getAppThroughputsMap().get(gcType));
+                putIfPresent(maxPausesMap, entry, analysis.getMaxPausesMap().get(gcType));
+                putIfPresent(footprintsMap, entry, analysis.getFootprintsMap().get(gcType));
+                putIfPresent(mmusMap, entry, analysis.getMMUsMap().get(gcType));
+            }
+        });
+        Map<MatrixEntry, Double> leaderboardMap = score(List.of(metrics), avgGCRuns, gcRuntimesMap, throughputsMap,
+                pausesMap, appThroughputsMap, maxPausesMap, footprintsMap, mmusMap, significanceTesting,
+                weights == null ? Map.of() : weights, new HashMap<>());
+        return leaderboardMap.entrySet().stream().sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
+                .map(Map.Entry::getKey).collect(Collectors.toList());
+    }
+
+    private static <K, V> void putIfPresent(Map<K, V> map, K key, V value) {
+        if (value != null) {
+            map.put(key, value);
         }
-        if(metricsList.contains(Analysis.Metrics.FullPauses)) {
-            pausesHelper(leaderboardMap, pausesMap, true);
-            LOGGER.log(Level.INFO, "Results after weighing in FullPauses metric:");
-            leaderboardMap.forEach((gcType, i) -> LOGGER.log(Level.INFO,gcType + " score: " + i));
+    }
+
+    /***
+     * Ranks the keys on every selected metric separately and sums up their rank points, each multiplied by the
+     * weight of its metric.
+     */
+    private static <K> Map<K, Double> score(List<Analysis.Metrics> metricsList, Map<K, Double> avgGCRuns,
+                                            Map<K, List<Double>> gcRuntimesMap, Map<K, List<Double>> throughputsMap,
+                                            Map<K, List<Integer>> pausesMap, Map<K, List<Double>> appThroughputsMap,
+                                            Map<K, List<Double>> maxPausesMap, Map<K, List<Double>> footprintsMap,
+                                            Map<K, List<Double>> mmusMap, SignificanceTesting significance,
+                                            Map<Analysis.Metrics, Double> weights,
+                                            Map<Analysis.Metrics, MetricRanking<K>> rankings) {
+        Map<K, Double> leaderboardMap = new HashMap<>();
+        for (Analysis.Metrics metric : Analysis.Metrics.values()) {
+            if (!metricsList.contains(metric)) {
+                continue;
+            }
+            Map<K, Integer> points = new HashMap<>();
+            switch (metric) {
+                case BestGCRuntime -> {
+                    if (significance != null) {
+                        significanceHelper(points, metric, gcRuntimesMap, false, significance, rankings);
+                    } else {
+                        throughputRuntimeHelper(points, gcRuntimesMap, false);
+                    }
+                }
+                case AvgGCRuntime -> {
+                    if (significance != null) {
+                        significanceHelper(points, metric, gcRuntimesMap, false, significance, rankings);
+                    } else {
+                        avgRuntimeHelper(points, avgGCRuns);
+                    }
+                }
+                case Throughput -> {
+                    if (significance != null) {
+                        significanceHelper(points, metric, throughputsMap, true, significance, rankings);
+                    } else {
+                        throughputRuntimeHelper(points, throughputsMap, true);
+                    }
+                }
+                case Latency -> {
+                    Map<K, List<Double>> measuredMaxPauses = withoutUnmeasured(maxPausesMap);
+                    if (measuredMaxPauses.isEmpty()) {
+                        LOGGER.log(Level.WARNING, "Latency metric selected without pause durations, it will be " +
+                                "ignored");
+                        continue;
+                    }
+                    if (significance != null) {
+                        significanceHelper(points, metric, measuredMaxPauses, false, significance, rankings);
+                    } else {
+                        latencyHelper(points, measuredMaxPauses);
+                    }
+                }
+                case MinorPauses -> {
+                    if (significance != null) {
+                        significanceHelper(points, metric, splitPauses(pausesMap, false), false, significance,
+                                rankings);
+                    } else {
+                        pausesHelper(points, pausesMap, false);
+                    }
+                }
+                case FullPauses -> {
+                    if (significance != null) {
+                        significanceHelper(points, metric, splitPauses(pausesMap, true), false, significance,
+                                rankings);
+                    } else {
+                        pausesHelper(points, pausesMap, true);
+                    }
+                }
+                case AppThroughput -> {
+                    if (appThroughputsMap.isEmpty()) {
+                        continue;
+                    }
+                    if (significance != null) {
+                        significanceHelper(points, metric, appThroughputsMap, true, significance, rankings);
+                    } else {
+                        throughputRuntimeHelper(points, appThroughputsMap, true);
+                    }
+                }
+                case Footprint -> {
+                    Map<K, List<Double>> measuredFootprints = withoutUnmeasured(footprintsMap);
+                    if (measuredFootprints.isEmpty()) {
+                        LOGGER.log(Level.WARNING, "Footprint metric selected without heap data, it will be ignored");
+                        continue;
+                    }
+                    if (significance != null) {
+                        significanceHelper(points, metric, measuredFootprints, false, significance, rankings);
+                    } else {
+                        throughputRuntimeHelper(points, measuredFootprints, false);
+                    }
+                }
+                case MMU -> {
+                    Map<K, List<Double>> measuredMMUs = withoutUnmeasured(mmusMap);
+                    if (measuredMMUs.isEmpty()) {
+                        LOGGER.log(Level.WARNING, "MMU metric selected without pause timelines, it will be ignored");
+                        continue;
+                    }
+                    if (significance != null) {
+                        significanceHelper(points, metric, measuredMMUs, true, significance, rankings);
+                    } else {
+                        throughputRuntimeHelper(points, measuredMMUs, true);
+                    }
+                }
+            }
+            double weight = weights.getOrDefault(metric, 1.0);
+            points.forEach((key, value) -> leaderboardMap.merge(key, weight * value, Double::sum));
+            LOGGER.log(Level.INFO, "Results after weighing in " + metric + " metric" +
+                    (weight == 1.0 ? "" : " (weight: " + weight + ")") + ":");
+            leaderboardMap.forEach((key, i) -> LOGGER.log(Level.INFO,key + " score: " + i));
         }
-        leaderboardMap.entrySet().stream().sorted((e1, e2) -> e2.getValue().compareTo(e1.getValue()))
-                .forEach(e -> leaderboard.add(e.getKey()));
+        return leaderboardMap;
     }
 
-    private static void avgRuntimeHelper(Map<GCType, Integer> leaderboardMap, Map<GCType, Double> avgGCRuns) {
-        List<Map.Entry<GCType, Double>> sortedList = avgGCRuns.entrySet().stream().sorted(Map.Entry.comparingByValue())
+    private static <K> Map<K, List<Double>> withoutUnmeasured(Map<K, List<Double>> valuesMap) {
+        Map<K, List<Double>> measured = new HashMap<>();
+        valuesMap.forEach((key, values) -> {
+            if (values.stream().anyMatch(d -> d != null && !d.isNaN())) {
+                measured.put(key, values);
+            }
+        });
+        return measured;
+    }
+
+    private static <K> void avgRuntimeHelper(Map<K, Integer> leaderboardMap, Map<K, Double> avgGCRuns) {
+        List<Map.Entry<K, Double>> sortedList = avgGCRuns.entrySet().stream().sorted(Map.Entry.comparingByValue())
                 .collect(Collectors.toList());
         sortedList.forEach(entry -> {
-            GCType key = entry.getKey();
+            K key = entry.getKey();
             int value = sortedList.size() - sortedList.indexOf(entry); //best is lowest
             leaderboardMap.merge(key, value, Integer::sum);
         });
     }
 
-    private static void throughputRuntimeHelper(Map<GCType, Integer> leaderboardMap, Map<GCType, List<Double>> throughputsMap,
-                                                   boolean isThroughput) {
-        List<Map.Entry<GCType, List<Double>>> sortedList = throughputsMap.entrySet().stream()
+    private static <K> void throughputRuntimeHelper(Map<K, Integer> leaderboardMap, Map<K, List<Double>> throughputsMap,
+                                                    boolean isThroughput) {
+        List<Map.Entry<K, List<Double>>> sortedList = throughputsMap.entrySet().stream()
                 .sorted(Comparator.comparing(e -> {
                     if(isThroughput) {
-                        return e.getValue().stream().max(Double::compareTo).orElse(0.0);
+                        return e.getValue().stream().filter(d -> !d.isNaN()).max(Double::compareTo).orElse(0.0);
                     }
-                    return e.getValue().stream().min(Double::compareTo).orElse((double) Integer.MAX_VALUE);
+                    return e.getValue().stream().filter(d -> !d.isNaN()).min(Double::compareTo)
+                            .orElse((double) Integer.MAX_VALUE);
                 }))
                 .collect(Collectors.toList());
         sortedList.forEach(entry -> {
-            GCType key = entry.getKey();
+            K key = entry.getKey();
             int value;
             if(isThroughput) {
                 value = sortedList.indexOf(entry) + 1; //best is highest
@@ -127,9 +450,9 @@ public class Leaderboard {
         });
     }
 
-    private static void pausesHelper(Map<GCType, Integer> leaderboardMap, Map<GCType, List<Integer>> pausesMap, 
-                                     boolean fullPauses) {
-        List<Map.Entry<GCType, List<Integer>>> sortedList = pausesMap.entrySet().stream()
+    private static <K> void pausesHelper(Map<K, Integer> leaderboardMap, Map<K, List<Integer>> pausesMap,
+                                         boolean fullPauses) {
+        List<Map.Entry<K, List<Integer>>> sortedList = pausesMap.entrySet().stream()
                 .sorted(Comparator.comparing(e -> {
                     List<Integer> values = e.getValue();
                     var pauses = Stream.iterate(fullPauses ? 0 : 1, i -> i + 2).limit(values.size() / 2)
@@ -137,28 +460,191 @@ public class Leaderboard {
                     return pauses.stream().min(Integer::compareTo).orElse(Integer.MAX_VALUE);
                 })).collect(Collectors.toList());
         sortedList.forEach(entry -> {
-            GCType key = entry.getKey();
+            K key = entry.getKey();
             int value = sortedList.size() - sortedList.indexOf(entry); //best is lowest
             leaderboardMap.merge(key, value, Integer::sum);
         });
     }
 
-    private static void latencyHelper(Map<GCType, Integer> leaderboardMap, List<GCType> gcTypes) {
-        int value = gcTypes.size();
-        if(gcTypes.contains(GCType.ZGC)) {
-            leaderboardMap.merge(GCType.ZGC, value--, Integer::sum);
+    private static <K> Map<K, List<Double>> splitPauses(Map<K, List<Integer>> pausesMap, boolean fullPauses) {
+        Map<K, List<Double>> split = new HashMap<>();
+        pausesMap.forEach((key, values) -> split.put(key, Stream.iterate(fullPauses ? 0 : 1, i -> i + 2)
+                .limit(values.size() / 2).map(i -> values.get(i).doubleValue()).collect(Collectors.toList())));
+        return split;
+    }
+
+    /***
+     * Orders the keys by the mean of their runs and splits them into tiers: a key joins the tier of the previous key
+     * unless it differs significantly from the best key of that tier. Every key of a tier gets the points of the
+     * tier's best position.
+     */
+    private static <K> void significanceHelper(Map<K, Integer> leaderboardMap, Analysis.Metrics metric,
+                                               Map<K, List<Double>> valuesMap, boolean higherIsBetter,
+                                               SignificanceTesting significance,
+                                               Map<Analysis.Metrics, MetricRanking<K>> rankings) {
+        Map<K, double[]> samples = new HashMap<>();
+        valuesMap.forEach((key, values) -> {
+            double[] sample = values.stream().filter(d -> d != null && !d.isNaN()).mapToDouble(Double::doubleValue)
+                    .toArray();
+            if (sample.length > 0) {
+                samples.put(key, sample);
+            }
+        });
+        Map<K, ConfidenceInterval> intervals = new HashMap<>();
+        samples.forEach((key, sample) -> intervals.put(key, Bootstrap.meanConfidenceInterval(sample,
+                significance.bootstrapIterations(), significance.confidenceLevel(), significance.seed())));
+        Comparator<K> byEstimate = Comparator.comparingDouble(key -> intervals.get(key).estimate());
+        List<K> ordered = samples.keySet().stream().sorted(higherIsBetter ? byEstimate.reversed() : byEstimate)
+                .collect(Collectors.toList());
+        List<PairwiseTest<K>> tests = new ArrayList<>();
+        for (int i = 0; i < ordered.size(); i++) {
+            for (int j = i + 1; j < ordered.size(); j++) {
+                MannWhitneyU.Result result = MannWhitneyU.test(samples.get(ordered.get(i)), samples.get(ordered.get(j)));
+                tests.add(new PairwiseTest<>(ordered.get(i), ordered.get(j), result.pValue(),
+                        result.isSignificant(significance.alpha())));
+            }
         }
-        if(gcTypes.contains(GCType.SHENANDOAH)) {
-            leaderboardMap.merge(GCType.SHENANDOAH, value--, Integer::sum);
+        List<List<K>> tiers = new ArrayList<>();
+        for (K key : ordered) {
+            List<K> currentTier = tiers.isEmpty() ? null : tiers.get(tiers.size() - 1);
+            if (currentTier != null && !isSignificant(tests, currentTier.get(0), key)) {
+                currentTier.add(key);
+            } else {
+                tiers.add(new ArrayList<>(List.of(key)));
+            }
         }
-        if(gcTypes.contains(GCType.PARALLEL)) {
-            leaderboardMap.merge(GCType.PARALLEL, value--, Integer::sum);
+        int position = 0;
+        for (List<K> tier : tiers) {
+            int points = ordered.size() - position;
+            tier.forEach(key -> leaderboardMap.merge(key, points, Integer::sum));
+            position += tier.size();
         }
-        if(gcTypes.contains(GCType.G1)) {
-            leaderboardMap.merge(GCType.G1, value--, Integer::sum);
+        MetricRanking<K> ranking = new MetricRanking<>(metric, intervals, tiers, tests);
+        rankings.put(metric, ranking);
+        LOGGER.log(Level.INFO, "Significance tested " + metric + " ranking: " + ranking);
+    }
+
+    private static <K> boolean isSignificant(List<PairwiseTest<K>> tests, K first, K second) {
+        return tests.stream().filter(test -> (test.first().equals(first) && test.second().equals(second)) ||
+                (test.first().equals(second) && test.second().equals(first))).anyMatch(PairwiseTest::significant);
+    }
+
+    /***
+     * Ranks by the tail: the longest pause of all runs, so a single outlier pause counts against a GC Type however
+     * short its typical pauses are. Lowest is best.
+     */
+    private static <K> void latencyHelper(Map<K, Integer> leaderboardMap, Map<K, List<Double>> maxPausesMap) {
+        Map<K, Double> worstPauses = new HashMap<>();
+        maxPausesMap.forEach((key, values) -> values.stream().filter(d -> d != null && !d.isNaN())
+                .max(Double::compareTo).ifPresent(worstPause -> worstPauses.put(key, worstPause)));
+        avgRuntimeHelper(leaderboardMap, worstPauses);
+    }
+
+    /***
+     * @param alpha significance level of the pairwise Mann-Whitney U tests, e.g. 0.05
+     * @param confidenceLevel confidence level of the bootstrap intervals, e.g. 0.95
+     * @param bootstrapIterations number of bootstrap resamples per key and metric
+     * @param seed seed of the bootstrap resampling
+     */
+    public record SignificanceTesting(double alpha, double confidenceLevel, int bootstrapIterations, long seed) {
+        public SignificanceTesting {
+            if (alpha <= 0 || alpha >= 1) {
+                LOGGER.log(Level.SEVERE, "Invalid argument for significance level");
+                throw new IllegalArgumentException("Significance level must be between 0 and 1");
+            }
+            if (confidenceLevel <= 0 || confidenceLevel >= 1) {
+                LOGGER.log(Level.SEVERE, "Invalid argument for confidence level");
+                throw new IllegalArgumentException("Confidence level must be between 0 and 1");
+            }
+            if (bootstrapIterations < 100) {
+                LOGGER.log(Level.SEVERE, "Invalid argument for bootstrap iterations");
+                throw new IllegalArgumentException("Please provide at least 100 bootstrap iterations");
+            }
+        }
+
+        public static SignificanceTesting defaults() {
+            return new SignificanceTesting(0.05, 0.95, 10000, 1L);
+        }
+    }
+
+    public record PairwiseTest<K>(K first, K second, double pValue, boolean significant) {}
+
+    /***
+     * @param metric ranked metric
+     * @param intervals mean of the runs with bootstrap confidence interval per key
+     * @param tiers keys best first, keys of the same tier are tied
+     * @param tests pairwise tests of every key pair
+     */
+    public record MetricRanking<K>(Analysis.Metrics metric, Map<K, ConfidenceInterval> intervals, List<List<K>> tiers,
+                                   List<PairwiseTest<K>> tests) {
+        public MetricRanking {
+            intervals = Map.copyOf(intervals);
+            tiers = tiers.stream().map(List::copyOf).toList();
+            tests = List.copyOf(tests);
+        }
+
+        /***
+         * @return groups of more than one key whose differences are not significant
+         */
+        public List<List<K>> getTies() {
+            return tiers.stream().filter(tier -> tier.size() > 1).toList();
         }
-        if(gcTypes.contains(GCType.SERIAL)) {
-            leaderboardMap.merge(GCType.SERIAL, value, Integer::sum);
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < tiers.size(); i++) {
+                sb.append(i + 1).append(": ");
+                tiers.get(i).forEach(key -> sb.append(key).append(' ').append(intervals.get(key)).append("; "));
+            }
+            return sb.toString().trim();
+        }
+    }
+
+    /***
+     * Candidate of a Pareto front: higher throughput, lower p99 pause and lower footprint are better
+     * @param key GC Type or configuration
+     * @param throughput mean throughput in percentage
+     * @param pauseP99 mean of the per-run 99th percentile pauses in ms
+     * @param footprint mean peak heap usage in MB
+     */
+    public record ParetoPoint<K>(K key, double throughput, double pauseP99, double footprint) {
+
+        /***
+         * @return true if this point is at least as good on every objective and better on at least one
+         */
+        public boolean dominates(ParetoPoint<?> other) {
+            boolean noWorse = throughput >= other.throughput && pauseP99 <= other.pauseP99 &&
+                    footprint <= other.footprint;
+            boolean better = throughput > other.throughput || pauseP99 < other.pauseP99 ||
+                    footprint < other.footprint;
+            return noWorse && better;
+        }
+
+        @Override
+        public String toString() {
+            return key + " (throughput: " + throughput + "%, p99 pause: " + pauseP99 + " ms, footprint: " +
+                    footprint + " MB)";
+        }
+    }
+
+    /***
+     * Heap configuration of a run
+     * @param gcType GC Type
+     * @param xms start heap size in MB
+     * @param xmx maximum heap size in MB
+     */
+    public record HeapConfiguration(GCType gcType, int xms, int xmx) {
+        @Override
+        public String toString() {
+            return gcType.name() + " -Xms" + xms + "m -Xmx" + xmx + "m";
+        }
+    }
+
+    public record MatrixEntry(String jdkVersion, GCType gcType) {
+        @Override
+        public String toString() {
+            return "JDK " + jdkVersion + " / " + gcType.name();
         }
     }
 }
@@ -0,0 +1,375 @@
+package hu.antalnagy.gcperf;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Parser of the GC logs of JDK 8 and older runtimes, written with -XX:+PrintGCDetails and -XX:+PrintGCTimeStamps
+ * and/or -XX:+PrintGCDateStamps by the Serial (DefNew/Tenured), Parallel (PSYoungGen/ParOldGen), CMS (ParNew/CMS)
+ * and G1 collectors. {@link #translate(List)} rewrites such a log into the unified logging lines the parsers of
+ * {@link Analysis} read, so legacy runs feed the same metrics as runs of newer JDKs: every pause becomes a gc,start, a
+ * gc and a gc,cpu line, every concurrent phase a gc line, and the JVM header a "Using ..." line and gc,init lines.
+ * Logs with date stamps only get the time elapsed since their first event as uptime.
+ */
+public final class LegacyGCLog {
+
+    private static final String TIME_STAMPS = "(?:(\\d{4}-\\d\\d-\\d\\dT\\d\\d:\\d\\d:\\d\\d[.,]\\d{3}[+-]\\d{4}): )?" +
+            "(?:(\\d+[.,]\\d+): )?";
+    private static final Pattern legacyLinePattern = Pattern.compile("^" + TIME_STAMPS + "\\[(?:Full GC|GC|CMS-)");
+    private static final Pattern eventPattern = Pattern.compile(TIME_STAMPS +
+            "\\[(Full GC|GC pause|GC remark|GC cleanup|GC)((?:\\s*\\((?:[^()]|\\([^()]*\\))*\\))*)");
+    private static final Pattern causePattern = Pattern.compile("\\(((?:[^()]|\\([^()]*\\))*)\\)");
+    private static final Pattern cmsConcurrentPattern = Pattern.compile(TIME_STAMPS +
+            "\\[CMS-concurrent-([a-z-]+): \\d+[.,]\\d+/(\\d+[.,]\\d+) secs\\](?:\\s*\\[Times: [^\\]]*\\])?");
+    private static final Pattern g1ConcurrentPattern = Pattern.compile(TIME_STAMPS +
+            "\\[GC concurrent-([a-z-]+)-end, (\\d+[.,]\\d+) secs\\]");
+    private static final Pattern concurrentMarkerPattern = Pattern.compile(TIME_STAMPS +
+            "\\[(?:GC concurrent-|CMS-concurrent-)[^\\]]*\\](?:\\s*\\[Times: [^\\]]*\\])?");
+    private static final Pattern durationPattern = Pattern.compile(", (\\d+[.,]\\d+) secs\\]");
+    private static final Pattern timesPattern =
+            Pattern.compile("\\[Times: user=(\\d+[.,]\\d+) sys=(\\d+[.,]\\d+), real=(\\d+[.,]\\d+) secs\\]");
+    private static final Pattern permPattern =
+            Pattern.compile("\\[(?:Metaspace|PSPermGen|CMS Perm|Perm) ?: [^\\]]*\\]");
+    private static final String SIZE = "(\\d+(?:[.,]\\d+)?)([BKMG])";
+    private static final Pattern transitionPattern =
+            Pattern.compile(SIZE + "(?:\\(" + SIZE + "\\))?->" + SIZE + "\\(" + SIZE + "\\)");
+    private static final Pattern occupancyPattern = Pattern.compile("] " + SIZE + "\\(" + SIZE + "\\), ");
+    private static final Pattern versionPattern = Pattern.compile("JRE \\((\\d+\\.\\d+\\.\\d+(?:_\\d+)?)");
+    private static final Pattern heapFlagPattern = Pattern.compile("-XX:(InitialHeapSize|MaxHeapSize)=(\\d+)");
+    private static final Pattern collectorFlagPattern =
+            Pattern.compile("-XX:\\+Use(ConcMarkSweepGC|ParallelGC|ParallelOldGC|G1GC|SerialGC)\\b");
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final Logger LOGGER = Logger.getLogger(LegacyGCLog.class.getSimpleName());
+
+    private LegacyGCLog() {
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    /***
+     * A stop-the-world pause, filled in as its lines are read
+     */
+    private static final class Pause {
+        private final int id;
+        private final double uptime;
+        private final String name;
+        private double duration = Double.NaN;
+        private String transition;
+        private String cpu;
+
+        private Pause(int id, double uptime, String name) {
+            this.id = id;
+            this.uptime = uptime;
+            this.name = name;
+        }
+    }
+
+    /***
+     * @return whether the log was written by a JDK 8 or older runtime, decided by its first GC line
+     */
+    public static boolean isLegacy(List<String> lines) {
+        for (String line : lines) {
+            if (legacyLinePattern.matcher(line).find()) {
+                return true;
+            }
+            if (!Double.isNaN(LogDecorators.uptime(line))) {
+                return false;
+            }
+        }
+        return false;
+    }
+
+    /***
+     * @return the collector selected on the "CommandLine flags:" line, or recognized from the generation names of the
+     * log if it has no such line
+     */
+    public static Optional<GCType> yieldCollector(List<String> lines) {
+        for (String line : lines) {
+            if (line.startsWith("CommandLine flags:")) {
+                Matcher matcher = collectorFlagPattern.matcher(line);
+                if (matcher.find()) {
+                    return Optional.of(switch (matcher.group(1)) {
+                        case "ConcMarkSweepGC" -> GCType.CMS;
+                        case "G1GC" -> GCType.G1;
+                        case "SerialGC" -> GCType.SERIAL;
+                        default -> GCType.PARALLEL;
+                    });
+                }
+            }
+        }
+        for (String line : lines) {
+            if (line.contains("[ParNew") || line.contains("[CMS") || line.contains("(CMS ")) {
+                return Optional.of(GCType.CMS);
+            }
+            if (line.contains("[PSYoungGen") || line.contains("[ParOldGen") || line.contains("[PSOldGen")) {
+                return Optional.of(GCType.PARALLEL);
+            }
+            if (line.contains("[GC pause") || line.contains("[GC remark") || line.contains("[GC concurrent-")) {
+                return Optional.of(GCType.G1);
+            }
+            if (line.contains("[DefNew") || line.contains("[Tenured")) {
+                return Optional.of(GCType.SERIAL);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /***
+     * @param lines lines of a legacy GC log, see {@link #isLegacy(List)}
+     * @return the pauses and concurrent phases of the log as unified logging lines, in log order
+     */
+    public static List<String> translate(List<String> lines) {
+        List<Object> entries = new ArrayList<>();
+        String version = null;
+        long initialHeapSize = -1;
+        long maxHeapSize = -1;
+        long firstDate = Long.MIN_VALUE;
+        double lastUptime = Double.NaN;
+        int nextId = 0;
+        int cycleId = -1;
+        Pause open = null;
+        Pause lastClosed = null;
+        for (String line : lines) {
+            if (version == null) {
+                Matcher matcher = versionPattern.matcher(line);
+                version = matcher.find() ? matcher.group(1) : null;
+            }
+            if (line.startsWith("CommandLine flags:")) {
+                Matcher matcher = heapFlagPattern.matcher(line);
+                while (matcher.find()) {
+                    long megabytes = Long.parseLong(matcher.group(2)) / (1024 * 1024);
+                    if (matcher.group(1).equals("InitialHeapSize")) {
+                        initialHeapSize = megabytes;
+                    } else {
+                        maxHeapSize = megabytes;
+                    }
+                }
+                continue;
+            }
+            if (firstDate == Long.MIN_VALUE) {
+                Matcher matcher = legacyLinePattern.matcher(line);
+                if (matcher.find() && matcher.group(1) != null) {
+                    firstDate = parseDate(matcher.group(1));
+                }
+            }
+
+            Matcher cmsConcurrent = cmsConcurrentPattern.matcher(line);
+            while (cmsConcurrent.find()) {
+                double uptime = uptime(cmsConcurrent.group(1), cmsConcurrent.group(2), firstDate, lastUptime);
+                entries.add(String.format(Locale.ROOT, "[%.3fs][info][gc] GC(%d) Concurrent %s %.3fms", uptime,
+                        Math.max(cycleId, 0), phaseName(cmsConcurrent.group(3)),
+                        seconds(cmsConcurrent.group(4)) * 1000));
+                lastUptime = uptime;
+            }
+            Matcher g1Concurrent = g1ConcurrentPattern.matcher(line);
+            while (g1Concurrent.find()) {
+                double uptime = uptime(g1Concurrent.group(1), g1Concurrent.group(2), firstDate, lastUptime);
+                entries.add(String.format(Locale.ROOT, "[%.3fs][info][gc] GC(%d) Concurrent Cycle %.3fms", uptime,
+                        Math.max(cycleId, 0), seconds(g1Concurrent.group(4)) * 1000));
+                lastUptime = uptime;
+            }
+            String rest = concurrentMarkerPattern.matcher(line).replaceAll("");
+
+            int closeFrom = 0;
+            Matcher event = eventPattern.matcher(rest);
+            if (event.find()) {
+                if (open != null) {
+                    LOGGER.log(Level.FINE, "Dropping unterminated GC(" + open.id + ")");
+                }
+                double uptime = uptime(event.group(1), event.group(2), firstDate, lastUptime);
+                List<String> causes = new ArrayList<>();
+                Matcher cause = causePattern.matcher(event.group(4));
+                while (cause.find()) {
+                    causes.add(cause.group(1));
+                }
+                open = new Pause(nextId++, uptime, pauseName(event.group(3), causes));
+                if (open.name.equals("Initial Mark") || open.name.startsWith("Young (Concurrent Start)")) {
+                    cycleId = open.id;
+                }
+                entries.add(open);
+                lastUptime = uptime;
+                closeFrom = event.end();
+            }
+            if (open != null) {
+                Matcher duration = durationPattern.matcher(rest);
+                String closing = null;
+                while (duration.find(closeFrom)) {
+                    closing = duration.group(1);
+                    closeFrom = duration.end();
+                }
+                if (closing != null) {
+                    open.duration = seconds(closing) * 1000;
+                    String heap = permPattern.matcher(rest.substring(0, closeFrom)).replaceAll("");
+                    open.transition = lastTransition(heap);
+                    if (open.name.startsWith("Young") && (rest.contains("(concurrent mode failure)") ||
+                            rest.contains("(promotion failed)"))) {
+                        Pause full = new Pause(open.id, open.uptime, "Full" + open.name.substring("Young".length()));
+                        entries.set(entries.indexOf(open), full);
+                        full.duration = open.duration;
+                        full.transition = open.transition;
+                        open = full;
+                    }
+                    lastClosed = open;
+                    lastUptime = open.uptime + open.duration / 1000;
+                    open = null;
+                }
+            }
+            if (lastClosed != null && lastClosed.transition == null && rest.contains("Heap: ")) {
+                lastClosed.transition = lastTransition(rest);
+            }
+            Matcher times = timesPattern.matcher(rest);
+            if (lastClosed != null && lastClosed.cpu == null && times.find()) {
+                lastClosed.cpu = "User=" + times.group(1).replace(',', '.') + "s Sys=" +
+                        times.group(2).replace(',', '.') + "s Real=" + times.group(3).replace(',', '.') + "s";
+            }
+        }
+        return render(entries, yieldCollector(lines), version, initialHeapSize, maxHeapSize);
+    }
+
+    private static List<String> render(List<Object> entries, Optional<GCType> gcType, String version,
+                                       long initialHeapSize, long maxHeapSize) {
+        List<String> translated = new ArrayList<>();
+        double firstUptime = 0.0;
+        for (Object entry : entries) {
+            if (entry instanceof Pause pause) {
+                firstUptime = pause.uptime;
+                break;
+            }
+        }
+        String decorators = String.format(Locale.ROOT, "[%.3fs][info]", firstUptime);
+        gcType.ifPresent(type -> translated.add(decorators + "[gc] Using " + switch (type) {
+            case SERIAL -> "Serial";
+            case PARALLEL -> "Parallel";
+            case CMS -> "Concurrent Mark Sweep";
+            default -> "G1";
+        }));
+        if (version != null) {
+            translated.add(decorators + "[gc,init] Version: " + version + " (release)");
+        }
+        if (initialHeapSize >= 0) {
+            translated.add(decorators + "[gc,init] Heap Initial Capacity: " + initialHeapSize + "M");
+        }
+        if (maxHeapSize >= 0) {
+            translated.add(decorators + "[gc,init] Heap Max Capacity: " + maxHeapSize + "M");
+        }
+        for (Object entry : entries) {
+            if (!(entry instanceof Pause pause)) {
+                translated.add((String) entry);
+                continue;
+            }
+            if (Double.isNaN(pause.duration)) {
+                continue;
+            }
+            double end = pause.uptime + pause.duration / 1000;
+            translated.add(String.format(Locale.ROOT, "[%.3fs][info][gc,start] GC(%d) Pause %s", pause.uptime,
+                    pause.id, pause.name));
+            translated.add(String.format(Locale.ROOT, "[%.3fs][info][gc] GC(%d) Pause %s %s%.3fms", end, pause.id,
+                    pause.name, pause.transition == null ? "" : pause.transition + " ", pause.duration));
+            if (pause.cpu != null) {
+                translated.add(String.format(Locale.ROOT, "[%.3fs][info][gc,cpu] GC(%d) %s", end, pause.id,
+                        pause.cpu));
+            }
+        }
+        return translated;
+    }
+
+    /***
+     * @return the pause name used by unified logging, e.g. "Young (Allocation Failure)" for [GC (Allocation Failure)
+     */
+    private static String pauseName(String kind, List<String> causes) {
+        String cause = causes.stream().filter(c -> !c.equals("young") && !c.equals("mixed") &&
+                !c.equals("initial-mark")).findFirst().orElse(null);
+        String suffix = cause == null ? "" : " (" + cause + ")";
+        return switch (kind) {
+            case "GC remark" -> "Remark";
+            case "GC cleanup" -> "Cleanup";
+            case "GC pause" -> "Young (" + (causes.contains("mixed") ? "Mixed" :
+                    (causes.contains("initial-mark") ? "Concurrent Start" : "Normal")) + ")" + suffix;
+            case "Full GC" -> "Full" + suffix;
+            default -> "CMS Initial Mark".equals(cause) ? "Initial Mark" :
+                    ("CMS Final Remark".equals(cause) ? "Remark" : "Young" + suffix);
+        };
+    }
+
+    /***
+     * @return "Abortable Preclean" for abortable-preclean
+     */
+    private static String phaseName(String phase) {
+        StringBuilder name = new StringBuilder();
+        for (String word : phase.split("-")) {
+            if (!word.isEmpty()) {
+                name.append(name.length() == 0 ? "" : " ").append(Character.toUpperCase(word.charAt(0)))
+                        .append(word.substring(1));
+            }
+        }
+        return name.toString();
+    }
+
+    /***
+     * @return the last heap transition of the line in KB, e.g. 33280K->20112K(125952K), or null if it has none
+     */
+    private static String lastTransition(String line) {
+        Matcher matcher = transitionPattern.matcher(line);
+        String transition = null;
+        while (matcher.find()) {
+            transition = toKilobytes(matcher.group(1), matcher.group(2)) + "K->" +
+                    toKilobytes(matcher.group(5), matcher.group(6)) + "K(" +
+                    toKilobytes(matcher.group(7), matcher.group(8)) + "K)";
+        }
+        if (transition == null) {
+            //initial mark and remark log the occupancy only
+            Matcher occupancy = occupancyPattern.matcher(line);
+            while (occupancy.find()) {
+                long used = toKilobytes(occupancy.group(1), occupancy.group(2));
+                transition = used + "K->" + used + "K(" + toKilobytes(occupancy.group(3), occupancy.group(4)) + "K)";
+            }
+        }
+        return transition;
+    }
+
+    private static long toKilobytes(String value, String unit) {
+        double size = Double.parseDouble(value.replace(',', '.'));
+        return Math.round(switch (unit) {
+            case "B" -> size / 1024;
+            case "M" -> size * 1024;
+            case "G" -> size * 1024 * 1024;
+            default -> size;
+        });
+    }
+
+    private static double seconds(String value) {
+        return Double.parseDouble(value.replace(',', '.'));
+    }
+
+    private static double uptime(String date, String uptime, long firstDate, double fallback) {
+        if (uptime != null) {
+            return seconds(uptime);
+        }
+        if (date != null && firstDate != Long.MIN_VALUE) {
+            long millis = parseDate(date);
+            if (millis != Long.MIN_VALUE) {
+                return (millis - firstDate) / 1000.0;
+            }
+        }
+        return Double.isNaN(fallback) ? 0.0 : fallback;
+    }
+
+    private static long parseDate(String date) {
+        try {
+            return OffsetDateTime.parse(date.replace(',', '.'), TIME_FORMATTER).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ex) {
+            return Long.MIN_VALUE;
+        }
+    }
+}
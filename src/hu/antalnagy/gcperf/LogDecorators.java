@@ -0,0 +1,256 @@
+package hu.antalnagy.gcperf;
+
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.ListIterator;
+
+/***
+ * Tokenizer of the decorators in front of unified JVM logging (-Xlog) lines, as written by JDK 9 and newer. The
+ * decorators are classified by their content instead of their position, so logs written with any selection and
+ * ordering of decorators are understood:
+ * uptime ([0.173s] or [0,173s]), uptimemillis ([173ms]), uptimenanos ([173042117ns]), time and utctime
+ * ([2024-01-15T10:00:00.123+0100]), timemillis ([1705309200123ms]), timenanos, pid and tid ([7036] or [7036p]),
+ * hostname, level ([info]) and tags ([gc,phases   ], padded or not).
+ * The parsers of {@link Analysis} expect the [uptime][level][tags] layout; {@link #normalize(List)} rewrites every
+ * other layout into it and leaves lines already in that layout (and lines without decorators) untouched, so the common
+ * case costs one scan of the decorators and no allocation.
+ */
+public final class LogDecorators {
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+    private static final String[] LEVELS = {"trace", "debug", "info", "warning", "error"};
+    // millisecond and nanosecond decorators above ~3 years are wall clock (timemillis/timenanos), not uptime
+    private static final long MAX_UPTIME_MILLIS = 100_000_000_000L;
+    private static final long MAX_UPTIME_NANOS = MAX_UPTIME_MILLIS * 1_000_000L;
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    private LogDecorators() {
+    }
+
+    /***
+     * @param line unified logging line with any decorators
+     * @return uptime in seconds from its uptime, uptimemillis or uptimenanos decorator, or NaN if it has none
+     */
+    public static double uptime(String line) {
+        Tokens tokens = new Tokens();
+        return tokens.scan(line) ? tokens.uptime : Double.NaN;
+    }
+
+    /***
+     * @param line unified logging line with any decorators
+     * @return the line in the [uptime][level][tags] layout, without the decorators that layout has no place for; the
+     * line itself if it already has that layout or has no decorators
+     */
+    public static String normalize(String line) {
+        Tokens tokens = new Tokens();
+        return !tokens.scan(line) || tokens.canonical ? line : rebuild(line, tokens, NO_TIME);
+    }
+
+    /***
+     * Normalizes the lines of one log in place, see {@link #normalize(String)}. Logs decorated with wall clock time
+     * only (time, utctime, timemillis or timenanos without any uptime decorator) get the time elapsed since their
+     * first line as uptime.
+     * @return the given list
+     */
+    public static List<String> normalize(List<String> lines) {
+        Tokens tokens = new Tokens();
+        long firstTime = NO_TIME;
+        for (ListIterator<String> iterator = lines.listIterator(); iterator.hasNext(); ) {
+            String line = iterator.next();
+            if (!tokens.scan(line) || tokens.canonical) {
+                continue;
+            }
+            if (firstTime == NO_TIME && Double.isNaN(tokens.uptime)) {
+                firstTime = tokens.timeMillis;
+            }
+            iterator.set(rebuild(line, tokens, firstTime));
+        }
+        return lines;
+    }
+
+    private static String rebuild(String line, Tokens tokens, long firstTime) {
+        double uptime = tokens.uptime;
+        if (Double.isNaN(uptime) && firstTime != NO_TIME && tokens.timeMillis != NO_TIME) {
+            uptime = (tokens.timeMillis - firstTime) / 1000.0;
+        }
+        StringBuilder builder = new StringBuilder(line.length());
+        if (!Double.isNaN(uptime)) {
+            long millis = Math.round(uptime * 1000);
+            long fraction = millis % 1000;
+            builder.append('[').append(millis / 1000).append('.');
+            if (fraction < 100) {
+                builder.append(fraction < 10 ? "00" : "0");
+            }
+            builder.append(fraction).append("s]");
+        }
+        if (tokens.levelStart >= 0) {
+            builder.append('[').append(line, tokens.levelStart, tokens.levelEnd).append(']');
+        }
+        if (tokens.tagsStart >= 0) {
+            builder.append('[').append(line, tokens.tagsStart, tokens.tagsEnd).append(']');
+        }
+        return builder.append(line, tokens.messageOffset, line.length()).toString();
+    }
+
+    /***
+     * Decorators of the last scanned line, kept as offsets into the line so a scan allocates nothing
+     */
+    private static final class Tokens {
+        private double uptime;
+        private long timeMillis;
+        private int levelStart;
+        private int levelEnd;
+        private int tagsStart;
+        private int tagsEnd;
+        private int messageOffset;
+        private boolean canonical;
+
+        /***
+         * @return whether the line starts with unified logging decorators
+         */
+        private boolean scan(String line) {
+            uptime = Double.NaN;
+            timeMillis = NO_TIME;
+            levelStart = levelEnd = tagsStart = tagsEnd = -1;
+            canonical = true;
+            int position = 0;
+            int count = 0;
+            while (position < line.length() && line.charAt(position) == '[') {
+                int end = line.indexOf(']', position + 1);
+                if (end < 0) {
+                    break;
+                }
+                int start = position + 1;
+                int stop = end;
+                while (start < stop && line.charAt(start) == ' ') {
+                    start++;
+                }
+                while (stop > start && line.charAt(stop - 1) == ' ') {
+                    stop--;
+                }
+                classify(line, start, stop, count++);
+                position = end + 1;
+            }
+            messageOffset = position;
+            return !Double.isNaN(uptime) || timeMillis != NO_TIME || levelStart >= 0 || tagsStart >= 0;
+        }
+
+        private void classify(String line, int start, int stop, int index) {
+            if (start == stop) {
+                canonical = false;
+                return;
+            }
+            char last = line.charAt(stop - 1);
+            if (last == 's' && stop - start > 2 && isDigit(line.charAt(stop - 2))) {
+                double seconds = parseSeconds(line, start, stop - 1);
+                if (!Double.isNaN(seconds)) {
+                    canonical &= index == 0;
+                    uptime = Double.isNaN(uptime) ? seconds : uptime;
+                    return;
+                }
+            } else if (last == 's' && stop - start > 2) {
+                boolean millis = line.charAt(stop - 2) == 'm';
+                long value = millis || line.charAt(stop - 2) == 'n' ? parseDigits(line, start, stop - 2) : -1;
+                if (value >= 0) {
+                    canonical = false;
+                    if (value < (millis ? MAX_UPTIME_MILLIS : MAX_UPTIME_NANOS)) {
+                        uptime = Double.isNaN(uptime) ? (millis ? value / 1e3 : value / 1e9) : uptime;
+                    } else {
+                        timeMillis = millis ? value : value / 1_000_000L;
+                    }
+                    return;
+                }
+            }
+            if (parseDigits(line, start, stop) >= 0 || ((last == 'p' || last == 't') &&
+                    parseDigits(line, start, stop - 1) >= 0)) {
+                canonical = false;
+                return;
+            }
+            if (stop - start >= 23 && line.charAt(start + 10) == 'T' && isDigit(line.charAt(start))) {
+                canonical = false;
+                try {
+                    timeMillis = OffsetDateTime.parse(line.substring(start, stop), TIME_FORMATTER).toInstant()
+                            .toEpochMilli();
+                    return;
+                } catch (DateTimeParseException ex) {
+                    // a hostname after all
+                }
+            }
+            for (String level : LEVELS) {
+                if (level.length() == stop - start && line.startsWith(level, start)) {
+                    levelStart = start;
+                    levelEnd = stop;
+                    canonical &= index == 1 && !Double.isNaN(uptime) && tagsStart < 0;
+                    return;
+                }
+            }
+            if (isTagList(line, start, stop)) {
+                // a hostname made of tag characters is followed by the tags themselves, the last such token wins
+                tagsStart = start;
+                tagsEnd = stop;
+                canonical &= index == (levelStart >= 0 ? 2 : 1) && !Double.isNaN(uptime);
+            } else {
+                canonical = false;
+            }
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isTagList(String line, int start, int stop) {
+        for (int i = start; i < stop; i++) {
+            char c = line.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !isDigit(c) && c != '_' && c != ',') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /***
+     * @return the non-negative number made of the digits between start and stop, or -1 if it has any other character
+     */
+    private static long parseDigits(String line, int start, int stop) {
+        if (start >= stop || stop - start > 18) {
+            return -1;
+        }
+        long value = 0;
+        for (int i = start; i < stop; i++) {
+            char c = line.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /***
+     * @return seconds written as digits, a '.' or ',' separator and digits between start and stop, or NaN
+     */
+    private static double parseSeconds(String line, int start, int stop) {
+        int separator = start;
+        while (separator < stop && isDigit(line.charAt(separator))) {
+            separator++;
+        }
+        if (separator == start || separator >= stop - 1 ||
+                (line.charAt(separator) != '.' && line.charAt(separator) != ',')) {
+            return Double.NaN;
+        }
+        long whole = parseDigits(line, start, separator);
+        long fraction = parseDigits(line, separator + 1, stop);
+        if (whole < 0 || fraction < 0 || stop - start > 19) {
+            return Double.NaN;
+        }
+        //one division of exact integers rounds like Double.parseDouble
+        long scale = 1;
+        for (int i = separator + 1; i < stop; i++) {
+            scale *= 10;
+        }
+        return (double) (whole * scale + fraction) / scale;
+    }
+}
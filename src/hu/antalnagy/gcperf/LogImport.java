@@ -0,0 +1,413 @@
+package hu.antalnagy.gcperf;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/***
+ * Imports GC logs written by production JVMs with -Xlog:gc* (with any uptime or time decorator, see
+ * {@link LogDecorators}) or, on JDK 8, with -XX:+PrintGCDetails (see {@link LegacyGCLog}) instead of logs of child
+ * JVMs launched by an {@link Analysis}. Every log file under the given roots is parsed in parallel into a run of the
+ * collector it names in its "Using ..." line; a file is one run, from its first to its last logged uptime, so rotated
+ * files of one JVM count as separate runs. Only the first file of a rotation set (-Xlog:...:filecount=N) holds the
+ * startup header with the "Using ..." and gc,init lines, so the other files of the set, named like it but for a
+ * rotation suffix (gc.log, gc.log.0, gc.log.1, ...; gc.log.0.current on JDK 8), take the collector, JDK version and
+ * heap capacities of the header found in the set, or the collector set with {@link #withDefaultCollector(GCType)}.
+ * The runs are grouped by service, by default the directory directly under the root (root/service/node.log), and can
+ * be ranked with {@link Analysis#replay(List)} like measured runs.
+ */
+public class LogImport {
+
+    private static final Pattern collectorPattern =
+            Pattern.compile("\\bUsing (Serial|Parallel|G1|Shenandoah|Concurrent Mark Sweep|The Z Garbage Collector|" +
+                    "ZGC)\\b");
+    private static final Pattern versionPattern = Pattern.compile("\\[gc,init *].*\\bVersion: (\\S+)");
+    private static final Pattern capacityPattern =
+            Pattern.compile("\\[gc,init *].*\\bHeap (Initial|Max) Capacity: (\\d+)([KMG])");
+    private static final Pattern rotationSuffixPattern = Pattern.compile("(\\.\\d+)?(\\.current)?$");
+    private static final Logger LOGGER = Logger.getLogger(LogImport.class.getSimpleName());
+
+    private final List<Path> roots;
+    private Function<Path, String> serviceClassifier;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private GCType defaultCollector;
+    private final Map<String, List<ImportedLog>> logsByService = new TreeMap<>();
+    private final List<ServiceStats> serviceStats = new ArrayList<>();
+    private int skippedFiles;
+
+    /***
+     * A parsed log file
+     * @param service service the file belongs to
+     * @param jdkVersion JDK version from the gc,init lines, null if not logged
+     * @param allocationRate allocation rate in MB/s, NaN if unknown
+     * @param run run of the file; its heap sizes are the initial and maximum capacity from the gc,init lines (0 if
+     *            not logged) and its log file is the imported file
+     */
+    public record ImportedLog(String service, String jdkVersion, double allocationRate, Analysis.ParsedRun run) {}
+
+    /***
+     * Startup header of a log
+     * @param jdkVersion JDK version from the gc,init lines, null if not logged
+     * @param initialCapacity initial heap capacity in MB from the gc,init lines, 0 if not logged
+     * @param maxCapacity maximum heap capacity in MB from the gc,init lines, 0 if not logged
+     */
+    private record Header(GCType gcType, String jdkVersion, int initialCapacity, int maxCapacity) {}
+
+    /***
+     * @param header header of the file itself, null if it has no "Using ..." line
+     * @param log the parsed file, null if it was skipped
+     */
+    private record ParsedFile(Header header, ImportedLog log) {}
+
+    /***
+     * Statistics of the merged logs of a service running with a collector
+     * @param runtime summed runtime of the logs in seconds
+     * @param gcOverhead share of the runtime spent in stop-the-world pauses, in percent
+     * @param pauseP50 median of every pause, in ms
+     * @param pauseP99 99th percentile of every pause, in ms
+     * @param pauseP999 99.9th percentile of every pause, in ms
+     * @param maxPause longest pause, in ms
+     * @param allocationRate runtime-weighted mean allocation rate, in MB/s
+     */
+    public record ServiceStats(String service, GCType gcType, int files, double runtime, double gcOverhead,
+                               double pauseP50, double pauseP99, double pauseP999, double maxPause,
+                               double allocationRate) {
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%s %s: %d file(s), %.1f s, GC overhead %.2f%%, pauses p50 %.3f ms " +
+                    "p99 %.3f ms p99.9 %.3f ms max %.3f ms, allocation rate %.1f MB/s", service, gcType.name(),
+                    files, runtime, gcOverhead, pauseP50, pauseP99, pauseP999, maxPause, allocationRate);
+        }
+    }
+
+    /***
+     * @param roots log files or directories searched recursively for log files
+     */
+    public LogImport(List<Path> roots) {
+        if (roots.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "No GC log provided");
+            throw new IllegalArgumentException("Please provide at least one GC log file or directory to import");
+        }
+        this.roots = List.copyOf(roots);
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    /***
+     * @param serviceClassifier maps a log file to its service, null for the directory directly under the root
+     * @return this
+     */
+    public LogImport withServiceClassifier(Function<Path, String> serviceClassifier) {
+        this.serviceClassifier = serviceClassifier;
+        return this;
+    }
+
+    /***
+     * @param defaultCollector collector of the files whose rotation set has no startup header, e.g. because the file
+     *                         holding it was rotated away; null to skip such files
+     * @return this
+     */
+    public LogImport withDefaultCollector(GCType defaultCollector) {
+        this.defaultCollector = defaultCollector;
+        return this;
+    }
+
+    /***
+     * @param parallelism number of files parsed at a time (the number of cores by default)
+     * @return this
+     */
+    public LogImport withParallelism(int parallelism) {
+        if (parallelism < 1) {
+            LOGGER.log(Level.SEVERE, "Invalid import parallelism: " + parallelism);
+            throw new IllegalArgumentException("Parallelism should be at least 1!");
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /***
+     * Parses every log file, skipping the files without a collector or time decorator
+     */
+    public void performImport() throws IOException {
+        logsByService.clear();
+        serviceStats.clear();
+        skippedFiles = 0;
+        Map<Path, String> services = new LinkedHashMap<>();
+        for (Path root : roots) {
+            if (Files.isRegularFile(root)) {
+                services.put(root, classify(root, root.toAbsolutePath().getParent()));
+                continue;
+            }
+            try (Stream<Path> files = Files.walk(root)) {
+                files.filter(Files::isRegularFile).filter(file -> !file.getFileName().toString().startsWith("."))
+                        .sorted().forEach(file -> services.put(file, classify(file, root)));
+            }
+        }
+        LOGGER.log(Level.INFO, "Importing " + services.size() + " GC log file(s)");
+        ExecutorService executor = Executors.newFixedThreadPool(Integer.max(1,
+                Integer.min(services.size(), parallelism)), runnable -> {
+            Thread thread = new Thread(runnable, "gcperf-import");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Map<Path, ParsedFile> parsedFiles = new LinkedHashMap<>();
+            Map<Path, Future<ParsedFile>> futures = new LinkedHashMap<>();
+            services.forEach((file, service) -> futures.put(file, executor.submit(() -> parse(file, service, null))));
+            for (var entry : futures.entrySet()) {
+                parsedFiles.put(entry.getKey(), entry.getValue().get());
+            }
+            //files without a header of their own are parsed again with the header of their rotation set
+            Map<Path, List<Header>> headersByRotationSet = new HashMap<>();
+            parsedFiles.forEach((file, parsedFile) -> {
+                if (parsedFile.header() != null) {
+                    headersByRotationSet.computeIfAbsent(rotationSet(file), set -> new ArrayList<>())
+                            .add(parsedFile.header());
+                }
+            });
+            futures.clear();
+            parsedFiles.forEach((file, parsedFile) -> {
+                if (parsedFile.header() == null) {
+                    Header header = inheritedHeader(file, headersByRotationSet.get(rotationSet(file)));
+                    if (header != null) {
+                        futures.put(file, executor.submit(() -> parse(file, services.get(file), header)));
+                    }
+                }
+            });
+            for (var entry : futures.entrySet()) {
+                parsedFiles.put(entry.getKey(), entry.getValue().get());
+            }
+            Map<String, Map<GCType, Integer>> runNos = new HashMap<>();
+            for (ParsedFile parsedFile : parsedFiles.values()) {
+                if (parsedFile.log() == null) {
+                    skippedFiles++;
+                    continue;
+                }
+                ImportedLog log = renumber(parsedFile.log(), runNos);
+                logsByService.computeIfAbsent(log.service(), service -> new ArrayList<>()).add(log);
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Import interrupted", ex);
+        } catch (ExecutionException ex) {
+            LOGGER.log(Level.SEVERE, "Parsing a GC log failed: " + ex.getCause());
+            throw new IOException("Parsing a GC log failed", ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        if (skippedFiles > 0) {
+            LOGGER.log(Level.WARNING, skippedFiles + " file(s) without a collector or time decorator were skipped; " +
+                    "rotated files whose set lost its startup header need a default collector");
+        }
+        logsByService.forEach((service, logs) -> {
+            for (GCType gcType : GCType.values()) {
+                List<ImportedLog> collectorLogs = logs.stream()
+                        .filter(log -> log.run().runResult().gcType() == gcType).toList();
+                if (!collectorLogs.isEmpty()) {
+                    serviceStats.add(merge(service, gcType, collectorLogs));
+                }
+            }
+        });
+    }
+
+    private String classify(Path file, Path root) {
+        if (serviceClassifier != null) {
+            return serviceClassifier.apply(file);
+        }
+        Path relative = root.relativize(file);
+        return relative.getNameCount() > 1 ? relative.getName(0).toString() :
+                String.valueOf(root.toAbsolutePath().normalize().getFileName());
+    }
+
+    //the file without its rotation suffix: gc.log.3 and gc.log.0.current belong to the set of gc.log
+    private static Path rotationSet(Path file) {
+        String name = file.getFileName().toString();
+        Matcher matcher = rotationSuffixPattern.matcher(name);
+        String baseName = matcher.find() && matcher.start() > 0 ? name.substring(0, matcher.start()) : name;
+        return file.toAbsolutePath().normalize().resolveSibling(baseName);
+    }
+
+    //a set rewritten by several JVMs with the same collector takes the header of its first file
+    private Header inheritedHeader(Path file, List<Header> headers) {
+        if (headers != null && headers.stream().map(Header::gcType).distinct().count() == 1) {
+            return headers.get(0);
+        }
+        if (headers != null) {
+            LOGGER.log(Level.WARNING, "The rotation set of " + file + " names different collectors");
+        }
+        return defaultCollector == null ? null : new Header(defaultCollector, null, 0, 0);
+    }
+
+    //run numbers follow the file order per service and collector, however the parsing threads finished
+    private static ImportedLog renumber(ImportedLog log, Map<String, Map<GCType, Integer>> runNos) {
+        RunResult run = log.run().runResult();
+        int runNo = runNos.computeIfAbsent(log.service(), service -> new EnumMap<>(GCType.class))
+                .merge(run.gcType(), 1, Integer::sum);
+        return new ImportedLog(log.service(), log.jdkVersion(), log.allocationRate(), new Analysis.ParsedRun(
+                new RunResult(run.gcType(), runNo, runNo - 1, 0, run.xms(), run.xmx(), run.runtime(), run.gcTime(),
+                        run.stwTime(), run.throughput(), run.fullPauses(), run.minorPauses(), run.appThroughput(),
+                        run.pauseP99(), run.maxPause(), run.footprint(), run.logFile()), log.run().pauses()));
+    }
+
+    /***
+     * @param inherited header of the rotation set of the file, used if the file has none of its own; null on the first
+     *                  pass
+     */
+    private static ParsedFile parse(Path file, String service, Header inherited) throws IOException {
+        List<String> parsedStrings = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                parsedStrings.add(line);
+            }
+        }
+        parsedStrings = Analysis.normalizeLog(parsedStrings);
+        Header header = yieldHeader(parsedStrings);
+        double firstUptime = Double.NaN;
+        double lastUptime = Double.NaN;
+        for (String line : parsedStrings) {
+            double uptime = Analysis.yieldUptimeFromLine(line);
+            if (!Double.isNaN(uptime)) {
+                firstUptime = Double.isNaN(firstUptime) ? uptime : firstUptime;
+                lastUptime = uptime;
+            }
+        }
+        Header applied = header != null ? header : inherited;
+        if (applied == null || !(lastUptime > firstUptime)) {
+            LOGGER.log(Level.FINE, "Skipping " + file + ": no collector or time decorator");
+            return new ParsedFile(header, null);
+        }
+        GCType collector = applied.gcType();
+        double runtime = lastUptime - firstUptime;
+        double gcTime = Analysis.yieldGCTimeFromSource(parsedStrings, collector);
+        double stwTime = collector == GCType.SERIAL || collector == GCType.PARALLEL ? gcTime :
+                Analysis.yieldSTWTimeFromSource(parsedStrings, collector);
+        List<Analysis.GCPause> pauses = Analysis.yieldPausesFromSource(parsedStrings, collector);
+        boolean gcLog = Analysis.hasGCEvents(parsedStrings); //the collector is named by the applied header
+        int[] noOfPauses = Analysis.yieldNoOfPauses(parsedStrings, collector);
+        RunResult runResult = new RunResult(collector, 0, 0, 0, applied.initialCapacity(), applied.maxCapacity(),
+                runtime, gcTime, stwTime, Analysis.calculateThroughput(runtime, stwTime), noOfPauses[0],
+                noOfPauses[1], Double.NaN, Analysis.yieldPauseQuantile(pauses, gcLog, 0.99),
+                Analysis.yieldPauseQuantile(pauses, gcLog, 1.0), Analysis.yieldPeakHeapUsage(parsedStrings),
+                file.toAbsolutePath().toString());
+        return new ParsedFile(header, new ImportedLog(service, applied.jdkVersion(),
+                Analysis.yieldAllocationRate(parsedStrings), new Analysis.ParsedRun(runResult, pauses)));
+    }
+
+    /***
+     * @return the collector, JDK version and heap capacities of the startup header, null without a "Using ..." line
+     */
+    private static Header yieldHeader(List<String> parsedStrings) {
+        Optional<GCType> gcType = yieldCollector(parsedStrings);
+        if (gcType.isEmpty()) {
+            return null;
+        }
+        String jdkVersion = null;
+        int initialCapacity = 0;
+        int maxCapacity = 0;
+        for (String line : parsedStrings) {
+            Matcher version = versionPattern.matcher(line);
+            if (jdkVersion == null && version.find()) {
+                jdkVersion = version.group(1);
+            }
+            Matcher capacity = capacityPattern.matcher(line);
+            if (capacity.find()) {
+                int megabytes = toMegabytes(Long.parseLong(capacity.group(2)), capacity.group(3));
+                if (capacity.group(1).equals("Initial")) {
+                    initialCapacity = megabytes;
+                } else {
+                    maxCapacity = megabytes;
+                }
+            }
+        }
+        return new Header(gcType.get(), jdkVersion, initialCapacity, maxCapacity);
+    }
+
+    /***
+     * @return the collector named in the "Using ..." line of the log
+     */
+    public static Optional<GCType> yieldCollector(List<String> parsedStrings) {
+        for (String line : parsedStrings) {
+            Matcher matcher = collectorPattern.matcher(line);
+            if (matcher.find()) {
+                return Optional.of(switch (matcher.group(1)) {
+                    case "Serial" -> GCType.SERIAL;
+                    case "Parallel" -> GCType.PARALLEL;
+                    case "G1" -> GCType.G1;
+                    case "Shenandoah" -> GCType.SHENANDOAH;
+                    case "Concurrent Mark Sweep" -> GCType.CMS;
+                    default -> GCType.ZGC;
+                });
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static int toMegabytes(long value, String unit) {
+        return (int) switch (unit) {
+            case "K" -> value / 1024;
+            case "G" -> value * 1024;
+            default -> value;
+        };
+    }
+
+    private static ServiceStats merge(String service, GCType gcType, List<ImportedLog> logs) {
+        double runtime = 0.0;
+        double stwTime = 0.0;
+        double allocated = 0.0;
+        double allocationRuntime = 0.0;
+        List<Analysis.GCPause> pauses = new ArrayList<>();
+        boolean gcLog = false;
+        for (ImportedLog log : logs) {
+            RunResult runResult = log.run().runResult();
+            runtime += runResult.runtime();
+            stwTime += runResult.stwTime();
+            if (!Double.isNaN(log.allocationRate())) {
+                allocated += log.allocationRate() * runResult.runtime();
+                allocationRuntime += runResult.runtime();
+            }
+            pauses.addAll(log.run().pauses());
+            gcLog |= !Double.isNaN(runResult.maxPause());
+        }
+        return new ServiceStats(service, gcType, logs.size(), runtime, runtime > 0 ? stwTime / runtime * 100 :
+                Double.NaN, Analysis.yieldPauseQuantile(pauses, gcLog, 0.5),
+                Analysis.yieldPauseQuantile(pauses, gcLog, 0.99), Analysis.yieldPauseQuantile(pauses, gcLog, 0.999),
+                Analysis.yieldPauseQuantile(pauses, gcLog, 1.0),
+                allocationRuntime > 0 ? allocated / allocationRuntime : Double.NaN);
+    }
+
+    /***
+     * @return imported logs by service, in file order
+     */
+    public Map<String, List<ImportedLog>> getLogsByService() {
+        Map<String, List<ImportedLog>> copy = new TreeMap<>();
+        logsByService.forEach((service, logs) -> copy.put(service, new ArrayList<>(logs)));
+        return copy;
+    }
+
+    /***
+     * @return statistics per service and collector
+     */
+    public List<ServiceStats> getServiceStats() {
+        return new ArrayList<>(serviceStats);
+    }
+
+    public int getSkippedFiles() {
+        return skippedFiles;
+    }
+}
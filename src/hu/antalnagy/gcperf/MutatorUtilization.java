@@ -0,0 +1,174 @@
+package hu.antalnagy.gcperf;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Minimum mutator utilization (MMU) of a run: for a window size w, the smallest fraction of any w long interval of the
+ * run in which the application (mutator) was not stopped by a pause. An MMU of 0.8 at 10 ms means no request can lose
+ * more than 2 ms of every 10 ms to the collector. Computed from the pause timeline of the GC log, so it is available for
+ * every GC Type, not only for ZGC's gc+mmu log lines.
+ */
+public final class MutatorUtilization {
+
+    public static final double MIN_WINDOW = 1.0;
+    public static final double MAX_WINDOW = 10_000.0;
+    public static final List<Double> DEFAULT_WINDOWS = List.of(1.0, 2.0, 5.0, 10.0, 20.0, 50.0, 100.0, 200.0, 500.0,
+            1000.0, 2000.0, 5000.0, 10_000.0);
+    public static final double DEFAULT_RANKING_WINDOW = 10.0;
+
+    private static final Logger LOGGER = Logger.getLogger(MutatorUtilization.class.getSimpleName());
+
+    private MutatorUtilization() {}
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    /***
+     * @param windows window sizes in ms, each between {@value #MIN_WINDOW} and {@value #MAX_WINDOW}
+     */
+    public static void validateWindows(List<Double> windows) {
+        if (windows == null || windows.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "No MMU window sizes provided");
+            throw new IllegalArgumentException("Please provide at least one MMU window size");
+        }
+        for (Double window : windows) {
+            if (window == null || window.isNaN() || window < MIN_WINDOW || window > MAX_WINDOW) {
+                LOGGER.log(Level.SEVERE, "Invalid MMU window size: " + window);
+                throw new IllegalArgumentException("MMU window sizes must be between 1 ms and 10 s");
+            }
+        }
+    }
+
+    /***
+     * @param pauses pauses of the run, in any order
+     * @param from start of the measured part of the run (uptime in seconds)
+     * @param to end of the measured part of the run (uptime in seconds)
+     * @param windows window sizes in ms
+     * @return MMU (0..1) per window size; NaN for windows longer than the measured part of the run
+     */
+    public static double[] curve(List<Analysis.GCPause> pauses, double from, double to, List<Double> windows) {
+        double[][] intervals = mergedIntervals(pauses, from * 1000, to * 1000);
+        double[] prefixSums = new double[intervals.length + 1];
+        for (int i = 0; i < intervals.length; i++) {
+            prefixSums[i + 1] = prefixSums[i] + intervals[i][1] - intervals[i][0];
+        }
+        double[] curve = new double[windows.size()];
+        for (int i = 0; i < curve.length; i++) {
+            curve[i] = minimumUtilization(intervals, prefixSums, from * 1000, to * 1000, windows.get(i));
+        }
+        return curve;
+    }
+
+    /***
+     * @return MMU (0..1) for one window size, NaN if the window is longer than the measured part of the run
+     */
+    public static double mmu(List<Analysis.GCPause> pauses, double from, double to, double window) {
+        return curve(pauses, from, to, List.of(window))[0];
+    }
+
+    //pauses as sorted, non-overlapping [start, end] intervals in ms, clipped to the measured part of the run
+    private static double[][] mergedIntervals(List<Analysis.GCPause> pauses, double from, double to) {
+        List<double[]> intervals = new ArrayList<>();
+        for (Analysis.GCPause pause : pauses) {
+            if (Double.isNaN(pause.uptime()) || Double.isNaN(pause.duration())) {
+                continue;
+            }
+            double end = Double.min(pause.uptime() * 1000, to);
+            double start = Double.max(pause.uptime() * 1000 - pause.duration(), from);
+            if (end > start) {
+                intervals.add(new double[]{start, end});
+            }
+        }
+        intervals.sort(Comparator.comparingDouble(interval -> interval[0]));
+        List<double[]> merged = new ArrayList<>();
+        for (double[] interval : intervals) {
+            double[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && interval[0] <= last[1]) {
+                last[1] = Double.max(last[1], interval[1]);
+            } else {
+                merged.add(interval);
+            }
+        }
+        return merged.toArray(double[][]::new);
+    }
+
+    /***
+     * The least utilized window starts at the start of a pause or ends at the end of one, so only those 2n windows are
+     * checked. Their starts are merged into one ascending sequence and two pointers track the first and last pause
+     * overlapping the window, which makes a window size O(n) after the merge.
+     */
+    private static double minimumUtilization(double[][] intervals, double[] prefixSums, double from, double to,
+                                             double window) {
+        if (window > to - from) {
+            return Double.NaN;
+        }
+        int n = intervals.length;
+        if (n == 0) {
+            return 1.0;
+        }
+        double latestStart = to - window;
+        double[] pauseStarts = new double[n];
+        double[] pauseEndWindowStarts = new double[n];
+        for (int i = 0; i < n; i++) {
+            pauseStarts[i] = Double.min(intervals[i][0], latestStart);
+            pauseEndWindowStarts[i] = Double.min(Double.max(intervals[i][1] - window, from), latestStart);
+        }
+        double[] windowStarts = merge(pauseStarts, pauseEndWindowStarts);
+        double maxPaused = 0.0;
+        int first = 0;
+        int last = -1;
+        for (double start : windowStarts) {
+            double end = start + window;
+            while (first < n && intervals[first][1] <= start) {
+                first++;
+            }
+            while (last + 1 < n && intervals[last + 1][0] < end) {
+                last++;
+            }
+            if (first > last) {
+                continue;
+            }
+            double paused = prefixSums[last + 1] - prefixSums[first]
+                    - Double.max(0.0, start - intervals[first][0])
+                    - Double.max(0.0, intervals[last][1] - end);
+            maxPaused = Double.max(maxPaused, paused);
+        }
+        return Double.max(0.0, 1.0 - maxPaused / window);
+    }
+
+    private static double[] merge(double[] a, double[] b) {
+        double[] merged = new double[a.length + b.length];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < a.length && j < b.length) {
+            merged[k++] = a[i] <= b[j] ? a[i++] : b[j++];
+        }
+        while (i < a.length) {
+            merged[k++] = a[i++];
+        }
+        while (j < b.length) {
+            merged[k++] = b[j++];
+        }
+        return merged;
+    }
+
+    /***
+     * @return the window sizes with the ranking window added if missing, ascending
+     */
+    static List<Double> withRankingWindow(List<Double> windows, double rankingWindow) {
+        double[] sorted = windows.stream().mapToDouble(Double::doubleValue).distinct().sorted().toArray();
+        if (Arrays.binarySearch(sorted, rankingWindow) < 0) {
+            sorted = Arrays.copyOf(sorted, sorted.length + 1);
+            sorted[sorted.length - 1] = rankingWindow;
+            Arrays.sort(sorted);
+        }
+        return Arrays.stream(sorted).boxed().toList();
+    }
+}
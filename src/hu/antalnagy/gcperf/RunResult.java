@@ -0,0 +1,70 @@
+package hu.antalnagy.gcperf;
+
+import java.util.Locale;
+
+/***
+ * Metrics of one successful child JVM run together with the configuration that produced them.
+ * @param gcType GC Type of the run
+ * @param runNo number of the successful run of this GC Type, starting from 1
+ * @param attempt index of the attempt (successful and failed runs) that produced this run, starting from 0
+ * @param prematureProcessInterrupts premature process interrupts counted before this run
+ * @param xms start heap size in MB
+ * @param xmx maximum heap size in MB
+ * @param runtime runtime (or steady-state window length) in seconds
+ * @param gcTime total GC time in seconds
+ * @param stwTime total stop-the-world time in seconds
+ * @param throughput throughput in percentage
+ * @param fullPauses number of full pauses
+ * @param minorPauses number of minor pauses
+ * @param appThroughput application throughput in ops/sec, NaN if not measured
+ * @param pauseP99 99th percentile of the stop-the-world pauses in ms, NaN if unknown
+ * @param maxPause longest stop-the-world pause in ms, NaN if unknown
+ * @param footprint peak heap usage in MB, NaN if unknown
+ * @param logFile path of the GC log of the run
+ */
+public record RunResult(GCType gcType, int runNo, int attempt, int prematureProcessInterrupts, int xms, int xmx,
+                        double runtime, double gcTime, double stwTime, double throughput, int fullPauses,
+                        int minorPauses, double appThroughput, double pauseP99, double maxPause, double footprint,
+                        String logFile) {
+
+    private static final String SEPARATOR = "\t";
+    private static final int NO_OF_FIELDS = 17;
+
+    public String getRunId() {
+        return gcType.name().toLowerCase(Locale.ROOT) + "-" + runNo;
+    }
+
+    /***
+     * @return the run as one tab separated line, readable by {@link #deserialize(String)}
+     */
+    public String serialize() {
+        return String.join(SEPARATOR, gcType.name(), String.valueOf(runNo), String.valueOf(attempt),
+                String.valueOf(prematureProcessInterrupts), String.valueOf(xms), String.valueOf(xmx),
+                String.valueOf(runtime), String.valueOf(gcTime), String.valueOf(stwTime), String.valueOf(throughput),
+                String.valueOf(fullPauses), String.valueOf(minorPauses), String.valueOf(appThroughput),
+                String.valueOf(pauseP99), String.valueOf(maxPause), String.valueOf(footprint),
+                logFile == null ? "" : logFile);
+    }
+
+    /***
+     * @param line run serialized by {@link #serialize()}
+     */
+    public static RunResult deserialize(String line) {
+        String[] split = line.split(SEPARATOR, -1);
+        if (split.length != NO_OF_FIELDS) {
+            throw new IllegalArgumentException("Malformed run result: expected " + NO_OF_FIELDS + " fields, found " +
+                    split.length);
+        }
+        String logFile = split[16];
+        try {
+            return new RunResult(GCType.valueOf(split[0]), Integer.parseInt(split[1]), Integer.parseInt(split[2]),
+                    Integer.parseInt(split[3]), Integer.parseInt(split[4]), Integer.parseInt(split[5]),
+                    Double.parseDouble(split[6]), Double.parseDouble(split[7]), Double.parseDouble(split[8]),
+                    Double.parseDouble(split[9]), Integer.parseInt(split[10]), Integer.parseInt(split[11]),
+                    Double.parseDouble(split[12]), Double.parseDouble(split[13]), Double.parseDouble(split[14]),
+                    Double.parseDouble(split[15]), logFile.isEmpty() ? null : logFile);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Malformed run result: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package hu.antalnagy.gcperf;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/***
+ * Private directory tree of one analysis: the extracted binaries (bin) and one directory per run holding its GC log
+ * and error output (runs/&lt;gc type&gt;-&lt;no&gt;). Workspaces are created under a common root with unique names and hold a
+ * file lock while in use, so any number of analyses can run side by side and {@link #cleanup(Path, int, Duration)}
+ * only removes finished ones. A workspace is built and locked under a hidden staging name and only then moved to its
+ * final name, so cleanup never sees it unlocked.
+ */
+public class Workspace implements AutoCloseable {
+
+    private static final String LOCK_FILE_NAME = ".lock";
+    private static final String STAGING_PREFIX = ".";
+    private static final DateTimeFormatter ID_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+    private static final Logger LOGGER = Logger.getLogger(Workspace.class.getSimpleName());
+    //roots locked by this JVM: probing them would open a second channel to the lock file, and closing that channel
+    //drops every lock the process holds on the file
+    private static final Set<Path> LOCKED_ROOTS = ConcurrentHashMap.newKeySet();
+
+    private final String id;
+    private final Path root;
+    private final Path binDirectory;
+    private final Path runsDirectory;
+    private final AtomicInteger runCounter = new AtomicInteger(0);
+    private FileChannel lockChannel;
+    private FileLock lock;
+
+    /***
+     * Files of one run
+     * @param name unique name of the run within the workspace
+     * @param directory directory of the run
+     * @param outFile standard output (GC log) of the child JVM
+     * @param outErrFile error output of the child JVM
+     */
+    public record RunFiles(String name, Path directory, File outFile, File outErrFile) {}
+
+    private Workspace(String id, Path root, Path binDirectory) {
+        this.id = id;
+        this.root = root;
+        this.binDirectory = binDirectory;
+        this.runsDirectory = root.resolve("runs");
+    }
+
+    /***
+     * Creates a workspace with its own binaries directory.
+     * @param workspacesRoot directory holding the workspaces
+     */
+    public static Workspace create(Path workspacesRoot) throws IOException {
+        return create(workspacesRoot, null);
+    }
+
+    /***
+     * Creates a workspace for runs.
+     * @param workspacesRoot directory holding the workspaces
+     * @param binDirectory existing binaries directory shared read-only with other workspaces, or null to create
+     *                     a private one. A shared binaries directory is never removed by the workspace.
+     */
+    public static Workspace create(Path workspacesRoot, Path binDirectory) throws IOException {
+        String id = LocalDateTime.now().format(ID_FORMATTER) + "-" +
+                UUID.randomUUID().toString().substring(0, 8);
+        Path root = workspacesRoot.toAbsolutePath().normalize().resolve(id);
+        Path staging = root.resolveSibling(STAGING_PREFIX + id);
+        Workspace workspace = new Workspace(id, root,
+                binDirectory == null ? root.resolve("bin") : binDirectory.toAbsolutePath());
+        Files.createDirectories(staging);
+        LOCKED_ROOTS.add(root);
+        try {
+            workspace.lock(staging);
+            if (binDirectory == null) {
+                Files.createDirectories(staging.resolve("bin"));
+            }
+            Files.createDirectories(staging.resolve("runs"));
+            Files.move(staging, root, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            workspace.close();
+            deleteRecursively(staging);
+            throw ex;
+        }
+        LOGGER.log(Level.INFO, "Created workspace " + root);
+        return workspace;
+    }
+
+    //the lock stays with the lock file when its directory is moved
+    private void lock(Path directory) throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE_NAME), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        lock = lockChannel.tryLock();
+        if (lock == null) {
+            throw new IOException("Workspace " + directory + " is locked by another process");
+        }
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    public Path getBinDirectory() {
+        return binDirectory;
+    }
+
+    public Path getRunsDirectory() {
+        return runsDirectory;
+    }
+
+    /***
+     * @param gcType GC Type of the run
+     * @return the files of a new run, unique within the workspace
+     */
+    public RunFiles newRun(GCType gcType) throws IOException {
+        String name = gcType.name().toLowerCase(Locale.ROOT) + "-" + runCounter.incrementAndGet();
+        Path directory = runsDirectory.resolve(name);
+        Files.createDirectories(directory);
+        return new RunFiles(name, directory, directory.resolve("out.txt").toFile(),
+                directory.resolve("outErr.txt").toFile());
+    }
+
+    /***
+     * Releases the workspace, its files are kept until {@link #cleanup(Path, int, Duration)} or {@link #delete()}
+     */
+    @Override
+    public synchronized void close() {
+        try {
+            if (lock != null) {
+                lock.release();
+            }
+            if (lockChannel != null) {
+                lockChannel.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't release workspace " + root + ": " + ex.getMessage());
+        }
+        lock = null;
+        lockChannel = null;
+        LOCKED_ROOTS.remove(root);
+    }
+
+    public void delete() throws IOException {
+        close();
+        deleteRecursively(root);
+    }
+
+    /***
+     * Retention of finished workspaces: keeps the newest ones and removes the rest, and every workspace older than
+     * the maximum age. Workspaces still in use (locked) and hidden workspaces still being created are never removed.
+     * @param workspacesRoot directory holding the workspaces
+     * @param retainedWorkspaces number of finished workspaces to keep
+     * @param maxAge maximum age of a kept workspace, or null for no age limit
+     * @return number of removed workspaces
+     */
+    public static int cleanup(Path workspacesRoot, int retainedWorkspaces, Duration maxAge) throws IOException {
+        if (retainedWorkspaces < 0) {
+            LOGGER.log(Level.SEVERE, "Invalid argument for retained workspaces");
+            throw new IllegalArgumentException("Number of retained workspaces can't be negative");
+        }
+        if (!Files.isDirectory(workspacesRoot)) {
+            return 0;
+        }
+        List<Path> finished = new ArrayList<>();
+        try (Stream<Path> paths = Files.list(workspacesRoot)) {
+            for (Path path : paths.filter(Files::isDirectory).toList()) {
+                if (!path.getFileName().toString().startsWith(STAGING_PREFIX) && !isInUse(path)) {
+                    finished.add(path);
+                }
+            }
+        }
+        finished.sort(Comparator.comparing(Workspace::lastModified).reversed());
+        Instant oldestKept = maxAge == null ? Instant.MIN : Instant.now().minus(maxAge);
+        int removed = 0;
+        for (int i = 0; i < finished.size(); i++) {
+            Path workspace = finished.get(i);
+            if (i >= retainedWorkspaces || lastModified(workspace).toInstant().isBefore(oldestKept)) {
+                deleteRecursively(workspace);
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            LOGGER.log(Level.INFO, "Removed " + removed + " finished workspace(s) from " + workspacesRoot);
+        }
+        return removed;
+    }
+
+    private static boolean isInUse(Path workspace) {
+        if (LOCKED_ROOTS.contains(workspace.toAbsolutePath().normalize())) {
+            return true;
+        }
+        Path lockFile = workspace.resolve(LOCK_FILE_NAME);
+        if (!Files.exists(lockFile)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.WRITE)) {
+            FileLock probe = channel.tryLock();
+            if (probe == null) {
+                return true;
+            }
+            probe.release();
+            return false;
+        } catch (OverlappingFileLockException ex) { //locked by this JVM
+            return true;
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't check lock of workspace " + workspace + ", keeping it");
+            return true;
+        }
+    }
+
+    private static FileTime lastModified(Path path) {
+        try {
+            return Files.getLastModifiedTime(path);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static void deleteRecursively(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(path)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Workspace{" +
+                "id='" + id + '\'' +
+                ", root=" + root +
+                ", binDirectory=" + binDirectory +
+                '}';
+    }
+}
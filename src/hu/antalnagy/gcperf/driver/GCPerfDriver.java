@@ -2,10 +2,27 @@ package hu.antalnagy.gcperf.driver;
 
 import com.github.sh0nk.matplotlib4j.PythonExecutionException;
 import hu.antalnagy.gcperf.Analysis;
+import hu.antalnagy.gcperf.AnalysisEvent;
+import hu.antalnagy.gcperf.ContainerProfile;
 import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.HeapResponse;
+import hu.antalnagy.gcperf.JavaRuntime;
 import hu.antalnagy.gcperf.Leaderboard;
+import hu.antalnagy.gcperf.LogImport;
+import hu.antalnagy.gcperf.MutatorUtilization;
+import hu.antalnagy.gcperf.RunResult;
+import hu.antalnagy.gcperf.Workspace;
+import hu.antalnagy.gcperf.persistence.ColumnarResults;
 import hu.antalnagy.gcperf.persistence.DBDriver;
+import hu.antalnagy.gcperf.persistence.Digests;
+import hu.antalnagy.gcperf.persistence.FileResultStore;
+import hu.antalnagy.gcperf.persistence.LogArchive;
+import hu.antalnagy.gcperf.persistence.PersistenceService;
+import hu.antalnagy.gcperf.persistence.ResultStore;
+import hu.antalnagy.gcperf.persistence.RunCache;
+import hu.antalnagy.gcperf.persistence.RunJournal;
 import hu.antalnagy.gcperf.plot.GCPerfPlot;
+import hu.antalnagy.gcperf.probe.OperationProbe;
 
 import java.io.*;
 import java.nio.file.Files;
@@ -13,7 +30,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -22,15 +43,40 @@ import java.util.logging.SimpleFormatter;
 public class GCPerfDriver {
     private static final Path LOC_PATH = Paths.get("").toAbsolutePath();
     private static final Path LOC_LOG_PATH = Paths.get(LOC_PATH + "/log");
-    private static final Path LOC_OUT_PATH = Paths.get(LOC_PATH + "/res/out");
-    private static final Path LOC_OUT_ERR_PATH = Paths.get(LOC_PATH + "/res/outErr").toAbsolutePath();
-    private static final Path LOC_OUT_BIN_PATH = Paths.get(LOC_PATH + "/bin").toAbsolutePath();
+    private static final Path LOC_WORKSPACES_PATH = Paths.get(LOC_PATH + "/res/workspaces").toAbsolutePath();
     private static final Path LOC_OUT_CSV_PATH = Paths.get(LOC_PATH + "/res/csv").toAbsolutePath();
+    private static final Path LOC_JOURNAL_PATH = Paths.get(LOC_PATH + "/res/journal").toAbsolutePath();
+    private static final Path LOC_CACHE_PATH = Paths.get(LOC_PATH + "/res/cache").toAbsolutePath();
+    private static final Path LOC_STORE_PATH = Paths.get(LOC_PATH + "/res/store").toAbsolutePath();
+    private static final Path LOC_ARCHIVE_PATH = Paths.get(LOC_PATH + "/res/archive").toAbsolutePath();
     private static final Logger LOGGER = Logger.getLogger(GCPerfDriver.class.getSimpleName());
 
-    private DBDriver dbDriver;
+    private ResultStore resultStore;
+    private PersistenceService persistenceService;
     private String mainClass;
-    private Analysis analysis;
+    private volatile Analysis analysis;
+    private final Map<JavaRuntime, Analysis> analyses = new LinkedHashMap<>();
+    private final List<JavaRuntime> javaRuntimes = new ArrayList<>();
+    private final Map<String, Analysis> serviceAnalyses = new LinkedHashMap<>();
+    private List<LogImport.ServiceStats> serviceStats = new ArrayList<>();
+    private ContainerProfile containerProfile;
+    private Analysis.SteadyStateWindow steadyStateWindow;
+    private OperationProbe operationProbe;
+    private boolean resume;
+    private boolean runCacheEnabled;
+    private boolean logArchiveEnabled = true;
+    private GCType importDefaultCollector;
+    private Workspace workspace;
+    private Supplier<Flow.Subscriber<AnalysisEvent>> eventSubscriberSupplier;
+    private Leaderboard.SignificanceTesting significanceTesting;
+    private Map<Analysis.Metrics, Double> metricWeights = new EnumMap<>(Analysis.Metrics.class);
+    private List<Double> mmuWindows = MutatorUtilization.DEFAULT_WINDOWS;
+    private double mmuRankingWindow = MutatorUtilization.DEFAULT_RANKING_WINDOW;
+    private int retainedWorkspaces = 10;
+    private Duration workspaceMaxAge = Duration.ofDays(7);
+    private Analysis.RunOrder runOrder = Analysis.RunOrder.SEQUENTIAL;
+    private long runOrderSeed;
+    private List<Leaderboard.MatrixEntry> matrixLeaderboard;
     private List<String> resultMetrics;
     private GCPerfPlot gcPerfPlot;
 
@@ -46,18 +92,266 @@ public class GCPerfDriver {
         return new LinkedList<>(analysis.getLeaderboard());
     }
 
-    public DBDriver getDbDriver() {
-        return dbDriver;
+    public List<Leaderboard.MatrixEntry> getMatrixLeaderboard() {
+        return new ArrayList<>(matrixLeaderboard);
+    }
+
+    public ResultStore getResultStore() {
+        return resultStore;
+    }
+
+    /***
+     * @param resultStore store of the leaderboards, e.g. a {@link DBDriver} for MySQL; by default a
+     * {@link FileResultStore} under res/store
+     */
+    public void setResultStore(ResultStore resultStore) {
+        shutdown();
+        this.resultStore = resultStore;
+    }
+
+    /***
+     * @return write-behind service of the result store, null before the first analysis finished
+     */
+    public PersistenceService getPersistenceService() {
+        return persistenceService;
+    }
+
+    /***
+     * Writes the analyses still queued for the result store and closes it; the next launch reopens it
+     */
+    public void shutdown() {
+        if (persistenceService != null) {
+            persistenceService.close();
+            persistenceService = null;
+        }
     }
 
     public Analysis getAnalysis() {
         return analysis;
     }
 
+    public Map<JavaRuntime, Analysis> getAnalyses() {
+        return new LinkedHashMap<>(analyses);
+    }
+
+    /***
+     * @return analyses of the services of the last {@link #importLogs}, by service
+     */
+    public Map<String, Analysis> getServiceAnalyses() {
+        return new LinkedHashMap<>(serviceAnalyses);
+    }
+
+    /***
+     * @return statistics per service and collector of the last {@link #importLogs}
+     */
+    public List<LogImport.ServiceStats> getServiceStats() {
+        return new ArrayList<>(serviceStats);
+    }
+
     public GCPerfPlot getGcPerfPlot() {
         return gcPerfPlot;
     }
 
+    public List<JavaRuntime> getJavaRuntimes() {
+        return new ArrayList<>(javaRuntimes);
+    }
+
+    public ContainerProfile getContainerProfile() {
+        return containerProfile;
+    }
+
+    /***
+     * @param containerProfile container shape applied to every child JVM run, or null to run on the bare machine
+     */
+    public void setContainerProfile(ContainerProfile containerProfile) {
+        this.containerProfile = containerProfile;
+    }
+
+    public OperationProbe getOperationProbe() {
+        return operationProbe;
+    }
+
+    /***
+     * @param operationProbe probe reading the operation counter of the application, or null to not measure
+     *                       application throughput
+     */
+    public void setOperationProbe(OperationProbe operationProbe) {
+        this.operationProbe = operationProbe;
+    }
+
+    public boolean isResume() {
+        return resume;
+    }
+
+    /***
+     * @param resume skip the runs already recorded in the run journal for the same file and configuration,
+     *               e.g. after a crashed or killed analysis
+     */
+    public void setResume(boolean resume) {
+        this.resume = resume;
+    }
+
+    public boolean isRunCacheEnabled() {
+        return runCacheEnabled;
+    }
+
+    /***
+     * @param runCacheEnabled reuse the results of runs already measured with the same file, JDK, command line and
+     *                        operation probe instead of measuring fresh runs (disabled by default)
+     */
+    public void setRunCacheEnabled(boolean runCacheEnabled) {
+        this.runCacheEnabled = runCacheEnabled;
+    }
+
+    public boolean isLogArchiveEnabled() {
+        return logArchiveEnabled;
+    }
+
+    /***
+     * @param logArchiveEnabled keep a compressed copy of the GC log of every run in res/archive (enabled by default),
+     *                          which outlives the pruned workspaces
+     */
+    public void setLogArchiveEnabled(boolean logArchiveEnabled) {
+        this.logArchiveEnabled = logArchiveEnabled;
+    }
+
+    public GCType getImportDefaultCollector() {
+        return importDefaultCollector;
+    }
+
+    /***
+     * @param importDefaultCollector collector of the imported log files whose rotation set has no startup header,
+     *                               or null to skip such files, see {@link LogImport#withDefaultCollector(GCType)}
+     */
+    public void setImportDefaultCollector(GCType importDefaultCollector) {
+        this.importDefaultCollector = importDefaultCollector;
+    }
+
+    /***
+     * @param eventSubscriberSupplier creates a subscriber for the event stream of every analysis (one per JDK) before
+     *                                it starts, or null
+     */
+    public void setEventSubscriberSupplier(Supplier<Flow.Subscriber<AnalysisEvent>> eventSubscriberSupplier) {
+        this.eventSubscriberSupplier = eventSubscriberSupplier;
+    }
+
+    public Leaderboard.SignificanceTesting getSignificanceTesting() {
+        return significanceTesting;
+    }
+
+    /***
+     * @param significanceTesting rank by run distributions with significance tests (ties reported), or null to rank
+     *                            by the best run
+     */
+    public void setSignificanceTesting(Leaderboard.SignificanceTesting significanceTesting) {
+        this.significanceTesting = significanceTesting;
+    }
+
+    public Map<Analysis.Metrics, Double> getMetricWeights() {
+        return new EnumMap<>(metricWeights);
+    }
+
+    /***
+     * @param metricWeights weight of the rank points per metric (metrics without a weight count with 1.0), e.g. a
+     *                      higher Footprint weight for memory constrained services
+     */
+    public void setMetricWeights(Map<Analysis.Metrics, Double> metricWeights) {
+        Leaderboard.validateWeights(metricWeights);
+        this.metricWeights = metricWeights == null || metricWeights.isEmpty() ? new EnumMap<>(Analysis.Metrics.class) :
+                new EnumMap<>(metricWeights);
+    }
+
+    /***
+     * @param windows window sizes (ms) of the MMU curves, between 1 ms and 10 s
+     * @param rankingWindow window size (ms) of the MMU metric, e.g. the latency budget of a request
+     */
+    public void setMMUWindows(List<Double> windows, double rankingWindow) {
+        MutatorUtilization.validateWindows(windows);
+        MutatorUtilization.validateWindows(List.of(rankingWindow));
+        this.mmuWindows = new ArrayList<>(windows);
+        this.mmuRankingWindow = rankingWindow;
+    }
+
+    /***
+     * Cancels the running analysis, the remaining JDKs are skipped
+     */
+    public void cancel() {
+        Analysis runningAnalysis = analysis;
+        if (runningAnalysis != null) {
+            runningAnalysis.cancel();
+        }
+    }
+
+    /***
+     * @return workspace of the last launch (binaries and run outputs)
+     */
+    public Workspace getWorkspace() {
+        return workspace;
+    }
+
+    /***
+     * Finished workspaces are cleaned up after every launch: only the newest ones are kept, none older than the
+     * maximum age. Defaults: 10 workspaces, 7 days.
+     * @param retainedWorkspaces number of finished workspaces to keep
+     * @param maxAge maximum age of a kept workspace, or null for no age limit
+     */
+    public void setWorkspaceRetention(int retainedWorkspaces, Duration maxAge) {
+        if (retainedWorkspaces < 0) {
+            LOGGER.log(Level.SEVERE, "Invalid argument for retained workspaces");
+            throw new IllegalArgumentException("Number of retained workspaces can't be negative");
+        }
+        this.retainedWorkspaces = retainedWorkspaces;
+        this.workspaceMaxAge = maxAge;
+    }
+
+    public Analysis.RunOrder getRunOrder() {
+        return runOrder;
+    }
+
+    /***
+     * @param runOrder order of the runs across GC Types, RANDOMIZED_BLOCKS interleaves them to cancel drift
+     * @param seed seed of the shuffle, logged with the analysis to reproduce the order
+     */
+    public void setRunOrder(Analysis.RunOrder runOrder, long seed) {
+        this.runOrder = runOrder;
+        this.runOrderSeed = seed;
+    }
+
+    public Analysis.SteadyStateWindow getSteadyStateWindow() {
+        return steadyStateWindow;
+    }
+
+    /***
+     * Runs long-running (server) applications for a fixed wall-clock window instead of waiting for them to exit.
+     * @param warmup discarded warmup period
+     * @param measurement steady-state measurement period
+     */
+    public void setSteadyStateWindow(Duration warmup, Duration measurement) {
+        this.steadyStateWindow = new Analysis.SteadyStateWindow(warmup, measurement);
+    }
+
+    public void setBatchMode() {
+        this.steadyStateWindow = null;
+    }
+
+    /***
+     * Registers a local JDK to run the analysis on. If no JDK is registered, the "java" executable on the PATH is used.
+     * @param jdkHome JDK home directory
+     * @return the registered JavaRuntime
+     */
+    public JavaRuntime registerJavaRuntime(Path jdkHome) {
+        JavaRuntime javaRuntime = JavaRuntime.fromHome(jdkHome);
+        for (JavaRuntime registered : javaRuntimes) {
+            if (registered.getVersion().equals(javaRuntime.getVersion())) {
+                LOGGER.log(Level.SEVERE, "JDK version already registered: " + javaRuntime.getVersion());
+                throw new IllegalArgumentException("A JDK with version " + javaRuntime.getVersion() +
+                        " is already registered (" + registered.getHome() + ")");
+            }
+        }
+        javaRuntimes.add(javaRuntime);
+        return javaRuntime;
+    }
+
     /***
      * @param file .class file or .jar file
      * @param initStartHeapSize Start heap size in MB
@@ -65,53 +359,288 @@ public class GCPerfDriver {
      * @param startHeapIncrementSize Start heap size increment in MB
      * @param maxHeapIncrementSize Maximum heap size increment in MB
      * @param gcTypes Selected Garbage Collector Types
-     * @param exportToCSV Export to csv file
+     * @param exportToCSV Export to csv file, together with a columnar (.gcpc) file of the runs and their pauses
      */
     public void launch(File file, int numOfRuns, int initStartHeapSize, int initMaxHeapSize, int startHeapIncrementSize,
                        int maxHeapIncrementSize, List<GCType> gcTypes, Analysis.Metrics[] metrics,
                        boolean exportToCSV, boolean plot) throws IOException, PythonExecutionException, InterruptedException {
+        launch(file, numOfRuns, initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize, gcTypes,
+                metrics, exportToCSV, plot, javaRuntimes.isEmpty() ? List.of(JavaRuntime.fromPath()) : javaRuntimes);
+    }
+
+    /***
+     * Runs the same sweep on every given JDK. Results are kept per (JDK version, GC Type).
+     * @param javaRuntimes JDKs to run the analysis on
+     */
+    public void launch(File file, int numOfRuns, int initStartHeapSize, int initMaxHeapSize, int startHeapIncrementSize,
+                       int maxHeapIncrementSize, List<GCType> gcTypes, Analysis.Metrics[] metrics,
+                       boolean exportToCSV, boolean plot, List<JavaRuntime> javaRuntimes)
+            throws IOException, PythonExecutionException, InterruptedException {
+        if (javaRuntimes.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "No JDK provided");
+            throw new IllegalArgumentException("Please provide at least one JDK to run the analysis on");
+        }
         this.resultMetrics = new ArrayList<>();
+        this.analyses.clear();
+        this.matrixLeaderboard = new ArrayList<>();
+        RunJournal runJournal = null;
         try {
-            extractBinariesAndSetMainClass(file);
-            analysis = new Analysis(mainClass, gcTypes, metrics);
+            Files.createDirectories(LOC_OUT_CSV_PATH);
+            workspace = Workspace.create(LOC_WORKSPACES_PATH);
+            extractBinariesAndSetMainClass(file, workspace.getBinDirectory());
             FileHandler fileHandler = new FileHandler(LOC_LOG_PATH.toString());
             SimpleFormatter formatter = new SimpleFormatter();
             fileHandler.setFormatter(formatter);
             addHandlersToLoggers(fileHandler);
-            analysis.performGCAnalysis(numOfRuns, initStartHeapSize, initMaxHeapSize, startHeapIncrementSize, maxHeapIncrementSize);
+            String targetDigest = Digests.sha256(file.toPath());
+            runJournal = new RunJournal(LOC_JOURNAL_PATH.resolve(file.getName() + ".journal"));
+            RunCache runCache = runCacheEnabled ? new RunCache(LOC_CACHE_PATH) : null;
+            LogArchive logArchive = logArchiveEnabled ? new LogArchive(LOC_ARCHIVE_PATH) : null;
+            for (JavaRuntime javaRuntime : javaRuntimes) {
+                analysis = new Analysis(mainClass, gcTypes, metrics, javaRuntime).withContainerProfile(containerProfile)
+                        .withSteadyStateWindow(steadyStateWindow).withOperationProbe(operationProbe)
+                        .withRunJournal(runJournal, targetDigest, resume).withRunCache(runCache, targetDigest)
+                        .withLogArchive(logArchive)
+                        .withRunOrder(runOrder, runOrderSeed).withWorkspace(workspace)
+                        .withSignificanceTesting(significanceTesting).withMetricWeights(metricWeights)
+                        .withMMUWindows(mmuWindows, mmuRankingWindow);
+                analyses.put(javaRuntime, analysis);
+                if (eventSubscriberSupplier != null) {
+                    analysis.getEvents().subscribe(eventSubscriberSupplier.get());
+                }
+                LOGGER.log(Level.INFO, "Starting analysis on " + javaRuntime);
+                analysis.performGCAnalysis(numOfRuns, initStartHeapSize, initMaxHeapSize, startHeapIncrementSize,
+                        maxHeapIncrementSize);
+                if (analysis.getProgress().isFailed()) {
+                    break;
+                }
+            }
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "IOException occurred");
             throw new IOException(ex.getMessage());
         } catch (InterruptedException ex) {
             LOGGER.log(Level.SEVERE, "InterruptedException occurred");
             throw new InterruptedException(ex.getMessage());
+        } finally {
+            if (runJournal != null) {
+                runJournal.close();
+            }
+            if (workspace != null) {
+                workspace.close();
+            }
+            cleanupWorkspaces();
         }
         if(analysis.getProgress().isFailed()) {
             LOGGER.log(Level.SEVERE, "Analysis failed");
             return;
         }
-        var runtimesMap = analysis.getGcRuntimes();
-        var avgRuntimesMap = analysis.getAvgGCRuns();
-        var throughputsMap = analysis.getThroughputsMap();
-        var pausesMap = analysis.getPausesMap();
-        var leaderboard = analysis.getLeaderboard();
-        leaderboard.forEach(record -> LOGGER.log(Level.INFO, leaderboard.indexOf(record) + 1 + ": " + record.name()));
-        resultsList(gcTypes, runtimesMap, throughputsMap, pausesMap);
-        if(dbDriver == null) {
-            dbDriver = new DBDriver();
+        if (!finishLaunch(file.getName(), gcTypes, metrics, exportToCSV, plot, "results")) {
+            throw notStored(List.of(file.getName()));
         }
-        else {
-            dbDriver.createConnectionAndStatement();
+    }
+
+    /***
+     * Offline mode: rebuilds the results of the last stored analysis of the file on every JDK it was analysed on
+     * from the GC logs of its runs, without launching the target. Logs pruned from their workspace are read from the
+     * log archive. Use it after changing the metrics, their weights, the steady-state window or a metric definition.
+     * The rebuilt analyses are stored, exported and plotted like fresh ones.
+     * @param fileName name of the analysed .class/.jar file
+     * @param gcTypes GC Types to rank, each must have stored runs
+     */
+    public void reanalyze(String fileName, List<GCType> gcTypes, Analysis.Metrics[] metrics, boolean exportToCSV,
+                          boolean plot) throws IOException, PythonExecutionException {
+        this.resultMetrics = new ArrayList<>();
+        this.analyses.clear();
+        this.matrixLeaderboard = new ArrayList<>();
+        Files.createDirectories(LOC_OUT_CSV_PATH);
+        FileHandler fileHandler = new FileHandler(LOC_LOG_PATH.toString());
+        fileHandler.setFormatter(new SimpleFormatter());
+        addHandlersToLoggers(fileHandler);
+        openPersistence();
+        Map<String, Deque<Integer>> rowIdsByJdkVersion = new LinkedHashMap<>();
+        try (ResultStore.HistoryCursor cursor = resultStore.streamHistory(new ResultStore.HistoryQuery()
+                .withFileName(fileName))) {
+            cursor.forEachRemaining(row -> rowIdsByJdkVersion.computeIfAbsent(row.jdkVersion(),
+                    jdkVersion -> new ArrayDeque<>()).add(row.id()));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
         }
-        try {
-            dbDriver.insertRow(new Timestamp(System.currentTimeMillis()), file.getName(), getLeaderboard());
-        } finally {
-            dbDriver.close();
+        //the last row with runs per JDK version, reading the runs of one row per JDK version at a time
+        Map<String, Integer> lastRowIds = new LinkedHashMap<>();
+        Map<String, List<RunResult>> storedRuns = new HashMap<>();
+        while (!rowIdsByJdkVersion.isEmpty()) {
+            Map<String, Integer> candidates = new LinkedHashMap<>();
+            rowIdsByJdkVersion.forEach((jdkVersion, rowIds) -> candidates.put(jdkVersion, rowIds.pollLast()));
+            Map<Integer, List<RunResult>> runsByRowId = resultStore.queryRuns(candidates.values());
+            candidates.forEach((jdkVersion, rowId) -> {
+                if (runsByRowId.containsKey(rowId)) {
+                    lastRowIds.put(jdkVersion, rowId);
+                    storedRuns.put(jdkVersion, runsByRowId.get(rowId));
+                    rowIdsByJdkVersion.remove(jdkVersion);
+                } else if (rowIdsByJdkVersion.get(jdkVersion).isEmpty()) {
+                    rowIdsByJdkVersion.remove(jdkVersion);
+                }
+            });
+        }
+        if (lastRowIds.isEmpty()) {
+            LOGGER.log(Level.SEVERE, "No stored runs of " + fileName);
+            throw new IllegalArgumentException("No stored runs found for " + fileName + ". Please analyse it first");
+        }
+        LogArchive logArchive = new LogArchive(LOC_ARCHIVE_PATH);
+        for (var entry : lastRowIds.entrySet()) {
+            JavaRuntime javaRuntime = JavaRuntime.recorded(entry.getKey());
+            analysis = new Analysis(fileName, gcTypes, metrics, javaRuntime).withSteadyStateWindow(steadyStateWindow)
+                    .withLogArchive(logArchive).withSignificanceTesting(significanceTesting)
+                    .withMetricWeights(metricWeights).withMMUWindows(mmuWindows, mmuRankingWindow);
+            analyses.put(javaRuntime, analysis);
+            if (eventSubscriberSupplier != null) {
+                analysis.getEvents().subscribe(eventSubscriberSupplier.get());
+            }
+            LOGGER.log(Level.INFO, "Reanalyzing stored analysis no. " + entry.getValue() + " on " + javaRuntime);
+            analysis.reanalyze(storedRuns.get(entry.getKey()));
+        }
+        if (!finishLaunch(fileName, gcTypes, metrics, exportToCSV, plot, "results")) {
+            throw notStored(List.of(fileName));
         }
-        analysis.getProgress().setDone(true);
+    }
+
+    /***
+     * Production mode: imports GC logs written with -Xlog:gc* by production JVMs, parsing the files in parallel, and
+     * ranks the collectors of every service by the same metrics as measured runs. The statistics per service and
+     * collector (pause percentiles, GC overhead, allocation rate) are logged and exported to fleet-&lt;date&gt;.csv;
+     * the analyses of the services are stored, plotted and exported like launched ones.
+     * @param roots log files, or directories holding a directory per service (root/service/node.log)
+     */
+    public void importLogs(List<Path> roots, Analysis.Metrics[] metrics, boolean exportToCSV, boolean plot)
+            throws IOException, PythonExecutionException {
+        this.resultMetrics = new ArrayList<>();
+        this.analyses.clear();
+        this.matrixLeaderboard = new ArrayList<>();
+        Files.createDirectories(LOC_OUT_CSV_PATH);
+        FileHandler fileHandler = new FileHandler(LOC_LOG_PATH.toString());
+        fileHandler.setFormatter(new SimpleFormatter());
+        addHandlersToLoggers(fileHandler);
+        LogImport logImport = new LogImport(roots).withDefaultCollector(importDefaultCollector);
+        logImport.performImport();
+        serviceStats = logImport.getServiceStats();
+        serviceStats.forEach(stats -> LOGGER.log(Level.INFO, "Production statistics of " + stats));
+        if (exportToCSV) {
+            SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
+            createServiceStatsFile(serviceStats, "fleet-" + formatter.format(new Date(System.currentTimeMillis())) +
+                    ".csv");
+        }
+        this.serviceAnalyses.clear();
+        List<String> notStoredServices = new ArrayList<>();
+        for (var entry : logImport.getLogsByService().entrySet()) {
+            List<LogImport.ImportedLog> logs = entry.getValue();
+            List<GCType> gcTypes = Arrays.stream(GCType.values()).filter(gcType -> logs.stream()
+                    .anyMatch(log -> log.run().runResult().gcType() == gcType)).toList();
+            //the JDK most of the nodes of the service run on
+            String jdkVersion = logs.stream().map(LogImport.ImportedLog::jdkVersion).filter(Objects::nonNull)
+                    .collect(Collectors.groupingBy(version -> version, Collectors.counting())).entrySet().stream()
+                    .max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+            JavaRuntime javaRuntime = JavaRuntime.recorded(jdkVersion);
+            analysis = new Analysis(entry.getKey(), gcTypes, metrics, javaRuntime)
+                    .withSignificanceTesting(significanceTesting).withMetricWeights(metricWeights)
+                    .withMMUWindows(mmuWindows, mmuRankingWindow);
+            if (eventSubscriberSupplier != null) {
+                analysis.getEvents().subscribe(eventSubscriberSupplier.get());
+            }
+            LOGGER.log(Level.INFO, "Ranking " + logs.size() + " production log(s) of " + entry.getKey());
+            analysis.replay(logs.stream().map(LogImport.ImportedLog::run).toList());
+            analyses.clear();
+            analyses.put(javaRuntime, analysis);
+            if (!finishLaunch(entry.getKey(), gcTypes, metrics, exportToCSV, plot, "results-" +
+                    entry.getKey().replaceAll("[^A-Za-z0-9._-]", "_"))) {
+                notStoredServices.add(entry.getKey());
+            }
+            serviceAnalyses.put(entry.getKey(), analysis);
+        }
+        if (!notStoredServices.isEmpty()) {
+            throw notStored(notStoredServices);
+        }
+    }
+
+    private static IOException notStored(List<String> names) {
+        return new IOException("The persistence queue was full, the analyses of " + String.join(", ", names) +
+                " were not stored. Please retry once the queue has drained");
+    }
+
+    private void createServiceStatsFile(List<LogImport.ServiceStats> serviceStats, String fileName) {
+        File outFile = new File(LOC_OUT_CSV_PATH + "/" + fileName);
+        try (PrintWriter printWriter = new PrintWriter(outFile)) {
+            printWriter.write("Service,GCType,Files,Runtime(sec),GCOverhead(%),P50Pause(ms),P99Pause(ms)," +
+                    "P999Pause(ms),MaxPause(ms),AllocationRate(MB/s)\n");
+            for (LogImport.ServiceStats stats : serviceStats) {
+                printWriter.write(String.join(",", "\"" + stats.service().replace("\"", "\"\"") + "\"",
+                        stats.gcType().name(), String.valueOf(stats.files()), String.valueOf(stats.runtime()),
+                        String.valueOf(stats.gcOverhead()), String.valueOf(stats.pauseP50()),
+                        String.valueOf(stats.pauseP99()), String.valueOf(stats.pauseP999()),
+                        String.valueOf(stats.maxPause()), String.valueOf(stats.allocationRate())) + "\n");
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO exception occurred");
+            ex.printStackTrace();
+        }
+    }
+
+    private void openPersistence() throws IOException {
+        if(persistenceService == null) {
+            if(resultStore == null) {
+                resultStore = new FileResultStore(LOC_STORE_PATH);
+            }
+            else {
+                resultStore.open();
+            }
+            persistenceService = new PersistenceService(resultStore);
+        }
+    }
+
+    //logs, stores, plots and exports the finished analyses, exportName is the prefix of the exported file names;
+    //returns false if the persistence queue had no room for them; they are still plotted and exported then
+    private boolean finishLaunch(String fileName, List<GCType> gcTypes, Analysis.Metrics[] metrics,
+                                 boolean exportToCSV, boolean plot, String exportName)
+            throws IOException, PythonExecutionException {
+        Map<String, Analysis> analysesByJdkVersion = new LinkedHashMap<>();
+        analyses.forEach((javaRuntime, finishedAnalysis) -> {
+            var leaderboard = finishedAnalysis.getLeaderboard();
+            LOGGER.log(Level.INFO, "Leaderboard on " + javaRuntime + ":");
+            leaderboard.forEach(record -> LOGGER.log(Level.INFO, leaderboard.indexOf(record) + 1 + ": " + record.name()));
+            finishedAnalysis.getMetricRankings().forEach((metric, ranking) -> ranking.getTies().forEach(tie ->
+                    LOGGER.log(Level.INFO, "No significant " + metric + " difference between " + tie)));
+            finishedAnalysis.getParetoFront().forEach(point -> LOGGER.log(Level.INFO, "Pareto optimal on " +
+                    javaRuntime + ": " + point));
+            finishedAnalysis.getHeapResponseCurves().values().forEach(curves -> curves.forEach(curve ->
+                    LOGGER.log(Level.INFO, "Heap response on " + javaRuntime + ": " + curve)));
+            resultsList(javaRuntime.getVersion(), gcTypes, finishedAnalysis);
+            analysesByJdkVersion.put(javaRuntime.getVersion(), finishedAnalysis);
+        });
+        if(analyses.size() > 1) {
+            matrixLeaderboard = Leaderboard.rankAcrossJavaRuntimes(analysesByJdkVersion, significanceTesting,
+                    metricWeights, metrics);
+            matrixLeaderboard.forEach(entry -> LOGGER.log(Level.INFO, matrixLeaderboard.indexOf(entry) + 1 + ": " + entry));
+        }
+        openPersistence();
+        Timestamp timestamp = new Timestamp(System.currentTimeMillis());
+        List<ResultStore.AnalysisRecord> analysisRecords = new ArrayList<>();
+        analysesByJdkVersion.forEach((jdkVersion, finishedAnalysis) -> {
+            List<RunResult> runResults = new ArrayList<>();
+            gcTypes.forEach(gcType -> runResults.addAll(finishedAnalysis.getRunResults().getOrDefault(gcType,
+                    List.of())));
+            analysisRecords.add(new ResultStore.AnalysisRecord(timestamp, fileName, jdkVersion,
+                    finishedAnalysis.getLeaderboard(), runResults));
+        });
+        boolean stored = persistenceService.submit(analysisRecords);
+        analyses.values().forEach(finishedAnalysis -> finishedAnalysis.getProgress().setDone(true));
         if(plot) {
             try {
-                plotResults(gcTypes, runtimesMap, avgRuntimesMap, throughputsMap);
+                for (var entry : analysesByJdkVersion.entrySet()) {
+                    Analysis finishedAnalysis = entry.getValue();
+                    plotResults(analyses.size() > 1 ? "JDK " + entry.getKey() + " " : "", gcTypes,
+                            finishedAnalysis.getGcRuntimes(), finishedAnalysis.getAvgGCRuns(),
+                            finishedAnalysis.getThroughputsMap(), finishedAnalysis.getMMUCurvesMap(),
+                            finishedAnalysis.getMMUWindows(), finishedAnalysis.getHeapResponseCurves());
+                }
             } catch (PythonExecutionException ex) {
                 LOGGER.log(Level.SEVERE, "PythonExecutionException occurred");
                 throw new PythonExecutionException(ex.getMessage());
@@ -120,44 +649,37 @@ public class GCPerfDriver {
         if (exportToCSV) {
             SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
             Date date = new Date(System.currentTimeMillis());
-            createCSVFile(gcTypes, runtimesMap, throughputsMap, pausesMap, "results-" + formatter.format(date) + ".csv");
+            createCSVFile(gcTypes, analysesByJdkVersion, exportName + "-" + formatter.format(date) + ".csv");
+            createColumnarFile(gcTypes, analysesByJdkVersion, exportName + "-" + formatter.format(date) + ".gcpc");
         }
+        return stored;
     }
 
     private void addHandlersToLoggers(FileHandler fileHandler) {
         Analysis.getLOGGER().addHandler(fileHandler);
         Leaderboard.getLOGGER().addHandler(fileHandler);
         DBDriver.getLOGGER().addHandler(fileHandler);
+        FileResultStore.getLOGGER().addHandler(fileHandler);
+        PersistenceService.getLOGGER().addHandler(fileHandler);
+        RunJournal.getLOGGER().addHandler(fileHandler);
+        RunCache.getLOGGER().addHandler(fileHandler);
+        LogArchive.getLOGGER().addHandler(fileHandler);
+        LogImport.getLOGGER().addHandler(fileHandler);
+        Workspace.getLOGGER().addHandler(fileHandler);
+        MutatorUtilization.getLOGGER().addHandler(fileHandler);
         LOGGER.addHandler(fileHandler);
     }
 
-    private static void createBinDirectoryAndCopyFile(File file) throws IOException {
-        if (Files.exists(LOC_OUT_BIN_PATH)) {
-            if (!deleteFilesInDirectory(LOC_OUT_BIN_PATH.toFile())) {
-                LOGGER.log(Level.SEVERE, "Couldn't delete files in binaries directory");
-                throw new IOException("Couldn't delete files in binaries directory. " +
-                        "Possible permission denial.");
-            }
-        }
-        Files.createDirectory(LOC_OUT_BIN_PATH);
-        Files.createDirectories(LOC_OUT_PATH);
-        Files.createDirectories(LOC_OUT_ERR_PATH);
-        Files.createDirectories(LOC_OUT_CSV_PATH);
-        copyFileToBinDirectory(file);
-    }
-
-    private static boolean deleteFilesInDirectory(File directory) {
-        File[] content = directory.listFiles();
-        if (content != null) {
-            for (File file : content) {
-                deleteFilesInDirectory(file);
-            }
+    private void cleanupWorkspaces() {
+        try {
+            Workspace.cleanup(LOC_WORKSPACES_PATH, retainedWorkspaces, workspaceMaxAge);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Workspace cleanup failed: " + ex.getMessage());
         }
-        return directory.delete();
     }
 
-    private static void copyFileToBinDirectory(File file) throws IOException {
-        File copy = new File(LOC_OUT_BIN_PATH + "/" + file.getName());
+    private static void copyFileToBinDirectory(File file, Path binDirectory) throws IOException {
+        File copy = new File(binDirectory + "/" + file.getName());
         try (InputStream in = new BufferedInputStream(new FileInputStream(file));
              OutputStream out = new BufferedOutputStream(new FileOutputStream(copy))) {
             byte[] buffer = new byte[1024];
@@ -169,18 +691,19 @@ public class GCPerfDriver {
         }
     }
 
-    private void extractBinariesAndSetMainClass(File file) throws IOException, InterruptedException {
+    private void extractBinariesAndSetMainClass(File file, Path binDirectory) throws IOException, InterruptedException {
         String fileName = file.getName();
-        createBinDirectoryAndCopyFile(file);
+        mainClass = null;
+        copyFileToBinDirectory(file, binDirectory);
 
         if (fileName.endsWith(".class")) {
             mainClass = fileName.substring(0, fileName.length() - 6);
         } else if (fileName.endsWith(".jar")) {
             ProcessBuilder processBuilder = new ProcessBuilder("jar", "xf", fileName);
-            processBuilder.directory(LOC_OUT_BIN_PATH.toFile());
+            processBuilder.directory(binDirectory.toFile());
             Process process = processBuilder.start();
             process.waitFor();
-            File[] files = Paths.get(LOC_OUT_BIN_PATH + "/META-INF").toFile().listFiles();
+            File[] files = binDirectory.resolve("META-INF").toFile().listFiles();
             if (files == null) {
                 LOGGER.log(Level.SEVERE, "Empty binaries directory");
                 throw new IllegalArgumentException("Empty binaries directory");
@@ -212,14 +735,16 @@ public class GCPerfDriver {
         }
     }
 
-    private void createCSVFile(List<GCType> gcTypes, Map<GCType, List<Double>> runtimesMap, Map<GCType, List<Double>> throughputMap,
-                               Map<GCType, List<Integer>> pausesMap, String fileName) {
+    private void createCSVFile(List<GCType> gcTypes, Map<String, Analysis> analysesByJdkVersion, String fileName) {
         File outFile = new File(LOC_OUT_CSV_PATH + "/" + fileName);
         try (PrintWriter printWriter = new PrintWriter(outFile)) {
-            printWriter.write("GCType,RunNo,GCRuntime(sec),Throughput(%),FullPauses,MinorPauses\n");
-            for (GCType gcType : gcTypes) {
-                String result = buildResultString(runtimesMap, throughputMap, pausesMap, gcType);
-                printWriter.write(result);
+            printWriter.write("JDK,GCType,RunNo,Xms(MB),Xmx(MB),GCRuntime(sec),Throughput(%),FullPauses,MinorPauses,AppThroughput(ops/s)," +
+                    "P99Pause(ms),MaxPause(ms),Footprint(MB),MMU(" + mmuRankingWindow + "ms)\n");
+            for (var entry : analysesByJdkVersion.entrySet()) {
+                for (GCType gcType : gcTypes) {
+                    String result = buildResultString(entry.getKey(), entry.getValue(), gcType);
+                    printWriter.write(result);
+                }
             }
         } catch (IOException ex) {
             LOGGER.log(Level.SEVERE, "IO exception occurred");
@@ -230,39 +755,86 @@ public class GCPerfDriver {
         }
     }
 
-    private String buildResultString(Map<GCType, List<Double>> runtimesMap, Map<GCType, List<Double>> throughputMap,
-                                           Map<GCType, List<Integer>> pausesMap, GCType gcType) {
-        List<Double> runs = runtimesMap.get(gcType);
-        List<Double> throughputs = throughputMap.get(gcType);
-        List<Integer> pauses = pausesMap.get(gcType);
+    //same runs as the CSV file plus every pause, for large archives, see ColumnarResults
+    private void createColumnarFile(List<GCType> gcTypes, Map<String, Analysis> analysesByJdkVersion,
+                                    String fileName) {
+        List<ColumnarResults.Run> runs = new ArrayList<>();
+        analysesByJdkVersion.forEach((jdkVersion, finishedAnalysis) -> {
+            for (GCType gcType : gcTypes) {
+                List<RunResult> runResults = finishedAnalysis.getRunResults().getOrDefault(gcType, List.of());
+                List<List<Analysis.GCPause>> pauseTimelines = finishedAnalysis.getPauseTimelinesMap()
+                        .getOrDefault(gcType, List.of());
+                for (int i = 0; i < runResults.size(); i++) {
+                    runs.add(new ColumnarResults.Run(jdkVersion, runResults.get(i),
+                            i < pauseTimelines.size() ? pauseTimelines.get(i) : List.of()));
+                }
+            }
+        });
+        try {
+            ColumnarResults.write(LOC_OUT_CSV_PATH.resolve(fileName), runs);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "IO exception occurred while writing the columnar results");
+            ex.printStackTrace();
+        }
+    }
+
+    private String buildResultString(String jdkVersion, Analysis finishedAnalysis, GCType gcType) {
+        List<Double> runs = finishedAnalysis.getGcRuntimes().get(gcType);
+        List<Double> throughputs = finishedAnalysis.getThroughputsMap().get(gcType);
+        List<Integer> pauses = finishedAnalysis.getPausesMap().get(gcType);
+        List<Double> appThroughputs = finishedAnalysis.getAppThroughputsMap().get(gcType);
+        List<RunResult> runResults = finishedAnalysis.getRunResults().get(gcType);
+        List<Double> mmus = finishedAnalysis.getMMUsMap().get(gcType);
         StringBuilder stringBuilder = new StringBuilder();
         for (int i = 0, j = 0; i < runs.size(); i++, j++) {
-            stringBuilder.append(gcType.name()).append(",").append(i + 1).append(",").append(runs.get(i)).append(",")
-                    .append(throughputs.get(i)).append(",").append(pauses.get(j)).append(",")
-                    .append(pauses.get(++j)).append("\n");
+            RunResult runResult = runResults != null && i < runResults.size() ? runResults.get(i) : null;
+            stringBuilder.append(jdkVersion).append(",").append(gcType.name()).append(",").append(i + 1).append(",")
+                    .append(runResult == null ? "" : runResult.xms()).append(",")
+                    .append(runResult == null ? "" : runResult.xmx()).append(",")
+                    .append(runs.get(i)).append(",").append(throughputs.get(i)).append(",").append(pauses.get(j))
+                    .append(",").append(pauses.get(++j)).append(",");
+            if (appThroughputs != null && i < appThroughputs.size() && !appThroughputs.get(i).isNaN()) {
+                stringBuilder.append(appThroughputs.get(i));
+            }
+            stringBuilder.append(",").append(runResult == null ? "" : formatMeasured(runResult.pauseP99()))
+                    .append(",").append(runResult == null ? "" : formatMeasured(runResult.maxPause()))
+                    .append(",").append(runResult == null ? "" : formatMeasured(runResult.footprint()))
+                    .append(",").append(mmus == null || i >= mmus.size() ? "" : formatMeasured(mmus.get(i)));
+            stringBuilder.append("\n");
         }
         return stringBuilder.toString();
     }
 
-    private void resultsList(List<GCType> gcTypes, Map<GCType, List<Double>> runtimesMap, Map<GCType, List<Double>> throughputMap,
-                                        Map<GCType, List<Integer>> pausesMap) {
+    private static String formatMeasured(double value) {
+        return Double.isNaN(value) ? "" : String.valueOf(value);
+    }
+
+    private void resultsList(String jdkVersion, List<GCType> gcTypes, Analysis finishedAnalysis) {
         for (GCType gcType : gcTypes) {
-            String result = buildResultString(runtimesMap, throughputMap, pausesMap, gcType);
+            String result = buildResultString(jdkVersion, finishedAnalysis, gcType);
             resultMetrics.addAll(Arrays.asList(result.split("\n")));
         }
     }
 
-    private void plotResults(List<GCType> gcTypes, Map<GCType, List<Double>> runtimesMap, Map<GCType, Double> avgRuntimesMap,
-                             Map<GCType, List<Double>> throughputsMap) throws IOException, PythonExecutionException {
-        constructGcPerfPlot(gcTypes, runtimesMap, avgRuntimesMap, throughputsMap);
+    private void plotResults(String titlePrefix, List<GCType> gcTypes, Map<GCType, List<Double>> runtimesMap,
+                             Map<GCType, Double> avgRuntimesMap, Map<GCType, List<Double>> throughputsMap,
+                             Map<GCType, List<double[]>> mmuCurvesMap, List<Double> mmuWindows,
+                             Map<GCType, List<HeapResponse.Curve>> heapResponseCurves)
+            throws IOException, PythonExecutionException {
+        constructGcPerfPlot(titlePrefix, gcTypes, runtimesMap, avgRuntimesMap, throughputsMap);
+        gcPerfPlot.setMMUCurves(mmuCurvesMap, mmuWindows);
+        gcPerfPlot.setHeapResponseCurves(heapResponseCurves);
         gcPerfPlot.plotRuntimes();
         gcPerfPlot.plotThroughputs();
         gcPerfPlot.plotAvgRuntimes();
+        gcPerfPlot.plotMMUCurves();
+        gcPerfPlot.plotHeapResponse();
     }
 
-    private void constructGcPerfPlot(List<GCType> gcTypes, Map<GCType, List<Double>> runtimesMap, Map<GCType, Double> avgRuntimesMap,
-                                           Map<GCType, List<Double>> throughputsMap) {
+    private void constructGcPerfPlot(String titlePrefix, List<GCType> gcTypes, Map<GCType, List<Double>> runtimesMap,
+                                     Map<GCType, Double> avgRuntimesMap, Map<GCType, List<Double>> throughputsMap) {
         gcPerfPlot = GCPerfPlot.getInstance();
+        gcPerfPlot.setTitlePrefix(titlePrefix);
         gcPerfPlot.setGcTypes(gcTypes);
         gcPerfPlot.setRuntimesMap(runtimesMap);
         gcPerfPlot.setAvgRuntimesMap(avgRuntimesMap);
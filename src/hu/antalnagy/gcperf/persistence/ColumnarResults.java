@@ -0,0 +1,462 @@
+package hu.antalnagy.gcperf.persistence;
+
+import hu.antalnagy.gcperf.Analysis;
+import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.RunResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/***
+ * Columnar binary file of runs and their pauses, a compact complement of the CSV export for large result archives.
+ * Every column is stored as one block and encoded by its content: integers as zigzag varints of the delta to the
+ * previous row, pause timestamps and durations as delta varints of microseconds, JDK version, GC Type and pause cause
+ * through a dictionary, log file paths with front coding (length of the prefix shared with the previous path) and the
+ * remaining measurements as raw doubles. The file is read through a memory mapping and a column can be decoded without
+ * touching the others.
+ */
+public final class ColumnarResults {
+
+    private static final int MAGIC = 0x47435043; //GCPC
+    private static final int VERSION = 1;
+
+    private ColumnarResults() {}
+
+    /***
+     * @param jdkVersion JDK version of the analysis, may be null
+     * @param runResult result of the run
+     * @param pauses stop-the-world pauses of the run in log order
+     */
+    public record Run(String jdkVersion, RunResult runResult, List<Analysis.GCPause> pauses) {
+        public Run {
+            pauses = List.copyOf(pauses);
+        }
+    }
+
+    private enum Encoding {
+        DICTIONARY, DELTA_VARINT, DOUBLE, FRONT_CODED, MICROS
+    }
+
+    public enum Column {
+        JDK(Encoding.DICTIONARY, true, 0),
+        GC_TYPE(Encoding.DICTIONARY, true, 0),
+        RUN_NO(Encoding.DELTA_VARINT, true, 0),
+        ATTEMPT(Encoding.DELTA_VARINT, true, 0),
+        PREMATURE_PROCESS_INTERRUPTS(Encoding.DELTA_VARINT, true, 0),
+        XMS(Encoding.DELTA_VARINT, true, 0),
+        XMX(Encoding.DELTA_VARINT, true, 0),
+        RUNTIME(Encoding.DOUBLE, true, 0),
+        GC_TIME(Encoding.DOUBLE, true, 0),
+        STW_TIME(Encoding.DOUBLE, true, 0),
+        THROUGHPUT(Encoding.DOUBLE, true, 0),
+        FULL_PAUSES(Encoding.DELTA_VARINT, true, 0),
+        MINOR_PAUSES(Encoding.DELTA_VARINT, true, 0),
+        APP_THROUGHPUT(Encoding.DOUBLE, true, 0),
+        PAUSE_P99(Encoding.DOUBLE, true, 0),
+        MAX_PAUSE(Encoding.DOUBLE, true, 0),
+        FOOTPRINT(Encoding.DOUBLE, true, 0),
+        LOG_FILE(Encoding.FRONT_CODED, true, 0),
+        PAUSE_RUN(Encoding.DELTA_VARINT, false, 0), //index of the run of the pause
+        PAUSE_UPTIME(Encoding.MICROS, false, 1e6), //seconds
+        PAUSE_DURATION(Encoding.MICROS, false, 1e3), //ms
+        PAUSE_CAUSE(Encoding.DICTIONARY, false, 0);
+
+        private final Encoding encoding;
+        private final boolean perRun;
+        private final double microsPerUnit;
+
+        Column(Encoding encoding, boolean perRun, double microsPerUnit) {
+            this.encoding = encoding;
+            this.perRun = perRun;
+            this.microsPerUnit = microsPerUnit;
+        }
+
+        public boolean isPerRun() {
+            return perRun;
+        }
+    }
+
+    /***
+     * Writes the runs to a temporary file first, so an interrupted export never leaves a truncated file behind
+     */
+    public static void write(Path file, List<Run> runs) throws IOException {
+        List<RunResult> runResults = runs.stream().map(Run::runResult).toList();
+        List<Analysis.GCPause> pauses = new ArrayList<>();
+        List<Long> pauseRuns = new ArrayList<>();
+        for (int i = 0; i < runs.size(); i++) {
+            for (Analysis.GCPause pause : runs.get(i).pauses()) {
+                pauses.add(pause);
+                pauseRuns.add((long) i);
+            }
+        }
+        Column[] columns = Column.values();
+        byte[][] blocks = new byte[columns.length][];
+        for (Column column : columns) {
+            ColumnWriter writer = new ColumnWriter();
+            switch (column) {
+                case JDK -> writer.dictionary(runs.stream().map(Run::jdkVersion).toList());
+                case GC_TYPE -> writer.dictionary(runResults.stream().map(runResult -> runResult.gcType().name())
+                        .toList());
+                case RUN_NO -> writer.deltas(runResults.stream().map(runResult -> (long) runResult.runNo()).toList());
+                case ATTEMPT -> writer.deltas(runResults.stream().map(runResult -> (long) runResult.attempt()).toList());
+                case PREMATURE_PROCESS_INTERRUPTS -> writer.deltas(runResults.stream()
+                        .map(runResult -> (long) runResult.prematureProcessInterrupts()).toList());
+                case XMS -> writer.deltas(runResults.stream().map(runResult -> (long) runResult.xms()).toList());
+                case XMX -> writer.deltas(runResults.stream().map(runResult -> (long) runResult.xmx()).toList());
+                case RUNTIME -> writer.doubles(runResults.stream().map(RunResult::runtime).toList());
+                case GC_TIME -> writer.doubles(runResults.stream().map(RunResult::gcTime).toList());
+                case STW_TIME -> writer.doubles(runResults.stream().map(RunResult::stwTime).toList());
+                case THROUGHPUT -> writer.doubles(runResults.stream().map(RunResult::throughput).toList());
+                case FULL_PAUSES -> writer.deltas(runResults.stream().map(runResult -> (long) runResult.fullPauses())
+                        .toList());
+                case MINOR_PAUSES -> writer.deltas(runResults.stream()
+                        .map(runResult -> (long) runResult.minorPauses()).toList());
+                case APP_THROUGHPUT -> writer.doubles(runResults.stream().map(RunResult::appThroughput).toList());
+                case PAUSE_P99 -> writer.doubles(runResults.stream().map(RunResult::pauseP99).toList());
+                case MAX_PAUSE -> writer.doubles(runResults.stream().map(RunResult::maxPause).toList());
+                case FOOTPRINT -> writer.doubles(runResults.stream().map(RunResult::footprint).toList());
+                case LOG_FILE -> writer.frontCoded(runResults.stream().map(RunResult::logFile).toList());
+                case PAUSE_RUN -> writer.deltas(pauseRuns);
+                case PAUSE_UPTIME -> writer.micros(pauses.stream().map(Analysis.GCPause::uptime).toList(),
+                        column.microsPerUnit);
+                case PAUSE_DURATION -> writer.micros(pauses.stream().map(Analysis.GCPause::duration).toList(),
+                        column.microsPerUnit);
+                case PAUSE_CAUSE -> writer.dictionary(pauses.stream().map(Analysis.GCPause::cause).toList());
+            }
+            blocks[column.ordinal()] = writer.toByteArray();
+        }
+        int headerSize = 5 * Integer.BYTES + columns.length * (Long.BYTES + Integer.BYTES);
+        ByteBuffer header = ByteBuffer.allocate(headerSize);
+        header.putInt(MAGIC).putInt(VERSION).putInt(runs.size()).putInt(pauses.size()).putInt(columns.length);
+        long offset = headerSize;
+        for (byte[] block : blocks) {
+            header.putLong(offset).putInt(block.length);
+            offset += block.length;
+        }
+        header.flip();
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            writeFully(channel, header);
+            for (byte[] block : blocks) {
+                writeFully(channel, ByteBuffer.wrap(block));
+            }
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    public static Reader open(Path file) throws IOException {
+        return new Reader(file);
+    }
+
+    public static final class Reader implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int runCount;
+        private final int pauseCount;
+        private final long[] offsets;
+        private final int[] lengths;
+
+        private Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                if (buffer.remaining() < 5 * Integer.BYTES || buffer.getInt(0) != MAGIC) {
+                    throw new IllegalArgumentException("Not a columnar results file: " + file);
+                }
+                if (buffer.getInt(Integer.BYTES) != VERSION) {
+                    throw new IllegalArgumentException("Unsupported columnar results version: " +
+                            buffer.getInt(Integer.BYTES));
+                }
+                runCount = buffer.getInt(2 * Integer.BYTES);
+                pauseCount = buffer.getInt(3 * Integer.BYTES);
+                int columnCount = buffer.getInt(4 * Integer.BYTES);
+                if (columnCount != Column.values().length) {
+                    throw new IllegalArgumentException("Unexpected number of columns: " + columnCount);
+                }
+                offsets = new long[columnCount];
+                lengths = new int[columnCount];
+                int position = 5 * Integer.BYTES;
+                for (int i = 0; i < columnCount; i++) {
+                    offsets[i] = buffer.getLong(position);
+                    lengths[i] = buffer.getInt(position + Long.BYTES);
+                    position += Long.BYTES + Integer.BYTES;
+                    if (offsets[i] < 0 || offsets[i] + lengths[i] > buffer.capacity()) {
+                        throw new IllegalArgumentException("Truncated columnar results file: " + file);
+                    }
+                }
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        public int getRunCount() {
+            return runCount;
+        }
+
+        public int getPauseCount() {
+            return pauseCount;
+        }
+
+        private ByteBuffer block(Column column) {
+            return buffer.slice((int) offsets[column.ordinal()], lengths[column.ordinal()]);
+        }
+
+        private int rows(Column column) {
+            return column.perRun ? runCount : pauseCount;
+        }
+
+        /***
+         * @param column integer column, e.g. {@link Column#XMX}
+         */
+        public long[] readLongs(Column column) {
+            requireEncoding(column, Encoding.DELTA_VARINT);
+            ByteBuffer block = block(column);
+            long[] values = new long[rows(column)];
+            long previous = 0;
+            for (int i = 0; i < values.length; i++) {
+                previous += zigzagDecode(readVarLong(block));
+                values[i] = previous;
+            }
+            return values;
+        }
+
+        /***
+         * @param column measurement column, e.g. {@link Column#GC_TIME} or {@link Column#PAUSE_DURATION}
+         */
+        public double[] readDoubles(Column column) {
+            ByteBuffer block = block(column);
+            double[] values = new double[rows(column)];
+            if (column.encoding == Encoding.DOUBLE) {
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = block.getDouble();
+                }
+                return values;
+            }
+            requireEncoding(column, Encoding.MICROS);
+            long previous = 0;
+            for (int i = 0; i < values.length; i++) {
+                previous += zigzagDecode(readVarLong(block));
+                values[i] = previous == 0 ? Double.NaN : (previous - 1) / column.microsPerUnit;
+            }
+            return values;
+        }
+
+        /***
+         * @param column text column, e.g. {@link Column#GC_TYPE}; unknown values are null
+         */
+        public List<String> readStrings(Column column) {
+            ByteBuffer block = block(column);
+            List<String> values = new ArrayList<>(rows(column));
+            if (column.encoding == Encoding.DICTIONARY) {
+                String[] dictionary = new String[(int) readVarLong(block)];
+                for (int i = 0; i < dictionary.length; i++) {
+                    dictionary[i] = readString(block, (int) readVarLong(block));
+                }
+                for (int i = 0; i < rows(column); i++) {
+                    int code = (int) readVarLong(block);
+                    values.add(code == 0 ? null : dictionary[code - 1]);
+                }
+                return values;
+            }
+            requireEncoding(column, Encoding.FRONT_CODED);
+            String previous = "";
+            for (int i = 0; i < rows(column); i++) {
+                int shared = (int) readVarLong(block);
+                int suffixLength = (int) readVarLong(block) - 1;
+                if (suffixLength < 0) {
+                    values.add(null);
+                    continue;
+                }
+                previous = previous.substring(0, shared) + readString(block, suffixLength);
+                values.add(previous);
+            }
+            return values;
+        }
+
+        public List<Run> readRuns() {
+            List<String> jdkVersions = readStrings(Column.JDK);
+            List<String> gcTypes = readStrings(Column.GC_TYPE);
+            long[] runNos = readLongs(Column.RUN_NO);
+            long[] attempts = readLongs(Column.ATTEMPT);
+            long[] interrupts = readLongs(Column.PREMATURE_PROCESS_INTERRUPTS);
+            long[] xmss = readLongs(Column.XMS);
+            long[] xmxs = readLongs(Column.XMX);
+            double[] runtimes = readDoubles(Column.RUNTIME);
+            double[] gcTimes = readDoubles(Column.GC_TIME);
+            double[] stwTimes = readDoubles(Column.STW_TIME);
+            double[] throughputs = readDoubles(Column.THROUGHPUT);
+            long[] fullPauses = readLongs(Column.FULL_PAUSES);
+            long[] minorPauses = readLongs(Column.MINOR_PAUSES);
+            double[] appThroughputs = readDoubles(Column.APP_THROUGHPUT);
+            double[] pauseP99s = readDoubles(Column.PAUSE_P99);
+            double[] maxPauses = readDoubles(Column.MAX_PAUSE);
+            double[] footprints = readDoubles(Column.FOOTPRINT);
+            List<String> logFiles = readStrings(Column.LOG_FILE);
+            List<List<Analysis.GCPause>> pauses = new ArrayList<>();
+            for (int i = 0; i < runCount; i++) {
+                pauses.add(new ArrayList<>());
+            }
+            long[] pauseRuns = readLongs(Column.PAUSE_RUN);
+            double[] uptimes = readDoubles(Column.PAUSE_UPTIME);
+            double[] durations = readDoubles(Column.PAUSE_DURATION);
+            List<String> causes = readStrings(Column.PAUSE_CAUSE);
+            for (int i = 0; i < pauseCount; i++) {
+                pauses.get((int) pauseRuns[i]).add(new Analysis.GCPause(uptimes[i], durations[i], causes.get(i)));
+            }
+            List<Run> runs = new ArrayList<>(runCount);
+            for (int i = 0; i < runCount; i++) {
+                runs.add(new Run(jdkVersions.get(i), new RunResult(GCType.valueOf(gcTypes.get(i)), (int) runNos[i],
+                        (int) attempts[i], (int) interrupts[i], (int) xmss[i], (int) xmxs[i], runtimes[i],
+                        gcTimes[i], stwTimes[i], throughputs[i], (int) fullPauses[i], (int) minorPauses[i],
+                        appThroughputs[i], pauseP99s[i], maxPauses[i], footprints[i], logFiles.get(i)),
+                        pauses.get(i)));
+            }
+            return runs;
+        }
+
+        private static void requireEncoding(Column column, Encoding encoding) {
+            if (column.encoding != encoding) {
+                throw new IllegalArgumentException("Column " + column + " is not " + encoding + " encoded");
+            }
+        }
+
+        private static String readString(ByteBuffer block, int length) {
+            byte[] bytes = new byte[length];
+            block.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static long readVarLong(ByteBuffer block) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = block.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+
+        private static long zigzagDecode(long value) {
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /***
+         * Closes the file; the mapping stays valid until it is garbage collected
+         */
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static final class ColumnWriter {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        private void dictionary(List<String> values) {
+            Map<String, Integer> codes = new LinkedHashMap<>();
+            for (String value : values) {
+                if (value != null) {
+                    codes.putIfAbsent(value, codes.size() + 1);
+                }
+            }
+            writeVarLong(codes.size());
+            codes.keySet().forEach(this::writeString);
+            for (String value : values) {
+                writeVarLong(value == null ? 0 : codes.get(value));
+            }
+        }
+
+        private void deltas(List<Long> values) {
+            long previous = 0;
+            for (long value : values) {
+                writeVarLong(zigzagEncode(value - previous));
+                previous = value;
+            }
+        }
+
+        //0 stands for NaN, so every other value is shifted by one
+        private void micros(List<Double> values, double microsPerUnit) {
+            long previous = 0;
+            for (double value : values) {
+                long micros = Double.isNaN(value) ? 0 : Math.round(value * microsPerUnit) + 1;
+                writeVarLong(zigzagEncode(micros - previous));
+                previous = micros;
+            }
+        }
+
+        private void doubles(List<Double> values) {
+            ByteBuffer buffer = ByteBuffer.allocate(values.size() * Double.BYTES);
+            values.forEach(buffer::putDouble);
+            out.writeBytes(buffer.array());
+        }
+
+        private void frontCoded(List<String> values) {
+            String previous = "";
+            for (String value : values) {
+                if (value == null) {
+                    writeVarLong(0);
+                    writeVarLong(0);
+                    continue;
+                }
+                int shared = 0;
+                int max = Math.min(previous.length(), value.length());
+                while (shared < max && previous.charAt(shared) == value.charAt(shared)) {
+                    shared++;
+                }
+                if (shared > 0 && Character.isHighSurrogate(value.charAt(shared - 1))) {
+                    shared--; //never split a surrogate pair
+                }
+                byte[] suffix = value.substring(shared).getBytes(StandardCharsets.UTF_8);
+                writeVarLong(shared);
+                writeVarLong(suffix.length + 1L);
+                out.writeBytes(suffix);
+                previous = value;
+            }
+        }
+
+        private void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        }
+
+        private void writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static long zigzagEncode(long value) {
+            return (value << 1) ^ (value >> 63);
+        }
+
+        private byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
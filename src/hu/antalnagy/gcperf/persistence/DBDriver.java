@@ -1,17 +1,98 @@
 package hu.antalnagy.gcperf.persistence;
 
 import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.RunResult;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.sql.*;
 import java.util.*;
+import java.util.function.ToDoubleFunction;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-public class DBDriver implements AutoCloseable {
+/***
+ * MySQL backend of the {@link ResultStore}, needs a server on localhost. Optional, the embedded
+ * {@link FileResultStore} is the default. Besides the leaderboard rows of the stats table, every analysis is stored in a
+ * normalized schema: analysis (one per stats row), configuration (GC Type and heap size), run and metric (one row per
+ * measured value of a run), so the raw run history can be queried across analyses.
+ */
+public class DBDriver implements ResultStore {
 
     private static final String JDBC_DRIVER = "com.mysql.cj.jdbc.Driver";
-    private static final String DB_URL = "jdbc:mysql://localhost/statistics";
+    //useCursorFetch makes the driver honour the fetch size of a statement with a server-side cursor, instead of reading
+    //the whole result set into memory
+    private static final String DB_URL = "jdbc:mysql://localhost/statistics?createDatabaseIfNotExist=true" +
+            "&useCursorFetch=true";
     private static final String TABLE_NAME = "stats";
+    //version n of the schema is reached by applying the first n migrations; tables created before versioning match
+    //version 1, which is why its statements are idempotent
+    private static final List<List<String>> MIGRATIONS = List.of(
+            List.of("""
+                    CREATE TABLE IF NOT EXISTS stats (
+                        stat_id INT AUTO_INCREMENT PRIMARY KEY,
+                        file_name VARCHAR(255),
+                        ranking_serial TINYINT,
+                        ranking_parallel TINYINT,
+                        ranking_g1 TINYINT,
+                        ranking_zgc TINYINT,
+                        ranking_shenandoah TINYINT,
+                        jdk_version VARCHAR(64),
+                        date_created TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+                    );"""),
+            List.of("""
+                    CREATE TABLE IF NOT EXISTS analysis (
+                        analysis_id INT AUTO_INCREMENT PRIMARY KEY,
+                        stat_id INT NOT NULL,
+                        file_name VARCHAR(255),
+                        jdk_version VARCHAR(64),
+                        date_created TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                        FOREIGN KEY (stat_id) REFERENCES stats (stat_id),
+                        INDEX (file_name, date_created)
+                    );""", """
+                    CREATE TABLE IF NOT EXISTS configuration (
+                        configuration_id INT AUTO_INCREMENT PRIMARY KEY,
+                        analysis_id INT NOT NULL,
+                        gc_type VARCHAR(16) NOT NULL,
+                        xms INT NOT NULL,
+                        xmx INT NOT NULL,
+                        ranking TINYINT,
+                        FOREIGN KEY (analysis_id) REFERENCES analysis (analysis_id),
+                        UNIQUE (analysis_id, gc_type, xms, xmx),
+                        INDEX (gc_type, xmx)
+                    );""", """
+                    CREATE TABLE IF NOT EXISTS run (
+                        run_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                        configuration_id INT NOT NULL,
+                        run_no INT NOT NULL,
+                        attempt INT NOT NULL,
+                        premature_process_interrupts INT NOT NULL,
+                        runtime DOUBLE,
+                        log_file VARCHAR(1024),
+                        FOREIGN KEY (configuration_id) REFERENCES configuration (configuration_id)
+                    );""", """
+                    CREATE TABLE IF NOT EXISTS metric (
+                        run_id BIGINT NOT NULL,
+                        name VARCHAR(32) NOT NULL,
+                        value DOUBLE NOT NULL,
+                        PRIMARY KEY (run_id, name),
+                        FOREIGN KEY (run_id) REFERENCES run (run_id),
+                        INDEX (name, value)
+                    );"""),
+            List.of("""
+                    ALTER TABLE stats ADD INDEX stats_file_name_date (file_name, date_created),
+                        ADD INDEX stats_date (date_created);"""),
+            List.of("""
+                    ALTER TABLE stats ADD COLUMN ranking_cms TINYINT AFTER ranking_shenandoah;"""));
+    private static final String RUNS_QUERY = """
+            SELECT a.stat_id, c.gc_type, c.xms, c.xmx, r.run_id, r.run_no, r.attempt,
+                r.premature_process_interrupts, r.runtime, r.log_file, m.name, m.value
+            FROM run r
+                JOIN configuration c ON c.configuration_id = r.configuration_id
+                JOIN analysis a ON a.analysis_id = c.analysis_id
+                LEFT JOIN metric m ON m.run_id = r.run_id
+            """;
+    private static boolean migrated;
     private Connection connection;
     private Statement statement;
 
@@ -21,116 +102,483 @@ public class DBDriver implements AutoCloseable {
         return LOGGER;
     }
 
-    static {
+    public DBDriver() {
         try {
             Class.forName(JDBC_DRIVER);
         } catch (ClassNotFoundException ex) {
+            LOGGER.log(Level.SEVERE, "MySQL JDBC driver not found on the classpath");
             ex.printStackTrace();
         }
-    }
-
-    public DBDriver() {
         try {
-            connection = DriverManager.getConnection("jdbc:mysql://localhost/","root","root");
+            connection = DriverManager.getConnection(DB_URL,"root","root");
             statement = connection.createStatement();
-            statement.addBatch("CREATE DATABASE IF NOT EXISTS statistics;");
-            statement.addBatch("USE statistics;");
-            statement.addBatch(
-                    """
-                            CREATE TABLE IF NOT EXISTS stats (
-                                stat_id INT AUTO_INCREMENT PRIMARY KEY,
-                                file_name VARCHAR(255),
-                                ranking_serial TINYINT,
-                                ranking_parallel TINYINT,
-                                ranking_g1 TINYINT,
-                                ranking_zgc TINYINT,
-                                ranking_shenandoah TINYINT,
-                                date_created TIMESTAMP DEFAULT CURRENT_TIMESTAMP
-                            );""");
-            statement.executeBatch();
+            migrate();
         } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "Connection establishment or database creation attempt failed");
+            LOGGER.log(Level.SEVERE, "Connection establishment or database migration attempt failed");
             ex.printStackTrace();
         }
     }
 
-    public void insertRow(Timestamp timeStamp, String fileName, List<GCType> leaderBoard) {
+    //applies the migrations missing from the schema_version table, once per JVM
+    private void migrate() throws SQLException {
+        synchronized (DBDriver.class) {
+            if (migrated) {
+                return;
+            }
+            statement.executeUpdate("CREATE TABLE IF NOT EXISTS schema_version (version INT NOT NULL);");
+            int version = 0;
+            try (ResultSet resultSet = statement.executeQuery("SELECT MAX(version) FROM schema_version;")) {
+                if (resultSet.next()) {
+                    version = resultSet.getInt(1);
+                }
+            }
+            for (int i = version; i < MIGRATIONS.size(); i++) {
+                LOGGER.log(Level.INFO, "Migrating database schema to version " + (i + 1));
+                for (String ddl : MIGRATIONS.get(i)) {
+                    statement.addBatch(ddl);
+                }
+                statement.executeBatch();
+                if (i == 0) {
+                    addJdkVersionColumnIfMissing();
+                }
+                statement.executeUpdate("INSERT INTO schema_version (version) VALUES (" + (i + 1) + ");");
+            }
+            migrated = true;
+        }
+    }
+
+    private void addJdkVersionColumnIfMissing() throws SQLException {
+        try (ResultSet columns = connection.getMetaData().getColumns("statistics", null, TABLE_NAME, "jdk_version")) {
+            if (!columns.next()) {
+                LOGGER.log(Level.INFO, "Adding jdk_version column to " + TABLE_NAME + " table");
+                statement.executeUpdate("ALTER TABLE " + TABLE_NAME + " ADD COLUMN jdk_version VARCHAR(64) " +
+                        "AFTER ranking_shenandoah;");
+            }
+        }
+    }
+
+    //results of a run stored as one metric row each, unmeasured (NaN) values are left out
+    private static final Map<String, ToDoubleFunction<RunResult>> RUN_METRICS = new LinkedHashMap<>();
+
+    static {
+        RUN_METRICS.put("gc_time", RunResult::gcTime);
+        RUN_METRICS.put("stw_time", RunResult::stwTime);
+        RUN_METRICS.put("throughput", RunResult::throughput);
+        RUN_METRICS.put("full_pauses", RunResult::fullPauses);
+        RUN_METRICS.put("minor_pauses", RunResult::minorPauses);
+        RUN_METRICS.put("app_throughput", RunResult::appThroughput);
+        RUN_METRICS.put("pause_p99", RunResult::pauseP99);
+        RUN_METRICS.put("max_pause", RunResult::maxPause);
+        RUN_METRICS.put("footprint", RunResult::footprint);
+    }
+
+    private static final Map<GCType, String> RANKING_COLUMNS = new EnumMap<>(GCType.class);
+
+    static {
+        RANKING_COLUMNS.put(GCType.SERIAL, "ranking_serial");
+        RANKING_COLUMNS.put(GCType.PARALLEL, "ranking_parallel");
+        RANKING_COLUMNS.put(GCType.G1, "ranking_g1");
+        RANKING_COLUMNS.put(GCType.ZGC, "ranking_zgc");
+        RANKING_COLUMNS.put(GCType.SHENANDOAH, "ranking_shenandoah");
+        RANKING_COLUMNS.put(GCType.CMS, "ranking_cms");
+    }
+
+    private record Configuration(GCType gcType, int xms, int xmx) {}
+
+    /***
+     * Writes the analyses to the stats table and to the normalized analysis, configuration, run and metric tables
+     * with prepared batches, in one transaction
+     */
+    @Override
+    public void insertAnalyses(List<AnalysisRecord> analyses) throws IOException {
+        checkConnection();
+        try {
+            connection.setAutoCommit(false);
+            try {
+                List<Integer> statIds = insertStats(analyses);
+                List<Integer> analysisIds = insertAnalysisRows(analyses, statIds);
+                List<Map<Configuration, Integer>> configurationIds = insertConfigurations(analyses, analysisIds);
+                List<Long> runIds = insertRuns(analyses, configurationIds);
+                insertMetrics(analyses, runIds);
+                connection.commit();
+            } catch (SQLException ex) {
+                connection.rollback();
+                throw ex;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Update attempt failed, no analysis was written");
+            throw new IOException("Writing the analyses failed", ex);
+        }
+    }
+
+    private List<Integer> insertStats(List<AnalysisRecord> analyses) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO " + TABLE_NAME + " (file_name, " +
+                String.join(", ", RANKING_COLUMNS.values()) + ", jdk_version, date_created) VALUES (?" +
+                ", ?".repeat(RANKING_COLUMNS.size() + 2) + ")", Statement.RETURN_GENERATED_KEYS)) {
+            for (AnalysisRecord analysis : analyses) {
+                Map<GCType, Integer> rankings = ResultStore.rankings(analysis.leaderboard());
+                insert.setString(1, analysis.fileName());
+                int parameterIndex = 2;
+                for (GCType gcType : RANKING_COLUMNS.keySet()) {
+                    insert.setObject(parameterIndex++, rankings.get(gcType), Types.TINYINT);
+                }
+                insert.setString(parameterIndex++, analysis.jdkVersion());
+                insert.setTimestamp(parameterIndex, analysis.timeStamp());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            return generatedKeys(insert).stream().map(Long::intValue).toList();
+        }
+    }
+
+    private List<Integer> insertAnalysisRows(List<AnalysisRecord> analyses, List<Integer> statIds)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO analysis (stat_id, file_name, " +
+                "jdk_version, date_created) VALUES (?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < analyses.size(); i++) {
+                insert.setInt(1, statIds.get(i));
+                insert.setString(2, analyses.get(i).fileName());
+                insert.setString(3, analyses.get(i).jdkVersion());
+                insert.setTimestamp(4, analyses.get(i).timeStamp());
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            return generatedKeys(insert).stream().map(Long::intValue).toList();
+        }
+    }
+
+    //one configuration per GC Type and heap size of an analysis, in the order of the first run using it
+    private List<Map<Configuration, Integer>> insertConfigurations(List<AnalysisRecord> analyses,
+                                                                   List<Integer> analysisIds) throws SQLException {
+        List<List<Configuration>> configurations = new ArrayList<>();
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO configuration (analysis_id, " +
+                "gc_type, xms, xmx, ranking) VALUES (?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < analyses.size(); i++) {
+                Map<GCType, Integer> rankings = ResultStore.rankings(analyses.get(i).leaderboard());
+                List<Configuration> analysisConfigurations = analyses.get(i).runResults().stream()
+                        .map(runResult -> new Configuration(runResult.gcType(), runResult.xms(), runResult.xmx()))
+                        .distinct().toList();
+                for (Configuration configuration : analysisConfigurations) {
+                    insert.setInt(1, analysisIds.get(i));
+                    insert.setString(2, configuration.gcType().name());
+                    insert.setInt(3, configuration.xms());
+                    insert.setInt(4, configuration.xmx());
+                    insert.setObject(5, rankings.get(configuration.gcType()), Types.TINYINT);
+                    insert.addBatch();
+                }
+                configurations.add(analysisConfigurations);
+            }
+            insert.executeBatch();
+            Iterator<Long> keys = generatedKeys(insert).iterator();
+            List<Map<Configuration, Integer>> configurationIds = new ArrayList<>();
+            for (List<Configuration> analysisConfigurations : configurations) {
+                Map<Configuration, Integer> ids = new HashMap<>();
+                analysisConfigurations.forEach(configuration -> ids.put(configuration, keys.next().intValue()));
+                configurationIds.add(ids);
+            }
+            return configurationIds;
+        }
+    }
+
+    private List<Long> insertRuns(List<AnalysisRecord> analyses, List<Map<Configuration, Integer>> configurationIds)
+            throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO run (configuration_id, run_no, " +
+                "attempt, premature_process_interrupts, runtime, log_file) VALUES (?, ?, ?, ?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            for (int i = 0; i < analyses.size(); i++) {
+                for (RunResult runResult : analyses.get(i).runResults()) {
+                    insert.setInt(1, configurationIds.get(i).get(new Configuration(runResult.gcType(),
+                            runResult.xms(), runResult.xmx())));
+                    insert.setInt(2, runResult.runNo());
+                    insert.setInt(3, runResult.attempt());
+                    insert.setInt(4, runResult.prematureProcessInterrupts());
+                    insert.setDouble(5, runResult.runtime());
+                    insert.setString(6, runResult.logFile());
+                    insert.addBatch();
+                }
+            }
+            insert.executeBatch();
+            return generatedKeys(insert);
+        }
+    }
+
+    private void insertMetrics(List<AnalysisRecord> analyses, List<Long> runIds) throws SQLException {
+        try (PreparedStatement insert = connection.prepareStatement("INSERT INTO metric (run_id, name, value) " +
+                "VALUES (?, ?, ?)")) {
+            Iterator<Long> runId = runIds.iterator();
+            for (AnalysisRecord analysis : analyses) {
+                for (RunResult runResult : analysis.runResults()) {
+                    long id = runId.next();
+                    for (var metric : RUN_METRICS.entrySet()) {
+                        double value = metric.getValue().applyAsDouble(runResult);
+                        if (Double.isNaN(value)) {
+                            continue;
+                        }
+                        insert.setLong(1, id);
+                        insert.setString(2, metric.getKey());
+                        insert.setDouble(3, value);
+                        insert.addBatch();
+                    }
+                }
+            }
+            insert.executeBatch();
+        }
+    }
+
+    private static List<Long> generatedKeys(PreparedStatement insert) throws SQLException {
+        List<Long> keys = new ArrayList<>();
+        try (ResultSet resultSet = insert.getGeneratedKeys()) {
+            while (resultSet.next()) {
+                keys.add(resultSet.getLong(1));
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    public Map<Integer, List<RunResult>> queryRuns() {
+        Map<Integer, List<RunResult>> runsMap = new LinkedHashMap<>();
         try {
             if(connection.isClosed()) {
-                LOGGER.log(Level.WARNING, "Update attempt with closed connection");
+                LOGGER.log(Level.WARNING, "Query attempt with closed connection");
                 throw new IllegalStateException("Connection is closed");
             }
         } catch (SQLException ex) {
             LOGGER.log(Level.SEVERE, "Connection closed query resulted in SQLException");
             ex.printStackTrace();
         }
-        Map<GCType, Integer> rankings = new HashMap<>();
-        for(GCType gcType : GCType.values()) {
-            rankings.put(gcType, null);
+        try (ResultSet resultSet = statement.executeQuery(RUNS_QUERY + "ORDER BY a.stat_id, r.run_id")) {
+            readRuns(resultSet, runsMap);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Query resulted in SQLException");
+            ex.printStackTrace();
         }
-        for(int i = 0; i < leaderBoard.size(); i++) {
-            rankings.replace(leaderBoard.get(i), i+1);
+        return runsMap;
+    }
+
+    @Override
+    public Map<Integer, List<RunResult>> queryRuns(Collection<Integer> ids) throws IOException {
+        checkConnection();
+        Map<Integer, List<RunResult>> runsMap = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return runsMap;
         }
-        String updateString = constructSqlUpdateString(timeStamp, fileName, rankings.get(GCType.SERIAL),
-                rankings.get(GCType.PARALLEL), rankings.get(GCType.G1), rankings.get(GCType.ZGC), rankings.get(GCType.SHENANDOAH));
-        try {
-            statement.executeUpdate(updateString);
+        String sql = RUNS_QUERY + "WHERE a.stat_id IN (" + String.join(", ", Collections.nCopies(ids.size(), "?")) +
+                ") ORDER BY a.stat_id, r.run_id";
+        try (PreparedStatement select = connection.prepareStatement(sql)) {
+            int i = 1;
+            for (int id : ids) {
+                select.setInt(i++, id);
+            }
+            try (ResultSet resultSet = select.executeQuery()) {
+                readRuns(resultSet, runsMap);
+            }
         } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "Update attempt failed");
-            ex.printStackTrace();
+            LOGGER.log(Level.SEVERE, "Run query resulted in SQLException");
+            throw new IOException("Run query failed", ex);
         }
+        return runsMap;
     }
 
-    private String constructSqlUpdateString(Timestamp timeStamp, String fileName, Integer serial, Integer parallel,
-                                      Integer g1, Integer zgc, Integer shenandoah) {
-        return "INSERT INTO " + TABLE_NAME + " (file_name, ranking_serial, ranking_parallel, ranking_g1, ranking_zgc, " +
-                "ranking_shenandoah, date_created) VALUES (\"" + fileName + "\", " + serial + ", " + parallel + ", " +
-                g1 + ", " + zgc + ", " + shenandoah + ", \"" + timeStamp + "\");";
+    //one row per metric of a run, ordered by run
+    private static void readRuns(ResultSet resultSet, Map<Integer, List<RunResult>> runsMap) throws SQLException {
+        long runId = -1;
+        int statId = 0;
+        Map<String, Double> metrics = new HashMap<>();
+        RunResult run = null;
+        while (resultSet.next()) {
+            if (resultSet.getLong("run_id") != runId) {
+                if (run != null) {
+                    runsMap.computeIfAbsent(statId, key -> new ArrayList<>()).add(toRunResult(run, metrics));
+                }
+                runId = resultSet.getLong("run_id");
+                statId = resultSet.getInt("stat_id");
+                metrics.clear();
+                run = new RunResult(GCType.valueOf(resultSet.getString("gc_type")), resultSet.getInt("run_no"),
+                        resultSet.getInt("attempt"), resultSet.getInt("premature_process_interrupts"),
+                        resultSet.getInt("xms"), resultSet.getInt("xmx"), resultSet.getDouble("runtime"),
+                        Double.NaN, Double.NaN, Double.NaN, 0, 0, Double.NaN, Double.NaN, Double.NaN, Double.NaN,
+                        resultSet.getString("log_file"));
+            }
+            String name = resultSet.getString("name");
+            if (name != null) {
+                metrics.put(name, resultSet.getDouble("value"));
+            }
+        }
+        if (run != null) {
+            runsMap.computeIfAbsent(statId, key -> new ArrayList<>()).add(toRunResult(run, metrics));
+        }
+    }
+
+    private static RunResult toRunResult(RunResult run, Map<String, Double> metrics) {
+        return new RunResult(run.gcType(), run.runNo(), run.attempt(), run.prematureProcessInterrupts(), run.xms(),
+                run.xmx(), run.runtime(), metrics.getOrDefault("gc_time", Double.NaN),
+                metrics.getOrDefault("stw_time", Double.NaN), metrics.getOrDefault("throughput", Double.NaN),
+                metrics.getOrDefault("full_pauses", 0.0).intValue(),
+                metrics.getOrDefault("minor_pauses", 0.0).intValue(),
+                metrics.getOrDefault("app_throughput", Double.NaN), metrics.getOrDefault("pause_p99", Double.NaN),
+                metrics.getOrDefault("max_pause", Double.NaN), metrics.getOrDefault("footprint", Double.NaN),
+                run.logFile());
+    }
+
+    /***
+     * Reads one page with keyset pagination on stat_id, so a page costs the same however deep into the history it is
+     */
+    @Override
+    public List<HistoryRow> queryHistory(HistoryQuery query, int afterId, int pageSize) throws IOException {
+        if (pageSize < 1) {
+            LOGGER.log(Level.SEVERE, "Invalid history page size: " + pageSize);
+            throw new IllegalArgumentException("Page size should be at least 1!");
+        }
+        checkConnection();
+        List<HistoryRow> page = new ArrayList<>();
+        try (PreparedStatement select = prepareHistoryQuery(query, afterId, pageSize);
+             ResultSet resultSet = select.executeQuery()) {
+            while (resultSet.next()) {
+                page.add(toHistoryRow(resultSet));
+            }
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "History query resulted in SQLException");
+            throw new IOException("History query failed", ex);
+        }
+        return page;
+    }
 
+    /***
+     * The cursor keeps its statement open and fetches {@link HistoryQuery#getFetchSize()} rows at a time from the
+     * server
+     */
+    @Override
+    public HistoryCursor streamHistory(HistoryQuery query) throws IOException {
+        checkConnection();
+        PreparedStatement select = null;
+        try {
+            select = prepareHistoryQuery(query, 0, 0);
+            select.setFetchSize(query.getFetchSize());
+            return new ResultSetCursor(select, select.executeQuery());
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "History query resulted in SQLException");
+            closeQuietly(select);
+            throw new IOException("History query failed", ex);
+        }
     }
 
-    public Map<Integer, List<String>> queryRows() {
-        ResultSet resultSet = null;
-        Map<Integer, List<String>> resultMap = new HashMap<>();
+    private void checkConnection() throws IOException {
         try {
-            if(connection.isClosed()) {
+            if (connection == null || connection.isClosed()) {
                 LOGGER.log(Level.WARNING, "Query attempt with closed connection");
                 throw new IllegalStateException("Connection is closed");
             }
-            resultSet = statement.executeQuery(constructSqlQueryString());
-            while(resultSet.next()) {
-                int id = resultSet.getInt("stat_id");
-                String fileName = resultSet.getString("file_name");
-                int serialRanking = resultSet.getInt("ranking_serial");
-                int parallelRanking = resultSet.getInt("ranking_parallel");
-                int g1Ranking = resultSet.getInt("ranking_g1");
-                int zgcRanking = resultSet.getInt("ranking_zgc");
-                int shenandoahRanking = resultSet.getInt("ranking_shenandoah");
-                Timestamp dateCreated = resultSet.getTimestamp("date_created");
-                List<String> strings = new ArrayList<>();
-                Collections.addAll(strings, fileName, String.valueOf(serialRanking),
-                        String.valueOf(parallelRanking), String.valueOf(g1Ranking), String.valueOf(zgcRanking),
-                        String.valueOf(shenandoahRanking), String.valueOf(dateCreated));
-                resultMap.put(id, strings);
+        } catch (SQLException ex) {
+            LOGGER.log(Level.SEVERE, "Connection closed query resulted in SQLException");
+            throw new IOException("Connection state unknown", ex);
+        }
+    }
+
+    //pageSize 0 means no limit
+    private PreparedStatement prepareHistoryQuery(HistoryQuery query, int afterId, int pageSize) throws SQLException {
+        StringBuilder sql = new StringBuilder("SELECT stat_id, file_name, ")
+                .append(String.join(", ", RANKING_COLUMNS.values()))
+                .append(", date_created, jdk_version FROM " + TABLE_NAME + " WHERE stat_id > ?");
+        List<Object> parameters = new ArrayList<>();
+        parameters.add(afterId);
+        if (query.getFileName() != null) {
+            sql.append(" AND file_name = ?");
+            parameters.add(query.getFileName());
+        }
+        if (query.getFrom() != null) {
+            sql.append(" AND date_created >= ?");
+            parameters.add(query.getFrom());
+        }
+        if (query.getTo() != null) {
+            sql.append(" AND date_created < ?");
+            parameters.add(query.getTo());
+        }
+        if (query.getGCType() != null) {
+            sql.append(" AND ").append(RANKING_COLUMNS.get(query.getGCType())).append(" IS NOT NULL");
+        }
+        sql.append(" ORDER BY stat_id");
+        if (pageSize > 0) {
+            sql.append(" LIMIT ?");
+            parameters.add(pageSize);
+        }
+        PreparedStatement select = connection.prepareStatement(sql.toString(), ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+        for (int i = 0; i < parameters.size(); i++) {
+            select.setObject(i + 1, parameters.get(i));
+        }
+        return select;
+    }
+
+    private static HistoryRow toHistoryRow(ResultSet resultSet) throws SQLException {
+        Map<GCType, Integer> rankings = new EnumMap<>(GCType.class);
+        for (var column : RANKING_COLUMNS.entrySet()) {
+            int ranking = resultSet.getInt(column.getValue());
+            rankings.put(column.getKey(), resultSet.wasNull() || ranking == 0 ? null : ranking);
+        }
+        return new HistoryRow(resultSet.getInt("stat_id"), resultSet.getString("file_name"), rankings,
+                resultSet.getTimestamp("date_created"), resultSet.getString("jdk_version"));
+    }
+
+    private static void closeQuietly(Statement statement) {
+        try {
+            if (statement != null) {
+                statement.close();
             }
         } catch (SQLException ex) {
-            LOGGER.log(Level.SEVERE, "Query resulted in SQLException");
-            ex.printStackTrace();
-        } finally {
-            try {
-                if(resultSet != null) {
-                    resultSet.close();
+            LOGGER.log(Level.WARNING, "Statement close attempt failed");
+        }
+    }
+
+    private static final class ResultSetCursor implements HistoryCursor {
+        private final PreparedStatement select;
+        private final ResultSet resultSet;
+        private HistoryRow next;
+        private boolean exhausted;
+
+        private ResultSetCursor(PreparedStatement select, ResultSet resultSet) {
+            this.select = select;
+            this.resultSet = resultSet;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !exhausted) {
+                try {
+                    if (resultSet.next()) {
+                        next = toHistoryRow(resultSet);
+                    } else {
+                        exhausted = true;
+                    }
+                } catch (SQLException ex) {
+                    LOGGER.log(Level.SEVERE, "Fetching history rows resulted in SQLException");
+                    throw new UncheckedIOException(new IOException("Fetching history rows failed", ex));
                 }
-            } catch (SQLException ex) {
-                LOGGER.log(Level.SEVERE, "Closing ResultSet resource failed");
-                ex.printStackTrace();
             }
+            return next != null;
+        }
+
+        @Override
+        public HistoryRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            HistoryRow row = next;
+            next = null;
+            return row;
+        }
+
+        @Override
+        public void close() {
+            closeQuietly(select); //closes the result set too
         }
-        return resultMap;
     }
 
-    private String constructSqlQueryString() {
-        return "SELECT * FROM " + TABLE_NAME + ";";
+    @Override
+    public void open() {
+        createConnectionAndStatement();
     }
 
     public void createConnectionAndStatement() {
@@ -147,9 +595,18 @@ public class DBDriver implements AutoCloseable {
         }
     }
 
+    /***
+     * Opens a connection for a single query, use {@link #queryHistory} or {@link #streamHistory} on a long-lived
+     * store instead
+     * @return every row, empty if the query failed
+     */
+    @Deprecated
     public static Map<Integer, List<String>> getDatabaseRows() {
         try(DBDriver dbDriver = new DBDriver()) {
             return dbDriver.queryRows();
+        } catch (IOException | IllegalStateException ex) {
+            LOGGER.log(Level.SEVERE, "Query resulted in exception: " + ex.getMessage());
+            return new HashMap<>();
         }
     }
 
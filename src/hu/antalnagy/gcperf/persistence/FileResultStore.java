@@ -0,0 +1,448 @@
+package hu.antalnagy.gcperf.persistence;
+
+import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.RunResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+/***
+ * Embedded {@link ResultStore} that needs no database server. Rows are appended as tab separated lines to segment
+ * files in one directory; a batch is written with one write, forced to disk and guarded by a file lock, so concurrent
+ * analyses on the same box don't interleave their rows. A full segment is never written again, the next batch starts a
+ * new one. The id of a row is its position in the store, which is stable because rows are never rewritten. The run
+ * results of a row follow it as serialized {@link RunResult} lines marked with {@value #RUN_MARKER}. A batch is
+ * enclosed in {@value #BEGIN_MARKER} and {@value #COMMIT_MARKER} lines, so a batch torn by a crash is left out as a
+ * whole. Queries scan the segments lazily, holding one batch in memory at a time. The row count of a segment is kept
+ * once a later segment exists, as it can't change anymore, so queries after an id skip the segments before it.
+ */
+public class FileResultStore implements ResultStore {
+
+    static final long SEGMENT_SIZE = 1 << 20;
+    private static final String SEGMENT_PREFIX = "stats-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String SEPARATOR = "\t";
+    private static final int NO_OF_FIELDS = GCType.values().length + 3;
+    private static final String RUN_MARKER = "run";
+    private static final String BEGIN_MARKER = "begin";
+    private static final String COMMIT_MARKER = "commit";
+    private static final Logger LOGGER = Logger.getLogger(FileResultStore.class.getSimpleName());
+
+    private final Path directory;
+    //committed rows per segment number, only for segments followed by another one
+    private final Map<Integer, Integer> segmentRows = new ConcurrentHashMap<>();
+    private FileChannel channel;
+    private int segmentNo;
+
+    public FileResultStore(Path directory) throws IOException {
+        this.directory = directory;
+        open();
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public synchronized void open() throws IOException {
+        if (channel != null) {
+            LOGGER.log(Level.WARNING, "Result store already open");
+            return;
+        }
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        segmentNo = segments.isEmpty() ? 0 : segmentNo(segments.get(segments.size() - 1));
+        openSegment();
+    }
+
+    private void openSegment() throws IOException {
+        channel = FileChannel.open(directory.resolve(segmentName(segmentNo)), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public synchronized void insertAnalyses(List<AnalysisRecord> analyses) throws IOException {
+        if (channel == null) {
+            LOGGER.log(Level.WARNING, "Update attempt with closed result store");
+            throw new IllegalStateException("Result store is closed");
+        }
+        StringBuilder batch = new StringBuilder(BEGIN_MARKER).append("\n");
+        for (AnalysisRecord analysis : analyses) {
+            Map<GCType, Integer> rankings = ResultStore.rankings(analysis.leaderboard());
+            batch.append(escape(analysis.fileName()));
+            for (GCType gcType : GCType.values()) {
+                Integer ranking = rankings.get(gcType);
+                batch.append(SEPARATOR).append(ranking == null ? "" : ranking);
+            }
+            batch.append(SEPARATOR).append(analysis.timeStamp().getTime()).append(SEPARATOR)
+                    .append(analysis.jdkVersion() == null ? "" : escape(analysis.jdkVersion())).append("\n");
+            for (RunResult runResult : analysis.runResults()) {
+                batch.append(RUN_MARKER).append(SEPARATOR).append(runResult.serialize()).append("\n");
+            }
+        }
+        batch.append(COMMIT_MARKER).append("\n");
+        ByteBuffer buffer = ByteBuffer.wrap(batch.toString().getBytes(StandardCharsets.UTF_8));
+        FileLock lock = null;
+        try {
+            lock = lockActiveSegment();
+            long position = channel.size();
+            if (position > 0) {
+                position = terminateTornLine(position);
+            }
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            LOGGER.log(Level.SEVERE, "Writing to the result store failed");
+            throw ex;
+        } finally {
+            if (lock != null && lock.isValid()) {
+                lock.release();
+            }
+        }
+    }
+
+    //locks the last segment, rolling over to a new one if it is full or another process rolled over meanwhile
+    private FileLock lockActiveSegment() throws IOException {
+        while (true) {
+            FileLock lock = channel.lock();
+            List<Path> segments = segments();
+            int lastSegmentNo = segmentNo(segments.get(segments.size() - 1));
+            if (lastSegmentNo == segmentNo && channel.size() < SEGMENT_SIZE) {
+                return lock;
+            }
+            lock.release();
+            channel.close();
+            segmentNo = lastSegmentNo == segmentNo ? segmentNo + 1 : lastSegmentNo;
+            openSegment();
+        }
+    }
+
+    //a crash in the middle of a batch leaves a line without line break, which must not swallow the next batch
+    private long terminateTornLine(long size) throws IOException {
+        ByteBuffer lastByte = ByteBuffer.allocate(1);
+        channel.read(lastByte, size - 1);
+        if (lastByte.get(0) == '\n') {
+            return size;
+        }
+        channel.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+        return size + 1;
+    }
+
+    @Override
+    public List<HistoryRow> queryHistory(HistoryQuery query, int afterId, int pageSize) throws IOException {
+        if (pageSize < 1) {
+            LOGGER.log(Level.SEVERE, "Invalid history page size: " + pageSize);
+            throw new IllegalArgumentException("Page size should be at least 1!");
+        }
+        List<HistoryRow> page = new ArrayList<>();
+        try (RowReader reader = new RowReader(false, afterId)) {
+            while (page.size() < pageSize && reader.hasNext()) {
+                HistoryRow row = reader.next().row();
+                if (row.id() > afterId && query.matches(row)) {
+                    page.add(row);
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return page;
+    }
+
+    /***
+     * The cursor reads the segments lazily and holds one batch at a time, regardless of the fetch size
+     */
+    @Override
+    public HistoryCursor streamHistory(HistoryQuery query) throws IOException {
+        RowReader reader = new RowReader(false, 0);
+        return new HistoryCursor() {
+            private HistoryRow next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null && reader.hasNext()) {
+                    HistoryRow row = reader.next().row();
+                    if (query.matches(row)) {
+                        next = row;
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public HistoryRow next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                HistoryRow row = next;
+                next = null;
+                return row;
+            }
+
+            @Override
+            public void close() {
+                reader.close();
+            }
+        };
+    }
+
+    @Override
+    public Map<Integer, List<RunResult>> queryRuns() throws IOException {
+        Map<Integer, List<RunResult>> runsMap = new LinkedHashMap<>();
+        try (RowReader reader = new RowReader(true, 0)) {
+            while (reader.hasNext()) {
+                StoredRow storedRow = reader.next();
+                if (!storedRow.runs().isEmpty()) {
+                    runsMap.put(storedRow.row().id(), storedRow.runs());
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return runsMap;
+    }
+
+    /***
+     * Reads the segments from the one of the least requested id up to the greatest requested id only
+     */
+    @Override
+    public Map<Integer, List<RunResult>> queryRuns(Collection<Integer> ids) throws IOException {
+        Map<Integer, List<RunResult>> runsMap = new LinkedHashMap<>();
+        if (ids.isEmpty()) {
+            return runsMap;
+        }
+        Set<Integer> requested = new HashSet<>(ids);
+        int lastId = Collections.max(requested);
+        try (RowReader reader = new RowReader(true, Collections.min(requested) - 1)) {
+            while (reader.hasNext()) {
+                StoredRow storedRow = reader.next();
+                int id = storedRow.row().id();
+                if (requested.contains(id) && !storedRow.runs().isEmpty()) {
+                    runsMap.put(id, storedRow.runs());
+                }
+                if (id >= lastId) {
+                    break;
+                }
+            }
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return runsMap;
+    }
+
+    private record StoredRow(HistoryRow row, List<RunResult> runs) {}
+
+    /***
+     * Reads the rows of the store segment by segment, holding one batch at a time. Only batches ending with their
+     * commit line are read, a batch torn by a crash is dropped at the next begin line or the end of its segment. Run
+     * lines are always parsed, so the ids don't depend on whether the run results are kept. Starts at the segment of
+     * the row after the given id if the row counts of the segments before it are known, at the first segment if not.
+     */
+    private class RowReader implements Iterator<StoredRow>, AutoCloseable {
+        private final Iterator<Path> segments;
+        private final Path lastSegment;
+        private final boolean withRuns;
+        private final Deque<StoredRow> committed = new ArrayDeque<>();
+        private final List<HistoryRow> rows = new ArrayList<>();
+        private final List<List<RunResult>> runs = new ArrayList<>();
+        private BufferedReader reader;
+        private Path segment;
+        private boolean torn;
+        private int id;
+        private int segmentFirstId;
+
+        private RowReader(boolean withRuns, int afterId) throws IOException {
+            List<Path> allSegments = segments();
+            int first = 0;
+            while (first < allSegments.size() - 1) {
+                Integer rowCount = segmentRows.get(segmentNo(allSegments.get(first)));
+                if (rowCount == null || id + rowCount > afterId) {
+                    break;
+                }
+                id += rowCount;
+                first++;
+            }
+            this.segments = allSegments.subList(first, allSegments.size()).iterator();
+            this.lastSegment = allSegments.isEmpty() ? null : allSegments.get(allSegments.size() - 1);
+            this.withRuns = withRuns;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (committed.isEmpty()) {
+                    if (reader == null) {
+                        if (!segments.hasNext()) {
+                            return false;
+                        }
+                        segment = segments.next();
+                        segmentFirstId = id;
+                        reader = Files.newBufferedReader(segment, StandardCharsets.UTF_8);
+                    }
+                    readBatch();
+                }
+                return true;
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+
+        @Override
+        public StoredRow next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return committed.poll();
+        }
+
+        //reads up to the next commit line, or to the end of the segment
+        private void readBatch() throws IOException {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.equals(BEGIN_MARKER)) {
+                    resetBatch();
+                    continue;
+                }
+                if (line.equals(COMMIT_MARKER)) {
+                    if (!torn) {
+                        for (int i = 0; i < rows.size(); i++) {
+                            HistoryRow row = rows.get(i);
+                            committed.add(new StoredRow(new HistoryRow(++id, row.fileName(), row.rankings(),
+                                    row.dateCreated(), row.jdkVersion()), runs.get(i)));
+                        }
+                    }
+                    resetBatch();
+                    return;
+                }
+                if (torn) {
+                    continue;
+                }
+                try {
+                    if (line.startsWith(RUN_MARKER + SEPARATOR)) {
+                        RunResult runResult = RunResult.deserialize(
+                                line.substring(RUN_MARKER.length() + SEPARATOR.length()));
+                        if (withRuns) {
+                            runs.get(runs.size() - 1).add(runResult);
+                        }
+                    } else {
+                        rows.add(parseRow(line));
+                        runs.add(new ArrayList<>());
+                    }
+                } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+                    LOGGER.log(Level.WARNING, "Skipping torn batch in " + segment.getFileName());
+                    torn = true;
+                }
+            }
+            resetBatch();
+            close();
+            //no batch is written to a segment once a later one exists
+            if (!segment.equals(lastSegment)) {
+                segmentRows.put(segmentNo(segment), id - segmentFirstId);
+            }
+        }
+
+        private void resetBatch() {
+            rows.clear();
+            runs.clear();
+            torn = false;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (reader != null) {
+                    reader.close();
+                }
+            } catch (IOException ex) {
+                LOGGER.log(Level.WARNING, "Closing segment " + segment.getFileName() + " failed");
+            } finally {
+                reader = null;
+            }
+        }
+    }
+
+    //the id is assigned once the batch of the row is committed
+    private static HistoryRow parseRow(String line) {
+        String[] fields = line.split(SEPARATOR, -1);
+        if (fields.length != NO_OF_FIELDS) {
+            throw new IllegalArgumentException("Malformed row: expected " + NO_OF_FIELDS + " fields, found " +
+                    fields.length);
+        }
+        int noOfRankings = NO_OF_FIELDS - 3;
+        Map<GCType, Integer> rankings = new EnumMap<>(GCType.class);
+        for (int i = 1; i <= noOfRankings; i++) {
+            rankings.put(GCType.values()[i - 1], fields[i].isEmpty() ? null : Integer.valueOf(fields[i]));
+        }
+        return new HistoryRow(0, unescape(fields[0]), rankings,
+                new Timestamp(Long.parseLong(fields[noOfRankings + 1])),
+                fields[noOfRankings + 2].isEmpty() ? null : unescape(fields[noOfRankings + 2]));
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(SEGMENT_PREFIX) &&
+                    file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted(Comparator.comparingInt(FileResultStore::segmentNo)).toList();
+        }
+    }
+
+    private static String segmentName(int segmentNo) {
+        return SEGMENT_PREFIX + String.format("%06d", segmentNo) + SEGMENT_SUFFIX;
+    }
+
+    private static int segmentNo(Path segment) {
+        String name = segment.getFileName().toString();
+        return Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n").replace("\r", "\\r");
+    }
+
+    private static String unescape(String value) {
+        StringBuilder unescaped = new StringBuilder();
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    @Override
+    public synchronized void close() {
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Result store close attempt failed");
+            ex.printStackTrace();
+        } finally {
+            channel = null;
+        }
+    }
+}
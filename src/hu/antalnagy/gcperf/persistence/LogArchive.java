@@ -0,0 +1,338 @@
+package hu.antalnagy.gcperf.persistence;
+
+import hu.antalnagy.gcperf.LogDecorators;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/***
+ * Compressed archive of the GC logs of finished runs, so they outlive the workspaces they were written to. Every log
+ * is stored in one file of independently deflated blocks of whole lines, followed by an index with the offset, the
+ * uptime range and the GC id range of each block. A time window or GC id range is read by inflating only the blocks
+ * overlapping it. Entries are named after the SHA-256 of the original log path, like the entries of {@link RunCache}.
+ */
+public class LogArchive {
+
+    static final int BLOCK_SIZE = 64 * 1024; //uncompressed bytes per block
+    private static final int MAGIC = 0x47434c5a; //GCLZ
+    private static final int VERSION = 1;
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + 3 * Integer.BYTES + 2 * Double.BYTES + 2 * Integer.BYTES;
+    private static final int FOOTER_SIZE = Long.BYTES + 3 * Integer.BYTES;
+    private static final Pattern gcIdPattern = Pattern.compile("\\bGC\\((\\d+)\\)");
+    private static final Logger LOGGER = Logger.getLogger(LogArchive.class.getSimpleName());
+
+    private final Path directory;
+
+    public LogArchive(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /***
+     * Index entry of a block
+     * @param offset offset of the compressed block in the archive file
+     * @param compressedLength length of the compressed block in bytes
+     * @param length length of the uncompressed block in bytes
+     * @param lines number of lines in the block
+     * @param minUptime lowest uptime decorator of the block in seconds, NaN if no line has one
+     * @param maxUptime highest uptime decorator of the block in seconds, NaN if no line has one
+     * @param minGcId lowest GC id of the block, -1 if no line has one
+     * @param maxGcId highest GC id of the block, -1 if no line has one
+     */
+    public record Block(long offset, int compressedLength, int length, int lines, double minUptime, double maxUptime,
+                        int minGcId, int maxGcId) {
+
+        private boolean overlapsUptimes(double from, double to) {
+            return !Double.isNaN(minUptime) && minUptime <= to && maxUptime >= from;
+        }
+
+        private boolean overlapsGcIds(int from, int to) {
+            return minGcId >= 0 && minGcId <= to && maxGcId >= from;
+        }
+    }
+
+    /***
+     * Archives the log, replacing an earlier archive of the same path. The archive is written to a temporary file
+     * first and moved in place, so readers never see a partial archive.
+     * @return the archive file
+     */
+    public Path archive(Path logFile) throws IOException {
+        Path entry = entryPath(logFile);
+        Files.createDirectories(entry.getParent());
+        Path temp = Files.createTempFile(entry.getParent(), entry.getFileName().toString(), ".tmp");
+        List<Block> blocks = new ArrayList<>();
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try (BufferedReader reader = Files.newBufferedReader(logFile, StandardCharsets.UTF_8);
+             FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            BlockBuilder builder = new BlockBuilder();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                builder.add(line);
+                if (builder.size() >= BLOCK_SIZE) {
+                    blocks.add(builder.write(channel, deflater));
+                    builder = new BlockBuilder();
+                }
+            }
+            if (builder.lines > 0) {
+                blocks.add(builder.write(channel, deflater));
+            }
+            ByteBuffer index = ByteBuffer.allocate(blocks.size() * INDEX_ENTRY_SIZE + FOOTER_SIZE);
+            for (Block block : blocks) {
+                index.putLong(block.offset()).putInt(block.compressedLength()).putInt(block.length())
+                        .putInt(block.lines()).putDouble(block.minUptime()).putDouble(block.maxUptime())
+                        .putInt(block.minGcId()).putInt(block.maxGcId());
+            }
+            index.putLong(channel.position()).putInt(blocks.size()).putInt(VERSION).putInt(MAGIC);
+            index.flip();
+            while (index.hasRemaining()) {
+                channel.write(index);
+            }
+            channel.force(false);
+        } catch (IOException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        } finally {
+            deflater.end();
+        }
+        Files.move(temp, entry, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LOGGER.log(Level.FINE, "Archived " + logFile + " in " + blocks.size() + " block(s)");
+        return entry;
+    }
+
+    /***
+     * @param logFile original path of an archived log
+     * @return a reader of the archived log, or empty if the log was not archived
+     */
+    public Optional<Reader> open(Path logFile) throws IOException {
+        Path entry = entryPath(logFile);
+        return Files.isRegularFile(entry) ? Optional.of(new Reader(entry)) : Optional.empty();
+    }
+
+    private Path entryPath(Path logFile) {
+        String key = Digests.sha256(logFile.toAbsolutePath().normalize().toString());
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2) + ".gclz");
+    }
+
+    private static class BlockBuilder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private int lines;
+        private double minUptime = Double.NaN;
+        private double maxUptime = Double.NaN;
+        private int minGcId = -1;
+        private int maxGcId = -1;
+
+        private void add(String line) {
+            bytes.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+            bytes.write('\n');
+            lines++;
+            double uptime = LogDecorators.uptime(line);
+            if (!Double.isNaN(uptime)) {
+                minUptime = Double.isNaN(minUptime) ? uptime : Double.min(minUptime, uptime);
+                maxUptime = Double.isNaN(maxUptime) ? uptime : Double.max(maxUptime, uptime);
+            }
+            int gcId = gcId(line);
+            if (gcId >= 0) {
+                minGcId = minGcId < 0 ? gcId : Integer.min(minGcId, gcId);
+                maxGcId = Integer.max(maxGcId, gcId);
+            }
+        }
+
+        private int size() {
+            return bytes.size();
+        }
+
+        private Block write(FileChannel channel, Deflater deflater) throws IOException {
+            byte[] input = bytes.toByteArray();
+            deflater.reset();
+            deflater.setInput(input);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            long offset = channel.position();
+            ByteBuffer block = ByteBuffer.wrap(compressed.toByteArray());
+            while (block.hasRemaining()) {
+                channel.write(block);
+            }
+            return new Block(offset, compressed.size(), input.length, lines, minUptime, maxUptime, minGcId, maxGcId);
+        }
+    }
+
+    private static int gcId(String line) {
+        Matcher matcher = gcIdPattern.matcher(line);
+        if (!matcher.find()) {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(matcher.group(1));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    public static final class Reader implements AutoCloseable {
+
+        private final FileChannel channel;
+        private final List<Block> blocks = new ArrayList<>();
+
+        private Reader(Path entry) throws IOException {
+            channel = FileChannel.open(entry, StandardOpenOption.READ);
+            try {
+                long size = channel.size();
+                if (size < FOOTER_SIZE) {
+                    throw new IllegalArgumentException("Not a GC log archive: " + entry);
+                }
+                ByteBuffer footer = read(size - FOOTER_SIZE, FOOTER_SIZE);
+                long indexOffset = footer.getLong();
+                int blockCount = footer.getInt();
+                int version = footer.getInt();
+                if (footer.getInt() != MAGIC || version != VERSION ||
+                        indexOffset + (long) blockCount * INDEX_ENTRY_SIZE != size - FOOTER_SIZE) {
+                    throw new IllegalArgumentException("Not a GC log archive: " + entry);
+                }
+                ByteBuffer index = read(indexOffset, blockCount * INDEX_ENTRY_SIZE);
+                for (int i = 0; i < blockCount; i++) {
+                    blocks.add(new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt(),
+                            index.getDouble(), index.getDouble(), index.getInt(), index.getInt()));
+                }
+            } catch (IOException | RuntimeException ex) {
+                channel.close();
+                throw ex;
+            }
+        }
+
+        public List<Block> getBlocks() {
+            return new ArrayList<>(blocks);
+        }
+
+        /***
+         * @return every line of the log
+         */
+        public List<String> readAll() throws IOException {
+            List<String> lines = new ArrayList<>();
+            for (Block block : blocks) {
+                lines.addAll(inflate(block));
+            }
+            return lines;
+        }
+
+        /***
+         * Inflates only the blocks overlapping the window
+         * @param from start of the window (uptime in seconds, inclusive)
+         * @param to end of the window (uptime in seconds, inclusive)
+         * @return the lines with an uptime decorator within the window, in log order
+         */
+        public List<String> readUptimeWindow(double from, double to) throws IOException {
+            List<String> lines = new ArrayList<>();
+            for (Block block : blocks) {
+                if (!block.overlapsUptimes(from, to)) {
+                    continue;
+                }
+                for (String line : inflate(block)) {
+                    double uptime = LogDecorators.uptime(line);
+                    if (uptime >= from && uptime <= to) {
+                        lines.add(line);
+                    }
+                }
+            }
+            return lines;
+        }
+
+        /***
+         * Inflates only the blocks overlapping the range
+         * @return the lines of the collections with a GC id between from and to (inclusive), in log order
+         */
+        public List<String> readGcIds(int from, int to) throws IOException {
+            List<String> lines = new ArrayList<>();
+            for (Block block : blocks) {
+                if (!block.overlapsGcIds(from, to)) {
+                    continue;
+                }
+                for (String line : inflate(block)) {
+                    int gcId = gcId(line);
+                    if (gcId >= from && gcId <= to) {
+                        lines.add(line);
+                    }
+                }
+            }
+            return lines;
+        }
+
+        private List<String> inflate(Block block) throws IOException {
+            byte[] compressed = read(block.offset(), block.compressedLength()).array();
+            byte[] bytes = new byte[block.length()];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int length = 0;
+                while (length < bytes.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(bytes, length, bytes.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != bytes.length) {
+                    throw new IOException("Corrupt block at offset " + block.offset());
+                }
+            } catch (DataFormatException ex) {
+                throw new IOException("Corrupt block at offset " + block.offset(), ex);
+            } finally {
+                inflater.end();
+            }
+            List<String> lines = new ArrayList<>(block.lines());
+            int start = 0;
+            for (int i = 0; i < bytes.length; i++) {
+                if (bytes[i] == '\n') {
+                    lines.add(new String(bytes, start, i - start, StandardCharsets.UTF_8));
+                    start = i + 1;
+                }
+            }
+            return lines;
+        }
+
+        private ByteBuffer read(long position, int length) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of archive");
+                }
+            }
+            buffer.flip();
+            return buffer;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package hu.antalnagy.gcperf.persistence;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Long-lived write-behind front of a {@link ResultStore}. Analyses are submitted to a bounded queue without blocking
+ * and written by one background thread, which drains the queue into one batch per write, so the store (and its
+ * connection) stays open across analyses and a slow store never stalls the caller. If the queue is full the analyses
+ * are rejected and counted instead of waiting. {@link #close()}, also run by a shutdown hook, writes every queued
+ * analysis before the store is closed.
+ */
+public class PersistenceService implements AutoCloseable {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+    private static final int MAX_BATCH_SIZE = 256;
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final Duration CLOSE_TIMEOUT = Duration.ofSeconds(30);
+    private static final Logger LOGGER = Logger.getLogger(PersistenceService.class.getSimpleName());
+
+    private final ResultStore resultStore;
+    private final BlockingQueue<ResultStore.AnalysisRecord> queue;
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private final Object lock = new Object();
+    private long pending; //submitted, but not written or failed yet
+    private long written;
+    private long failed;
+    private long rejected;
+    private volatile boolean closed;
+    private volatile boolean abandoned; //close timed out: the writer stops after its current batch
+
+    public PersistenceService(ResultStore resultStore) {
+        this(resultStore, DEFAULT_CAPACITY);
+    }
+
+    /***
+     * @param resultStore open store, closed by {@link #close()}
+     * @param capacity maximum number of queued analyses
+     */
+    public PersistenceService(ResultStore resultStore, int capacity) {
+        if (capacity < 1) {
+            LOGGER.log(Level.SEVERE, "Invalid persistence queue capacity: " + capacity);
+            throw new IllegalArgumentException("Persistence queue capacity must be at least 1");
+        }
+        this.resultStore = resultStore;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.writer = new Thread(this::writeBehind, "gcperf-persistence");
+        this.writer.setDaemon(true);
+        this.writer.start();
+        this.shutdownHook = new Thread(this::close, "gcperf-persistence-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    public ResultStore getResultStore() {
+        return resultStore;
+    }
+
+    /***
+     * Queues the analyses without blocking
+     * @return false if the queue had no room for every analysis; the analyses without room are not written
+     */
+    public boolean submit(List<ResultStore.AnalysisRecord> analyses) {
+        boolean accepted = true;
+        synchronized (lock) { //close() can't slip in between, so the writer drains everything accepted here
+            if (closed) {
+                LOGGER.log(Level.WARNING, "Submit attempt to closed persistence service");
+                throw new IllegalStateException("Persistence service is closed");
+            }
+            for (ResultStore.AnalysisRecord analysis : analyses) {
+                if (queue.offer(analysis)) {
+                    pending++;
+                } else {
+                    rejected++;
+                    accepted = false;
+                }
+            }
+        }
+        if (!accepted) {
+            LOGGER.log(Level.SEVERE, "Persistence queue full, analyses of " + analyses.get(0).fileName() +
+                    " were not stored");
+        }
+        return accepted;
+    }
+
+    private void writeBehind() {
+        List<ResultStore.AnalysisRecord> batch = new ArrayList<>();
+        while (!abandoned && (!closed || !queue.isEmpty())) {
+            try {
+                ResultStore.AnalysisRecord first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException ex) {
+                continue; //only stops once closed and drained, or abandoned
+            }
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            boolean success = false;
+            try {
+                resultStore.insertAnalyses(batch);
+                success = true;
+            } catch (IOException | RuntimeException ex) {
+                LOGGER.log(Level.SEVERE, "Writing " + batch.size() + " analyses failed: " + ex.getMessage());
+            }
+            synchronized (lock) {
+                pending -= batch.size();
+                if (success) {
+                    written += batch.size();
+                } else {
+                    failed += batch.size();
+                }
+                lock.notifyAll();
+            }
+            batch.clear();
+        }
+    }
+
+    /***
+     * Waits until every analysis submitted so far is written (or failed)
+     * @return false if the timeout elapsed first
+     */
+    public boolean flush(Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        synchronized (lock) {
+            while (pending > 0) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return false;
+                }
+                TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+            }
+            return true;
+        }
+    }
+
+    public long getWritten() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    public long getFailed() {
+        synchronized (lock) {
+            return failed;
+        }
+    }
+
+    public long getRejected() {
+        synchronized (lock) {
+            return rejected;
+        }
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /***
+     * Stops accepting analyses, writes the queued ones and closes the store. If the queue isn't drained within the
+     * timeout, the writer is interrupted and stops after its current batch; the store is closed only once the writer
+     * has stopped, never under an in-flight write.
+     */
+    @Override
+    public void close() {
+        close(CLOSE_TIMEOUT);
+    }
+
+    /***
+     * @param timeout time given to the writer to drain the queue, see {@link #close()}
+     */
+    public void close(Duration timeout) {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        boolean interrupted = false;
+        try {
+            writer.join(Math.max(1, timeout.toMillis()));
+        } catch (InterruptedException ex) {
+            interrupted = true;
+        }
+        if (writer.isAlive()) {
+            LOGGER.log(Level.SEVERE, "Persistence queue not drained in time, " + queue.size() +
+                    " analyses were not stored");
+            abandoned = true;
+            writer.interrupt();
+            while (writer.isAlive()) {
+                try {
+                    writer.join();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                }
+            }
+        }
+        resultStore.close();
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ex) {
+                //the JVM is already shutting down
+            }
+        }
+    }
+}
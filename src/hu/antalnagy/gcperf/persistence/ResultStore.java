@@ -0,0 +1,255 @@
+package hu.antalnagy.gcperf.persistence;
+
+import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.RunResult;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/***
+ * Store of finished analyses. Every row holds the ranking of each GC Type (null if the GC Type was not analysed) for a
+ * target file and JDK version, together with the raw results of its runs. {@link FileResultStore} is the embedded
+ * default, {@link DBDriver} the optional MySQL backend. History is browsed with a {@link HistoryQuery}, either a page at
+ * a time ({@link #queryHistory}) or through a cursor fetching a bounded number of rows at a time
+ * ({@link #streamHistory}).
+ */
+public interface ResultStore extends AutoCloseable {
+
+    /***
+     * One analysis on one JDK
+     * @param jdkVersion JDK version, may be null
+     * @param leaderboard GC Types, best first
+     * @param runResults every successful run of the analysis with its heap configuration
+     */
+    record AnalysisRecord(Timestamp timeStamp, String fileName, String jdkVersion, List<GCType> leaderboard,
+                          List<RunResult> runResults) {
+        public AnalysisRecord {
+            leaderboard = List.copyOf(leaderboard);
+            runResults = List.copyOf(runResults);
+        }
+    }
+
+    /***
+     * A row of the store
+     * @param id id of the row, ascending in insertion order
+     * @param rankings 1-based ranking per GC Type, null for the GC Types not analysed
+     * @param jdkVersion JDK version, may be null
+     */
+    record HistoryRow(int id, String fileName, Map<GCType, Integer> rankings, Timestamp dateCreated,
+                      String jdkVersion) {
+        public HistoryRow {
+            Map<GCType, Integer> copy = new EnumMap<>(GCType.class);
+            for (GCType gcType : GCType.values()) {
+                copy.put(gcType, rankings.get(gcType));
+            }
+            rankings = Collections.unmodifiableMap(copy);
+        }
+
+        /***
+         * @return the analysed GC Types, best first
+         */
+        public List<GCType> leaderboard() {
+            return rankings.entrySet().stream().filter(entry -> entry.getValue() != null)
+                    .sorted(Map.Entry.comparingByValue()).map(Map.Entry::getKey).toList();
+        }
+
+        /***
+         * @return the row in the format of {@link #queryRows()}
+         */
+        public List<String> toStrings() {
+            List<String> strings = new ArrayList<>();
+            strings.add(fileName);
+            for (GCType gcType : GCType.values()) {
+                Integer ranking = rankings.get(gcType);
+                strings.add(String.valueOf(ranking == null ? 0 : ranking));
+            }
+            strings.add(String.valueOf(dateCreated));
+            strings.add(String.valueOf(jdkVersion));
+            return strings;
+        }
+    }
+
+    /***
+     * Filter of the rows returned by {@link #queryHistory} and {@link #streamHistory}, every criterion left unset
+     * matches all rows
+     */
+    final class HistoryQuery {
+
+        public static final int DEFAULT_FETCH_SIZE = 500;
+
+        private String fileName;
+        private Timestamp from;
+        private Timestamp to;
+        private GCType gcType;
+        private int fetchSize = DEFAULT_FETCH_SIZE;
+
+        /***
+         * @param fileName only the rows of this target file
+         * @return this
+         */
+        public HistoryQuery withFileName(String fileName) {
+            this.fileName = fileName;
+            return this;
+        }
+
+        /***
+         * @param from only the rows created at or after this time, may be null
+         * @param to only the rows created before this time, may be null
+         * @return this
+         */
+        public HistoryQuery withDateRange(Timestamp from, Timestamp to) {
+            if (from != null && to != null && !from.before(to)) {
+                throw new IllegalArgumentException("Start of the date range should be before its end!");
+            }
+            this.from = from;
+            this.to = to;
+            return this;
+        }
+
+        /***
+         * @param gcType only the rows in which this GC Type was analysed
+         * @return this
+         */
+        public HistoryQuery withGCType(GCType gcType) {
+            this.gcType = gcType;
+            return this;
+        }
+
+        /***
+         * @param fetchSize number of rows a cursor fetches at a time
+         * @return this
+         */
+        public HistoryQuery withFetchSize(int fetchSize) {
+            if (fetchSize < 1) {
+                throw new IllegalArgumentException("Fetch size should be at least 1!");
+            }
+            this.fetchSize = fetchSize;
+            return this;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public Timestamp getFrom() {
+            return from == null ? null : new Timestamp(from.getTime());
+        }
+
+        public Timestamp getTo() {
+            return to == null ? null : new Timestamp(to.getTime());
+        }
+
+        public GCType getGCType() {
+            return gcType;
+        }
+
+        public int getFetchSize() {
+            return fetchSize;
+        }
+
+        public boolean matches(HistoryRow row) {
+            return (fileName == null || fileName.equals(row.fileName())) &&
+                    (from == null || !row.dateCreated().before(from)) &&
+                    (to == null || row.dateCreated().before(to)) &&
+                    (gcType == null || row.rankings().get(gcType) != null);
+        }
+    }
+
+    /***
+     * Rows of a {@link HistoryQuery} in ascending id order, fetched lazily. Must be closed. A read failure during the
+     * iteration is thrown as {@link UncheckedIOException}.
+     */
+    interface HistoryCursor extends Iterator<HistoryRow>, AutoCloseable {
+        @Override
+        void close();
+    }
+
+    /***
+     * Reopens the store after {@link #close()}, does nothing if it is open
+     */
+    void open() throws IOException;
+
+    /***
+     * Writes the analyses in one batch, all or none of them
+     */
+    void insertAnalyses(List<AnalysisRecord> analyses) throws IOException;
+
+    /***
+     * Writes the leaderboards without run results in one batch
+     * @param leaderboardsByJdkVersion leaderboard per JDK version, the version may be null
+     */
+    default void insertRows(Timestamp timeStamp, String fileName, Map<String, List<GCType>> leaderboardsByJdkVersion)
+            throws IOException {
+        List<AnalysisRecord> analyses = new ArrayList<>();
+        leaderboardsByJdkVersion.forEach((jdkVersion, leaderboard) ->
+                analyses.add(new AnalysisRecord(timeStamp, fileName, jdkVersion, leaderboard, List.of())));
+        insertAnalyses(analyses);
+    }
+
+    default void insertRow(Timestamp timeStamp, String fileName, String jdkVersion, List<GCType> leaderBoard)
+            throws IOException {
+        insertRows(timeStamp, fileName, Collections.singletonMap(jdkVersion, leaderBoard));
+    }
+
+    default void insertRow(Timestamp timeStamp, String fileName, List<GCType> leaderBoard) throws IOException {
+        insertRow(timeStamp, fileName, null, leaderBoard);
+    }
+
+    /***
+     * Reads one page of the matching rows; the next page starts after the id of the last row of this one
+     * @param afterId only the rows with a greater id, 0 for the first page
+     * @param pageSize maximum number of rows returned
+     * @return the matching rows in ascending id order, fewer than pageSize on the last page
+     */
+    List<HistoryRow> queryHistory(HistoryQuery query, int afterId, int pageSize) throws IOException;
+
+    /***
+     * Opens a cursor over the matching rows, which holds at most {@link HistoryQuery#getFetchSize()} rows in memory
+     */
+    HistoryCursor streamHistory(HistoryQuery query) throws IOException;
+
+    /***
+     * Reads every row into memory, prefer {@link #queryHistory} or {@link #streamHistory} on large stores
+     * @return rows by id: file name, rankings of SERIAL, PARALLEL, G1, ZGC, SHENANDOAH and CMS (0 if not analysed),
+     * date created and JDK version
+     */
+    default Map<Integer, List<String>> queryRows() throws IOException {
+        Map<Integer, List<String>> rows = new LinkedHashMap<>();
+        try (HistoryCursor cursor = streamHistory(new HistoryQuery())) {
+            cursor.forEachRemaining(row -> rows.put(row.id(), row.toStrings()));
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        }
+        return rows;
+    }
+
+    /***
+     * @return run results by the id of their row in {@link #queryRows()}, rows without run results are left out
+     */
+    Map<Integer, List<RunResult>> queryRuns() throws IOException;
+
+    /***
+     * @param ids ids of rows in {@link #queryRows()}, e.g. from {@link #streamHistory}
+     * @return run results of the given rows by their id, rows without run results and unknown ids are left out
+     */
+    Map<Integer, List<RunResult>> queryRuns(Collection<Integer> ids) throws IOException;
+
+    @Override
+    void close();
+
+    /***
+     * @return 1-based ranking per GC Type, null for the GC Types missing from the leaderboard
+     */
+    static Map<GCType, Integer> rankings(List<GCType> leaderBoard) {
+        Map<GCType, Integer> rankings = new EnumMap<>(GCType.class);
+        for(GCType gcType : GCType.values()) {
+            rankings.put(gcType, null);
+        }
+        for(int i = 0; i < leaderBoard.size(); i++) {
+            rankings.replace(leaderBoard.get(i), i+1);
+        }
+        return rankings;
+    }
+}
@@ -0,0 +1,83 @@
+package hu.antalnagy.gcperf.persistence;
+
+import hu.antalnagy.gcperf.RunResult;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Content-addressed cache of run results. Every entry is one file named after the SHA-256 key of the run
+ * (target file, JDK version, full command line and run index), so a configuration that was already measured does not
+ * have to be launched again.
+ */
+public class RunCache {
+
+    private static final Logger LOGGER = Logger.getLogger(RunCache.class.getSimpleName());
+
+    private final Path directory;
+
+    public RunCache(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /***
+     * @param key SHA-256 key of the run
+     * @return the cached run, or empty if the run wasn't measured yet or its entry is unreadable
+     */
+    public Optional<RunResult> lookup(String key) {
+        Path entry = entryPath(key);
+        if (!Files.exists(entry)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(RunResult.deserialize(Files.readString(entry, StandardCharsets.UTF_8).strip()));
+        } catch (IOException | IllegalArgumentException ex) {
+            LOGGER.log(Level.WARNING, "Ignoring unreadable cache entry " + entry + ": " + ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /***
+     * Stores the run under the key. The entry is written to a temporary file first and moved in place, so concurrent
+     * or interrupted analyses never see a partial entry.
+     */
+    public void store(String key, RunResult runResult) throws IOException {
+        Path entry = entryPath(key);
+        Files.createDirectories(entry.getParent());
+        Path tempFile = Files.createTempFile(entry.getParent(), key, ".tmp");
+        try {
+            Files.writeString(tempFile, runResult.serialize() + "\n", StandardCharsets.UTF_8);
+            try {
+                Files.move(tempFile, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(tempFile, entry, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    //two character fan-out keeps the directories small
+    private Path entryPath(String key) {
+        if (key == null || key.length() < 3 || !key.matches("[0-9a-f]+")) {
+            throw new IllegalArgumentException("Cache key must be a hex digest");
+        }
+        return directory.resolve(key.substring(0, 2)).resolve(key.substring(2));
+    }
+}
@@ -0,0 +1,117 @@
+package hu.antalnagy.gcperf.persistence;
+
+import hu.antalnagy.gcperf.RunResult;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Append-only journal of completed runs. Every run is written as one line (configuration key, run id and the
+ * serialized {@link RunResult}) and forced to disk before the next run starts, so a crashed or killed analysis can be
+ * resumed by skipping the runs already recorded for the same target and configuration.
+ */
+public class RunJournal implements AutoCloseable {
+
+    private static final String SEPARATOR = "\t";
+    private static final Logger LOGGER = Logger.getLogger(RunJournal.class.getSimpleName());
+
+    private final Path file;
+    private FileChannel channel;
+
+    public RunJournal(Path file) throws IOException {
+        this.file = file;
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        terminateTornLine();
+    }
+
+    //a crash in the middle of an append leaves a line without line break, which must not swallow the next run
+    private void terminateTornLine() throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return;
+        }
+        ByteBuffer lastByte = ByteBuffer.allocate(1);
+        channel.read(lastByte, size - 1);
+        if (lastByte.get(0) != '\n') {
+            channel.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+            channel.force(false);
+        }
+    }
+
+    public static Logger getLOGGER() {
+        return LOGGER;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    public synchronized void append(String configKey, RunResult runResult) throws IOException {
+        if (channel == null) {
+            LOGGER.log(Level.WARNING, "Append attempt to closed journal");
+            throw new IllegalStateException("Journal is closed");
+        }
+        String line = configKey + SEPARATOR + runResult.getRunId() + SEPARATOR + runResult.serialize() + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+        long position = channel.size();
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        channel.force(false);
+    }
+
+    /***
+     * @param configKey configuration key of the analysis
+     * @return every run recorded for the configuration, in journal order. A torn last line of a crashed analysis
+     * is skipped.
+     */
+    public synchronized List<RunResult> load(String configKey) throws IOException {
+        List<RunResult> runResults = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                String[] split = line.split(SEPARATOR, 3);
+                if (split.length < 3 || !split[0].equals(configKey)) {
+                    continue;
+                }
+                try {
+                    runResults.add(RunResult.deserialize(split[2]));
+                } catch (IllegalArgumentException ex) {
+                    LOGGER.log(Level.WARNING, "Skipping malformed journal line " + lineNo + " of " + file + ": " +
+                            ex.getMessage());
+                }
+            }
+        }
+        return runResults;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Closing journal " + file + " failed");
+            ex.printStackTrace();
+        }
+        channel = null;
+    }
+}
@@ -4,6 +4,7 @@ import com.github.sh0nk.matplotlib4j.Plot;
 import com.github.sh0nk.matplotlib4j.PythonExecutionException;
 import com.github.sh0nk.matplotlib4j.builder.HistBuilder;
 import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.HeapResponse;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -22,6 +23,10 @@ public class GCPerfPlot {
     private Map<GCType, List<Double>> runtimesMap;
     private Map<GCType, Double> avgRuntimesMap;
     private Map<GCType, List<Double>>  throughputsMap;
+    private Map<GCType, List<double[]>> mmuCurvesMap = new HashMap<>();
+    private List<Double> mmuWindows = new ArrayList<>();
+    private Map<GCType, List<HeapResponse.Curve>> heapResponseCurves = new HashMap<>();
+    private String titlePrefix = "";
 
     private static final Logger LOGGER = Logger.getLogger(GCPerfPlot.class.getSimpleName());
 
@@ -31,6 +36,10 @@ public class GCPerfPlot {
         return gcPerfPlot;
     }
 
+    public void setTitlePrefix(String titlePrefix) {
+        this.titlePrefix = titlePrefix;
+    }
+
     public void setGcTypes(List<GCType> gcTypes) {
         this.gcTypes = new ArrayList<>(gcTypes);
     }
@@ -47,13 +56,26 @@ public class GCPerfPlot {
         this.throughputsMap = new HashMap<>(throughputsMap);
     }
 
+    /***
+     * @param mmuCurvesMap MMU curve per run
+     * @param mmuWindows window sizes (ms) of the curves
+     */
+    public void setMMUCurves(Map<GCType, List<double[]>> mmuCurvesMap, List<Double> mmuWindows) {
+        this.mmuCurvesMap = new HashMap<>(mmuCurvesMap);
+        this.mmuWindows = new ArrayList<>(mmuWindows);
+    }
+
+    public void setHeapResponseCurves(Map<GCType, List<HeapResponse.Curve>> heapResponseCurves) {
+        this.heapResponseCurves = heapResponseCurves;
+    }
+
     public void plotHelper(String title, List<Double> measurements, List<Double> bins, double min, double max)
             throws IOException, PythonExecutionException {
         bins.add(max + max/10);
         plot.hist().add(measurements).rwidth(0.025).bins(bins).stacked(false).align(HistBuilder.Align.left)
                 .orientation(HistBuilder.Orientation.vertical);
         plot.xlim(min - min/10, max + max/10);
-        plot.title(title);
+        plot.title(titlePrefix + title);
         plot.show();
         plot.close();
     }
@@ -104,4 +126,72 @@ public class GCPerfPlot {
         plot.xlabel(sb.toString());
         plotHelper("Average Runtimes (in s) by GC Type", sortedAvgRuntimes, bins, bins.get(0), bins.get(bins.size()-1));
     }
+
+    /***
+     * One line per GC Type: the mean MMU of its runs over the window sizes. matplotlib4j has no log scale, so the
+     * windows are plotted by their decimal logarithm.
+     */
+    public void plotMMUCurves() throws IOException, PythonExecutionException {
+        List<Double> logWindows = mmuWindows.stream().map(Math::log10).collect(Collectors.toList());
+        boolean plotted = false;
+        for (GCType gcType : gcTypes) {
+            List<double[]> curves = mmuCurvesMap.get(gcType);
+            if (curves == null || curves.isEmpty()) {
+                continue;
+            }
+            List<Double> meanCurve = new ArrayList<>();
+            for (int i = 0; i < mmuWindows.size(); i++) {
+                int window = i;
+                meanCurve.add(curves.stream().mapToDouble(curve -> curve[window]).filter(d -> !Double.isNaN(d))
+                        .average().orElse(Double.NaN));
+            }
+            plot.plot().add(logWindows, meanCurve).label(gcType.name());
+            plotted = true;
+        }
+        if (!plotted) {
+            LOGGER.log(Level.WARNING, "No MMU curves available");
+            return;
+        }
+        plot.xlabel("Window size (log10 ms)");
+        plot.ylabel("Minimum mutator utilization");
+        plot.ylim(0, 1);
+        plot.legend();
+        plot.title(titlePrefix + "MMU by GC Type");
+        plot.show();
+        plot.close();
+    }
+
+    /***
+     * One figure per metric with one line per GC Type: the metric against the maximum heap size. The knee of each
+     * curve is named in the legend.
+     */
+    public void plotHeapResponse() throws IOException, PythonExecutionException {
+        for (HeapResponse.Response response : HeapResponse.Response.values()) {
+            boolean plotted = false;
+            for (GCType gcType : gcTypes) {
+                HeapResponse.Curve curve = heapResponseCurves.getOrDefault(gcType, List.of()).stream()
+                        .filter(c -> c.response() == response).findFirst().orElse(null);
+                if (curve == null || curve.points().size() < 2) {
+                    continue;
+                }
+                List<Integer> heapSizes = curve.points().stream().map(HeapResponse.Point::xmx)
+                        .collect(Collectors.toList());
+                List<Double> values = curve.points().stream().map(HeapResponse.Point::value)
+                        .collect(Collectors.toList());
+                plot.plot().add(heapSizes, values).label(gcType.name() +
+                        curve.knee().map(knee -> " (knee: " + knee.xmx() + " MB)").orElse(""));
+                plotted = true;
+            }
+            if (!plotted) {
+                LOGGER.log(Level.WARNING, "Not enough heap sizes for a " + response + " heap response curve");
+                continue;
+            }
+            plot.xlabel("Maximum heap size (MB)");
+            plot.ylabel(response.toString());
+            plot.legend();
+            plot.title(titlePrefix + response + " by heap size");
+            plot.show();
+            plot.close();
+        }
+    }
 }
@@ -0,0 +1,60 @@
+package hu.antalnagy.gcperf.probe;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Reads the operation counter from a file the application periodically overwrites with its cumulative operation
+ * count. The file is deleted before every run, so a stale value of an earlier run is never read.
+ */
+public class CounterFileProbe implements OperationProbe {
+
+    private static final Logger LOGGER = Logger.getLogger(CounterFileProbe.class.getSimpleName());
+
+    private final Path counterFile;
+    private long counter = -1;
+
+    public CounterFileProbe(Path counterFile) {
+        this.counterFile = counterFile.toAbsolutePath();
+    }
+
+    public Path getCounterFile() {
+        return counterFile;
+    }
+
+    @Override
+    public String getIdentity() {
+        return getClass().getName() + "(" + counterFile.toAbsolutePath() + ")";
+    }
+
+    @Override
+    public synchronized void start(Process process, File outFile) {
+        counter = -1;
+        try {
+            Files.deleteIfExists(counterFile);
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't delete stale counter file " + counterFile + ": " + ex.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized long readCounter() {
+        if (!Files.exists(counterFile)) {
+            return counter;
+        }
+        try {
+            String content = Files.readString(counterFile).trim();
+            if (!content.isEmpty()) {
+                counter = Long.parseLong(content);
+            }
+        } catch (IOException | NumberFormatException ex) {
+            //the application may be in the middle of rewriting the file, keep the last value
+            LOGGER.log(Level.FINE, "Couldn't read counter file " + counterFile + ": " + ex.getMessage());
+        }
+        return counter;
+    }
+}
@@ -0,0 +1,126 @@
+package hu.antalnagy.gcperf.probe;
+
+import com.sun.tools.attach.AttachNotSupportedException;
+import com.sun.tools.attach.VirtualMachine;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServerConnection;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.remote.JMXConnector;
+import javax.management.remote.JMXConnectorFactory;
+import javax.management.remote.JMXServiceURL;
+import java.io.File;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Reads the operation counter from a numeric MBean attribute of the application. The probe attaches to the running
+ * process and starts its local management agent, so the application doesn't need any JMX port configuration.
+ */
+public class JmxProbe implements OperationProbe {
+
+    private static final long RECONNECT_INTERVAL_MILLIS = 500;
+    private static final Logger LOGGER = Logger.getLogger(JmxProbe.class.getSimpleName());
+
+    private final ObjectName objectName;
+    private final String attribute;
+    private Process process;
+    private JMXConnector connector;
+    private MBeanServerConnection connection;
+    private long lastConnectAttempt;
+    private long counter = -1;
+
+    public JmxProbe(String objectName, String attribute) {
+        try {
+            this.objectName = new ObjectName(objectName);
+        } catch (MalformedObjectNameException ex) {
+            LOGGER.log(Level.SEVERE, "Invalid MBean object name: " + objectName);
+            throw new IllegalArgumentException("Invalid MBean object name: " + objectName);
+        }
+        this.attribute = attribute;
+    }
+
+    @Override
+    public String getIdentity() {
+        return getClass().getName() + "(" + objectName.getCanonicalName() + ", " + attribute + ")";
+    }
+
+    @Override
+    public synchronized void start(Process process, File outFile) {
+        stop();
+        this.process = process;
+        this.counter = -1;
+        this.lastConnectAttempt = 0;
+    }
+
+    @Override
+    public synchronized long readCounter() {
+        if (process == null || !process.isAlive()) {
+            return counter;
+        }
+        if (connection == null && !connect()) {
+            return counter;
+        }
+        try {
+            Object value = connection.getAttribute(objectName, attribute);
+            if (value instanceof Number number) {
+                counter = number.longValue();
+            } else {
+                LOGGER.log(Level.WARNING, "MBean attribute " + objectName + "." + attribute + " is not numeric");
+            }
+        } catch (InstanceNotFoundException ex) {
+            //MBean not registered yet
+        } catch (JMException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read MBean attribute " + objectName + "." + attribute + ": " +
+                    ex.getMessage());
+        } catch (IOException ex) {
+            //process is shutting down
+            closeConnector();
+        }
+        return counter;
+    }
+
+    private boolean connect() {
+        long now = System.currentTimeMillis();
+        if (now - lastConnectAttempt < RECONNECT_INTERVAL_MILLIS) {
+            return false;
+        }
+        lastConnectAttempt = now;
+        try {
+            VirtualMachine virtualMachine = VirtualMachine.attach(String.valueOf(process.pid()));
+            String address;
+            try {
+                address = virtualMachine.startLocalManagementAgent();
+            } finally {
+                virtualMachine.detach();
+            }
+            connector = JMXConnectorFactory.connect(new JMXServiceURL(address));
+            connection = connector.getMBeanServerConnection();
+            return true;
+        } catch (AttachNotSupportedException | IOException ex) {
+            //the JVM is still starting up, try again later
+            LOGGER.log(Level.FINE, "Couldn't attach to process " + process.pid() + ": " + ex.getMessage());
+            closeConnector();
+            return false;
+        }
+    }
+
+    private void closeConnector() {
+        if (connector != null) {
+            try {
+                connector.close();
+            } catch (IOException ignored) {}
+        }
+        connector = null;
+        connection = null;
+    }
+
+    @Override
+    public synchronized void stop() {
+        closeConnector();
+        process = null;
+    }
+}
@@ -0,0 +1,44 @@
+package hu.antalnagy.gcperf.probe;
+
+import java.io.File;
+import java.util.List;
+
+/***
+ * Reads a cumulative operation counter from the analyzed application while it runs. The counter is sampled
+ * periodically by an {@link OperationSampler}, which turns the samples into application throughput (ops/sec).
+ */
+public interface OperationProbe {
+
+    /***
+     * @return additional JVM options the application needs for this probe
+     */
+    default List<String> getVMOptions() {
+        return List.of();
+    }
+
+    /***
+     * Identifies the probe in the run journal and run cache keys, so runs measured with another probe, or with this
+     * probe configured differently, are never reused for it. Implementations with settings must include them.
+     * @return the probe class and its settings
+     */
+    default String getIdentity() {
+        return getClass().getName();
+    }
+
+    /***
+     * Resets the probe for a new run.
+     * @param process the started java runtime process
+     * @param outFile file the standard output of the process is redirected to
+     */
+    void start(Process process, File outFile);
+
+    /***
+     * @return the current value of the operation counter, or -1 if it is not available (yet)
+     */
+    long readCounter();
+
+    /***
+     * Releases the resources of the current run.
+     */
+    default void stop() {}
+}
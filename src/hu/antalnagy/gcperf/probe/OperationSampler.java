@@ -0,0 +1,120 @@
+package hu.antalnagy.gcperf.probe;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/***
+ * Samples an {@link OperationProbe} on a background thread during one run and computes the application throughput
+ * (ops/sec) of any time window of the run. Sample times are seconds elapsed since the process was started.
+ */
+public class OperationSampler {
+
+    private static final long SAMPLE_INTERVAL_MILLIS = 100;
+    private static final Logger LOGGER = Logger.getLogger(OperationSampler.class.getSimpleName());
+
+    private final OperationProbe probe;
+    private final long startNanos;
+    private final List<Sample> samples = new ArrayList<>();
+    private final Thread samplerThread;
+    private volatile boolean running = true;
+
+    public record Sample(double elapsedSeconds, long count) {}
+
+    private OperationSampler(OperationProbe probe, Process process, File outFile) {
+        this.probe = probe;
+        this.startNanos = System.nanoTime();
+        probe.start(process, outFile);
+        samplerThread = new Thread(() -> {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(SAMPLE_INTERVAL_MILLIS);
+                } catch (InterruptedException ex) {
+                    return;
+                }
+            }
+        }, "operation-sampler-" + process.pid());
+        samplerThread.setDaemon(true);
+    }
+
+    /***
+     * Starts sampling the probe. Should be called right after the process was started.
+     */
+    public static OperationSampler start(OperationProbe probe, Process process, File outFile) {
+        OperationSampler sampler = new OperationSampler(probe, process, outFile);
+        sampler.samplerThread.start();
+        return sampler;
+    }
+
+    /***
+     * Stops sampling after taking a last sample. Should be called after the process ended.
+     */
+    public void stop() {
+        running = false;
+        samplerThread.interrupt();
+        try {
+            samplerThread.join();
+        } catch (InterruptedException ex) {
+            LOGGER.log(Level.WARNING, "Interrupted while stopping operation sampler");
+            Thread.currentThread().interrupt();
+        }
+        sample();
+        probe.stop();
+    }
+
+    private void sample() {
+        long count = probe.readCounter();
+        if (count < 0) {
+            return;
+        }
+        double elapsedSeconds = (System.nanoTime() - startNanos) / 1e9;
+        synchronized (samples) {
+            samples.add(new Sample(elapsedSeconds, count));
+        }
+    }
+
+    public List<Sample> getSamples() {
+        synchronized (samples) {
+            return new ArrayList<>(samples);
+        }
+    }
+
+    /***
+     * @param from window start in seconds since process start
+     * @param to window end in seconds since process start
+     * @return operations per second in the window, or NaN if the probe didn't deliver any value
+     */
+    public double opsPerSecond(double from, double to) {
+        return opsPerSecond(getSamples(), from, to);
+    }
+
+    public static double opsPerSecond(List<Sample> samples, double from, double to) {
+        if (samples.isEmpty() || to <= from) {
+            return Double.NaN;
+        }
+        double countFrom = from <= 0 ? 0 : countAt(samples, from);
+        double countTo = countAt(samples, to);
+        return (countTo - countFrom) / (to - from);
+    }
+
+    //linear interpolation between the neighbouring samples, the counter is 0 at process start
+    private static double countAt(List<Sample> samples, double elapsedSeconds) {
+        double previousTime = 0;
+        double previousCount = 0;
+        for (Sample sample : samples) {
+            if (sample.elapsedSeconds() >= elapsedSeconds) {
+                double span = sample.elapsedSeconds() - previousTime;
+                if (span <= 0) {
+                    return sample.count();
+                }
+                return previousCount + (sample.count() - previousCount) * (elapsedSeconds - previousTime) / span;
+            }
+            previousTime = sample.elapsedSeconds();
+            previousCount = sample.count();
+        }
+        return previousCount;
+    }
+}
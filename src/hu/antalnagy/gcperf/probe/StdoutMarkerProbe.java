@@ -0,0 +1,95 @@
+package hu.antalnagy.gcperf.probe;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/***
+ * Reads the operation counter from marker lines the application prints to its standard output. If the marker pattern
+ * has a capturing group, the group holds the cumulative counter (e.g. "OPS (\\d+)"), otherwise every marker line
+ * counts as one operation.
+ */
+public class StdoutMarkerProbe implements OperationProbe {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+    private static final Logger LOGGER = Logger.getLogger(StdoutMarkerProbe.class.getSimpleName());
+
+    private final Pattern markerPattern;
+    private File outFile;
+    private long position;
+    private long counter;
+    private final StringBuilder pendingLine = new StringBuilder();
+
+    public StdoutMarkerProbe(Pattern markerPattern) {
+        this.markerPattern = markerPattern;
+    }
+
+    public StdoutMarkerProbe(String markerRegex) {
+        this(Pattern.compile(markerRegex));
+    }
+
+    @Override
+    public String getIdentity() {
+        return getClass().getName() + "(" + markerPattern.pattern() + ", " + markerPattern.flags() + ")";
+    }
+
+    @Override
+    public synchronized void start(Process process, File outFile) {
+        this.outFile = outFile;
+        this.position = 0;
+        this.counter = -1;
+        this.pendingLine.setLength(0);
+    }
+
+    @Override
+    public synchronized long readCounter() {
+        if (outFile == null || !outFile.exists()) {
+            return counter;
+        }
+        try (RandomAccessFile file = new RandomAccessFile(outFile, "r")) {
+            if (file.length() < position) {
+                position = 0;
+            }
+            file.seek(position);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int read;
+            while ((read = file.read(buffer)) > 0) {
+                int lineStart = 0;
+                for (int i = 0; i < read; i++) {
+                    if (buffer[i] == '\n') {
+                        pendingLine.append(new String(buffer, lineStart, i - lineStart, StandardCharsets.UTF_8));
+                        processLine(pendingLine);
+                        pendingLine.setLength(0);
+                        lineStart = i + 1;
+                    }
+                }
+                pendingLine.append(new String(buffer, lineStart, read - lineStart, StandardCharsets.UTF_8));
+                position += read;
+            }
+        } catch (IOException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't read output file " + outFile.getName() + ": " + ex.getMessage());
+        }
+        return counter;
+    }
+
+    private void processLine(CharSequence line) {
+        Matcher matcher = markerPattern.matcher(line);
+        if (!matcher.find()) {
+            return;
+        }
+        if (matcher.groupCount() == 0) {
+            counter = Long.max(counter, 0) + 1;
+            return;
+        }
+        try {
+            counter = Long.parseLong(matcher.group(1).trim());
+        } catch (NumberFormatException ex) {
+            LOGGER.log(Level.WARNING, "Couldn't parse operation counter: " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package hu.antalnagy.gcperf.statistics;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/***
+ * Percentile bootstrap confidence intervals of the mean. Resampling is split into fixed-size chunks that run in
+ * parallel, each with its own random generator derived from the seed, so the result is reproducible regardless of
+ * the number of threads. A resample is never materialized: its mean is accumulated while drawing, so an iteration
+ * doesn't allocate.
+ */
+public final class Bootstrap {
+
+    private static final int CHUNK_SIZE = 1024;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private Bootstrap() {}
+
+    /***
+     * @param sample observed values, at least one
+     * @param iterations number of resamples
+     * @param confidenceLevel confidence level between 0 and 1, e.g. 0.95
+     * @param seed seed of the resampling
+     * @return mean of the sample with its bootstrap confidence interval
+     */
+    public static ConfidenceInterval meanConfidenceInterval(double[] sample, int iterations, double confidenceLevel,
+                                                            long seed) {
+        if (sample == null || sample.length == 0) {
+            throw new IllegalArgumentException("Bootstrap sample must not be empty");
+        }
+        if (iterations < 1) {
+            throw new IllegalArgumentException("Number of bootstrap iterations must be at least 1");
+        }
+        if (confidenceLevel <= 0 || confidenceLevel >= 1) {
+            throw new IllegalArgumentException("Confidence level must be between 0 and 1");
+        }
+        double estimate = mean(sample);
+        int n = sample.length;
+        if (n == 1) {
+            return new ConfidenceInterval(estimate, estimate, estimate, confidenceLevel);
+        }
+        double[] means = new double[iterations];
+        int chunks = (iterations + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream.range(0, chunks).parallel().forEach(chunk -> {
+            SplittableRandom random = new SplittableRandom(seed + chunk * GOLDEN_GAMMA);
+            int to = Integer.min(iterations, (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < to; i++) {
+                double sum = 0;
+                for (int j = 0; j < n; j++) {
+                    sum += sample[random.nextInt(n)];
+                }
+                means[i] = sum / n;
+            }
+        });
+        Arrays.parallelSort(means);
+        double alpha = 1 - confidenceLevel;
+        return new ConfidenceInterval(estimate, percentile(means, alpha / 2), percentile(means, 1 - alpha / 2),
+                confidenceLevel);
+    }
+
+    public static double mean(double[] sample) {
+        double sum = 0;
+        for (double value : sample) {
+            sum += value;
+        }
+        return sum / sample.length;
+    }
+
+    //linear interpolation between the closest ranks of a sorted array
+    static double percentile(double[] sorted, double p) {
+        double position = p * (sorted.length - 1);
+        int lower = (int) Math.floor(position);
+        int upper = Integer.min(lower + 1, sorted.length - 1);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (position - lower);
+    }
+}
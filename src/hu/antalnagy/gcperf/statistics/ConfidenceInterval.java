@@ -0,0 +1,22 @@
+package hu.antalnagy.gcperf.statistics;
+
+import java.util.Locale;
+
+/***
+ * Point estimate of a statistic with its confidence interval
+ * @param estimate statistic of the original sample
+ * @param lower lower bound of the interval
+ * @param upper upper bound of the interval
+ * @param confidenceLevel confidence level, e.g. 0.95
+ */
+public record ConfidenceInterval(double estimate, double lower, double upper, double confidenceLevel) {
+
+    public boolean overlaps(ConfidenceInterval other) {
+        return lower <= other.upper && other.lower <= upper;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%.4f [%.4f, %.4f] (%.0f%%)", estimate, lower, upper, confidenceLevel * 100);
+    }
+}
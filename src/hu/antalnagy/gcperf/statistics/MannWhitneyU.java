@@ -0,0 +1,121 @@
+package hu.antalnagy.gcperf.statistics;
+
+import java.util.Arrays;
+
+/***
+ * Two-sided Mann-Whitney U test of two independent samples. Small samples without ties use the exact distribution
+ * of U, otherwise the normal approximation with tie and continuity correction is used.
+ */
+public final class MannWhitneyU {
+
+    private static final int EXACT_MAX_SAMPLE_SIZE = 30;
+
+    private MannWhitneyU() {}
+
+    /***
+     * @param u U statistic of the first sample
+     * @param pValue two-sided p-value
+     * @param exact true if the p-value comes from the exact distribution
+     */
+    public record Result(double u, double pValue, boolean exact) {
+        public boolean isSignificant(double alpha) {
+            return pValue < alpha;
+        }
+    }
+
+    public static Result test(double[] a, double[] b) {
+        if (a == null || b == null || a.length == 0 || b.length == 0) {
+            throw new IllegalArgumentException("Both samples of the Mann-Whitney U test must be non-empty");
+        }
+        int n1 = a.length;
+        int n2 = b.length;
+        int n = n1 + n2;
+        double[] sortedA = a.clone();
+        double[] sortedB = b.clone();
+        Arrays.sort(sortedA);
+        Arrays.sort(sortedB);
+        //merge the sorted samples, every run of equal values gets the average of its ranks
+        double rankSumA = 0;
+        double tieTerm = 0;
+        int i = 0;
+        int j = 0;
+        int rank = 0;
+        while (i < n1 || j < n2) {
+            double value = j >= n2 || (i < n1 && sortedA[i] <= sortedB[j]) ? sortedA[i] : sortedB[j];
+            int tiedA = 0;
+            int tiedB = 0;
+            while (i < n1 && sortedA[i] == value) {
+                i++;
+                tiedA++;
+            }
+            while (j < n2 && sortedB[j] == value) {
+                j++;
+                tiedB++;
+            }
+            int tied = tiedA + tiedB;
+            double averageRank = rank + (tied + 1) / 2.0;
+            rankSumA += tiedA * averageRank;
+            tieTerm += (double) tied * tied * tied - tied;
+            rank += tied;
+        }
+        double u = rankSumA - n1 * (n1 + 1) / 2.0;
+        if (tieTerm == 0 && n1 <= EXACT_MAX_SAMPLE_SIZE && n2 <= EXACT_MAX_SAMPLE_SIZE) {
+            return new Result(u, exactPValue((int) Math.round(u), n1, n2), true);
+        }
+        double mu = n1 * (double) n2 / 2;
+        double variance = n1 * (double) n2 / 12 * ((n + 1) - tieTerm / ((double) n * (n - 1)));
+        if (variance <= 0) { //every value is the same
+            return new Result(u, 1.0, false);
+        }
+        double z = Math.max(0, Math.abs(u - mu) - 0.5) / Math.sqrt(variance);
+        return new Result(u, Math.min(1.0, 2 * (1 - standardNormalCdf(z))), false);
+    }
+
+    //number of orderings with U = u follows f(m, n, u) = f(m - 1, n, u - n) + f(m, n - 1, u)
+    private static double exactPValue(int u, int n1, int n2) {
+        int maxU = n1 * n2;
+        double[][] previous = new double[n2 + 1][];
+        for (int j = 0; j <= n2; j++) {
+            previous[j] = new double[]{1}; //m = 0: only U = 0
+        }
+        for (int m = 1; m <= n1; m++) {
+            double[][] current = new double[n2 + 1][];
+            current[0] = new double[]{1};
+            for (int j = 1; j <= n2; j++) {
+                double[] counts = new double[m * j + 1];
+                double[] withoutB = current[j - 1];
+                double[] withoutA = previous[j];
+                for (int k = 0; k < counts.length; k++) {
+                    if (k < withoutB.length) {
+                        counts[k] += withoutB[k];
+                    }
+                    if (k - j >= 0 && k - j < withoutA.length) {
+                        counts[k] += withoutA[k - j];
+                    }
+                }
+                current[j] = counts;
+            }
+            previous = current;
+        }
+        double[] distribution = previous[n2];
+        double total = 0;
+        for (double count : distribution) {
+            total += count;
+        }
+        int tail = Integer.min(u, maxU - u);
+        double tailCount = 0;
+        for (int k = 0; k <= tail; k++) {
+            tailCount += distribution[k];
+        }
+        return Math.min(1.0, 2 * tailCount / total);
+    }
+
+    //Abramowitz and Stegun 7.1.26, absolute error below 1.5e-7
+    static double standardNormalCdf(double z) {
+        double x = Math.abs(z) / Math.sqrt(2);
+        double t = 1 / (1 + 0.3275911 * x);
+        double erf = 1 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t - 0.284496736) * t + 0.254829592)
+                * t * Math.exp(-x * x);
+        return z >= 0 ? (1 + erf) / 2 : (1 - erf) / 2;
+    }
+}
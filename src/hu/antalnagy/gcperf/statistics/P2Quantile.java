@@ -0,0 +1,116 @@
+package hu.antalnagy.gcperf.statistics;
+
+import java.util.Arrays;
+
+/***
+ * Streaming quantile estimate with the P-square algorithm (Jain and Chlamtac, 1985): five markers are moved with
+ * piecewise parabolic interpolation as observations arrive, so an update costs O(1) time and the estimator keeps O(1)
+ * memory however many values it has seen. Until five values are observed the quantile is exact.
+ */
+public final class P2Quantile {
+
+    private final double p;
+    private final double[] heights = new double[5];
+    private final int[] positions = new int[5];
+    private final double[] desiredPositions = new double[5];
+    private final double[] increments = new double[5];
+    private long count;
+
+    /***
+     * @param p quantile between 0 and 1 (exclusive), e.g. 0.99
+     */
+    public P2Quantile(double p) {
+        if (p <= 0 || p >= 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        this.p = p;
+        increments[0] = 0;
+        increments[1] = p / 2;
+        increments[2] = p;
+        increments[3] = (1 + p) / 2;
+        increments[4] = 1;
+    }
+
+    public double getP() {
+        return p;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        if (count < 5) {
+            heights[(int) count++] = value;
+            if (count == 5) {
+                Arrays.sort(heights);
+                for (int i = 0; i < 5; i++) {
+                    positions[i] = i + 1;
+                }
+                desiredPositions[0] = 1;
+                desiredPositions[1] = 1 + 2 * p;
+                desiredPositions[2] = 1 + 4 * p;
+                desiredPositions[3] = 3 + 2 * p;
+                desiredPositions[4] = 5;
+            }
+            return;
+        }
+        count++;
+        int cell;
+        if (value < heights[0]) {
+            heights[0] = value;
+            cell = 0;
+        } else if (value >= heights[4]) {
+            heights[4] = value;
+            cell = 3;
+        } else {
+            cell = 0;
+            while (value >= heights[cell + 1]) {
+                cell++;
+            }
+        }
+        for (int i = cell + 1; i < 5; i++) {
+            positions[i]++;
+        }
+        for (int i = 0; i < 5; i++) {
+            desiredPositions[i] += increments[i];
+        }
+        for (int i = 1; i < 4; i++) {
+            double d = desiredPositions[i] - positions[i];
+            if ((d >= 1 && positions[i + 1] - positions[i] > 1) || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int sign = d > 0 ? 1 : -1;
+                double parabolic = parabolic(i, sign);
+                heights[i] = heights[i - 1] < parabolic && parabolic < heights[i + 1] ? parabolic : linear(i, sign);
+                positions[i] += sign;
+            }
+        }
+    }
+
+    private double parabolic(int i, int sign) {
+        return heights[i] + sign / (double) (positions[i + 1] - positions[i - 1]) *
+                ((positions[i] - positions[i - 1] + sign) * (heights[i + 1] - heights[i]) /
+                        (positions[i + 1] - positions[i]) +
+                        (positions[i + 1] - positions[i] - sign) * (heights[i] - heights[i - 1]) /
+                                (positions[i] - positions[i - 1]));
+    }
+
+    private double linear(int i, int sign) {
+        return heights[i] + sign * (heights[i + sign] - heights[i]) / (positions[i + sign] - positions[i]);
+    }
+
+    /***
+     * @return the estimated quantile, NaN before the first value
+     */
+    public double getQuantile() {
+        if (count == 0) {
+            return Double.NaN;
+        }
+        if (count < 5) {
+            return Quantiles.quantile(Arrays.copyOf(heights, (int) count), p);
+        }
+        return heights[2];
+    }
+}
@@ -0,0 +1,30 @@
+package hu.antalnagy.gcperf.statistics;
+
+import java.util.Arrays;
+
+/***
+ * Exact quantiles of a sample, using the nearest-rank definition: the p-quantile is an observed value, so a p99 pause
+ * is a pause that actually happened and not an interpolation between two.
+ */
+public final class Quantiles {
+
+    private Quantiles() {}
+
+    /***
+     * @param sample observed values
+     * @param p quantile between 0 and 1, e.g. 0.99
+     * @return the smallest value with at least p of the sample at or below it, NaN for an empty sample
+     */
+    public static double quantile(double[] sample, double p) {
+        if (p < 0 || p > 1) {
+            throw new IllegalArgumentException("Quantile must be between 0 and 1");
+        }
+        if (sample == null || sample.length == 0) {
+            return Double.NaN;
+        }
+        double[] sorted = sample.clone();
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(p * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+}
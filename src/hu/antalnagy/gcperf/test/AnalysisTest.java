@@ -2,14 +2,30 @@ package hu.antalnagy.gcperf.test;
 
 import hu.antalnagy.gcperf.Analysis;
 import hu.antalnagy.gcperf.CLI;
+import hu.antalnagy.gcperf.ContainerProfile;
 import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.HeapResponse;
+import hu.antalnagy.gcperf.JavaRuntime;
+import hu.antalnagy.gcperf.LegacyGCLog;
+import hu.antalnagy.gcperf.LogDecorators;
+import hu.antalnagy.gcperf.LogImport;
+import hu.antalnagy.gcperf.MutatorUtilization;
+import hu.antalnagy.gcperf.RunResult;
+import hu.antalnagy.gcperf.Workspace;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
+import java.util.Random;
 
 import static org.junit.Assert.*;
 
@@ -64,7 +80,8 @@ public class AnalysisTest {
 
         assertThrows(IllegalArgumentException.class, () -> analysis.performGCAnalysis(0,300,400,100,200));
         assertThrows(IllegalArgumentException.class, () -> analysis.performGCAnalysis(2,3000,400,100,200));
-        assertThrows(IllegalArgumentException.class, () -> analysis.performGCAnalysis(2,300,9000,100,200));
+        assertThrows(IllegalArgumentException.class, () -> analysis.performGCAnalysis(2,300,
+                Analysis.getMaxMaxHeapSize() + 1,100,200));
         assertThrows(IllegalArgumentException.class, () -> analysis.performGCAnalysis(2,300,400,2000,200));
         assertThrows(IllegalArgumentException.class, () -> analysis.performGCAnalysis(2,300,400,100,2000));
     }
@@ -96,6 +113,11 @@ public class AnalysisTest {
         assertEquals(2, shenandoahCLI.getGcOptions().length);
         assertEquals(7, shenandoahCLI.getXlogOptions().length);
 
+        assertEquals("-Xms200m", g1CLI.stringifyHeapSizeOption(CLI.VMOptions.Xms));
+        assertEquals("-Xmx400m", g1CLI.stringifyHeapSizeOption(CLI.VMOptions.Xmx));
+        assertEquals("-Xmx300m", analysis.buildCLI(GCType.G1, 200, 300).stringifyHeapSizeOption(CLI.VMOptions.Xmx));
+        assertEquals("-Xmx400m", g1CLI.stringifyHeapSizeOption(CLI.VMOptions.Xmx));
+
         assertThrows(IllegalArgumentException.class, () -> analysis.buildCLI(GCType.SHENANDOAH, 0, 400));
         assertThrows(IllegalArgumentException.class, () -> analysis.buildCLI(GCType.SHENANDOAH, 1, 15));
     }
@@ -226,6 +248,74 @@ public class AnalysisTest {
         assertEquals(0.01, timeZGC, EPSILON);
     }
 
+    @Test
+    public void testYieldPausesAndFootprint() {
+        List<Analysis.GCPause> pauses = Analysis.yieldPausesFromSource(testStrings, GCType.SERIAL);
+        assertEquals(6, pauses.size());
+        assertEquals(0.641, pauses.get(1).uptime(), EPSILON);
+        assertEquals(190.829, pauses.get(1).duration(), EPSILON);
+        assertEquals("Init Update Refs", pauses.get(0).cause());
+        assertEquals("Full (Ergonomics)", pauses.get(1).cause());
+        assertEquals("Young (Normal) (G1 Evacuation Pause)", pauses.get(5).cause());
+        assertEquals(249.133, pauses.stream().mapToDouble(Analysis.GCPause::duration).max().orElseThrow(), EPSILON);
+
+        List<Analysis.GCPause> zgcPauses = Analysis.yieldPausesFromSource(testStrings, GCType.ZGC);
+        assertEquals(2, zgcPauses.size());
+        assertEquals(0.278, zgcPauses.get(1).duration(), EPSILON);
+        assertEquals("Mark End", zgcPauses.get(1).cause());
+
+        assertEquals(456.0, Analysis.yieldPeakHeapUsage(testStrings), EPSILON);
+        assertEquals(64.0, Analysis.yieldPeakHeapUsage(List.of(
+                "[0.301s][info][gc          ] GC(0) Garbage Collection (Allocation Stall) 64M(100%)->14M(22%)",
+                "[0.302s][info][gc,metaspace] GC(0) Metaspace: 1021K->1021K(1056768K)")), EPSILON);
+        assertEquals(2.5, Analysis.yieldPeakHeapUsage(List.of(
+                "[0.101s][info][gc] GC(0) Pause Young (Allocation Failure) 2560K->512K(9216K) 1.034ms")), EPSILON);
+        assertTrue(Double.isNaN(Analysis.yieldPeakHeapUsage(List.of("[0.101s][info][gc] Using Serial"))));
+    }
+
+    @Test
+    public void testMutatorUtilization() {
+        List<Analysis.GCPause> pauses = List.of(new Analysis.GCPause(1.010, 10.0), new Analysis.GCPause(1.025, 10.0));
+        double[] curve = MutatorUtilization.curve(pauses, 0, 2, List.of(5.0, 10.0, 20.0, 25.0, 1000.0, 5000.0));
+        assertEquals(0.0, curve[0], EPSILON);
+        assertEquals(0.0, curve[1], EPSILON);
+        assertEquals(0.25, curve[2], EPSILON);
+        assertEquals(0.2, curve[3], EPSILON);
+        assertEquals(0.98, curve[4], EPSILON);
+        assertTrue(Double.isNaN(curve[5])); //longer than the run
+        assertEquals(1.0, MutatorUtilization.mmu(List.of(), 0, 2, 10.0), EPSILON);
+        //pauses of the warmup are outside of the measured timeline
+        assertEquals(1.0, MutatorUtilization.mmu(pauses, 1.5, 2, 10.0), EPSILON);
+
+        Random random = new Random(3);
+        List<Analysis.GCPause> randomPauses = new ArrayList<>();
+        double end = 0;
+        for (int i = 0; i < 40; i++) {
+            double duration = random.nextDouble() * 20;
+            end += duration + random.nextDouble() * 30;
+            randomPauses.add(new Analysis.GCPause(end / 1000, duration));
+        }
+        Collections.shuffle(randomPauses, random);
+        for (double window : List.of(7.0, 50.0, 300.0)) {
+            double bruteForce = 1.0;
+            for (double start = 0; start + window <= 2000; start += 0.02) {
+                double paused = 0;
+                for (Analysis.GCPause pause : randomPauses) {
+                    double pauseStart = pause.uptime() * 1000 - pause.duration();
+                    paused += Math.max(0, Math.min(pause.uptime() * 1000, start + window) - Math.max(pauseStart, start));
+                }
+                bruteForce = Math.min(bruteForce, 1 - paused / window);
+            }
+            assertEquals(bruteForce, MutatorUtilization.mmu(randomPauses, 0, 2, window), EPSILON);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> MutatorUtilization.validateWindows(List.of(0.5)));
+        assertThrows(IllegalArgumentException.class, () -> MutatorUtilization.validateWindows(List.of(20_000.0)));
+        assertThrows(IllegalArgumentException.class, () -> analysis.withMMUWindows(List.of(1.0, 10.0), 0.1));
+        analysis.withMMUWindows(List.of(100.0, 1.0), 10.0);
+        assertEquals(List.of(1.0, 10.0, 100.0), analysis.getMMUWindows());
+    }
+
     @Test
     public void testCalculateHeapSize() {
         assertEquals(200, Analysis.calculateHeapSize(200,500, 100, 200,
@@ -238,8 +328,338 @@ public class AnalysisTest {
                 5, 4)[1]);
         assertNotEquals(2049, Analysis.calculateHeapSize(2049,500, 100, 200,
                 0, 0)[0]);
-        assertNotEquals(8193, Analysis.calculateHeapSize(150,8193, 100, 200,
+        int maxMaxHeapSize = Analysis.getMaxMaxHeapSize();
+        assertNotEquals(maxMaxHeapSize + 1, Analysis.calculateHeapSize(150,maxMaxHeapSize + 1, 100, 200,
                 0, 0)[1]);
+        assertEquals(1024, Analysis.calculateHeapSize(200,500, 100, 200,
+                5, 0, 1024)[1]);
+        assertEquals(512, Analysis.calculateHeapSize(2000,500, 100, 200,
+                0, 0, 512)[0]);
+    }
+
+    @Test
+    public void testHeapResponse() {
+        //GC time halves until 64 MB, then hardly improves
+        List<RunResult> runResults = new ArrayList<>();
+        double[] gcTimes = {8.0, 4.0, 2.0, 1.9, 1.85};
+        for (int i = 0; i < gcTimes.length; i++) {
+            int xmx = 16 << i;
+            runResults.add(new RunResult(GCType.G1, i + 1, 0, 0, xmx, xmx, 10.0, gcTimes[i], gcTimes[i],
+                    100 - gcTimes[i] * 10, 0, 5, Double.NaN, Double.NaN, Double.NaN, Double.NaN, null));
+        }
+        //a second run on the smallest heap is averaged into the same point
+        runResults.add(new RunResult(GCType.G1, 6, 0, 0, 16, 16, 10.0, 6.0, 6.0, 40.0, 0, 5, Double.NaN,
+                Double.NaN, Double.NaN, Double.NaN, null));
+        HeapResponse.Curve gcTime = HeapResponse.curve(GCType.G1, runResults, HeapResponse.Response.GCTime);
+        assertEquals(5, gcTime.points().size());
+        assertEquals(7.0, gcTime.points().get(0).value(), 1e-9);
+        assertEquals(2, gcTime.points().get(0).runs());
+        assertEquals(64, gcTime.knee().orElseThrow().xmx());
+        HeapResponse.Curve throughput = HeapResponse.curve(GCType.G1, runResults, HeapResponse.Response.Throughput);
+        assertEquals(64, throughput.knee().orElseThrow().xmx());
+        //no pause data, no curve
+        assertTrue(HeapResponse.curve(GCType.G1, runResults, HeapResponse.Response.PauseP99).points().isEmpty());
+        //too few heap sizes or no gain
+        assertTrue(HeapResponse.findKnee(gcTime.points().subList(0, 2), false).isEmpty());
+        assertTrue(HeapResponse.findKnee(gcTime.points(), true).isEmpty());
+    }
+
+    @Test
+    public void testReanalyze() throws IOException {
+        Path directory = Files.createTempDirectory("gcperf-reanalyze");
+        List<RunResult> storedRuns = new ArrayList<>();
+        for (int runNo = 1; runNo <= 3; runNo++) {
+            Path logFile = directory.resolve("out" + runNo + ".txt");
+            Files.write(logFile, List.of("[0.004s][info][gc] Using Serial",
+                    "[0.100s][info][gc,start] GC(0) Pause Young (Allocation Failure)",
+                    "[0.101s][info][gc] GC(0) Pause Young (Allocation Failure) 2560K->512K(9216K) " + runNo + ".000ms",
+                    "[0.101s][info][gc,cpu] GC(0) User=0.00s Sys=0.00s Real=0.01s",
+                    "[0.631s][info][gc,start] GC(1) Pause Full (Ergonomics)",
+                    "[0.641s][info][gc] GC(1) Pause Full (Ergonomics) 8M->4M(9M) 10.000ms",
+                    "[0.641s][info][gc,cpu] GC(1) User=0.01s Sys=0.00s Real=0.02s",
+                    "[1.500s][info][os,thread] Thread finished (tid: 1, pthread id: 1)."));
+            //recorded with outdated values, which the logs override
+            storedRuns.add(new RunResult(GCType.SERIAL, runNo, runNo - 1, 0, 16, 16 * runNo, 9.9, 9.9, 9.9, 1.0, 7, 7,
+                    Double.NaN, Double.NaN, Double.NaN, Double.NaN, logFile.toString()));
+        }
+        storedRuns.add(new RunResult(GCType.SERIAL, 4, 3, 0, 16, 64, 2.0, 0.5, 0.5, 75.0, 1, 1, Double.NaN, 1.0, 1.0,
+                5.0, directory.resolve("pruned.txt").toString()));
+        storedRuns.add(new RunResult(GCType.G1, 1, 0, 0, 16, 16, 1.0, 0.1, 0.1, 90.0, 0, 1, Double.NaN, Double.NaN,
+                Double.NaN, Double.NaN, null));
+        Analysis reanalysis = new Analysis("App", List.of(GCType.SERIAL),
+                new Analysis.Metrics[]{Analysis.Metrics.Throughput}, JavaRuntime.recorded("17"));
+        reanalysis.reanalyze(storedRuns);
+        List<RunResult> runResults = reanalysis.getRunResults().get(GCType.SERIAL);
+        assertEquals(4, runResults.size());
+        assertEquals(List.of(1, 2, 3, 4), runResults.stream().map(RunResult::runNo).toList());
+        assertEquals(1.5, runResults.get(0).runtime(), EPSILON);
+        assertEquals(0.03, runResults.get(0).gcTime(), 1e-6);
+        assertEquals(1, runResults.get(1).fullPauses());
+        assertEquals(1, runResults.get(1).minorPauses());
+        assertEquals(10.0, runResults.get(2).maxPause(), EPSILON);
+        assertEquals(48, runResults.get(2).xmx());
+        assertEquals(storedRuns.get(3), runResults.get(3)); //no log left, recorded values are kept
+        assertEquals(List.of(GCType.SERIAL), reanalysis.getLeaderboard());
+        assertEquals(2, reanalysis.getPauseTimelinesMap().get(GCType.SERIAL).get(0).size());
+        assertThrows(IllegalArgumentException.class, () -> new Analysis("App", List.of(GCType.ZGC),
+                new Analysis.Metrics[]{Analysis.Metrics.Throughput}, JavaRuntime.recorded("17"))
+                .reanalyze(storedRuns));
+        assertEquals(JavaRuntime.recorded("17"), JavaRuntime.recorded("17"));
+        assertNotEquals(JavaRuntime.recorded("17"), JavaRuntime.recorded("21"));
+        assertNotEquals(JavaRuntime.fromPath(), JavaRuntime.recorded("17"));
+    }
+
+    @Test
+    public void testLogImport() throws IOException {
+        Path root = Files.createTempDirectory("gcperf-import");
+        Files.createDirectories(root.resolve("checkout"));
+        Files.createDirectories(root.resolve("search"));
+        for (int node = 1; node <= 2; node++) {
+            Files.write(root.resolve("checkout/node" + node + ".log"), List.of(
+                    "[0.004s][info][gc,init] Version: 17.0.2+8-86 (release)",
+                    "[0.005s][info][gc] Using G1",
+                    "[0.006s][info][gc,init] Heap Initial Capacity: 256M",
+                    "[0.006s][info][gc,init] Heap Max Capacity: 4G",
+                    "[1.000s][info][gc,start] GC(0) Pause Young (Normal) (G1 Evacuation Pause)",
+                    "[1.010s][info][gc] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 100M->20M(256M) " + node +
+                            "0.000ms",
+                    "[2.000s][info][gc,start] GC(1) Pause Young (Normal) (G1 Evacuation Pause)",
+                    "[2.005s][info][gc] GC(1) Pause Young (Normal) (G1 Evacuation Pause) 120M->20M(256M) 5.000ms",
+                    "[11.000s][info][gc] GC(2) Pause Young (Normal) (G1 Evacuation Pause) 220M->30M(256M) 5.000ms"));
+        }
+        Files.write(root.resolve("search/node1.log"), List.of("[0.005s][info][gc] Using The Z Garbage Collector",
+                "[3.000s][info][gc,phases] GC(0) Pause Mark Start 0.200ms",
+                "[5.000s][info][gc] GC(0) Garbage Collection (Allocation Rate) 64M(10%)->32M(5%)"));
+        Files.write(root.resolve("search/notes.txt"), List.of("not a GC log"));
+        LogImport logImport = new LogImport(List.of(root)).withParallelism(2);
+        logImport.performImport();
+        assertEquals(1, logImport.getSkippedFiles());
+        var logsByService = logImport.getLogsByService();
+        assertEquals(List.of("checkout", "search"), new ArrayList<>(logsByService.keySet()));
+        LogImport.ImportedLog checkout = logsByService.get("checkout").get(1);
+        assertEquals("17.0.2+8-86", checkout.jdkVersion());
+        RunResult run = checkout.run().runResult();
+        assertEquals(GCType.G1, run.gcType());
+        assertEquals(2, run.runNo());
+        assertEquals(256, run.xms());
+        assertEquals(4096, run.xmx());
+        assertEquals(10.996, run.runtime(), 1e-9);
+        assertEquals(3, checkout.run().pauses().size());
+        //100 MB allocated until GC(1), then 200 MB until GC(2)
+        assertEquals(300.0 / 9.99, checkout.allocationRate(), 1e-9);
+        assertEquals(GCType.ZGC, logsByService.get("search").get(0).run().runResult().gcType());
+        LogImport.ServiceStats stats = logImport.getServiceStats().get(0);
+        assertEquals("checkout", stats.service());
+        assertEquals(2, stats.files());
+        assertEquals(20.0, stats.maxPause(), EPSILON);
+        assertEquals(5.0, stats.pauseP50(), EPSILON);
+        assertEquals(300.0 / 9.99, stats.allocationRate(), 1e-9);
+        Analysis production = new Analysis("checkout", List.of(GCType.G1),
+                new Analysis.Metrics[]{Analysis.Metrics.Latency}, JavaRuntime.recorded(checkout.jdkVersion()));
+        production.replay(logsByService.get("checkout").stream().map(LogImport.ImportedLog::run).toList());
+        assertEquals(List.of(GCType.G1), production.getLeaderboard());
+        assertEquals(2, production.getRunResults().get(GCType.G1).size());
+        assertEquals(Optional.empty(), LogImport.yieldCollector(List.of("[0.005s][info][gc] Using nothing")));
+        assertThrows(IllegalArgumentException.class, () -> new LogImport(List.of()));
+    }
+
+    @Test
+    public void testLogImportRotation() throws IOException {
+        Path root = Files.createTempDirectory("gcperf-rotation");
+        Files.createDirectories(root.resolve("checkout"));
+        //-Xlog:gc*:file=gc.log:filecount=3 writes the startup header to the first file of the set only
+        Files.write(root.resolve("checkout/gc.log.0"), List.of(
+                "[0.004s][info][gc,init] Version: 17.0.2+8-86 (release)",
+                "[0.005s][info][gc] Using Parallel",
+                "[0.006s][info][gc,init] Heap Initial Capacity: 256M",
+                "[1.010s][info][gc] GC(0) Pause Young (Allocation Failure) 100M->20M(256M) 4.000ms"));
+        Files.write(root.resolve("checkout/gc.log.1"), List.of(
+                "[50.000s][info][gc] GC(90) Pause Young (Allocation Failure) 120M->20M(256M) 6.000ms",
+                "[60.000s][info][gc] GC(91) Pause Full (Ergonomics) 200M->30M(256M) 30.000ms"));
+        Files.write(root.resolve("checkout/other.log"), List.of(
+                "[5.000s][info][gc] GC(3) Pause Young (Normal) (G1 Evacuation Pause) 120M->20M(256M) 6.000ms",
+                "[6.000s][info][gc] GC(4) Pause Young (Normal) (G1 Evacuation Pause) 120M->20M(256M) 6.000ms"));
+        LogImport logImport = new LogImport(List.of(root));
+        logImport.performImport();
+        List<LogImport.ImportedLog> logs = logImport.getLogsByService().get("checkout");
+        assertEquals(2, logs.size());
+        assertEquals(1, logImport.getSkippedFiles()); //other.log has neither a header nor a rotation set with one
+        RunResult rotated = logs.get(1).run().runResult();
+        assertEquals(GCType.PARALLEL, rotated.gcType());
+        assertEquals("17.0.2+8-86", logs.get(1).jdkVersion());
+        assertEquals(256, rotated.xms());
+        assertEquals(10.0, rotated.runtime(), 1e-9);
+        assertEquals(30.0, rotated.maxPause(), EPSILON);
+
+        logImport.withDefaultCollector(GCType.G1).performImport();
+        assertEquals(0, logImport.getSkippedFiles());
+        assertEquals(GCType.G1, logImport.getLogsByService().get("checkout").get(2).run().runResult().gcType());
+    }
+
+    @Test
+    public void testLogDecorators() {
+        // JDK 11 default decorators, unpadded tags
+        String jdk11 = "[0.011s][info][gc] Using G1";
+        assertSame(jdk11, LogDecorators.normalize(jdk11));
+        assertEquals(0.011, LogDecorators.uptime(jdk11), 0.0);
+        assertEquals(1.469, LogDecorators.uptime("[1.469s][info][gc] Using G1"), 0.0);
+        // JDK 17 with a comma as decimal separator and padded tags
+        String jdk17 = "[1,496s][info][gc,cpu         ] GC(5) User=0.34s Sys=0.00s Real=0.09s";
+        assertSame(jdk17, LogDecorators.normalize(jdk17));
+        assertEquals(1.496, Analysis.yieldUptimeFromLine(jdk17), 1e-9);
+        // JDK 17 time,uptime,level,tags
+        assertEquals("[0.096s][info][gc] GC(0) Pause Young (Allocation Failure) 17M->16M(61M) 13.841ms",
+                LogDecorators.normalize("[2026-10-19T06:03:07.334+0000][0.096s][info][gc          ] GC(0) Pause " +
+                        "Young (Allocation Failure) 17M->16M(61M) 13.841ms"));
+        // JDK 21 utctime,pid,tid,uptimemillis,level,tags and uptimenanos,hostname,level,tags
+        assertEquals("[0.077s][info][gc,start] GC(0) Pause Young (Allocation Failure)", LogDecorators.normalize(
+                "[2026-10-19T06:03:08.898+0000][77ms][7036][7038][info][gc,start    ] GC(0) Pause Young " +
+                        "(Allocation Failure)"));
+        assertEquals("[0.088s][info][gc,start] GC(0) Pause Young (Allocation Failure)", LogDecorators.normalize(
+                "[88318478ns][vm][info][gc,start] GC(0) Pause Young (Allocation Failure)"));
+        assertEquals(0.088318478, LogDecorators.uptime("[88318478ns][vm][info][gc,start] GC(0)"), 1e-9);
+        // arbitrary order, pid and tid with suffixes
+        assertEquals("[12.300s][info][os,thread] Thread finished", LogDecorators.normalize(
+                "[info][7036p][os,thread][7037t][12300ms] Thread finished"));
+        // wall clock only: uptime counts from the first line of the log
+        List<String> wallClock = new ArrayList<>(List.of(
+                "[2026-10-19T06:03:12.000+0000][info][gc       ] Using Serial",
+                "application output",
+                "[1792389793577ms][gc          ] GC(0) Pause Young (Allocation Failure) 17M->16M(61M) 14.377ms"));
+        LogDecorators.normalize(wallClock);
+        assertEquals("[0.000s][info][gc] Using Serial", wallClock.get(0));
+        assertEquals("application output", wallClock.get(1));
+        assertEquals(1.577, Analysis.yieldUptimeFromLine(wallClock.get(2)), 1e-9);
+        assertTrue(Double.isNaN(LogDecorators.uptime("[1792389793577ms][gc] Using Serial")));
+        assertTrue(Double.isNaN(LogDecorators.uptime("[INFO] Building gcperf")));
+        assertEquals("[INFO] Building gcperf", LogDecorators.normalize("[INFO] Building gcperf"));
+
+        // the same log in the default and in a JDK 21 style layout parses to the same results
+        List<String> decorated = new ArrayList<>();
+        for (String line : testStrings) {
+            double uptime = Analysis.yieldUptimeFromLine(line);
+            decorated.add(Double.isNaN(uptime) ? line : "[2026-10-19T06:03:08.824+0000][" + Math.round(uptime * 1000) +
+                    "ms][7036][7037]" + line.substring(line.indexOf(']') + 1));
+        }
+        LogDecorators.normalize(decorated);
+        for (GCType gcType : GCType.values()) {
+            assertEquals(Analysis.yieldGCTimeFromSource(testStrings, gcType),
+                    Analysis.yieldGCTimeFromSource(decorated, gcType), EPSILON);
+            assertArrayEquals(Analysis.yieldNoOfPauses(testStrings, gcType), Analysis.yieldNoOfPauses(decorated, gcType));
+            assertEquals(Analysis.yieldPausesFromSource(testStrings, gcType),
+                    Analysis.yieldPausesFromSource(decorated, gcType));
+        }
+    }
+
+    @Test
+    public void testLegacyGCLog() throws IOException {
+        List<String> cms = List.of(
+                "Java HotSpot(TM) 64-Bit Server VM (25.292-b10) for linux-amd64 JRE (1.8.0_292-b10), built on Apr 13 2021",
+                "CommandLine flags: -XX:InitialHeapSize=268435456 -XX:MaxHeapSize=1073741824 -XX:+PrintGCDetails " +
+                        "-XX:+PrintGCTimeStamps -XX:+UseConcMarkSweepGC -XX:+UseParNewGC",
+                "0.345: [GC (Allocation Failure) 0.345: [ParNew: 69952K->8704K(78656K), 0.0123456 secs] " +
+                        "69952K->12000K(253440K), 0.0124567 secs] [Times: user=0.04 sys=0.01, real=0.01 secs] ",
+                "1.000: [GC (CMS Initial Mark) [1 CMS-initial-mark: 40000K(174784K)] 45000K(253440K), 0.0012000 secs] " +
+                        "[Times: user=0.00 sys=0.00, real=0.00 secs] ",
+                "1.001: [CMS-concurrent-mark-start]",
+                "1.050: [CMS-concurrent-mark: 0.049/0.049 secs] [Times: user=0.10 sys=0.00, real=0.05 secs] ",
+                //a concurrent phase ending in the middle of a pause
+                "1.100: [GC (Allocation Failure) 1.100: [ParNew1.105: [CMS-concurrent-preclean: 0.004/0.055 secs] " +
+                        "[Times: user=0.01 sys=0.00, real=0.06 secs] ",
+                ": 78656K->8704K(78656K), 0.0200000 secs] 110000K->50000K(253440K), 0.0201000 secs] " +
+                        "[Times: user=0.06 sys=0.00, real=0.02 secs] ",
+                "1.200: [GC (CMS Final Remark) [YG occupancy: 30000 K (78656 K)]1.200: [Rescan (parallel) , 0.0020000 " +
+                        "secs][1 CMS-remark: 41296K(174784K)] 71296K(253440K), 0.0040000 secs] " +
+                        "[Times: user=0.01 sys=0.00, real=0.01 secs] ",
+                "2.000: [GC (Allocation Failure) 2.000: [ParNew (promotion failed): 78656K->78656K(78656K), 0.0300000 " +
+                        "secs]2.030: [CMS: 170000K->100000K(174784K), 0.3000000 secs] 240000K->100000K(253440K), " +
+                        "[Metaspace: 3000K->3000K(1056768K)], 0.3310000 secs] [Times: user=0.40 sys=0.01, real=0.33 secs] ");
+        assertTrue(LegacyGCLog.isLegacy(cms));
+        assertFalse(LegacyGCLog.isLegacy(testStrings));
+        assertEquals(Optional.of(GCType.CMS), LegacyGCLog.yieldCollector(cms));
+        List<String> translated = Analysis.normalizeLog(new ArrayList<>(cms));
+        assertEquals(Optional.of(GCType.CMS), LogImport.yieldCollector(translated));
+        assertTrue(translated.contains("[0.345s][info][gc,init] Heap Max Capacity: 1024M"));
+        assertTrue(translated.contains("[1.050s][info][gc] GC(1) Concurrent Mark 49.000ms"));
+        List<Analysis.GCPause> pauses = Analysis.yieldPausesFromSource(translated, GCType.CMS);
+        assertEquals(List.of("Young (Allocation Failure)", "Initial Mark", "Young (Allocation Failure)", "Remark",
+                "Full (Allocation Failure)"), pauses.stream().map(Analysis.GCPause::cause).toList());
+        assertEquals(20.1, pauses.get(2).duration(), 1e-9);
+        assertEquals(1.120, pauses.get(2).uptime(), 1e-9);
+        assertArrayEquals(new int[]{1, 4}, Analysis.yieldNoOfPauses(translated, GCType.CMS));
+        assertEquals(0.369, Analysis.yieldSTWTimeFromSource(translated, GCType.CMS), EPSILON);
+        //pauses and the mark and preclean phases
+        assertEquals(0.473, Analysis.yieldGCTimeFromSource(translated, GCType.CMS), EPSILON);
+        assertEquals(240000 / 1024.0, Analysis.yieldPeakHeapUsage(translated), EPSILON);
+
+        List<String> parallel = List.of(
+                "0.234: [GC (Allocation Failure) [PSYoungGen: 33280K->5104K(38400K)] 33280K->20112K(125952K), " +
+                        "0.0123456 secs] [Times: user=0.03 sys=0.01, real=0.01 secs] ",
+                "1.234: [Full GC (Ergonomics) [PSYoungGen: 5112K->0K(71680K)] [ParOldGen: 42888K->40000K(87552K)] " +
+                        "48000K->40000K(159232K), [Metaspace: 3000K->3000K(1056768K)], 0.2345678 secs] " +
+                        "[Times: user=0.50 sys=0.01, real=0.23 secs] ");
+        translated = Analysis.normalizeLog(new ArrayList<>(parallel));
+        assertEquals(Optional.of(GCType.PARALLEL), LogImport.yieldCollector(translated));
+        assertArrayEquals(new int[]{1, 1}, Analysis.yieldNoOfPauses(translated, GCType.PARALLEL));
+        assertEquals(0.24, Analysis.yieldGCTimeFromSource(translated, GCType.PARALLEL), EPSILON);
+        assertEquals("Full (Ergonomics)", Analysis.yieldPausesFromSource(translated, GCType.PARALLEL).get(1).cause());
+        assertEquals(48000 / 1024.0, Analysis.yieldPeakHeapUsage(translated), EPSILON);
+
+        //G1 with date stamps only, heap transitions on the detail lines
+        List<String> g1 = List.of(
+                "2024-01-15T10:00:00.500+0000: [GC pause (G1 Evacuation Pause) (young), 0.0123000 secs]",
+                "   [Eden: 24.0M(24.0M)->0.0B(13.0M) Survivors: 0.0B->3072.0K Heap: 24.0M(256.0M)->4608.0K(256.0M)]",
+                " [Times: user=0.03 sys=0.01, real=0.01 secs] ",
+                "2024-01-15T10:00:02.000+0000: [GC pause (G1 Evacuation Pause) (mixed), 0.0080000 secs]",
+                "   [Eden: 12.0M(12.0M)->0.0B(12.0M) Survivors: 2048.0K->2048.0K Heap: 90.0M(256.0M)->60.0M(256.0M)]",
+                " [Times: user=0.02 sys=0.00, real=0.01 secs] ");
+        translated = Analysis.normalizeLog(new ArrayList<>(g1));
+        assertEquals("[0.012s][info][gc] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 24576K->4608K(262144K) " +
+                "12.300ms", translated.get(2));
+        pauses = Analysis.yieldPausesFromSource(translated, GCType.G1);
+        assertEquals(1.508, pauses.get(1).uptime(), 1e-9);
+        assertEquals("Young (Mixed) (G1 Evacuation Pause)", pauses.get(1).cause());
+
+        //a JDK 8 baseline next to a JDK 17 candidate
+        Path root = Files.createTempDirectory("gcperf-legacy");
+        Files.createDirectories(root.resolve("checkout"));
+        Files.write(root.resolve("checkout/jdk8.log"), cms);
+        Files.write(root.resolve("checkout/jdk17.log"), List.of("[0.005s][info][gc] Using G1",
+                "[1.010s][info][gc] GC(0) Pause Young (Normal) (G1 Evacuation Pause) 100M->20M(256M) 5.000ms"));
+        LogImport logImport = new LogImport(List.of(root));
+        logImport.performImport();
+        assertEquals(0, logImport.getSkippedFiles());
+        LogImport.ImportedLog baseline = logImport.getLogsByService().get("checkout").stream()
+                .filter(log -> log.run().runResult().gcType() == GCType.CMS).findFirst().orElseThrow();
+        assertEquals("1.8.0_292", baseline.jdkVersion());
+        assertEquals(256, baseline.run().runResult().xms());
+        assertEquals(2.331 - 0.345, baseline.run().runResult().runtime(), 1e-9);
+        assertEquals(List.of(GCType.G1, GCType.CMS), logImport.getServiceStats().stream()
+                .map(LogImport.ServiceStats::gcType).toList());
+    }
+
+    @Test
+    public void testContainerProfile() {
+        ContainerProfile profile = new ContainerProfile("2vcpu-1g").withActiveProcessorCount(2).withMaxRam(1024)
+                .withMaxRamPercentage(75).withCpuAffinity("0-1");
+        assertEquals(List.of("-XX:ActiveProcessorCount=2", "-XX:MaxRAM=1024m", "-XX:MaxRAMPercentage=75.0"),
+                profile.getVMOptions());
+        assertEquals(1024, profile.limitMaxHeapSize(8192));
+        assertEquals(512, profile.limitMaxHeapSize(512));
+
+        List<String> command = profile.wrapCommand(List.of("java", "App"), null);
+        assertEquals("java", command.get(command.size() - 2));
+        assertEquals("App", command.get(command.size() - 1));
+        assertNull(profile.createCgroup("run-1"));
+
+        analysis.withContainerProfile(profile);
+        assertEquals(Integer.min(1024, Analysis.getMaxMaxHeapSize()), analysis.getMaxHeapSizeLimit());
+        assertThrows(IllegalArgumentException.class, () -> analysis.buildCLI(GCType.G1, 200, 2048));
+        assertSame(profile, analysis.buildCLI(GCType.G1, 200, 400).getContainerProfile());
+
+        assertThrows(IllegalArgumentException.class, () -> profile.withActiveProcessorCount(0));
+        assertThrows(IllegalArgumentException.class, () -> profile.withMaxRamPercentage(120));
+        assertThrows(IllegalArgumentException.class, () -> profile.withCpuAffinity("all"));
     }
 
     @Test
@@ -248,4 +668,129 @@ public class AnalysisTest {
         assertEquals(22.5, Analysis.calculateThroughput(4.71, 3.65), EPSILON);
         assertEquals(0.01, Analysis.calculateThroughput(45.71, 45.7099), EPSILON);
     }
+
+    @Test
+    public void testJavaRuntime() {
+        JavaRuntime current = JavaRuntime.fromHome(Path.of(System.getProperty("java.home")));
+        assertEquals(System.getProperty("java.version"), current.getVersion());
+        assertEquals(Runtime.version().feature(), current.getFeatureVersion());
+        assertTrue(current.getJavaExecutable().startsWith(System.getProperty("java.home")));
+        assertEquals("java", JavaRuntime.fromPath().getJavaExecutable());
+
+        Analysis jdkAnalysis = new Analysis("App", List.of(GCType.G1), new Analysis.Metrics[]{Analysis.Metrics.Throughput},
+                current);
+        assertEquals(current, jdkAnalysis.getJavaRuntime());
+
+        assertThrows(IllegalArgumentException.class, () -> JavaRuntime.fromHome(Path.of("nonexistent-jdk-home")));
+    }
+
+    private static JavaRuntime fakeJavaRuntime(String version) throws IOException {
+        Path home = Files.createTempDirectory("gcperf-jdk");
+        Files.createDirectories(home.resolve("bin"));
+        Files.writeString(home.resolve("release"), "JAVA_VERSION=\"" + version + "\"\n");
+        assertTrue(Files.createFile(home.resolve("bin/java")).toFile().setExecutable(true));
+        return JavaRuntime.fromHome(home);
+    }
+
+    @Test
+    public void testLaunchableGCTypes() throws IOException {
+        Analysis.Metrics[] metrics = {Analysis.Metrics.Throughput};
+        assertTrue(GCType.CMS.isAvailableOn(11));
+        assertFalse(GCType.CMS.isAvailableOn(14));
+        assertFalse(GCType.ZGC.isAvailableOn(10));
+        JavaRuntime jdk8 = fakeJavaRuntime("1.8.0_292");
+        JavaRuntime jdk11 = fakeJavaRuntime("11.0.20");
+        JavaRuntime jdk17 = fakeJavaRuntime("17.0.9");
+        //JDK 8 refuses -Xlog, whatever the collector
+        assertThrows(IllegalArgumentException.class, () -> new Analysis("App", List.of(GCType.SERIAL), metrics, jdk8));
+        assertThrows(IllegalArgumentException.class, () -> new Analysis("App", List.of(GCType.G1, GCType.CMS), metrics,
+                jdk17));
+        assertEquals(jdk11, new Analysis("App", List.of(GCType.G1, GCType.CMS, GCType.ZGC), metrics, jdk11)
+                .getJavaRuntime());
+        //recorded runtimes only rank stored or imported runs
+        new Analysis("App", List.of(GCType.CMS), metrics, JavaRuntime.recorded("1.8.0_292"));
+        new Analysis("App", List.of(GCType.CMS), metrics, JavaRuntime.recorded("17"));
+    }
+
+    @Test
+    public void testSteadyStateWindow() {
+        assertEquals(0.173, Analysis.yieldUptimeFromLine(testStrings.get(0)), EPSILON);
+        assertTrue(Double.isNaN(Analysis.yieldUptimeFromLine("[gc,stats    ]     6 Full GCs")));
+
+        Analysis.SteadyStateWindow window = new Analysis.SteadyStateWindow(Duration.ofMillis(300), Duration.ofMillis(600));
+        testStrings.add("[gc,stats    ]     6 Full GCs");
+        List<String> filtered = Analysis.filterSteadyStateWindow(testStrings, window);
+        assertEquals(9, filtered.size());
+        assertTrue(filtered.contains("[gc,stats    ]     6 Full GCs"));
+        assertFalse(filtered.contains(testStrings.get(0)));
+        assertEquals(0.6, Analysis.yieldSteadyStateRuntime(testStrings, window), EPSILON);
+
+        Analysis.SteadyStateWindow longWindow = new Analysis.SteadyStateWindow(Duration.ofSeconds(1), Duration.ofSeconds(10));
+        assertEquals(2.092, Analysis.yieldSteadyStateRuntime(testStrings, longWindow), EPSILON);
+
+        Analysis.SteadyStateWindow lateWindow = new Analysis.SteadyStateWindow(Duration.ofSeconds(5), Duration.ofSeconds(10));
+        assertThrows(IllegalArgumentException.class, () -> Analysis.yieldSteadyStateRuntime(testStrings, lateWindow));
+        assertThrows(IllegalArgumentException.class, () -> new Analysis.SteadyStateWindow(Duration.ZERO, Duration.ZERO));
+    }
+
+    @Test
+    public void testWorkspace() throws IOException {
+        Path root = Files.createTempDirectory("gcperf-workspaces");
+        Workspace first = Workspace.create(root);
+        Workspace second = Workspace.create(root);
+        assertNotEquals(first.getRoot(), second.getRoot());
+        assertTrue(Files.isDirectory(first.getBinDirectory()));
+
+        Workspace.RunFiles g1Run = first.newRun(GCType.G1);
+        Workspace.RunFiles serialRun = first.newRun(GCType.SERIAL);
+        assertNotEquals(g1Run.outFile(), serialRun.outFile());
+        assertNotEquals(g1Run.outFile(), second.newRun(GCType.G1).outFile());
+        assertTrue(g1Run.outFile().toPath().startsWith(first.getRoot()));
+
+        assertEquals(0, Workspace.cleanup(root, 0, null)); //both in use
+        first.close();
+        assertEquals(1, Workspace.cleanup(root, 0, null));
+        assertFalse(Files.exists(first.getRoot()));
+        assertTrue(Files.exists(second.getRoot()));
+        second.close();
+        assertEquals(0, Workspace.cleanup(root, 1, null));
+        assertEquals(1, Workspace.cleanup(root, 1, Duration.ofSeconds(-1)));
+        assertThrows(IllegalArgumentException.class, () -> Workspace.cleanup(root, -1, null));
+
+        Path sharedBin = Files.createDirectories(root.resolve("shared-bin"));
+        Workspace shared = Workspace.create(root.resolve("ws"), sharedBin);
+        assertEquals(sharedBin.toAbsolutePath(), shared.getBinDirectory());
+        shared.delete();
+        assertTrue(Files.exists(sharedBin));
+    }
+
+    @Test
+    public void testWorkspaceLockAcrossProcesses() throws IOException, InterruptedException {
+        Path root = Files.createTempDirectory("gcperf-workspaces");
+        Workspace local = Workspace.create(root);
+        assertEquals(0, Workspace.cleanup(root, 0, null)); //probing from this JVM must keep the lock
+        assertEquals("0", runWorkspaceProcess("cleanup", root).readLine());
+        assertTrue(Files.exists(local.getRoot()));
+        local.close();
+
+        Process holder = new ProcessBuilder(workspaceProcessCommand("hold", root)).start();
+        Path held = Path.of(new BufferedReader(new InputStreamReader(holder.getInputStream())).readLine());
+        assertEquals(1, Workspace.cleanup(root, 0, null)); //only the closed local one
+        assertTrue(Files.exists(held));
+        holder.getOutputStream().close();
+        assertEquals(0, holder.waitFor());
+        assertEquals(1, Workspace.cleanup(root, 0, null));
+        assertFalse(Files.exists(held));
+    }
+
+    private static BufferedReader runWorkspaceProcess(String mode, Path root) throws IOException, InterruptedException {
+        Process process = new ProcessBuilder(workspaceProcessCommand(mode, root)).start();
+        assertEquals(0, process.waitFor());
+        return new BufferedReader(new InputStreamReader(process.getInputStream()));
+    }
+
+    private static List<String> workspaceProcessCommand(String mode, Path root) {
+        return List.of(Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+                "-cp", System.getProperty("java.class.path"), WorkspaceProcess.class.getName(), mode, root.toString());
+    }
 }
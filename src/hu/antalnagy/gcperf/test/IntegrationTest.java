@@ -8,6 +8,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.List;
 
 import static org.junit.Assert.*;
@@ -29,7 +30,7 @@ public class IntegrationTest {
     @Test
     public void gcPerfDriverIntegrationTest() throws PythonExecutionException, IOException, InterruptedException {
         assertNull(gcPerfDriver.getAnalysis());
-        assertNull(gcPerfDriver.getDbDriver());
+        assertNull(gcPerfDriver.getResultStore());
         assertNull(gcPerfDriver.getGcPerfPlot());
         assertThrows(NullPointerException.class, gcPerfDriver::getLeaderboard); //because analysis is null
         assertThrows(NullPointerException.class, gcPerfDriver::getProgress); //because analysis is null
@@ -42,10 +43,11 @@ public class IntegrationTest {
         assertNotNull(gcPerfDriver.getAnalysis());
         analysisIntegrationTest(gcPerfDriver.getAnalysis());
 
-        assertNotNull(gcPerfDriver.getDbDriver());
-        gcPerfDriver.getDbDriver().createConnectionAndStatement();
-        assertFalse(gcPerfDriver.getDbDriver().queryRows().isEmpty());
-        gcPerfDriver.getDbDriver().close();
+        assertNotNull(gcPerfDriver.getResultStore());
+        assertTrue(gcPerfDriver.getPersistenceService().flush(Duration.ofSeconds(30)));
+        assertFalse(gcPerfDriver.getResultStore().queryRows().isEmpty());
+        assertFalse(gcPerfDriver.getResultStore().queryRuns().isEmpty());
+        gcPerfDriver.shutdown();
 
         assertNotNull(gcPerfDriver.getLeaderboard());
         assertNotNull(gcPerfDriver.getProgress());
@@ -2,7 +2,10 @@ package hu.antalnagy.gcperf.test;
 
 import hu.antalnagy.gcperf.Analysis;
 import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.IncrementalLeaderboard;
 import hu.antalnagy.gcperf.Leaderboard;
+import hu.antalnagy.gcperf.RunResult;
+import hu.antalnagy.gcperf.statistics.Quantiles;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -12,6 +15,8 @@ import static org.junit.Assert.*;
 
 public class LeaderboardTest {
 
+    private final double EPSILON = 0.01;
+
     private Leaderboard leaderboard;
 
     @Before
@@ -135,4 +140,173 @@ public class LeaderboardTest {
         results = (LinkedList<GCType>) leaderboard.getLeaderboard();
         assertEquals(GCType.SERIAL, results.getFirst());
     }
+
+    @Test
+    public void testAppThroughputMetric() {
+        leaderboard.getGcTypes().add(GCType.G1);
+        leaderboard.getGcTypes().add(GCType.PARALLEL);
+        leaderboard.getAppThroughputsMap().put(GCType.G1, new ArrayList<>(List.of(1200.0, Double.NaN)));
+        leaderboard.getAppThroughputsMap().put(GCType.PARALLEL, new ArrayList<>(List.of(1100.0, 1150.0)));
+        leaderboard.setLeaderboard(Analysis.Metrics.AppThroughput);
+
+        LinkedList<GCType> results = (LinkedList<GCType>) leaderboard.getLeaderboard();
+        assertEquals(GCType.G1, results.getFirst());
+
+        leaderboard.getAppThroughputsMap().get(GCType.PARALLEL).add(1440.0);
+        leaderboard.setLeaderboard(Analysis.Metrics.AppThroughput);
+        results = (LinkedList<GCType>) leaderboard.getLeaderboard();
+        assertEquals(GCType.PARALLEL, results.getFirst());
+    }
+
+    @Test
+    public void testLatencyMetric() {
+        leaderboard.getGcTypes().addAll(List.of(GCType.SERIAL, GCType.G1, GCType.SHENANDOAH));
+        //without measured pauses Latency awards no points at all
+        leaderboard.setLeaderboard(Analysis.Metrics.Latency);
+        assertTrue(leaderboard.getLeaderboard().isEmpty());
+
+        //a single long pause ranks Shenandoah behind a G1 with a tuned pause goal
+        leaderboard.withMaxPauses(Map.of(GCType.SERIAL, List.of(35.0, 41.0), GCType.G1, List.of(4.0, 5.5),
+                GCType.SHENANDOAH, List.of(1.0, 9.0)));
+        leaderboard.setLeaderboard(Analysis.Metrics.Latency);
+        assertEquals(List.of(GCType.G1, GCType.SHENANDOAH, GCType.SERIAL), leaderboard.getLeaderboard());
+
+        leaderboard.withMaxPauses(Map.of(GCType.SERIAL, List.of(35.0, Double.NaN), GCType.G1, List.of(Double.NaN)));
+        leaderboard.setLeaderboard(Analysis.Metrics.Latency);
+        assertEquals(GCType.SERIAL, ((LinkedList<GCType>) leaderboard.getLeaderboard()).getFirst());
+    }
+
+    @Test
+    public void testLatencyWithoutPauses() {
+        //ZGC's log parsed without a single stop-the-world pause, which is the best latency, not an unknown one
+        List<String> zgcLog = List.of("[0.008s][info][gc,init] Using The Z Garbage Collector",
+                "[0.412s][info][gc,start    ] GC(0) Garbage Collection (Warmup)",
+                "[0.431s][info][gc          ] GC(0) Garbage Collection (Warmup) 26M(10%)->12M(5%)");
+        assertTrue(Analysis.isGCLog(zgcLog));
+        double zgcMaxPause = Analysis.yieldPauseQuantile(List.of(), Analysis.isGCLog(zgcLog), 1.0);
+        double zgcPauseP99 = Analysis.yieldPauseQuantile(List.of(), Analysis.isGCLog(zgcLog), 0.99);
+        assertEquals(0.0, zgcMaxPause, EPSILON);
+        assertEquals(0.0, zgcPauseP99, EPSILON);
+        //a log without collections says nothing about pauses
+        assertFalse(Analysis.isGCLog(zgcLog.subList(0, 1)));
+        assertFalse(Analysis.isGCLog(List.of()));
+        assertTrue(Double.isNaN(Analysis.yieldPauseQuantile(List.of(), Analysis.isGCLog(List.of()), 1.0)));
+
+        leaderboard.getGcTypes().addAll(List.of(GCType.SERIAL, GCType.G1, GCType.ZGC));
+        leaderboard.withMaxPauses(Map.of(GCType.SERIAL, List.of(35.0), GCType.G1, List.of(4.0),
+                GCType.ZGC, List.of(zgcMaxPause)));
+        leaderboard.setLeaderboard(Analysis.Metrics.Latency);
+        assertEquals(List.of(GCType.ZGC, GCType.G1, GCType.SERIAL), leaderboard.getLeaderboard());
+
+        leaderboard.getThroughputsMap().putAll(Map.of(GCType.SERIAL, List.of(95.0), GCType.G1, List.of(96.0),
+                GCType.ZGC, List.of(90.0)));
+        leaderboard.withPauseP99s(Map.of(GCType.SERIAL, List.of(30.0), GCType.G1, List.of(3.0),
+                GCType.ZGC, List.of(zgcPauseP99)));
+        leaderboard.withFootprints(Map.of(GCType.SERIAL, List.of(300.0), GCType.G1, List.of(450.0),
+                GCType.ZGC, List.of(700.0)));
+        assertTrue(leaderboard.getParetoFront().stream().anyMatch(point -> point.key() == GCType.ZGC));
+    }
+
+    @Test
+    public void testSignificanceTesting() {
+        leaderboard.withSignificanceTesting(Leaderboard.SignificanceTesting.defaults());
+        leaderboard.getGcTypes().addAll(List.of(GCType.SERIAL, GCType.G1, GCType.ZGC));
+        leaderboard.getThroughputsMap().put(GCType.SERIAL, List.of(90.1, 90.4, 89.8, 90.0, 90.3, 89.9, 90.2, 90.5));
+        leaderboard.getThroughputsMap().put(GCType.G1, List.of(90.3, 89.7, 90.6, 90.0, 90.1, 89.9, 90.4, 90.2));
+        leaderboard.getThroughputsMap().put(GCType.ZGC, List.of(85.1, 84.7, 85.3, 84.9, 85.0, 85.2, 84.8, 85.4));
+        leaderboard.setLeaderboard(Analysis.Metrics.Throughput);
+
+        Leaderboard.MetricRanking<GCType> ranking = leaderboard.getMetricRankings().get(Analysis.Metrics.Throughput);
+        assertEquals(2, ranking.tiers().size());
+        assertEquals(Set.of(GCType.SERIAL, GCType.G1), new HashSet<>(ranking.getTies().get(0)));
+        assertEquals(List.of(GCType.ZGC), ranking.tiers().get(1));
+        assertEquals(GCType.ZGC, ((LinkedList<GCType>) leaderboard.getLeaderboard()).getLast());
+        assertEquals(3, ranking.tests().size());
+        assertTrue(ranking.intervals().get(GCType.ZGC).lower() < 85.05);
+        assertTrue(ranking.intervals().get(GCType.ZGC).upper() > 85.05);
+
+        //two runs per collector can never be significantly different
+        leaderboard.getThroughputsMap().put(GCType.SERIAL, List.of(90.1, 90.4));
+        leaderboard.getThroughputsMap().put(GCType.G1, List.of(90.3, 89.7));
+        leaderboard.getThroughputsMap().put(GCType.ZGC, List.of(10.0, 11.0));
+        leaderboard.setLeaderboard(Analysis.Metrics.Throughput);
+        assertEquals(1, leaderboard.getMetricRankings().get(Analysis.Metrics.Throughput).tiers().size());
+
+        assertThrows(IllegalArgumentException.class, () -> new Leaderboard.SignificanceTesting(0, 0.95, 1000, 1));
+        assertThrows(IllegalArgumentException.class, () -> new Leaderboard.SignificanceTesting(0.05, 0.95, 10, 1));
+    }
+
+    @Test
+    public void testMetricWeights() {
+        leaderboard.getGcTypes().addAll(List.of(GCType.PARALLEL, GCType.ZGC));
+        leaderboard.getThroughputsMap().put(GCType.PARALLEL, List.of(98.0, 97.5));
+        leaderboard.getThroughputsMap().put(GCType.ZGC, List.of(91.0, 92.0));
+        leaderboard.withFootprints(Map.of(GCType.PARALLEL, List.of(420.0, 400.0), GCType.ZGC, List.of(260.0, 250.0)));
+        leaderboard.setLeaderboard(Analysis.Metrics.Throughput, Analysis.Metrics.Footprint);
+        assertEquals(2, leaderboard.getLeaderboard().size());
+
+        leaderboard.withWeights(Map.of(Analysis.Metrics.Footprint, 3.0)).setLeaderboard(Analysis.Metrics.Throughput,
+                Analysis.Metrics.Footprint);
+        assertEquals(GCType.ZGC, ((LinkedList<GCType>) leaderboard.getLeaderboard()).getFirst());
+
+        leaderboard.withWeights(Map.of(Analysis.Metrics.Throughput, 3.0)).setLeaderboard(Analysis.Metrics.Throughput,
+                Analysis.Metrics.Footprint);
+        assertEquals(GCType.PARALLEL, ((LinkedList<GCType>) leaderboard.getLeaderboard()).getFirst());
+
+        assertThrows(IllegalArgumentException.class, () -> leaderboard.withWeights(
+                Map.of(Analysis.Metrics.Latency, -1.0)));
+    }
+
+    @Test
+    public void testParetoFront() {
+        leaderboard.getGcTypes().addAll(List.of(GCType.SERIAL, GCType.PARALLEL, GCType.G1, GCType.ZGC));
+        leaderboard.getThroughputsMap().putAll(Map.of(GCType.SERIAL, List.of(95.0), GCType.PARALLEL, List.of(98.0),
+                GCType.G1, List.of(96.0), GCType.ZGC, List.of(90.0)));
+        leaderboard.withPauseP99s(Map.of(GCType.SERIAL, List.of(60.0), GCType.PARALLEL, List.of(40.0),
+                GCType.G1, List.of(12.0), GCType.ZGC, List.of(0.5)));
+        leaderboard.withFootprints(Map.of(GCType.SERIAL, List.of(300.0), GCType.PARALLEL, List.of(500.0),
+                GCType.G1, List.of(450.0), GCType.ZGC, List.of(Double.NaN)));
+
+        //SERIAL is beaten by G1 on throughput and pauses, but has the smallest footprint; ZGC has no heap data
+        List<Leaderboard.ParetoPoint<GCType>> front = leaderboard.getParetoFront();
+        assertEquals(List.of(GCType.PARALLEL, GCType.G1, GCType.SERIAL),
+                front.stream().map(Leaderboard.ParetoPoint::key).toList());
+
+        leaderboard.withFootprints(Map.of(GCType.SERIAL, List.of(460.0), GCType.PARALLEL, List.of(500.0),
+                GCType.G1, List.of(450.0), GCType.ZGC, List.of(700.0)));
+        assertEquals(List.of(GCType.PARALLEL, GCType.G1, GCType.ZGC),
+                leaderboard.getParetoFront().stream().map(Leaderboard.ParetoPoint::key).toList());
+    }
+
+    private static RunResult runResult(GCType gcType, int runNo, double gcTime, double throughput, double maxPause) {
+        return new RunResult(gcType, runNo, runNo - 1, 0, 16, 32, 2.0, gcTime, gcTime, throughput, 0, 5, Double.NaN,
+                maxPause, maxPause, 30.0, null);
+    }
+
+    @Test
+    public void testIncrementalLeaderboard() {
+        IncrementalLeaderboard incremental = new IncrementalLeaderboard(List.of(GCType.SERIAL, GCType.G1, GCType.ZGC),
+                new Analysis.Metrics[]{Analysis.Metrics.Throughput, Analysis.Metrics.Latency}, Map.of());
+        assertTrue(incremental.getLeaderboard().isEmpty());
+
+        incremental.add(runResult(GCType.SERIAL, 1, 0.4, 92.0, 30.0), new double[]{3.0, 30.0, 12.0});
+        assertEquals(List.of(GCType.SERIAL), incremental.getLeaderboard());
+
+        incremental.add(runResult(GCType.G1, 1, 0.3, 94.0, 8.0), new double[]{2.0, 8.0});
+        assertEquals(List.of(GCType.G1, GCType.SERIAL), incremental.getLeaderboard());
+        assertEquals(30.0, incremental.getStandings().get(1).pauseP99(), EPSILON);
+
+        //a second, worse run doesn't change the best throughput but the worst pause
+        incremental.add(runResult(GCType.G1, 2, 0.5, 90.0, 45.0), null);
+        assertEquals(2, incremental.getRuns(GCType.G1));
+        IncrementalLeaderboard.Standing g1 = incremental.getStandings().stream()
+                .filter(standing -> standing.gcType() == GCType.G1).findFirst().orElseThrow();
+        assertEquals(94.0, g1.bestThroughput(), EPSILON);
+        assertEquals(45.0, g1.worstPause(), EPSILON);
+        //the run without pause durations stays out of the pause sketch
+        assertEquals(Quantiles.quantile(new double[]{2.0, 8.0}, 0.99), g1.pauseP99(), EPSILON);
+        assertEquals(0.4, g1.avgGCTime(), EPSILON);
+        assertEquals(3.0, g1.score(), EPSILON);
+        assertEquals(3.0, incremental.getStandings().get(1).score(), EPSILON);
+    }
 }
@@ -0,0 +1,77 @@
+package hu.antalnagy.gcperf.test;
+
+import hu.antalnagy.gcperf.probe.CounterFileProbe;
+import hu.antalnagy.gcperf.probe.OperationSampler;
+import hu.antalnagy.gcperf.probe.StdoutMarkerProbe;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OperationProbeTest {
+
+    private final double EPSILON = 0.01;
+
+    @Test
+    public void testOpsPerSecond() {
+        List<OperationSampler.Sample> samples = List.of(new OperationSampler.Sample(1.0, 100),
+                new OperationSampler.Sample(2.0, 300), new OperationSampler.Sample(3.0, 600));
+        assertEquals(200.0, OperationSampler.opsPerSecond(samples, 0, 3.0), EPSILON);
+        assertEquals(250.0, OperationSampler.opsPerSecond(samples, 1.0, 3.0), EPSILON);
+        assertEquals(250.0, OperationSampler.opsPerSecond(samples, 1.5, 2.5), EPSILON);
+        assertEquals(150.0, OperationSampler.opsPerSecond(samples, 0, 4.0), EPSILON); //no samples after 3s
+        assertTrue(Double.isNaN(OperationSampler.opsPerSecond(List.of(), 0, 3.0)));
+        assertTrue(Double.isNaN(OperationSampler.opsPerSecond(samples, 2.0, 2.0)));
+    }
+
+    @Test
+    public void testStdoutMarkerProbe() throws IOException {
+        File outFile = File.createTempFile("gcperf-probe", ".txt");
+        outFile.deleteOnExit();
+        StdoutMarkerProbe cumulativeProbe = new StdoutMarkerProbe("^OPS (\\d+)");
+        StdoutMarkerProbe countingProbe = new StdoutMarkerProbe("^tick");
+        cumulativeProbe.start(null, outFile);
+        countingProbe.start(null, outFile);
+        assertEquals(-1, cumulativeProbe.readCounter());
+
+        Files.writeString(outFile.toPath(), "[0.173s][info][gc] GC(0) Pause Young 1.0ms\nOPS 1500\ntick\nOPS 26");
+        assertEquals(1500, cumulativeProbe.readCounter()); //last line not complete yet
+        assertEquals(1, countingProbe.readCounter());
+        Files.writeString(outFile.toPath(), "[0.173s][info][gc] GC(0) Pause Young 1.0ms\nOPS 1500\ntick\nOPS 2600\ntick\n");
+        assertEquals(2600, cumulativeProbe.readCounter());
+        assertEquals(2, countingProbe.readCounter());
+    }
+
+    @Test
+    public void testCounterFileProbe() throws IOException {
+        Path counterFile = Files.createTempFile("gcperf-counter", ".txt");
+        Files.writeString(counterFile, "99");
+        CounterFileProbe probe = new CounterFileProbe(counterFile);
+        probe.start(null, null);
+        assertFalse(Files.exists(counterFile)); //stale value removed
+        assertEquals(-1, probe.readCounter());
+        Files.writeString(counterFile, "42\n");
+        assertEquals(42, probe.readCounter());
+        Files.writeString(counterFile, "");
+        assertEquals(42, probe.readCounter());
+        Files.deleteIfExists(counterFile);
+    }
+
+    @Test
+    public void testProbeIdentity() {
+        //the identity keys journaled and cached runs, so it has to tell apart every probe configuration
+        assertEquals(new StdoutMarkerProbe("^OPS (\\d+)").getIdentity(),
+                new StdoutMarkerProbe("^OPS (\\d+)").getIdentity());
+        assertNotEquals(new StdoutMarkerProbe("^OPS (\\d+)").getIdentity(),
+                new StdoutMarkerProbe("^tick").getIdentity());
+        assertNotEquals(new CounterFileProbe(Path.of("a.txt")).getIdentity(),
+                new CounterFileProbe(Path.of("b.txt")).getIdentity());
+        assertNotEquals(new StdoutMarkerProbe("a.txt").getIdentity(),
+                new CounterFileProbe(Path.of("a.txt")).getIdentity());
+    }
+}
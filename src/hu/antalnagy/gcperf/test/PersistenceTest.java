@@ -0,0 +1,342 @@
+package hu.antalnagy.gcperf.test;
+
+import hu.antalnagy.gcperf.Analysis;
+import hu.antalnagy.gcperf.GCType;
+import hu.antalnagy.gcperf.RunResult;
+import hu.antalnagy.gcperf.persistence.ColumnarResults;
+import hu.antalnagy.gcperf.persistence.Digests;
+import hu.antalnagy.gcperf.persistence.FileResultStore;
+import hu.antalnagy.gcperf.persistence.LogArchive;
+import hu.antalnagy.gcperf.persistence.PersistenceService;
+import hu.antalnagy.gcperf.persistence.ResultStore;
+import hu.antalnagy.gcperf.persistence.RunCache;
+import hu.antalnagy.gcperf.persistence.RunJournal;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+public class PersistenceTest {
+
+    private static RunResult runResult(GCType gcType, int runNo) {
+        return new RunResult(gcType, runNo, runNo - 1, 0, 200, 400 + runNo, 3.5, 0.25, 0.2, 94.2,
+                1, 12, Double.NaN, 4.25, 6.5, 310.0, "/tmp/out" + runNo + ".txt");
+    }
+
+    @Test
+    public void testRunResultSerialization() {
+        RunResult runResult = runResult(GCType.G1, 3);
+        assertEquals(runResult, RunResult.deserialize(runResult.serialize()));
+        assertEquals("g1-3", runResult.getRunId());
+        assertThrows(IllegalArgumentException.class, () -> RunResult.deserialize("G1\t1\t2"));
+        assertThrows(IllegalArgumentException.class, () -> RunResult.deserialize(
+                runResult.serialize().replace("G1", "EPSILON")));
+        assertThrows(IllegalArgumentException.class, () -> RunResult.deserialize(
+                "G1\t3\t2\t0\t200\t403\t3.5\t0.25\t0.2\t94.2\t1\t12\tNaN\t/tmp/out3.txt"));
+    }
+
+    @Test
+    public void testDigests() {
+        assertEquals("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855", Digests.sha256(""));
+        assertNotEquals(Digests.sha256("a"), Digests.sha256("b"));
+    }
+
+    @Test
+    public void testRunJournal() throws IOException {
+        Path file = Files.createTempFile("gcperf", ".journal");
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append("config-a", runResult(GCType.SERIAL, 1));
+            journal.append("config-b", runResult(GCType.SERIAL, 1));
+            journal.append("config-a", runResult(GCType.SERIAL, 2));
+            assertEquals(List.of(runResult(GCType.SERIAL, 1), runResult(GCType.SERIAL, 2)), journal.load("config-a"));
+            assertEquals(1, journal.load("config-b").size());
+            assertTrue(journal.load("config-c").isEmpty());
+        }
+        //crash in the middle of an append
+        Files.writeString(file, "config-a\tg1-1\tG1\t1\t0", StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (RunJournal journal = new RunJournal(file)) {
+            journal.append("config-a", runResult(GCType.G1, 1));
+            List<RunResult> runResults = journal.load("config-a");
+            assertEquals(3, runResults.size());
+            assertEquals(runResult(GCType.G1, 1), runResults.get(2));
+        }
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void testRunCache() throws IOException {
+        Path directory = Files.createTempDirectory("gcperf-cache");
+        RunCache runCache = new RunCache(directory);
+        String key = Digests.sha256("target|17|java -Xms16m -Xmx32m -XX:+UseSerialGC App|1");
+        assertTrue(runCache.lookup(key).isEmpty());
+        runCache.store(key, runResult(GCType.SERIAL, 1));
+        assertEquals(runResult(GCType.SERIAL, 1), runCache.lookup(key).orElseThrow());
+        assertTrue(new RunCache(directory).lookup(key).isPresent());
+        runCache.store(key, runResult(GCType.SERIAL, 2));
+        assertEquals(runResult(GCType.SERIAL, 2), runCache.lookup(key).orElseThrow());
+        Files.writeString(directory.resolve(key.substring(0, 2)).resolve(key.substring(2)), "garbage");
+        assertTrue(runCache.lookup(key).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> runCache.lookup("../etc"));
+    }
+
+    @Test
+    public void testFileResultStore() throws IOException {
+        Path directory = Files.createTempDirectory("gcperf-store");
+        Timestamp timestamp = new Timestamp(1_700_000_000_000L);
+        try (FileResultStore store = new FileResultStore(directory)) {
+            assertTrue(store.queryRows().isEmpty());
+            Map<String, List<GCType>> leaderboards = new LinkedHashMap<>();
+            leaderboards.put("17", List.of(GCType.G1, GCType.SERIAL));
+            leaderboards.put("21", List.of(GCType.ZGC));
+            store.insertRows(timestamp, "App\tmy.class", leaderboards);
+            store.insertRow(timestamp, "App.class", List.of(GCType.PARALLEL));
+        }
+        //crash in the middle of a batch
+        Files.writeString(directory.resolve("stats-000000.seg"), "begin\nApp.class\t1\t\t\t\t\t0\t17\nrun\tG1",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (FileResultStore store = new FileResultStore(directory)) {
+            store.insertAnalyses(List.of(new ResultStore.AnalysisRecord(timestamp, "Other.jar", "11",
+                    List.of(GCType.SHENANDOAH, GCType.G1), List.of(runResult(GCType.G1, 1), runResult(GCType.G1, 2)))));
+            Map<Integer, List<String>> rows = store.queryRows();
+            assertEquals(4, rows.size());
+            assertEquals(Map.of(4, List.of(runResult(GCType.G1, 1), runResult(GCType.G1, 2))), store.queryRuns());
+            assertEquals(store.queryRuns(), store.queryRuns(List.of(2, 4, 9)));
+            assertTrue(store.queryRuns(List.of(1, 3)).isEmpty());
+            assertEquals(List.of("App\tmy.class", "2", "0", "1", "0", "0", "0", String.valueOf(timestamp), "17"),
+                    rows.get(1));
+            assertEquals(List.of("App\tmy.class", "0", "0", "0", "1", "0", "0", String.valueOf(timestamp), "21"),
+                    rows.get(2));
+            assertEquals("null", rows.get(3).get(8));
+            assertEquals(List.of("Other.jar", "0", "0", "2", "0", "1", "0", String.valueOf(timestamp), "11"),
+                    rows.get(4));
+        }
+        FileResultStore store = new FileResultStore(directory);
+        store.close();
+        assertThrows(IllegalStateException.class, () -> store.insertRow(timestamp, "App.class", List.of()));
+        store.open();
+        assertEquals(4, store.queryRows().size());
+        store.close();
+        //a row missing a ranking field is malformed, its batch is skipped
+        Files.writeString(directory.resolve("stats-000000.seg"), "begin\nOld.class\t\t1\t\t\t\t0\t8\ncommit\n",
+                StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        try (FileResultStore reopened = new FileResultStore(directory)) {
+            assertEquals(4, reopened.queryRows().size());
+        }
+    }
+
+    @Test
+    public void testHistoryQuery() throws IOException {
+        Path directory = Files.createTempDirectory("gcperf-history");
+        try (FileResultStore store = new FileResultStore(directory)) {
+            for (int day = 0; day < 10; day++) {
+                Timestamp timestamp = new Timestamp(1_700_000_000_000L + day * 86_400_000L);
+                store.insertRow(timestamp, day % 2 == 0 ? "App.class" : "Other.jar", "17",
+                        day < 5 ? List.of(GCType.G1, GCType.SERIAL) : List.of(GCType.ZGC));
+            }
+            ResultStore.HistoryQuery appQuery = new ResultStore.HistoryQuery().withFileName("App.class");
+            List<ResultStore.HistoryRow> firstPage = store.queryHistory(appQuery, 0, 2);
+            assertEquals(List.of(1, 3), firstPage.stream().map(ResultStore.HistoryRow::id).toList());
+            assertEquals(List.of(GCType.G1, GCType.SERIAL), firstPage.get(0).leaderboard());
+            assertEquals(List.of(5, 7), store.queryHistory(appQuery, 3, 2).stream()
+                    .map(ResultStore.HistoryRow::id).toList());
+            assertEquals(List.of(9), store.queryHistory(appQuery, 7, 2).stream()
+                    .map(ResultStore.HistoryRow::id).toList());
+            ResultStore.HistoryQuery g1Query = new ResultStore.HistoryQuery().withGCType(GCType.G1)
+                    .withDateRange(new Timestamp(1_700_000_000_000L + 86_400_000L),
+                            new Timestamp(1_700_000_000_000L + 4 * 86_400_000L)).withFetchSize(1);
+            List<Integer> ids = new ArrayList<>();
+            try (ResultStore.HistoryCursor cursor = store.streamHistory(g1Query)) {
+                cursor.forEachRemaining(row -> ids.add(row.id()));
+            }
+            assertEquals(List.of(2, 3, 4), ids);
+            assertEquals(store.queryRows().get(6), store.queryHistory(new ResultStore.HistoryQuery(), 5, 1).get(0)
+                    .toStrings());
+            assertThrows(IllegalArgumentException.class, () -> store.queryHistory(appQuery, 0, 0));
+            assertThrows(IllegalArgumentException.class, () -> new ResultStore.HistoryQuery()
+                    .withDateRange(new Timestamp(2), new Timestamp(1)));
+        }
+    }
+
+    @Test
+    public void testHistoryAcrossSegments() throws IOException {
+        Path directory = Files.createTempDirectory("gcperf-segments");
+        List<RunResult> runs = new ArrayList<>();
+        for (int runNo = 1; runNo <= 20000; runNo++) {
+            runs.add(runResult(GCType.G1, runNo));
+        }
+        Timestamp timestamp = new Timestamp(1_700_000_000_000L);
+        try (FileResultStore store = new FileResultStore(directory)) {
+            //every batch is larger than a segment, so each one starts a new segment
+            for (int batch = 0; batch < 3; batch++) {
+                store.insertAnalyses(List.of(
+                        new ResultStore.AnalysisRecord(timestamp, "App" + batch + ".class", "17", List.of(GCType.G1),
+                                runs),
+                        new ResultStore.AnalysisRecord(timestamp, "Other" + batch + ".jar", "17", List.of(GCType.G1),
+                                List.of())));
+            }
+            try (var segments = Files.list(directory)) {
+                assertEquals(3, segments.count());
+            }
+            ResultStore.HistoryQuery query = new ResultStore.HistoryQuery();
+            assertEquals(List.of(1, 2), store.queryHistory(query, 0, 2).stream()
+                    .map(ResultStore.HistoryRow::id).toList());
+            assertEquals(List.of(3, 4), store.queryHistory(query, 2, 2).stream()
+                    .map(ResultStore.HistoryRow::id).toList());
+            assertEquals(List.of(5, 6), store.queryHistory(query, 4, 2).stream()
+                    .map(ResultStore.HistoryRow::id).toList());
+            //once their row counts are known, the segments before the page are not read again
+            Files.writeString(directory.resolve("stats-000000.seg"), "");
+            List<ResultStore.HistoryRow> page = store.queryHistory(query, 2, 2);
+            assertEquals(List.of(3, 4), page.stream().map(ResultStore.HistoryRow::id).toList());
+            assertEquals("App1.class", page.get(0).fileName());
+            assertEquals(runs, store.queryRuns(List.of(5)).get(5));
+        }
+    }
+
+    @Test
+    public void testPersistenceService() throws IOException, InterruptedException {
+        Path directory = Files.createTempDirectory("gcperf-store");
+        Timestamp timestamp = new Timestamp(1_700_000_000_000L);
+        CountDownLatch slowStore = new CountDownLatch(1);
+        FileResultStore store = new FileResultStore(directory) {
+            @Override
+            public void insertAnalyses(List<AnalysisRecord> analyses) throws IOException {
+                try {
+                    slowStore.await();
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                }
+                super.insertAnalyses(analyses);
+            }
+        };
+        PersistenceService service = new PersistenceService(store, 2);
+        List<ResultStore.AnalysisRecord> analyses = List.of(new ResultStore.AnalysisRecord(timestamp, "App.class",
+                "17", List.of(GCType.G1), List.of(runResult(GCType.G1, 1))));
+        //the writer is blocked on the first analysis, the queue holds two more, the rest is rejected without waiting
+        assertTrue(service.submit(analyses));
+        Thread.sleep(200);
+        assertTrue(service.submit(analyses));
+        assertTrue(service.submit(analyses));
+        assertFalse(service.submit(analyses));
+        assertEquals(1, service.getRejected());
+        assertFalse(service.flush(Duration.ofMillis(50)));
+        slowStore.countDown();
+        assertTrue(service.flush(Duration.ofSeconds(10)));
+        assertEquals(3, service.getWritten());
+        service.submit(analyses);
+        service.close();
+        assertThrows(IllegalStateException.class, () -> service.submit(analyses));
+        try (FileResultStore reopened = new FileResultStore(directory)) {
+            assertEquals(4, reopened.queryRows().size());
+            assertEquals(List.of(runResult(GCType.G1, 1)), reopened.queryRuns().get(4));
+        }
+    }
+
+    @Test
+    public void testPersistenceServiceCloseTimeout() throws IOException, InterruptedException {
+        AtomicBoolean writing = new AtomicBoolean();
+        AtomicBoolean closedWhileWriting = new AtomicBoolean();
+        FileResultStore store = new FileResultStore(Files.createTempDirectory("gcperf-store")) {
+            @Override
+            public void insertAnalyses(List<AnalysisRecord> analyses) throws IOException {
+                writing.set(true);
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException ex) {
+                    throw new IOException(ex);
+                } finally {
+                    writing.set(false);
+                }
+            }
+
+            @Override
+            public void close() {
+                closedWhileWriting.set(writing.get());
+                super.close();
+            }
+        };
+        PersistenceService service = new PersistenceService(store, 2);
+        assertTrue(service.submit(List.of(new ResultStore.AnalysisRecord(new Timestamp(1_700_000_000_000L),
+                "App.class", "17", List.of(GCType.G1), List.of(runResult(GCType.G1, 1))))));
+        Thread.sleep(200);
+        service.close(Duration.ofMillis(100)); //the writer is stopped before the store is closed
+        assertFalse(closedWhileWriting.get());
+        assertEquals(1, service.getFailed());
+    }
+
+    @Test
+    public void testColumnarResults() throws IOException {
+        Path file = Files.createTempDirectory("gcperf-columnar").resolve("results.gcpc");
+        RunResult withoutLog = new RunResult(GCType.ZGC, 1, 3, 1, 16, 32, 1.5, 0.01, 0.001, 99.9, 0, 3, 1250.5,
+                Double.NaN, Double.NaN, Double.NaN, null);
+        List<ColumnarResults.Run> runs = List.of(
+                new ColumnarResults.Run("17", runResult(GCType.SERIAL, 1), List.of(
+                        new Analysis.GCPause(0.101, 1.034, "Young (Allocation Failure)"),
+                        new Analysis.GCPause(0.641, 190.829, "Full (Ergonomics)"),
+                        new Analysis.GCPause(Double.NaN, 2.5, null))),
+                new ColumnarResults.Run("17", runResult(GCType.SERIAL, 2), List.of()),
+                new ColumnarResults.Run(null, withoutLog, List.of(new Analysis.GCPause(0.173, 0.222, "Mark Start"))),
+                new ColumnarResults.Run("21", runResult(GCType.G1, 1), List.of(
+                        new Analysis.GCPause(0.287, 10.615, "Young (Normal) (G1 Evacuation Pause)"))));
+        ColumnarResults.write(file, runs);
+        try (ColumnarResults.Reader reader = ColumnarResults.open(file)) {
+            assertEquals(4, reader.getRunCount());
+            assertEquals(5, reader.getPauseCount());
+            assertEquals(runs, reader.readRuns());
+            assertEquals(List.of(401L, 402L, 32L, 401L),
+                    Arrays.stream(reader.readLongs(ColumnarResults.Column.XMX)).boxed().toList());
+            assertArrayEquals(new double[]{1.034, 190.829, 2.5, 0.222, 10.615},
+                    reader.readDoubles(ColumnarResults.Column.PAUSE_DURATION), 0.0);
+            assertEquals(List.of("/tmp/out1.txt", "/tmp/out2.txt"),
+                    reader.readStrings(ColumnarResults.Column.LOG_FILE).subList(0, 2));
+            assertThrows(IllegalArgumentException.class, () -> reader.readLongs(ColumnarResults.Column.GC_TIME));
+        }
+        Files.writeString(file, "JDK,GCType,RunNo\n");
+        assertThrows(IllegalArgumentException.class, () -> ColumnarResults.open(file));
+    }
+
+    @Test
+    public void testLogArchive() throws IOException {
+        Path directory = Files.createTempDirectory("gcperf-archive");
+        Path logFile = directory.resolve("out.txt");
+        List<String> lines = new ArrayList<>();
+        lines.add("[0.004s][info][gc] Using G1");
+        for (int i = 0; i < 10000; i++) {
+            lines.add(String.format("[%d.%03ds][info][gc] GC(%d) Pause Young (Normal) (G1 Evacuation Pause) " +
+                    "24M->3M(256M) 1.%03dms", i / 100, i % 100 * 10, i, i % 1000));
+        }
+        lines.add("Finished in 100 s");
+        Files.write(logFile, lines, StandardCharsets.UTF_8);
+        LogArchive logArchive = new LogArchive(directory.resolve("archive"));
+        assertTrue(logArchive.open(logFile).isEmpty());
+        Path archived = logArchive.archive(logFile);
+        assertTrue(Files.size(archived) < Files.size(logFile) / 4);
+        try (LogArchive.Reader reader = logArchive.open(logFile).orElseThrow()) {
+            List<LogArchive.Block> blocks = reader.getBlocks();
+            assertTrue(blocks.size() > 3);
+            assertEquals(lines, reader.readAll());
+            assertEquals(lines.subList(2001, 2101), reader.readUptimeWindow(20.0, 20.99));
+            long overlapping = blocks.stream()
+                    .filter(block -> block.minUptime() <= 20.99 && block.maxUptime() >= 20.0).count();
+            assertTrue(overlapping >= 1 && overlapping <= 2);
+            assertEquals(lines.subList(5001, 5004), reader.readGcIds(5000, 5002));
+            assertEquals(List.of(), reader.readUptimeWindow(200.0, 300.0));
+        }
+        Files.writeString(archived, "not an archive");
+        assertThrows(IllegalArgumentException.class, () -> logArchive.open(logFile));
+    }
+}
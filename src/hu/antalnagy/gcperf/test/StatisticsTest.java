@@ -0,0 +1,93 @@
+package hu.antalnagy.gcperf.test;
+
+import hu.antalnagy.gcperf.statistics.Bootstrap;
+import hu.antalnagy.gcperf.statistics.ConfidenceInterval;
+import hu.antalnagy.gcperf.statistics.MannWhitneyU;
+import hu.antalnagy.gcperf.statistics.P2Quantile;
+import hu.antalnagy.gcperf.statistics.Quantiles;
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class StatisticsTest {
+
+    private final double EPSILON = 0.001;
+
+    @Test
+    public void testBootstrap() {
+        double[] sample = {1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0};
+        ConfidenceInterval interval = Bootstrap.meanConfidenceInterval(sample, 20000, 0.95, 42);
+        assertEquals(5.5, interval.estimate(), EPSILON);
+        assertTrue(interval.lower() > 3.5 && interval.lower() < 5.5);
+        assertTrue(interval.upper() > 5.5 && interval.upper() < 7.5);
+        assertEquals(interval, Bootstrap.meanConfidenceInterval(sample, 20000, 0.95, 42));
+        assertTrue(interval.overlaps(new ConfidenceInterval(7, 7, 8, 0.95)) == interval.upper() >= 7);
+
+        ConfidenceInterval single = Bootstrap.meanConfidenceInterval(new double[]{3.0}, 1000, 0.95, 1);
+        assertEquals(3.0, single.lower(), EPSILON);
+        assertEquals(3.0, single.upper(), EPSILON);
+
+        assertThrows(IllegalArgumentException.class, () -> Bootstrap.meanConfidenceInterval(new double[0], 1000, 0.95, 1));
+        assertThrows(IllegalArgumentException.class, () -> Bootstrap.meanConfidenceInterval(sample, 1000, 1.0, 1));
+    }
+
+    @Test
+    public void testMannWhitneyU() {
+        MannWhitneyU.Result separated = MannWhitneyU.test(new double[]{1, 2, 3}, new double[]{4, 5, 6});
+        assertTrue(separated.exact());
+        assertEquals(0, separated.u(), EPSILON);
+        assertEquals(0.1, separated.pValue(), EPSILON); //2 of the 20 orderings are this extreme
+
+        MannWhitneyU.Result reversed = MannWhitneyU.test(new double[]{4, 5, 6}, new double[]{1, 2, 3});
+        assertEquals(9, reversed.u(), EPSILON);
+        assertEquals(separated.pValue(), reversed.pValue(), EPSILON);
+
+        double[] a = new double[20];
+        double[] b = new double[20];
+        for (int i = 0; i < 20; i++) {
+            a[i] = i % 5;
+            b[i] = i % 5 + 3;
+        }
+        MannWhitneyU.Result tied = MannWhitneyU.test(a, b);
+        assertFalse(tied.exact());
+        assertTrue(tied.isSignificant(0.05));
+
+        MannWhitneyU.Result same = MannWhitneyU.test(new double[]{1, 1, 1}, new double[]{1, 1});
+        assertEquals(1.0, same.pValue(), EPSILON);
+        MannWhitneyU.Result overlapping = MannWhitneyU.test(new double[]{1, 3, 5, 7}, new double[]{2, 4, 6, 8});
+        assertFalse(overlapping.isSignificant(0.05));
+
+        assertThrows(IllegalArgumentException.class, () -> MannWhitneyU.test(new double[0], new double[]{1}));
+    }
+
+    @Test
+    public void testQuantiles() {
+        double[] sample = {5.0, 1.0, 4.0, 2.0, 3.0};
+        assertEquals(3.0, Quantiles.quantile(sample, 0.5), EPSILON);
+        assertEquals(5.0, Quantiles.quantile(sample, 0.99), EPSILON);
+        assertEquals(1.0, Quantiles.quantile(sample, 0.0), EPSILON);
+        assertTrue(Double.isNaN(Quantiles.quantile(new double[0], 0.99)));
+
+        P2Quantile p2Quantile = new P2Quantile(0.99);
+        assertTrue(Double.isNaN(p2Quantile.getQuantile()));
+        p2Quantile.add(2.0);
+        p2Quantile.add(7.0);
+        assertEquals(7.0, p2Quantile.getQuantile(), EPSILON);
+
+        SplittableRandom random = new SplittableRandom(7);
+        P2Quantile median = new P2Quantile(0.5);
+        P2Quantile tail = new P2Quantile(0.99);
+        double[] values = new double[100_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 100;
+            median.add(values[i]);
+            tail.add(values[i]);
+        }
+        assertEquals(Quantiles.quantile(values, 0.5), median.getQuantile(), 1.0);
+        assertEquals(Quantiles.quantile(values, 0.99), tail.getQuantile(), 0.5);
+        assertEquals(values.length, tail.getCount());
+        assertThrows(IllegalArgumentException.class, () -> new P2Quantile(1.0));
+    }
+}
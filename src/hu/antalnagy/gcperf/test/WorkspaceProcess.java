@@ -0,0 +1,28 @@
+package hu.antalnagy.gcperf.test;
+
+import hu.antalnagy.gcperf.Workspace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/***
+ * Second process for the workspace lock tests: "hold &lt;root&gt;" creates a workspace, prints its root and keeps it
+ * locked until its standard input is closed, "cleanup &lt;root&gt;" prints the number of workspaces cleanup removed.
+ */
+public class WorkspaceProcess {
+
+    public static void main(String[] args) throws IOException {
+        Path root = Path.of(args[1]);
+        if ("hold".equals(args[0])) {
+            try (Workspace workspace = Workspace.create(root)) {
+                System.out.println(workspace.getRoot());
+                System.out.flush();
+                while (System.in.read() != -1) {
+                    //held until the parent closes the pipe
+                }
+            }
+        } else {
+            System.out.println(Workspace.cleanup(root, 0, null));
+        }
+    }
+}